@@ -4,8 +4,10 @@ import io.smallrye.config.ConfigMapping;
 import io.smallrye.config.WithDefault;
 import io.smallrye.config.WithName;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalInt;
 
 @ConfigMapping(prefix = "aivox")
 public interface AivoxConfig {
@@ -50,6 +52,20 @@ public interface AivoxConfig {
 
     String getSegmentationOutputDir();
 
+    Scratch scratch();
+
+    @WithName("pcm-cache")
+    PcmCache pcmCache();
+
+    @WithName("look-ahead")
+    LookAhead lookAhead();
+
+    @WithName("play-history")
+    PlayHistory playHistory();
+
+    @WithName("ready-queue")
+    ReadyQueue readyQueue();
+
     interface Path {
         @WithDefault("uploads")
         String uploads();
@@ -68,6 +84,67 @@ public interface AivoxConfig {
         String path();
     }
 
+    interface Scratch {
+        /**
+         * RAM-backed directory (tmpfs) for short-lived intermediates; disk only when not set.
+         */
+        @WithName("ram-dir")
+        Optional<String> ramDir();
+
+        @WithName("ram-max-mb")
+        @WithDefault("512")
+        long ramMaxMb();
+    }
+
+    interface PcmCache {
+        /**
+         * Disk budget for decoded copies of mixed songs, least recently used ones go first.
+         */
+        @WithName("max-mb")
+        @WithDefault("2048")
+        long maxMb();
+    }
+
+    interface LookAhead {
+        /**
+         * Seconds of ready audio to keep ahead of the live edge, on top of the measured preparation time.
+         */
+        @WithName("target-seconds")
+        @WithDefault("240")
+        int targetSeconds();
+
+        /**
+         * Per-station ceiling for sliced audio held in memory ahead of the live edge.
+         */
+        @WithName("max-mb")
+        @WithDefault("64")
+        long maxMb();
+    }
+
+    interface PlayHistory {
+        /**
+         * Airings older than this are deleted from the play history; counts are kept.
+         */
+        @WithName("retention-days")
+        @WithDefault("90")
+        int retentionDays();
+    }
+
+    interface ReadyQueue {
+        /**
+         * Most of the agent's fragments held sliced per station; unbounded when not set.
+         */
+        @WithName("prioritized-capacity")
+        OptionalInt prioritizedCapacity();
+
+        /**
+         * Latest start on air for the agent's content that arrives without a scene deadline, counted from
+         * the request; such content is never dropped when not set.
+         */
+        @WithName("prioritized-shelf-life")
+        Optional<Duration> prioritizedShelfLife();
+    }
+
     interface Segmentation {
         Output output();
 
@@ -0,0 +1,14 @@
+package com.semantyca.aivox.model;
+
+import com.semantyca.mixpla.model.cnst.PlaylistItemType;
+import com.semantyca.mixpla.model.cnst.SourceType;
+
+import java.util.UUID;
+
+/**
+ * One fragment of a brand as the in-memory catalog needs it: no files, no descriptions.
+ */
+public record CatalogEntry(UUID id, PlaylistItemType type, SourceType source, String title, String artist, String album,
+                           long lengthMillis, UUID[] genres, UUID[] labels, int playCount, boolean archived) {
+
+}
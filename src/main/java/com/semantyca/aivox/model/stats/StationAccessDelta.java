@@ -0,0 +1,13 @@
+package com.semantyca.aivox.model.stats;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Accesses to a station since the last flush, with the details of the latest one.
+ *
+ * @param countryCode {@code null} when the country is unknown
+ */
+public record StationAccessDelta(String stationName, long accessCount, OffsetDateTime lastAccessTime, String userAgent,
+                                 String ipAddress, String countryCode) {
+
+}
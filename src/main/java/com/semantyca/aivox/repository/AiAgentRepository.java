@@ -37,6 +37,9 @@ import static com.semantyca.mixpla.repository.MixplaNameResolver.AI_AGENT;
 public class AiAgentRepository extends AsyncRepository {
     private static final Logger LOGGER = Logger.getLogger(AiAgentRepository.class);
     private static final EntityData entityData = MixplaNameResolver.create().getEntityNames(AI_AGENT);
+    private static final RelationLoader<UUID> LABELS = new RelationLoader<>(
+            "SELECT ai_agent_id, label_id FROM kneobroadcaster__ai_agent_labels WHERE ai_agent_id = ANY($1)",
+            row -> row.getUUID("ai_agent_id"), row -> row.getUUID("label_id"));
 
     @Inject
     public AiAgentRepository(PgPool client, ObjectMapper mapper, RLSRepository rlsRepository) {
@@ -59,15 +62,13 @@ public class AiAgentRepository extends AsyncRepository {
 
         return client.query(sql)
                 .execute()
-                .onItem().transformToMulti(rows -> Multi.createFrom().iterable(rows))
-                .onItem().transform(this::from)
-                .onItem().transformToUni(agent -> loadLabels(agent.getId())
-                        .onItem().transform(labels -> {
-                            agent.setLabels(labels);
-                            return agent;
-                        }))
-                .merge()
-                .collect().asList();
+                .onItem().transformToUni(rows -> {
+                    List<AiAgent> agents = new ArrayList<>();
+                    for (Row row : rows) {
+                        agents.add(from(row));
+                    }
+                    return withLabels(agents);
+                });
     }
 
     public Uni<Integer> getAllCount(IUser user, boolean includeArchived) {
@@ -112,6 +113,67 @@ public class AiAgentRepository extends AsyncRepository {
     }
 
 
+    /**
+     * Every agent that is not archived, labels included, for the process-wide read model.
+     */
+    public Uni<List<AiAgent>> getAllActive() {
+        String sql = "SELECT * FROM " + entityData.getTableName() + " WHERE archived IS NULL OR archived = 0";
+        return client.query(sql)
+                .execute()
+                .onItem().transformToUni(rows -> {
+                    List<AiAgent> agents = new ArrayList<>();
+                    for (Row row : rows) {
+                        agents.add(from(row));
+                    }
+                    return withLabels(agents);
+                });
+    }
+
+    /**
+     * @return the agent with its labels, or {@code null} when it is gone or archived
+     */
+    public Uni<AiAgent> findActive(UUID id) {
+        String sql = "SELECT * FROM " + entityData.getTableName() + " WHERE id = $1 AND (archived IS NULL OR archived = 0)";
+        return client.preparedQuery(sql)
+                .execute(Tuple.of(id))
+                .onItem().transformToUni(rows -> {
+                    List<AiAgent> agents = new ArrayList<>();
+                    for (Row row : rows) {
+                        agents.add(from(row));
+                    }
+                    return withLabels(agents);
+                })
+                .onItem().transform(agents -> agents.isEmpty() ? null : agents.get(0));
+    }
+
+    /**
+     * Changes whenever an agent is added, removed, archived or modified, or a label is attached or detached.
+     */
+    public Uni<String> fingerprint() {
+        String sql = "SELECT count(*) || ':' || count(*) FILTER (WHERE archived IS NULL OR archived = 0) || ':' || " +
+                "coalesce(max(last_mod_date)::text, '') || ':' || " +
+                "(SELECT count(*) || ':' || coalesce(sum(hashtext(ai_agent_id::text || label_id::text)), 0) " +
+                "FROM kneobroadcaster__ai_agent_labels) FROM " + entityData.getTableName();
+        return client.query(sql)
+                .execute()
+                .onItem().transform(rows -> rows.iterator().next().getString(0));
+    }
+
+    /**
+     * @return the agent and agent label tables that have no change trigger for {@code channel}
+     */
+    public Uni<List<String>> missingChangeNotifications(String channel) {
+        return ChangeNotifications.missing(client, channel, entityData.getTableName(), "kneobroadcaster__ai_agent_labels");
+    }
+
+    private Uni<List<AiAgent>> withLabels(List<AiAgent> agents) {
+        return LABELS.load(client, agents.stream().map(AiAgent::getId).toList())
+                .onItem().transform(labels -> {
+                    agents.forEach(agent -> agent.setLabels(RelationLoader.of(labels, agent.getId())));
+                    return agents;
+                });
+    }
+
     private AiAgent from(Row row) {
         AiAgent doc = new AiAgent();
         setDefaultFields(doc, row);
@@ -0,0 +1,37 @@
+package com.semantyca.aivox.repository;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.Tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Row triggers that send {@code NOTIFY <channel>, '<id>'} after every insert, update or delete, so a listener
+ * reloads just the row that changed. The schema owner creates them with {@code db/schema/01_change_notifications.sql};
+ * the application only checks for them and listens, it never runs DDL.
+ */
+public final class ChangeNotifications {
+
+    private ChangeNotifications() {
+    }
+
+    /**
+     * @return the tables among {@code tables} that do not exist or have no trigger for {@code channel}
+     */
+    public static Uni<List<String>> missing(SqlClient client, String channel, String... tables) {
+        String sql = "SELECT name FROM unnest($1::text[]) AS t(name) WHERE NOT EXISTS " +
+                "(SELECT 1 FROM pg_trigger WHERE tgname = $2 AND tgrelid = to_regclass(name))";
+        return client.preparedQuery(sql)
+                .execute(Tuple.tuple().addArrayOfString(tables).addString("aivox_notify_" + channel))
+                .onItem().transform(rows -> {
+                    List<String> result = new ArrayList<>();
+                    for (Row row : rows) {
+                        result.add(row.getString(0));
+                    }
+                    return result;
+                });
+    }
+}
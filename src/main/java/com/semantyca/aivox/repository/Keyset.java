@@ -0,0 +1,11 @@
+package com.semantyca.aivox.repository;
+
+import java.util.UUID;
+
+/**
+ * Position after the last row of a page: its sort value and id as the tiebreak. The next page seeks
+ * past it through the index instead of reading and discarding {@code OFFSET} rows, so every page costs
+ * the same however deep it is.
+ */
+public record Keyset(Object value, UUID id) {
+}
@@ -0,0 +1,9 @@
+package com.semantyca.aivox.repository;
+
+import java.util.List;
+
+/**
+ * @param next position to pass for the following page, {@code null} once a page comes back short
+ */
+public record KeysetPage<T>(List<T> items, Keyset next) {
+}
@@ -0,0 +1,56 @@
+package com.semantyca.aivox.repository;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.Tuple;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * One relation of a list query, resolved for every parent of the page in a single round trip instead
+ * of one query per row. The SQL selects the parent id next to the related value and filters with
+ * {@code = ANY($1)} on the parent id; values keep the order the query returns them in.
+ */
+public final class RelationLoader<T> {
+    private final String sql;
+    private final Function<Row, UUID> parentOf;
+    private final Function<Row, T> valueOf;
+
+    public RelationLoader(String sql, Function<Row, UUID> parentOf, Function<Row, T> valueOf) {
+        this.sql = sql;
+        this.parentOf = parentOf;
+        this.valueOf = valueOf;
+    }
+
+    /**
+     * @return related values by parent id; parents without any are absent, see {@link #of}
+     */
+    public Uni<Map<UUID, List<T>>> load(SqlClient client, Collection<UUID> parentIds) {
+        if (parentIds.isEmpty()) {
+            return Uni.createFrom().item(Map.of());
+        }
+        UUID[] ids = new LinkedHashSet<>(parentIds).toArray(new UUID[0]);
+        StatementStats.record(sql);
+        return client.preparedQuery(sql)
+                .execute(Tuple.tuple().addArrayOfUUID(ids))
+                .onItem().transform(rows -> {
+                    Map<UUID, List<T>> result = new HashMap<>();
+                    for (Row row : rows) {
+                        result.computeIfAbsent(parentOf.apply(row), id -> new ArrayList<>()).add(valueOf.apply(row));
+                    }
+                    return result;
+                });
+    }
+
+    public static <T> List<T> of(Map<UUID, List<T>> loaded, UUID parentId) {
+        return loaded.getOrDefault(parentId, List.of());
+    }
+}
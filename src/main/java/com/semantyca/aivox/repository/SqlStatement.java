@@ -0,0 +1,58 @@
+package com.semantyca.aivox.repository;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowSet;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.Tuple;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * SQL text built next to its parameters. Values never go into the text; a list binds as one array
+ * parameter, so the text depends only on which clauses the query uses and the client's prepared
+ * statement cache sees the same few statements whatever the filter values, page size or position.
+ */
+public final class SqlStatement {
+    private final StringBuilder sql = new StringBuilder();
+    private final Tuple params = Tuple.tuple();
+    private int count;
+
+    public SqlStatement append(String text) {
+        sql.append(text);
+        return this;
+    }
+
+    /**
+     * @return the placeholder for {@code value}, to be appended once or several times
+     */
+    public String bind(Object value) {
+        params.addValue(value);
+        return "$" + (++count);
+    }
+
+    public String bindUuids(Collection<UUID> values) {
+        params.addArrayOfUUID(values.toArray(new UUID[0]));
+        return "$" + (++count) + "::uuid[]";
+    }
+
+    public String bindStrings(Collection<String> values) {
+        params.addArrayOfString(values.toArray(new String[0]));
+        return "$" + (++count) + "::text[]";
+    }
+
+    public String sql() {
+        return sql.toString();
+    }
+
+    public Tuple params() {
+        return params;
+    }
+
+    public Uni<RowSet<Row>> execute(SqlClient client) {
+        String text = sql.toString();
+        StatementStats.record(text);
+        return client.preparedQuery(text).execute(params);
+    }
+}
@@ -0,0 +1,50 @@
+package com.semantyca.aivox.repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts statements sent through {@link SqlStatement} and {@link RelationLoader} by their text. A hit is
+ * a text this process has already sent, i.e. one a warm connection answers from its prepared statement
+ * cache instead of parsing and planning again; the first use on each pooled connection still prepares,
+ * so hits are an upper bound for the driver's own cache. A growing {@code statements} count means some
+ * query is leaking values into its text.
+ */
+public final class StatementStats {
+    private static final Set<String> SEEN = ConcurrentHashMap.newKeySet();
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+    private StatementStats() {
+    }
+
+    static void record(String sql) {
+        if (SEEN.add(sql)) {
+            MISSES.increment();
+        } else {
+            HITS.increment();
+        }
+    }
+
+    public static long getHits() {
+        return HITS.sum();
+    }
+
+    public static long getMisses() {
+        return MISSES.sum();
+    }
+
+    public static Map<String, Object> snapshot() {
+        long hits = HITS.sum();
+        long misses = MISSES.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("statements", SEEN.size());
+        result.put("hits", hits);
+        result.put("misses", misses);
+        result.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return result;
+    }
+}
@@ -1,6 +1,8 @@
 package com.semantyca.aivox.repository.brand;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.semantyca.aivox.model.stats.StationAccessDelta;
+import com.semantyca.aivox.repository.ChangeNotifications;
 import com.semantyca.core.model.cnst.LanguageCode;
 import com.semantyca.core.model.user.IUser;
 import com.semantyca.core.repository.AsyncRepository;
@@ -28,6 +30,7 @@ import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.UUID;
@@ -40,6 +43,7 @@ import static com.semantyca.mixpla.repository.MixplaNameResolver.RADIO_STATION;
 public class BrandRepository extends AsyncRepository {
     private static final EntityData entityData = MixplaNameResolver.create().getEntityNames(RADIO_STATION);
     private static final EntityData brandStats = MixplaNameResolver.create().getEntityNames(BRAND_STATS);
+    private static final String STATS_BATCH_TABLE = "kneobroadcaster__brand_stats_batches";
 
     @Inject
     public BrandRepository(PgPool client, ObjectMapper mapper, RLSRepository rlsRepository) {
@@ -107,6 +111,51 @@ public class BrandRepository extends AsyncRepository {
                     }
                 });
     }
+    /**
+     * Every brand that is not archived, public or not, for the process-wide read model.
+     */
+    public Uni<List<Brand>> getAllActive() {
+        String sql = "SELECT * FROM " + entityData.getTableName() + " WHERE archived = 0";
+        return client.query(sql)
+                .execute()
+                .onItem().transform(rows -> {
+                    List<Brand> result = new ArrayList<>();
+                    for (Row row : rows) {
+                        result.add(from(row));
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * @return the brand, or {@code null} when it is gone or archived
+     */
+    public Uni<Brand> findActive(UUID id) {
+        String sql = "SELECT * FROM " + entityData.getTableName() + " WHERE id = $1 AND archived = 0";
+        return client.preparedQuery(sql)
+                .execute(Tuple.of(id))
+                .onItem().transform(RowSet::iterator)
+                .onItem().transform(iterator -> iterator.hasNext() ? from(iterator.next()) : null);
+    }
+
+    /**
+     * Changes whenever a row is added, removed, archived or modified through the usual {@code last_mod_date} bump.
+     */
+    public Uni<String> fingerprint() {
+        String sql = "SELECT count(*) || ':' || count(*) FILTER (WHERE archived = 0) || ':' || " +
+                "coalesce(max(last_mod_date)::text, '') FROM " + entityData.getTableName();
+        return client.query(sql)
+                .execute()
+                .onItem().transform(rows -> rows.iterator().next().getString(0));
+    }
+
+    /**
+     * @return the brand table if it has no change trigger for {@code channel}, otherwise nothing
+     */
+    public Uni<List<String>> missingChangeNotifications(String channel) {
+        return ChangeNotifications.missing(client, channel, entityData.getTableName());
+    }
+
     public Uni<List<BrandScriptEntry>> getScriptEntriesForBrand(UUID brandId) {
         String sql = "SELECT script_id, user_variables FROM kneobroadcaster__brand_scripts WHERE brand_id = $1 ORDER BY rank";
         return client.preparedQuery(sql)
@@ -124,16 +173,34 @@ public class BrandRepository extends AsyncRepository {
                 .collect().asList();
     }
 
-    public Uni<Void> upsertStationAccessWithCountAndGeo(String stationName, Long accessCount, OffsetDateTime lastAccessTime, String userAgent, String ipAddress, String countryCode) {
-        String sql = "INSERT INTO " + brandStats.getTableName() +
-                " (station_name, access_count, last_access_time, user_agent, ip_address, country_code) " +
-                "VALUES ($1, $2, $3, $4, $5, $6) " +
-                "ON CONFLICT (station_name, ip_address, country_code) " +
-                "DO UPDATE SET access_count = EXCLUDED.access_count + " + brandStats.getTableName() + ".access_count, last_access_time = $3, user_agent = $4;";
+    /**
+     * Applies a flush batch of station and geo access deltas in one statement. With {@code idempotent} the batch id
+     * is recorded in the same transaction, and a batch that was already applied is skipped, so a replay after a
+     * lost acknowledgement does not count twice.
+     *
+     * @return false when the batch had already been applied
+     */
+    public Uni<Boolean> applyStationAccessBatch(UUID batchId, List<StationAccessDelta> deltas, boolean idempotent) {
+        String upsert = StationAccessUpsert.sql(brandStats.getTableName());
+        Tuple params = StationAccessUpsert.params(deltas);
+        if (!idempotent) {
+            return client.preparedQuery(upsert).execute(params).replaceWith(true);
+        }
+        String mark = "INSERT INTO " + STATS_BATCH_TABLE + " (batch_id, applied_at) VALUES ($1, now()) ON CONFLICT DO NOTHING";
+        return client.withTransaction(connection -> connection.preparedQuery(mark)
+                .execute(Tuple.of(batchId))
+                .chain(marked -> marked.rowCount() == 0
+                        ? Uni.createFrom().item(false)
+                        : connection.preparedQuery(upsert).execute(params).replaceWith(true)));
+    }
 
-        return client.preparedQuery(sql)
-                .execute(Tuple.of(stationName, accessCount, lastAccessTime, userAgent, ipAddress, countryCode))
-                .replaceWithVoid();
+    /**
+     * Forgets applied flush batches old enough to never be replayed. Fails when the table, created by
+     * {@code db/schema/03_brand_stats_batches.sql}, is missing.
+     */
+    public Uni<Void> pruneStatsBatches() {
+        String prune = "DELETE FROM " + STATS_BATCH_TABLE + " WHERE applied_at < now() - interval '7 days'";
+        return client.query(prune).execute().replaceWithVoid();
     }
 
     public Uni<OffsetDateTime> findLastAccessTimeByStationName(String stationName) {
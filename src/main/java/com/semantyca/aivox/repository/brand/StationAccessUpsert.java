@@ -0,0 +1,35 @@
+package com.semantyca.aivox.repository.brand;
+
+import com.semantyca.aivox.model.stats.StationAccessDelta;
+import io.vertx.mutiny.sqlclient.Tuple;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Upserts any number of station access deltas in one statement, one array parameter per column. Rows must not
+ * repeat a (station, ip, country) key: {@code ON CONFLICT DO UPDATE} cannot touch the same row twice.
+ */
+public final class StationAccessUpsert {
+
+    private StationAccessUpsert() {
+    }
+
+    public static String sql(String table) {
+        return "INSERT INTO " + table + " (station_name, access_count, last_access_time, user_agent, ip_address, country_code) " +
+                "SELECT * FROM unnest($1::text[], $2::bigint[], $3::timestamptz[], $4::text[], $5::text[], $6::text[]) " +
+                "ON CONFLICT (station_name, ip_address, country_code) " +
+                "DO UPDATE SET access_count = " + table + ".access_count + EXCLUDED.access_count, " +
+                "last_access_time = EXCLUDED.last_access_time, user_agent = EXCLUDED.user_agent";
+    }
+
+    public static Tuple params(List<StationAccessDelta> deltas) {
+        return Tuple.tuple()
+                .addArrayOfString(deltas.stream().map(StationAccessDelta::stationName).toArray(String[]::new))
+                .addArrayOfLong(deltas.stream().map(StationAccessDelta::accessCount).toArray(Long[]::new))
+                .addArrayOfOffsetDateTime(deltas.stream().map(StationAccessDelta::lastAccessTime).toArray(OffsetDateTime[]::new))
+                .addArrayOfString(deltas.stream().map(StationAccessDelta::userAgent).toArray(String[]::new))
+                .addArrayOfString(deltas.stream().map(StationAccessDelta::ipAddress).toArray(String[]::new))
+                .addArrayOfString(deltas.stream().map(StationAccessDelta::countryCode).toArray(String[]::new));
+    }
+}
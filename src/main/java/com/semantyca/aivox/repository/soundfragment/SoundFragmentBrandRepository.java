@@ -1,6 +1,10 @@
 package com.semantyca.aivox.repository.soundfragment;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.semantyca.aivox.model.CatalogEntry;
+import com.semantyca.aivox.repository.Keyset;
+import com.semantyca.aivox.repository.KeysetPage;
+import com.semantyca.aivox.repository.SqlStatement;
 import com.semantyca.core.model.user.IUser;
 import com.semantyca.core.repository.rls.RLSRepository;
 import com.semantyca.mixpla.model.cnst.PlaylistItemType;
@@ -15,7 +19,8 @@ import io.vertx.mutiny.sqlclient.Tuple;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
-import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -28,25 +33,72 @@ public class SoundFragmentBrandRepository extends SoundFragmentRepositoryAbstrac
     }
 
     public Uni<List<SoundFragment>> getBrandSongs(UUID brandId, PlaylistItemType fragmentType, final int limit, final int offset) {
-        String sql = "SELECT t.*, " +
+        SqlStatement sql = brandSongs(brandId, fragmentType);
+        sql.append(" ORDER BY bsf.played_by_brand_count, t.id");
+        if (limit > 0) {
+            sql.append(" LIMIT ").append(sql.bind(limit)).append(" OFFSET ").append(sql.bind(offset));
+        }
+
+        return sql.execute(client)
+                .onItem().transformToUni(rowSet -> from(rows(rowSet), true, false, true));
+    }
+
+    /**
+     * Least played first, seeking on {@code (played_by_brand_count, id)}.
+     *
+     * @param after {@link KeysetPage#next()} of the previous page, {@code null} for the first one
+     */
+    public Uni<KeysetPage<SoundFragment>> getBrandSongs(UUID brandId, PlaylistItemType fragmentType, final int limit, final Keyset after) {
+        SqlStatement sql = brandSongs(brandId, fragmentType);
+        if (after != null) {
+            sql.append(" AND (bsf.played_by_brand_count, t.id) > (").append(sql.bind(after.value()))
+                    .append(", ").append(sql.bind(after.id())).append(")");
+        }
+        sql.append(" ORDER BY bsf.played_by_brand_count, t.id LIMIT ").append(sql.bind(limit));
+
+        return sql.execute(client)
+                .onItem().transformToUni(rowSet -> {
+                    List<Row> rows = rows(rowSet);
+                    Row last = rows.isEmpty() || rows.size() < limit ? null : rows.get(rows.size() - 1);
+                    Keyset next = last != null ? new Keyset(last.getInteger("played_by_brand_count"), last.getUUID("id")) : null;
+                    return from(rows, true, false, true).map(songs -> new KeysetPage<>(songs, next));
+                });
+    }
+
+    private SqlStatement brandSongs(UUID brandId, PlaylistItemType fragmentType) {
+        SqlStatement sql = new SqlStatement();
+        return sql.append("SELECT t.*, bsf.played_by_brand_count " +
+                        "FROM " + entityData.getTableName() + " t " +
+                        "JOIN kneobroadcaster__brand_sound_fragments bsf ON t.id = bsf.sound_fragment_id " +
+                        "WHERE bsf.brand_id = ").append(sql.bind(brandId))
+                .append(" AND t.archived = 0 AND t.type = ").append(sql.bind(fragmentType));
+    }
+
+    /**
+     * Every fragment of the brand in one query, archived ones included, for the in-memory catalog.
+     *
+     * @param changedSince when set, only rows modified after it
+     */
+    public Uni<List<CatalogEntry>> getCatalogEntries(UUID brandId, LocalDateTime changedSince) {
+        String sql = "SELECT t.id, t.type, t.source, t.title, t.artist, t.album, t.length, t.archived, bsf.played_by_brand_count, " +
                 "array_agg(DISTINCT sfg.genre_id) FILTER (WHERE sfg.genre_id IS NOT NULL) AS genre_ids, " +
                 "array_agg(DISTINCT sfl.label_id) FILTER (WHERE sfl.label_id IS NOT NULL) AS label_ids " +
                 "FROM " + entityData.getTableName() + " t " +
                 "JOIN kneobroadcaster__brand_sound_fragments bsf ON t.id = bsf.sound_fragment_id " +
                 "LEFT JOIN kneobroadcaster__sound_fragment_genres sfg ON sfg.sound_fragment_id = t.id " +
                 "LEFT JOIN kneobroadcaster__sound_fragment_labels sfl ON sfl.id = t.id " +
-                "WHERE bsf.brand_id = $1 AND t.archived = 0 AND t.type = $2 " +
-                "GROUP BY t.id, bsf.played_by_brand_count " +
-                "ORDER BY bsf.played_by_brand_count";
-
-        if (limit > 0) {
-            sql += String.format(" LIMIT %s OFFSET %s", limit, offset);
+                "WHERE bsf.brand_id = $1 ";
+        Tuple params = Tuple.of(brandId);
+        if (changedSince != null) {
+            sql += "AND t.last_mod_date > $2 ";
+            params.addLocalDateTime(changedSince);
         }
+        sql += "GROUP BY t.id, bsf.played_by_brand_count";
 
         return client.preparedQuery(sql)
-                .execute(Tuple.of(brandId, fragmentType))
+                .execute(params)
                 .onItem().transformToMulti(rows -> Multi.createFrom().iterable(rows))
-                .onItem().transform(this::from)
+                .onItem().transform(this::toCatalogEntry)
                 .collect().asList();
     }
 
@@ -72,17 +124,34 @@ public class SoundFragmentBrandRepository extends SoundFragmentRepositoryAbstrac
 
         return client.preparedQuery(sql)
                 .execute(Tuple.of(brandId, user.getId(), keyword))
-                .onItem().transformToMulti(rows -> Multi.createFrom().iterable(rows))
-                .onItem().transformToUni(row -> {
-                    Uni<SoundFragment> soundFragmentUni = from(row, true, false, true);
-                    return soundFragmentUni.onItem().transform(soundFragment -> {
-                        BrandSoundFragment brandSoundFragment = createBrandSoundFragment(row, brandId);
-                        brandSoundFragment.setSoundFragment(soundFragment);
-                        return brandSoundFragment;
-                    });
-                })
-                .concatenate()
-                .collect().asList();
+                .onItem().transformToUni(rowSet -> toBrandSoundFragments(rows(rowSet), brandId));
+    }
+
+    /**
+     * Hydrates search results ranked elsewhere; the order of {@code ids} is not preserved.
+     */
+    public Uni<List<BrandSoundFragment>> findForBrandByIds(UUID brandId, List<UUID> ids, IUser user) {
+        String sql = "SELECT t.*, bsf.played_by_brand_count, bsf.rated_by_brand_count, bsf.last_time_played_by_brand " +
+                "FROM " + entityData.getTableName() + " t " +
+                "JOIN kneobroadcaster__brand_sound_fragments bsf ON t.id = bsf.sound_fragment_id " +
+                "JOIN " + entityData.getRlsName() + " rls ON t.id = rls.entity_id " +
+                "WHERE bsf.brand_id = $1 AND rls.reader = $2 AND t.id = ANY($3)";
+
+        return client.preparedQuery(sql)
+                .execute(Tuple.of(brandId, user.getId(), ids.toArray(new UUID[0])))
+                .onItem().transformToUni(rowSet -> toBrandSoundFragments(rows(rowSet), brandId));
+    }
+
+    private Uni<List<BrandSoundFragment>> toBrandSoundFragments(List<Row> rows, UUID brandId) {
+        return from(rows, true, false, true).onItem().transform(soundFragments -> {
+            List<BrandSoundFragment> result = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                BrandSoundFragment brandSoundFragment = createBrandSoundFragment(rows.get(i), brandId);
+                brandSoundFragment.setSoundFragment(soundFragments.get(i));
+                result.add(brandSoundFragment);
+            }
+            return result;
+        });
     }
 
     private BrandSoundFragment createBrandSoundFragment(Row row, UUID brandId) {
@@ -95,30 +164,20 @@ public class SoundFragmentBrandRepository extends SoundFragmentRepositoryAbstrac
         return brandSoundFragment;
     }
 
-    private SoundFragment from(Row row) {
-        SoundFragment doc = new SoundFragment();
-        setDefaultFields(doc, row);
-        doc.setSource(SourceType.valueOf(row.getString("source")));
-        doc.setStatus(row.getInteger("status"));
-        doc.setType(PlaylistItemType.valueOf(row.getString("type")));
-        doc.setTitle(row.getString("title"));
-        doc.setArtist(row.getString("artist"));
-        doc.setAlbum(row.getString("album"));
-        if (row.getValue("length") != null) {
-            doc.setLength(Duration.ofMillis(row.getLong("length")));
-        }
-        doc.setArchived(row.getInteger("archived"));
-        doc.setSlugName(row.getString("slug_name"));
-        doc.setDescription(row.getString("description"));
-        doc.setExpiresAt(row.getLocalDateTime("expires_at"));
-
-        UUID[] genreArr = (UUID[]) row.getValue("genre_ids");
-        doc.setGenres(genreArr != null ? List.of(genreArr) : List.of());
-
-        UUID[] labelArr = (UUID[]) row.getValue("label_ids");
-        doc.setLabels(labelArr != null ? List.of(labelArr) : List.of());
-
-        doc.setFileMetadataList(List.of());
-        return doc;
+    private CatalogEntry toCatalogEntry(Row row) {
+        Long length = row.getLong("length");
+        Integer playCount = row.getInteger("played_by_brand_count");
+        return new CatalogEntry(
+                row.getUUID("id"),
+                PlaylistItemType.valueOf(row.getString("type")),
+                SourceType.valueOf(row.getString("source")),
+                row.getString("title"),
+                row.getString("artist"),
+                row.getString("album"),
+                length != null ? length : 0,
+                (UUID[]) row.getValue("genre_ids"),
+                (UUID[]) row.getValue("label_ids"),
+                playCount != null ? playCount : 0,
+                row.getInteger("archived") != 0);
     }
 }
\ No newline at end of file
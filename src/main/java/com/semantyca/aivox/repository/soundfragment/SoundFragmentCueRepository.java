@@ -0,0 +1,93 @@
+package com.semantyca.aivox.repository.soundfragment;
+
+import com.semantyca.aivox.service.manipulation.probe.CuePoints;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cue points of the fragments' first files, created by {@code db/schema/04_sound_fragment_cues.sql}. Rows
+ * analyzed from a file that is no longer the fragment's first one are never returned.
+ */
+@ApplicationScoped
+public class SoundFragmentCueRepository {
+    static final String CUE_TABLE = "kneobroadcaster__sound_fragment_cues";
+    private static final String CURRENT_FILE = "c.file_key = (SELECT f.file_key FROM _files f " +
+            "WHERE f.parent_id = c.sound_fragment_id ORDER BY f.reg_date LIMIT 1)";
+
+    private final PgPool client;
+
+    @Inject
+    public SoundFragmentCueRepository(PgPool client) {
+        this.client = client;
+    }
+
+    public Uni<Boolean> hasCueTable() {
+        return client.preparedQuery("SELECT to_regclass($1) IS NOT NULL")
+                .execute(Tuple.of(CUE_TABLE))
+                .onItem().transform(rows -> rows.iterator().next().getBoolean(0));
+    }
+
+    /**
+     * @return cue points by fragment id, for the brand's fragments that have them
+     */
+    public Uni<Map<UUID, CuePoints>> getBrandCues(UUID brandId) {
+        String sql = "SELECT c.* FROM " + CUE_TABLE + " c " +
+                "JOIN kneobroadcaster__brand_sound_fragments bsf ON bsf.sound_fragment_id = c.sound_fragment_id " +
+                "WHERE bsf.brand_id = $1 AND " + CURRENT_FILE;
+        return client.preparedQuery(sql)
+                .execute(Tuple.of(brandId))
+                .onItem().transform(rows -> {
+                    Map<UUID, CuePoints> result = new HashMap<>();
+                    for (Row row : rows) {
+                        result.put(row.getUUID("sound_fragment_id"), from(row));
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * @return the fragment's cue points, or null when its first file has not been analyzed
+     */
+    public Uni<CuePoints> getCues(UUID fragmentId) {
+        String sql = "SELECT c.* FROM " + CUE_TABLE + " c WHERE c.sound_fragment_id = $1 AND " + CURRENT_FILE;
+        return client.preparedQuery(sql)
+                .execute(Tuple.of(fragmentId))
+                .onItem().transform(rows -> rows.rowCount() == 0 ? null : from(rows.iterator().next()));
+    }
+
+    /**
+     * @param fileKey storage key of the file the points were analyzed from
+     */
+    public Uni<Void> save(UUID fragmentId, String fileKey, CuePoints cues) {
+        String sql = "INSERT INTO " + CUE_TABLE + " (sound_fragment_id, file_key, cue_in, cue_out, fade_out_start, " +
+                "intro_end, duration, analyzed_at) VALUES ($1, $2, $3, $4, $5, $6, $7, $8) " +
+                "ON CONFLICT (sound_fragment_id) DO UPDATE SET file_key = EXCLUDED.file_key, " +
+                "cue_in = EXCLUDED.cue_in, cue_out = EXCLUDED.cue_out, fade_out_start = EXCLUDED.fade_out_start, " +
+                "intro_end = EXCLUDED.intro_end, duration = EXCLUDED.duration, analyzed_at = EXCLUDED.analyzed_at";
+        Tuple params = Tuple.tuple()
+                .addUUID(fragmentId)
+                .addString(fileKey)
+                .addDouble(cues.cueIn())
+                .addDouble(cues.cueOut())
+                .addDouble(cues.fadeOutStart())
+                .addDouble(cues.introEnd())
+                .addDouble(cues.duration())
+                .addLocalDateTime(LocalDateTime.now(ZoneOffset.UTC));
+        return client.preparedQuery(sql).execute(params).replaceWithVoid();
+    }
+
+    private static CuePoints from(Row row) {
+        return new CuePoints(row.getDouble("cue_in"), row.getDouble("cue_out"), row.getDouble("fade_out_start"),
+                row.getDouble("intro_end"), row.getDouble("duration"));
+    }
+}
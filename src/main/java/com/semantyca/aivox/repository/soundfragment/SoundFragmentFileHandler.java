@@ -4,8 +4,10 @@ import com.semantyca.core.model.FileMetadata;
 import com.semantyca.core.repository.IFileStorage;
 import com.semantyca.core.repository.exception.attachment.FileRetrievalFailureException;
 import com.semantyca.core.repository.exception.attachment.MissingFileRecordException;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.Row;
 import io.vertx.mutiny.sqlclient.Tuple;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -13,11 +15,17 @@ import jakarta.inject.Named;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.UUID;
 
 @ApplicationScoped
 public class SoundFragmentFileHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(SoundFragmentFileHandler.class);
+    // storage calls of one batch in flight at once; a feed is about ten songs
+    static final int MAX_CONCURRENT_LOOKUPS = 16;
 
     private final PgPool client;
     private final IFileStorage fileStorage;
@@ -29,11 +37,53 @@ public class SoundFragmentFileHandler {
         this.fileStorage = fileStorage;
     }
 
+    /**
+     * @return the fragment's earliest registered file, with its storage key set
+     */
     public Uni<FileMetadata> getFirstFile(UUID id) {
-        String sql = "SELECT f.file_key FROM _files f WHERE f.parent_id = $1";
+        String sql = "SELECT f.file_key FROM _files f WHERE f.parent_id = $1 ORDER BY f.reg_date LIMIT 1";
         return retrieveFileFromStorage(id, sql, Tuple.of(id));
     }
 
+    /**
+     * The first file of every fragment: one query for all keys, then the storage lookups of the batch
+     * concurrently. The storage client has no batch call, so that is as close to one round trip as it gets.
+     *
+     * @return file by fragment id; fragments without a file record or whose lookup failed are absent
+     */
+    public Uni<Map<UUID, FileMetadata>> getFirstFiles(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Uni.createFrom().item(Map.of());
+        }
+        String sql = "SELECT DISTINCT ON (f.parent_id) f.parent_id, f.file_key FROM _files f " +
+                "WHERE f.parent_id = ANY($1) ORDER BY f.parent_id, f.reg_date";
+        return client.preparedQuery(sql)
+                .execute(Tuple.tuple().addArrayOfUUID(new LinkedHashSet<>(ids).toArray(new UUID[0])))
+                .onFailure().invoke(failure -> LOGGER.error("Database query failed for {} IDs", ids.size(), failure))
+                .onItem().transformToUni(rows -> {
+                    Map<UUID, String> keys = new LinkedHashMap<>();
+                    for (Row row : rows) {
+                        keys.put(row.getUUID("parent_id"), row.getString("file_key"));
+                    }
+                    if (keys.size() < ids.size()) {
+                        LOGGER.warn("No file record found for {} of {} IDs", ids.size() - keys.size(), ids.size());
+                    }
+                    return Multi.createFrom().iterable(keys.entrySet())
+                            .onItem().transformToUni(entry -> fileStorage.getFileStream(entry.getValue())
+                                    .map(file -> {
+                                        file.setFileKey(entry.getValue());
+                                        return Map.entry(entry.getKey(), file);
+                                    })
+                                    .onFailure().recoverWithItem(ex -> {
+                                        LOGGER.error("File retrieval failed - ID: {}, Key: {}, Error: {}",
+                                                entry.getKey(), entry.getValue(), ex.getMessage());
+                                        return null;
+                                    }))
+                            .merge(MAX_CONCURRENT_LOOKUPS)
+                            .collect().asMap(Map.Entry::getKey, Map.Entry::getValue);
+                });
+    }
+
     private Uni<FileMetadata> retrieveFileFromStorage(UUID id, String sql, Tuple parameters) {
         return client.preparedQuery(sql)
                 .execute(parameters)
@@ -48,7 +98,10 @@ public class SoundFragmentFileHandler {
                     LOGGER.debug("Retrieving file with key: {} for ID: {}", fileKey, id);
 
                     return fileStorage.getFileStream(fileKey)
-                            .onItem().invoke(file -> LOGGER.debug("File retrieval successful for ID: {}", id))
+                            .onItem().invoke(file -> {
+                                file.setFileKey(fileKey);
+                                LOGGER.debug("File retrieval successful for ID: {}", id);
+                            })
                             .onFailure().recoverWithUni(ex -> {
                                 LOGGER.error("File retrieval failed - ID: {}, Key: {}, Error: {}", id, fileKey, ex.getMessage());
                                 String errorMsg = String.format("File retrieval failed - ID: %s, Key: %s, Error: %s",
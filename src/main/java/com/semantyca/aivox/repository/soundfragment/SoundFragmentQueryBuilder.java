@@ -1,89 +1,109 @@
 package com.semantyca.aivox.repository.soundfragment;
 
+import com.semantyca.aivox.repository.Keyset;
+import com.semantyca.aivox.repository.SqlStatement;
 import com.semantyca.core.model.user.IUser;
 import com.semantyca.mixpla.model.filter.SoundFragmentFilter;
 import jakarta.enterprise.context.ApplicationScoped;
 
+/**
+ * Listing queries with every value bound, so each combination of filters present is one statement text.
+ * Unranked listings go newest first on {@code (reg_date, id)}, which the keyset variant seeks on.
+ */
 @ApplicationScoped
 public class SoundFragmentQueryBuilder {
 
-    public String buildGetAllQuery(String tableName, String rlsName, IUser user, boolean includeArchived,
-                                   SoundFragmentFilter filter, int limit, int offset) {
-        StringBuilder sql = new StringBuilder()
-                .append("SELECT t.*, rls.*");
+    public SqlStatement buildGetAllQuery(String tableName, String rlsName, IUser user, boolean includeArchived,
+                                         SoundFragmentFilter filter, int limit, int offset) {
+        String term = searchTerm(filter);
+        SqlStatement sql = new SqlStatement();
+        String termParam = term != null ? sql.bind(term) : null;
+        select(sql, tableName, rlsName, user, includeArchived, filter, termParam);
 
-        if (filter != null && filter.getSearchTerm() != null && !filter.getSearchTerm().trim().isEmpty()) {
-            sql.append(", similarity(t.search_name, $1) AS sim");
+        if (termParam != null) {
+            sql.append(" ORDER BY sim DESC, t.id");
+        } else {
+            sql.append(" ORDER BY t.reg_date DESC, t.id DESC");
+        }
+
+        if (limit > 0) {
+            sql.append(" LIMIT ").append(sql.bind(limit)).append(" OFFSET ").append(sql.bind(offset));
+        }
+        return sql;
+    }
+
+    /**
+     * Newest first, starting after {@code after}; a search term still filters but does not rank here,
+     * since similarity is not something to seek on.
+     *
+     * @param after last row of the previous page, {@code null} for the first page
+     */
+    public SqlStatement buildGetAllQuery(String tableName, String rlsName, IUser user, boolean includeArchived,
+                                         SoundFragmentFilter filter, int limit, Keyset after) {
+        String term = searchTerm(filter);
+        SqlStatement sql = new SqlStatement();
+        String termParam = term != null ? sql.bind(term) : null;
+        select(sql, tableName, rlsName, user, includeArchived, filter, termParam);
+
+        if (after != null) {
+            sql.append(" AND (t.reg_date, t.id) < (").append(sql.bind(after.value()))
+                    .append(", ").append(sql.bind(after.id())).append(")");
+        }
+        sql.append(" ORDER BY t.reg_date DESC, t.id DESC LIMIT ").append(sql.bind(limit));
+        return sql;
+    }
+
+    private void select(SqlStatement sql, String tableName, String rlsName, IUser user, boolean includeArchived,
+                        SoundFragmentFilter filter, String termParam) {
+        sql.append("SELECT t.*, rls.*");
+        if (termParam != null) {
+            sql.append(", similarity(t.search_name, ").append(termParam).append(") AS sim");
         }
 
         sql.append(" FROM ").append(tableName).append(" t ")
                 .append("JOIN ").append(rlsName).append(" rls ON t.id = rls.entity_id ")
-                .append("WHERE rls.reader = ").append(user.getId());
+                .append("WHERE rls.reader = ").append(sql.bind(user.getId()));
 
         if (!includeArchived) {
             sql.append(" AND t.archived = 0");
         }
 
         if (filter != null && filter.isActivated()) {
-            sql.append(buildFilterConditions(filter));
+            appendFilterConditions(sql, filter, termParam);
         }
-
-        if (filter != null && filter.getSearchTerm() != null && !filter.getSearchTerm().trim().isEmpty()) {
-            sql.append(" ORDER BY sim DESC");
-        } else {
-            sql.append(" ORDER BY t.last_mod_date DESC");
-        }
-
-        if (limit > 0) {
-            sql.append(String.format(" LIMIT %s OFFSET %s", limit, offset));
-        }
-
-        return sql.toString();
     }
 
-    String buildFilterConditions(SoundFragmentFilter filter) {
-        StringBuilder conditions = new StringBuilder();
-
-        if (filter.getSearchTerm() != null && !filter.getSearchTerm().trim().isEmpty()) {
-            conditions.append(" AND (t.search_name ILIKE '%' || $1 || '%' OR similarity(t.search_name, $1) > 0.05)");
+    void appendFilterConditions(SqlStatement sql, SoundFragmentFilter filter, String termParam) {
+        if (termParam != null) {
+            sql.append(" AND (t.search_name ILIKE '%' || ").append(termParam)
+                    .append(" || '%' OR similarity(t.search_name, ").append(termParam).append(") > 0.05)");
         }
 
         if (filter.getGenre() != null && !filter.getGenre().isEmpty()) {
-            conditions.append(" AND EXISTS (SELECT 1 FROM kneobroadcaster__sound_fragment_genres sfg2 WHERE sfg2.sound_fragment_id = t.id AND sfg2.genre_id IN (");
-            for (int i = 0; i < filter.getGenre().size(); i++) {
-                if (i > 0) conditions.append(", ");
-                conditions.append("'").append(filter.getGenre().get(i).toString()).append("'");
-            }
-            conditions.append("))");
+            sql.append(" AND EXISTS (SELECT 1 FROM kneobroadcaster__sound_fragment_genres sfg2 WHERE sfg2.sound_fragment_id = t.id AND sfg2.genre_id = ANY(")
+                    .append(sql.bindUuids(filter.getGenre())).append("))");
         }
 
         if (filter.getLabels() != null && !filter.getLabels().isEmpty()) {
-            conditions.append(" AND EXISTS (SELECT 1 FROM kneobroadcaster__sound_fragment_labels sfl WHERE sfl.id = t.id AND sfl.label_id IN (");
-            for (int i = 0; i < filter.getLabels().size(); i++) {
-                if (i > 0) conditions.append(", ");
-                conditions.append("'").append(filter.getLabels().get(i).toString()).append("'");
-            }
-            conditions.append("))");
+            sql.append(" AND EXISTS (SELECT 1 FROM kneobroadcaster__sound_fragment_labels sfl WHERE sfl.id = t.id AND sfl.label_id = ANY(")
+                    .append(sql.bindUuids(filter.getLabels())).append("))");
         }
 
         if (filter.getSource() != null && !filter.getSource().isEmpty()) {
-            conditions.append(" AND t.source IN (");
-            for (int i = 0; i < filter.getSource().size(); i++) {
-                if (i > 0) conditions.append(", ");
-                conditions.append("'").append(filter.getSource().get(i).name()).append("'");
-            }
-            conditions.append(")");
+            sql.append(" AND t.source = ANY(")
+                    .append(sql.bindStrings(filter.getSource().stream().map(Enum::name).toList())).append(")");
         }
 
         if (filter.getType() != null && !filter.getType().isEmpty()) {
-            conditions.append(" AND t.type IN (");
-            for (int i = 0; i < filter.getType().size(); i++) {
-                if (i > 0) conditions.append(", ");
-                conditions.append("'").append(filter.getType().get(i).name()).append("'");
-            }
-            conditions.append(")");
+            sql.append(" AND t.type = ANY(")
+                    .append(sql.bindStrings(filter.getType().stream().map(Enum::name).toList())).append(")");
         }
+    }
 
-        return conditions.toString();
+    private static String searchTerm(SoundFragmentFilter filter) {
+        if (filter == null || filter.getSearchTerm() == null || filter.getSearchTerm().trim().isEmpty()) {
+            return null;
+        }
+        return filter.getSearchTerm();
     }
 }
@@ -1,6 +1,8 @@
 package com.semantyca.aivox.repository.soundfragment;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.semantyca.aivox.repository.Keyset;
+import com.semantyca.aivox.repository.KeysetPage;
 import com.semantyca.core.model.FileMetadata;
 import com.semantyca.core.model.user.IUser;
 import com.semantyca.core.repository.exception.DocumentHasNotFoundException;
@@ -11,7 +13,6 @@ import com.semantyca.mixpla.model.filter.SoundFragmentFilter;
 import com.semantyca.mixpla.model.soundfragment.BrandSoundFragment;
 import com.semantyca.mixpla.model.soundfragment.SoundFragment;
 import com.semantyca.mixpla.repository.MixplaNameResolver;
-import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import io.vertx.mutiny.pgclient.PgPool;
 import io.vertx.mutiny.sqlclient.Row;
@@ -20,7 +21,9 @@ import io.vertx.mutiny.sqlclient.Tuple;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static com.semantyca.mixpla.repository.MixplaNameResolver.SOUND_FRAGMENT;
@@ -49,24 +52,29 @@ public class SoundFragmentRepository extends SoundFragmentRepositoryAbstract {
     public Uni<List<SoundFragment>> getAll(final int limit, final int offset,
                                            final IUser user, final SoundFragmentFilter filter) {
         assert queryBuilder != null;
-        String sql = queryBuilder.buildGetAllQuery(entityData.getTableName(), entityData.getRlsName(),
-                user, false, filter, limit, offset);
-
-        if (filter != null && filter.getSearchTerm() != null && !filter.getSearchTerm().trim().isEmpty()) {
-            return client.preparedQuery(sql)
-                    .execute(Tuple.of(filter.getSearchTerm()))
-                    .onItem().transformToMulti(rows -> Multi.createFrom().iterable(rows))
-                    .onItem().transformToUni(row -> from(row, false, false, false))
-                    .concatenate()
-                    .collect().asList();
-        }
+        return queryBuilder.buildGetAllQuery(entityData.getTableName(), entityData.getRlsName(),
+                        user, false, filter, limit, offset)
+                .execute(client)
+                .onItem().transformToUni(rowSet -> from(rows(rowSet), false, false, false));
+    }
 
-        return client.query(sql)
-                .execute()
-                .onItem().transformToMulti(rows -> Multi.createFrom().iterable(rows))
-                .onItem().transformToUni(row -> from(row, false, false, false))
-                .concatenate()
-                .collect().asList();
+    /**
+     * Newest first, seeking on {@code (reg_date, id)}, so a deep page costs what the first one does.
+     *
+     * @param after {@link KeysetPage#next()} of the previous page, {@code null} for the first one
+     */
+    public Uni<KeysetPage<SoundFragment>> getAll(final int limit, final Keyset after,
+                                                 final IUser user, final SoundFragmentFilter filter) {
+        assert queryBuilder != null;
+        return queryBuilder.buildGetAllQuery(entityData.getTableName(), entityData.getRlsName(),
+                        user, false, filter, limit, after)
+                .execute(client)
+                .onItem().transformToUni(rowSet -> {
+                    List<Row> rows = rows(rowSet);
+                    Row last = rows.isEmpty() || rows.size() < limit ? null : rows.get(rows.size() - 1);
+                    Keyset next = last != null ? new Keyset(last.getLocalDateTime("reg_date"), last.getUUID("id")) : null;
+                    return from(rows, false, false, false).map(docs -> new KeysetPage<>(docs, next));
+                });
     }
 
 
@@ -96,4 +104,9 @@ public class SoundFragmentRepository extends SoundFragmentRepositoryAbstract {
         assert fileHandler != null;
         return fileHandler.getFirstFile(id);
     }
+
+    public Uni<Map<UUID, FileMetadata>> getFirstFiles(Collection<UUID> ids) {
+        assert fileHandler != null;
+        return fileHandler.getFirstFiles(ids);
+    }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.semantyca.aivox.repository.soundfragment;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.semantyca.aivox.repository.RelationLoader;
 import com.semantyca.core.model.FileMetadata;
 import com.semantyca.core.model.cnst.FileStorageType;
 import com.semantyca.core.model.user.IUser;
@@ -13,10 +14,10 @@ import com.semantyca.mixpla.model.soundfragment.SoundFragment;
 import com.semantyca.mixpla.model.cnst.PlaylistItemType;
 import com.semantyca.mixpla.model.cnst.SourceType;
 import com.semantyca.mixpla.repository.MixplaNameResolver;
-import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import io.vertx.mutiny.pgclient.PgPool;
 import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowSet;
 import io.vertx.mutiny.sqlclient.SqlResult;
 import io.vertx.mutiny.sqlclient.Tuple;
 
@@ -26,6 +27,7 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static com.semantyca.mixpla.repository.MixplaNameResolver.SOUND_FRAGMENT;
@@ -33,6 +35,17 @@ import static com.semantyca.mixpla.repository.MixplaNameResolver.SOUND_FRAGMENT;
 
 public abstract class SoundFragmentRepositoryAbstract extends AsyncRepository {
     protected static final EntityData entityData = MixplaNameResolver.create().getEntityNames(SOUND_FRAGMENT);
+    private static final RelationLoader<UUID> GENRES = new RelationLoader<>(
+            "SELECT sfg.sound_fragment_id, g.id FROM __genres g " +
+                    "JOIN kneobroadcaster__sound_fragment_genres sfg ON g.id = sfg.genre_id " +
+                    "WHERE sfg.sound_fragment_id = ANY($1) ORDER BY g.identifier",
+            row -> row.getUUID("sound_fragment_id"), row -> row.getUUID("id"));
+    private static final RelationLoader<UUID> LABELS = new RelationLoader<>(
+            "SELECT id, label_id FROM kneobroadcaster__sound_fragment_labels WHERE id = ANY($1)",
+            row -> row.getUUID("id"), row -> row.getUUID("label_id"));
+    private static final RelationLoader<FileMetadata> FILES = new RelationLoader<>(
+            "SELECT id, reg_date, last_mod_date, parent_table, parent_id, archived, archived_date, storage_type, mime_type, slug_name, file_original_name, file_key FROM _files WHERE parent_table = '" + entityData.getTableName() + "' AND parent_id = ANY($1) AND archived = 0 ORDER BY reg_date ASC",
+            row -> row.getUUID("parent_id"), SoundFragmentRepositoryAbstract::toFileMetadata);
 
     public SoundFragmentRepositoryAbstract() {
         super();
@@ -43,6 +56,50 @@ public abstract class SoundFragmentRepositoryAbstract extends AsyncRepository {
     }
 
     protected Uni<SoundFragment> from(Row row, boolean includeGenres, boolean includeFiles, boolean includeLabels) {
+        return from(List.of(row), includeGenres, includeFiles, includeLabels).map(docs -> docs.get(0));
+    }
+
+    /**
+     * Maps a page of rows; each requested relation costs one query for the whole page.
+     *
+     * @return the fragments in row order
+     */
+    protected Uni<List<SoundFragment>> from(List<Row> rows, boolean includeGenres, boolean includeFiles, boolean includeLabels) {
+        List<SoundFragment> docs = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            docs.add(toSoundFragment(row));
+        }
+        List<UUID> ids = docs.stream().map(SoundFragment::getId).toList();
+
+        return Uni.combine().all().unis(
+                includeGenres ? GENRES.load(client, ids) : Uni.createFrom().item(Map.<UUID, List<UUID>>of()),
+                includeLabels ? LABELS.load(client, ids) : Uni.createFrom().item(Map.<UUID, List<UUID>>of()),
+                includeFiles ? FILES.load(client, ids) : Uni.createFrom().item(Map.<UUID, List<FileMetadata>>of())
+        ).asTuple().onItem().transform(loaded -> {
+            for (SoundFragment doc : docs) {
+                doc.setGenres(includeGenres ? RelationLoader.of(loaded.getItem1(), doc.getId()) : List.of());
+                doc.setLabels(includeLabels ? RelationLoader.of(loaded.getItem2(), doc.getId()) : List.of());
+                if (includeFiles) {
+                    List<FileMetadata> files = RelationLoader.of(loaded.getItem3(), doc.getId());
+                    doc.setFileMetadataList(files);
+                    if (files.isEmpty()) markAsCorrupted(doc.getId()).subscribe().with(r -> {}, e -> {});
+                } else {
+                    doc.setFileMetadataList(List.of());
+                }
+            }
+            return docs;
+        });
+    }
+
+    protected static List<Row> rows(RowSet<Row> rowSet) {
+        List<Row> rows = new ArrayList<>();
+        for (Row row : rowSet) {
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private SoundFragment toSoundFragment(Row row) {
         SoundFragment doc = new SoundFragment();
         setDefaultFields(doc, row);
         doc.setSource(SourceType.valueOf(row.getString("source")));
@@ -60,81 +117,25 @@ public abstract class SoundFragmentRepositoryAbstract extends AsyncRepository {
         doc.setSlugName(row.getString("slug_name"));
         doc.setDescription(row.getString("description"));
         doc.setExpiresAt(row.getLocalDateTime("expires_at"));
-
-        Uni<SoundFragment> uni = Uni.createFrom().item(doc);
-
-        if (includeGenres) {
-            uni = uni.chain(d -> loadGenres(d.getId()).onItem().transform(genres -> {
-                d.setGenres(genres);
-                return d;
-            }));
-        } else {
-            doc.setGenres(List.of());
-        }
-
-        if (includeLabels) {
-            uni = uni.chain(d -> loadLabels(d.getId()).onItem().transform(labels -> {
-                d.setLabels(labels);
-                return d;
-            }));
-        } else {
-            doc.setLabels(List.of());
-        }
-
-        if (includeFiles) {
-            String fileQuery = "SELECT id, reg_date, last_mod_date, parent_table, parent_id, archived, archived_date, storage_type, mime_type, slug_name, file_original_name, file_key FROM _files WHERE parent_table = '" + entityData.getTableName() + "' AND parent_id = $1 AND archived = 0 ORDER BY reg_date ASC";
-            uni = uni.chain(soundFragment -> client.preparedQuery(fileQuery)
-                    .execute(Tuple.of(soundFragment.getId()))
-                    .onItem().transform(rowSet -> {
-                        List<FileMetadata> files = new ArrayList<>();
-                        for (Row fileRow : rowSet) {
-                            FileMetadata fileMetadata = new FileMetadata();
-                            fileMetadata.setId(fileRow.getLong("id"));
-                            fileMetadata.setRegDate(fileRow.getLocalDateTime("reg_date").atZone(ZoneId.systemDefault()));
-                            fileMetadata.setLastModifiedDate(fileRow.getLocalDateTime("last_mod_date").atZone(ZoneId.systemDefault()));
-                            fileMetadata.setParentTable(fileRow.getString("parent_table"));
-                            fileMetadata.setParentId(fileRow.getUUID("parent_id"));
-                            fileMetadata.setArchived(fileRow.getInteger("archived"));
-                            if (fileRow.getLocalDateTime("archived_date") != null)
-                                fileMetadata.setArchivedDate(fileRow.getLocalDateTime("archived_date"));
-                            fileMetadata.setFileStorageType(FileStorageType.valueOf(fileRow.getString("storage_type")));
-                            fileMetadata.setMimeType(fileRow.getString("mime_type"));
-                            fileMetadata.setSlugName(fileRow.getString("slug_name"));
-                            fileMetadata.setFileOriginalName(fileRow.getString("file_original_name"));
-                            fileMetadata.setFileKey(fileRow.getString("file_key"));
-                            files.add(fileMetadata);
-                        }
-                        soundFragment.setFileMetadataList(files);
-                        if (files.isEmpty()) markAsCorrupted(soundFragment.getId()).subscribe().with(r -> {}, e -> {});
-                        return soundFragment;
-                    }));
-        } else {
-            doc.setFileMetadataList(List.of());
-        }
-
-        return uni;
-    }
-
-    private Uni<List<UUID>> loadLabels(UUID soundFragmentId) {
-        String sql = "SELECT label_id FROM kneobroadcaster__sound_fragment_labels WHERE id = $1";
-        return client.preparedQuery(sql)
-                .execute(Tuple.of(soundFragmentId))
-                .onItem().transformToMulti(rows -> Multi.createFrom().iterable(rows))
-                .onItem().transform(row -> row.getUUID("label_id"))
-                .collect().asList();
+        return doc;
     }
 
-
-    private Uni<List<UUID>> loadGenres(UUID soundFragmentId) {
-        String sql = "SELECT g.id FROM __genres g " +
-                "JOIN kneobroadcaster__sound_fragment_genres sfg ON g.id = sfg.genre_id " +
-                "WHERE sfg.sound_fragment_id = $1 ORDER BY g.identifier";
-
-        return client.preparedQuery(sql)
-                .execute(Tuple.of(soundFragmentId))
-                .onItem().transformToMulti(rows -> Multi.createFrom().iterable(rows))
-                .onItem().transform(row -> row.getUUID("id"))
-                .collect().asList();
+    private static FileMetadata toFileMetadata(Row fileRow) {
+        FileMetadata fileMetadata = new FileMetadata();
+        fileMetadata.setId(fileRow.getLong("id"));
+        fileMetadata.setRegDate(fileRow.getLocalDateTime("reg_date").atZone(ZoneId.systemDefault()));
+        fileMetadata.setLastModifiedDate(fileRow.getLocalDateTime("last_mod_date").atZone(ZoneId.systemDefault()));
+        fileMetadata.setParentTable(fileRow.getString("parent_table"));
+        fileMetadata.setParentId(fileRow.getUUID("parent_id"));
+        fileMetadata.setArchived(fileRow.getInteger("archived"));
+        if (fileRow.getLocalDateTime("archived_date") != null)
+            fileMetadata.setArchivedDate(fileRow.getLocalDateTime("archived_date"));
+        fileMetadata.setFileStorageType(FileStorageType.valueOf(fileRow.getString("storage_type")));
+        fileMetadata.setMimeType(fileRow.getString("mime_type"));
+        fileMetadata.setSlugName(fileRow.getString("slug_name"));
+        fileMetadata.setFileOriginalName(fileRow.getString("file_original_name"));
+        fileMetadata.setFileKey(fileRow.getString("file_key"));
+        return fileMetadata;
     }
 
     public Uni<Integer> markAsCorrupted(UUID uuid) {
@@ -4,7 +4,17 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.semantyca.aivox.config.AivoxConfig;
 import com.semantyca.aivox.messaging.MetricPublisher;
+import com.semantyca.aivox.repository.StatementStats;
 import com.semantyca.aivox.service.StreamingService;
+import com.semantyca.aivox.service.catalog.BrandCatalogService;
+import com.semantyca.aivox.service.directory.StationDirectory;
+import com.semantyca.aivox.service.manipulation.mixing.PcmCache;
+import com.semantyca.aivox.service.manipulation.mixing.strategy.MergingStrategyRegistry;
+import com.semantyca.aivox.service.manipulation.probe.AudioProbeService;
+import com.semantyca.aivox.service.readmodel.ReadModelCache;
+import com.semantyca.aivox.service.scratch.ScratchStorage;
+import com.semantyca.aivox.service.soundfragment.PlayRecorder;
+import com.semantyca.aivox.service.stats.StatsAccumulator;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
@@ -13,7 +23,9 @@ import jakarta.inject.Inject;
 import jakarta.ws.rs.core.MediaType;
 import org.jboss.logging.Logger;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @ApplicationScoped
@@ -32,11 +44,40 @@ public class DebugResource {
     
     @Inject
     MetricPublisher metricPublisher;
+
+    @Inject
+    PcmCache pcmCache;
+
+    @Inject
+    AudioProbeService audioProbeService;
+
+    @Inject
+    MergingStrategyRegistry mergingStrategyRegistry;
+
+    @Inject
+    ScratchStorage scratchStorage;
+
+    @Inject
+    BrandCatalogService brandCatalogService;
+
+    @Inject
+    ReadModelCache readModelCache;
+
+    @Inject
+    StationDirectory stationDirectory;
+
+    @Inject
+    PlayRecorder playRecorder;
+
+    @Inject
+    StatsAccumulator statsAccumulator;
     
     public void setupRoutes(Router router) {
         String path = "/aivox/debug";
         router.route(HttpMethod.GET, path + "/streams").handler(this::validateDebugAccess).handler(this::listStreams);
         router.route(HttpMethod.POST, path + "/queue/:brand").handler(this::validateDebugAccess).handler(this::testAddToQueue);
+        router.route(HttpMethod.GET, path + "/caches").handler(this::validateDebugAccess).handler(this::cacheStats);
+        router.route(HttpMethod.GET, path + "/merging").handler(this::validateDebugAccess).handler(this::mergingStats);
     }
     
 
@@ -48,12 +89,18 @@ public class DebugResource {
                     Map<String, Object> response = new HashMap<>();
                     response.put("activeStations", stations.size());
 
+                    List<Map<String, Object>> stationInfos = new ArrayList<>();
                     stations.forEach(bundle -> {
                         Map<String, Object> stationInfo = new HashMap<>();
                         stationInfo.put("brand", bundle.getSlugName());
                         stationInfo.put("active", bundle.isActive());
                         stationInfo.put("createdAt", bundle.getCreatedAt());
+                        if (bundle.getPlaylistManager() != null) {
+                            stationInfo.put("lookAhead", bundle.getPlaylistManager().getLookAheadStats());
+                        }
+                        stationInfos.add(stationInfo);
                     });
+                    response.put("stations", stationInfos);
 
                     try {
                         String jsonResponse = objectMapper.writeValueAsString(response);
@@ -78,6 +125,64 @@ public class DebugResource {
             );
     }
 
+    private void cacheStats(RoutingContext rc) {
+        Map<String, Object> pcm = new HashMap<>();
+        pcm.put("hits", pcmCache.getHits());
+        pcm.put("misses", pcmCache.getMisses());
+        pcm.put("hitRate", pcmCache.getHitRate());
+        pcm.put("evictions", pcmCache.getEvictions());
+        pcm.put("sizeBytes", pcmCache.getSizeBytes());
+
+        Map<String, Object> probe = new HashMap<>();
+        probe.put("nativeProbes", audioProbeService.getNativeProbes());
+        probe.put("ffprobeSpawns", audioProbeService.getFfprobeSpawns());
+        probe.put("cueAnalyses", audioProbeService.getCueAnalyses());
+
+        Map<String, Object> scratch = new HashMap<>();
+        scratch.put("liveFiles", scratchStorage.getLiveFiles());
+        scratch.put("ramReservedBytes", scratchStorage.getRamReservedBytes());
+        scratch.put("allocated", scratchStorage.getAllocated());
+        scratch.put("spills", scratchStorage.getSpills());
+        scratch.put("deleted", scratchStorage.getDeleted());
+        scratch.put("swept", scratchStorage.getSwept());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("pcm", pcm);
+        response.put("probe", probe);
+        response.put("scratch", scratch);
+        response.put("catalog", brandCatalogService.getStats());
+        response.put("statements", StatementStats.snapshot());
+        response.put("readModel", readModelCache.getStats());
+        response.put("directory", stationDirectory.getStats());
+        response.put("plays", playRecorder.getStats());
+        response.put("listeners", statsAccumulator.getStats());
+        try {
+            rc.response()
+                .putHeader("Content-Type", MediaType.APPLICATION_JSON)
+                .end(objectMapper.writeValueAsString(response));
+        } catch (Exception e) {
+            LOGGER.error("Failed to serialize JSON response", e);
+            rc.response()
+                .setStatusCode(500)
+                .putHeader("Content-Type", MediaType.APPLICATION_JSON)
+                .end("{\"error\": \"Internal server error\"}");
+        }
+    }
+
+    private void mergingStats(RoutingContext rc) {
+        try {
+            rc.response()
+                .putHeader("Content-Type", MediaType.APPLICATION_JSON)
+                .end(objectMapper.writeValueAsString(mergingStrategyRegistry.getStats()));
+        } catch (Exception e) {
+            LOGGER.error("Failed to serialize JSON response", e);
+            rc.response()
+                .setStatusCode(500)
+                .putHeader("Content-Type", MediaType.APPLICATION_JSON)
+                .end("{\"error\": \"Internal server error\"}");
+        }
+    }
+
     private void testAddToQueue(RoutingContext rc) {
         rc.response()
             .putHeader("Content-Type", MediaType.APPLICATION_JSON)
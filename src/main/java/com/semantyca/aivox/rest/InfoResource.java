@@ -1,8 +1,8 @@
 package com.semantyca.aivox.rest;
 
-import com.semantyca.aivox.service.BrandService;
+import com.semantyca.aivox.service.directory.StationDirectory;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpMethod;
-import io.vertx.core.json.Json;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -17,7 +17,7 @@ public class InfoResource {
     private static final String[] SUPPORTED_MIXPLA_VERSIONS = {"2.5.5","2.5.6","2.5.7","2.5.8","2.5.9"};
 
     @Inject
-    private BrandService brandService;
+    private StationDirectory stationDirectory;
     
     public void setupRoutes(Router router) {
         String path = "/aivox/info";
@@ -32,14 +32,21 @@ public class InfoResource {
         int limit = limitParam != null ? Integer.parseInt(limitParam) : 100;
         int offset = offsetParam != null ? Integer.parseInt(offsetParam) : 0;
         
-        brandService.getAllDTO(limit, offset)
+        stationDirectory.page(limit, offset, rc.request().getHeader("If-None-Match"))
             .subscribe()
             .with(
-                brands -> {
+                page -> {
+                    rc.response()
+                        .putHeader("ETag", page.etag())
+                        .putHeader("Cache-Control", "no-cache")
+                        .putHeader("Access-Control-Allow-Origin", "*");
+                    if (!page.modified()) {
+                        rc.response().setStatusCode(304).end();
+                        return;
+                    }
                     rc.response()
                         .putHeader("Content-Type", MediaType.APPLICATION_JSON)
-                        .putHeader("Access-Control-Allow-Origin", "*")
-                        .end(Json.encode(brands));
+                        .end(Buffer.buffer(page.body()));
                 },
                 failure -> {
                     LOGGER.error("Failed to get all brands", failure);
@@ -1,6 +1,7 @@
 package com.semantyca.aivox.rest;
 
 import com.semantyca.aivox.service.StreamingService;
+import com.semantyca.aivox.service.stats.StatsAccumulator;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.ext.web.Router;
@@ -18,6 +19,9 @@ public class StreamingResource {
     
     @Inject 
     private StreamingService streamingService;
+
+    @Inject
+    private StatsAccumulator statsAccumulator;
     
     public void setupRoutes(Router router) {
         String path = "/stream";
@@ -56,6 +60,7 @@ public class StreamingResource {
             .subscribe()
             .with(
                 playlist -> {
+                    recordAccess(rc, brand);
                     rc.response()
                         .putHeader("Content-Type", "application/vnd.apple.mpegurl")
                         .putHeader("Cache-Control", "no-cache")
@@ -85,6 +90,7 @@ public class StreamingResource {
                         return;
                     }
                     //LOGGER.info("Serving segment: " + segmentFile + ", size: " + segmentData.length + " bytes");
+                    recordAccess(rc, brand);
                     rc.response()
                         .putHeader("Content-Type", "video/MP2T")
                         .putHeader("Cache-Control", "no-cache")
@@ -102,4 +108,19 @@ public class StreamingResource {
                 }
             );
     }
+
+    // recorded only once the station answered, so unknown brand names never become tracked stations
+    private void recordAccess(RoutingContext rc, String brand) {
+        String forwardedFor = rc.request().getHeader("X-Forwarded-For");
+        String ipAddress;
+        if (forwardedFor != null && !forwardedFor.isBlank()) {
+            int comma = forwardedFor.indexOf(',');
+            ipAddress = (comma >= 0 ? forwardedFor.substring(0, comma) : forwardedFor).trim();
+        } else {
+            ipAddress = rc.request().remoteAddress() != null ? rc.request().remoteAddress().host() : null;
+        }
+        String countryCode = rc.request().getHeader("CF-IPCountry");
+        statsAccumulator.recordAccess(brand, rc.request().getHeader("User-Agent"), ipAddress,
+                countryCode != null && countryCode.length() == 2 ? countryCode : "UNKNOWN");
+    }
 }
@@ -5,6 +5,7 @@ import com.semantyca.aivox.dto.aiagent.LanguagePreferenceDTO;
 import com.semantyca.aivox.dto.aiagent.TTSSettingDTO;
 import com.semantyca.aivox.dto.aiagent.VoiceDTO;
 import com.semantyca.aivox.repository.AiAgentRepository;
+import com.semantyca.aivox.service.readmodel.ReadModelCache;
 import com.semantyca.core.model.cnst.LanguageCode;
 import com.semantyca.core.model.user.IUser;
 import com.semantyca.core.model.user.SuperUser;
@@ -24,10 +25,12 @@ public class AiAgentService extends AbstractService<AiAgent, AiAgentDTO> {
     private static final Logger LOGGER = Logger.getLogger(AiAgentService.class);
 
     private final AiAgentRepository repository;
+    private final ReadModelCache readModel;
 
     @Inject
-    public AiAgentService(AiAgentRepository repository) {
+    public AiAgentService(AiAgentRepository repository, ReadModelCache readModel) {
         this.repository = repository;
+        this.readModel = readModel;
     }
 
 
@@ -51,6 +54,10 @@ public class AiAgentService extends AbstractService<AiAgent, AiAgentDTO> {
     }
 
     public Uni<AiAgent> getById(UUID id, IUser user, LanguageCode language) {
+        // the read model is not filtered by RLS, so only the system user reads from it
+        if (SuperUser.build().getId().equals(user.getId())) {
+            return readModel.getAgent(id);
+        }
         return repository.findById(id, user, false);
     }
 
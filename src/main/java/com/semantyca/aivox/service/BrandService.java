@@ -2,6 +2,7 @@ package com.semantyca.aivox.service;
 
 import com.semantyca.aivox.dto.radiostation.BrandDTO;
 import com.semantyca.aivox.repository.brand.BrandRepository;
+import com.semantyca.aivox.service.readmodel.ReadModelCache;
 import com.semantyca.aivox.streaming.RadioStationPool;
 import com.semantyca.core.model.cnst.LanguageCode;
 import com.semantyca.core.model.user.IUser;
@@ -24,25 +25,29 @@ public class BrandService extends AbstractService<Brand, BrandDTO> {
     private final BrandRepository repository;
     private final RadioStationPool radiostationPool;
     private final AiAgentService aiAgentService;
+    private final ReadModelCache readModel;
 
     protected BrandService(AiAgentService aiAgentService) {
         super();
         this.aiAgentService = aiAgentService;
         this.repository = null;
         this.radiostationPool = null;
+        this.readModel = null;
     }
 
     @Inject
-    public BrandService(UserService userService, BrandRepository repository, RadioStationPool radiostationPool, AiAgentService aiAgentService) {
+    public BrandService(UserService userService, BrandRepository repository, RadioStationPool radiostationPool,
+                        AiAgentService aiAgentService, ReadModelCache readModel) {
         super(userService);
         this.repository = repository;
         this.radiostationPool = radiostationPool;
         this.aiAgentService = aiAgentService;
+        this.readModel = readModel;
     }
 
     public Uni<List<Brand>> getAll(final int limit, final int offset) {
-        assert repository != null;
-        return repository.getAll(limit, offset);
+        assert readModel != null;
+        return readModel.getPublicBrands(limit, offset);
     }
 
     public Uni<List<Brand>> getAll(final int limit, final int offset, IUser user) {
@@ -68,8 +73,8 @@ public class BrandService extends AbstractService<Brand, BrandDTO> {
 
 
     public Uni<Brand> getBySlugName(String name) {
-        assert repository != null;
-        return repository.getBySlugName(name);
+        assert readModel != null;
+        return readModel.getBrand(name);
     }
 
     public Uni<java.time.OffsetDateTime> findLastAccessTimeByStationName(String stationName) {
@@ -77,8 +82,8 @@ public class BrandService extends AbstractService<Brand, BrandDTO> {
     }
 
     public Uni<List<BrandDTO>> getAllDTO(final int limit, final int offset) {
-        assert repository != null;
-        return repository.getAll(limit, offset)
+        assert readModel != null;
+        return readModel.getPublicBrands(limit, offset)
                 .chain(list -> {
                     if (list.isEmpty()) {
                         return Uni.createFrom().item(List.of());
@@ -1,53 +1,27 @@
 package com.semantyca.aivox.service;
 
-import com.semantyca.aivox.config.AivoxConfig;
 import com.semantyca.aivox.messaging.MetricPublisher;
-import com.semantyca.aivox.repository.soundfragment.SoundFragmentRepository;
-import com.semantyca.aivox.service.manipulation.FFmpegProvider;
-import com.semantyca.aivox.service.manipulation.mixing.AudioConcatenator;
-import com.semantyca.aivox.service.manipulation.mixing.handler.AudioMixingHandler;
-import com.semantyca.aivox.service.manipulation.mixing.handler.IntroSongHandler;
-import com.semantyca.aivox.service.soundfragment.SoundFragmentService;
+import com.semantyca.aivox.service.manipulation.mixing.strategy.IMergingStrategy;
+import com.semantyca.aivox.service.manipulation.mixing.strategy.MergingStrategyRegistry;
 import com.semantyca.aivox.streaming.RadioStationPool;
 import com.semantyca.mixpla.dto.queue.livestream.SongQueueMessageDTO;
 import com.semantyca.mixpla.dto.queue.metric.MetricEventType;
-import com.semantyca.mixpla.model.cnst.ConcatenationType;
-import com.semantyca.mixpla.model.cnst.MergingType;
 import com.semantyca.mixpla.model.stream.IStream;
-import com.semantyca.mixpla.service.exceptions.AudioMergeException;
 import com.semantyca.mixpla.service.exceptions.RadioStationException;
 import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.jboss.logging.Logger;
 
-import java.io.IOException;
-import java.util.Arrays;
 import java.util.Map;
-import java.util.Random;
 
 @ApplicationScoped
 public class QueueService {
-    @Inject
-    SoundFragmentRepository soundFragmentRepository;
-
     @Inject
     RadioStationPool radioStationPool;
 
     @Inject
-    private AivoxConfig aivoxConfig;
-
-    @Inject
-    private SoundFragmentService soundFragmentService;
-
-    @Inject
-    private AiAgentService aiAgentService;
-
-    @Inject
-    FFmpegProvider fFmpegProvider;
-
-    @Inject
-    AudioConcatenator audioConcatenator;
+    MergingStrategyRegistry mergingStrategyRegistry;
 
     @Inject
     MetricPublisher metricPublisher;
@@ -58,166 +32,16 @@ public class QueueService {
         String messageId = String.valueOf(message.getMessageId());
         String brandName = message.getBrandSlug();
 
-        if (message.getMergingMethod() == MergingType.INTRO_SONG || message.getMergingMethod() == MergingType.LISTENER_INTRO_SONG) {  //keeping JIC
-            return getRadioStation(message.getBrandSlug())
-                    .chain(radioStation -> {
-                        //LOGGER.infof("[QueueService] Radio station found: {} , creating IntroSongHandler",message.getBrandSlug());
-                        try {
-                            IntroSongHandler handler = new IntroSongHandler(
-                                    aivoxConfig,
-                                    soundFragmentRepository,
-                                    soundFragmentService,
-                                    aiAgentService,
-                                    fFmpegProvider,
-                                    metricPublisher
-                            );
-                            LOGGER.debug("[QueueService] IntroSongHandler created, calling handle method");
-                            return handler.handle(radioStation, message);
-                        } catch (IOException | AudioMergeException e) {
-                            LOGGER.error("[QueueService] Failed to create or execute IntroSongHandler", e);
-                            throw new RuntimeException(e);
-                        }
-                    })
-                    .onItem().invoke(result -> {
-                        LOGGER.infof("[QueueService] INTRO_SONG operation completed successfully - messageId: {}, result: {}", messageId, result);
-                        metricPublisher.publishMetric(brandName, MetricEventType.INFORMATION, "intro_song_completed",
-                                Map.of("messageId", messageId, "mergingMethod", "INTRO_SONG"), message.getTraceId());
-                    })
-                    .onFailure().invoke(err -> {
-                        LOGGER.error("[QueueService] INTRO_SONG operation failed - messageId: {}", messageId, err);
-                        metricPublisher.publishMetric(brandName, MetricEventType.ERROR, "intro_song_failed",
-                                Map.of("messageId", messageId, "error", err.getMessage()), message.getTraceId());
-                    });
-        } else if (message.getMergingMethod() == MergingType.NOT_MIXED) {
-            LOGGER.infof("Processing NOT_MIXED merging method for messageId: {}", messageId);
-            return getRadioStation(brandName)
-                    .chain(radioStation -> {
-                        LOGGER.infof("Stream found: {}, creating AudioMixingHandler", brandName);
-                        AudioMixingHandler handler = createAudioMixingHandler();
-                        return handler.handleConcatenationAndFeed(radioStation, message, ConcatenationType.DIRECT_CONCAT);
-                    })
-                    .onItem().invoke(result -> {
-                        LOGGER.infof("[QueueService] NOT_MIXED operation completed successfully - messageId: {}", messageId);
-                        metricPublisher.publishMetric(brandName, MetricEventType.INFORMATION, "not_mixed_completed",
-                                Map.of("messageId", messageId, "mergingMethod", "NOT_MIXED"), message.getTraceId());
-                    })
-                    .onFailure().invoke(err -> {
-                        LOGGER.error("[QueueService] NOT_MIXED operation failed - messageId: {}", messageId, err);
-                        metricPublisher.publishMetric(brandName, MetricEventType.ERROR, "not_mixed_failed",
-                                Map.of("messageId", messageId, "error", err.getMessage()), message.getTraceId());
-                    });
-        } else if (message.getMergingMethod() == MergingType.SONG_INTRO_SONG) {
-            LOGGER.infof("[QueueService] Processing SONG_INTRO_SONG merging method for messageId: {}", messageId);
-            return getRadioStation(brandName)
-                    .chain(radioStation -> {
-                        //LOGGER.infof("[QueueService] Radio station found: {}, handling SONG_INTRO_SONG", brandName);
-                        return createAudioMixingHandler().handleSongIntroSong(radioStation, message);
-                    })
-                    .onItem().invoke(result -> {
-                        LOGGER.infof("[QueueService] SONG_INTRO_SONG operation completed successfully - messageId: {}", messageId);
-                        metricPublisher.publishMetric(brandName, MetricEventType.INFORMATION, "song_intro_song_completed",
-                                Map.of("messageId", messageId, "mergingMethod", "SONG_INTRO_SONG"), message.getTraceId());
-                    })
-                    .onFailure().invoke(err -> {
-                        LOGGER.error("[QueueService] SONG_INTRO_SONG operation failed - messageId: {}", messageId, err);
-                        metricPublisher.publishMetric(brandName, MetricEventType.ERROR, "song_intro_song_failed",
-                                Map.of("messageId", messageId, "error", err.getMessage()), message.getTraceId());
-                    });
-        } else if (message.getMergingMethod() == MergingType.INTRO_SONG_INTRO_SONG) {
-            LOGGER.infof("[QueueService] Processing INTRO_SONG_INTRO_SONG merging method for messageId: {}", messageId);
-            return getRadioStation(brandName)
-                    .chain(radioStation -> {
-                        //LOGGER.infof("[QueueService] Radio station found: {}, handling INTRO_SONG_INTRO_SONG", brandName);
-                        return createAudioMixingHandler().handleIntroSongIntroSong(radioStation, message);
-                    })
-                    .onItem().invoke(result -> {
-                        LOGGER.infof("[QueueService] INTRO_SONG_INTRO_SONG operation completed successfully - messageId: {}", messageId);
-                        metricPublisher.publishMetric(brandName, MetricEventType.INFORMATION, "intro_song_intro_song_completed",
-                                Map.of("messageId", messageId, "mergingMethod", "INTRO_SONG_INTRO_SONG"), message.getTraceId());
-                    })
-                    .onFailure().invoke(err -> {
-                        LOGGER.error("[QueueService] INTRO_SONG_INTRO_SONG operation failed - messageId: {}", messageId, err);
-                        metricPublisher.publishMetric(brandName, MetricEventType.ERROR, "intro_song_intro_song_failed",
-                                Map.of("messageId", messageId, "error", err.getMessage()), message.getTraceId());
-                    });
-        } else if (message.getMergingMethod() == MergingType.SONG_CROSSFADE_SONG) {
-            LOGGER.infof("[QueueService] Processing SONG_CROSSFADE_SONG merging method for messageId: {}", messageId);
-            return getRadioStation(brandName)
-                    .chain(radioStation -> {
-                        //LOGGER.infof("[QueueService] Radio station found: {}, creating AudioMixingHandler", brandName);
-                        AudioMixingHandler handler = createAudioMixingHandler();
-                        ConcatenationType concatType = Arrays.stream(ConcatenationType.values())
-                                .skip(new Random().nextInt(ConcatenationType.values().length))
-                                .findFirst()
-                                .orElse(ConcatenationType.CROSSFADE);
-                        LOGGER.debugf("[QueueService] Selected concatenation type: {}", concatType);
-                        return handler.handleConcatenationAndFeed(radioStation, message, concatType);
-                    })
-                    .onItem().invoke(result -> {
-                        LOGGER.infof("[QueueService] SONG_CROSSFADE_SONG operation completed successfully - messageId: {}", messageId);
-                        metricPublisher.publishMetric(brandName, MetricEventType.INFORMATION, "song_crossfade_song_completed",
-                                Map.of("messageId", messageId, "mergingMethod", "SONG_CROSSFADE_SONG"), message.getTraceId());
-                    })
-                    .onFailure().invoke(err -> {
-                        LOGGER.error("[QueueService] SONG_CROSSFADE_SONG operation failed - messageId: {}", messageId, err);
-                        metricPublisher.publishMetric(brandName, MetricEventType.ERROR, "song_crossfade_song_failed",
-                                Map.of("messageId", messageId, "error", err.getMessage()), message.getTraceId());
-                    });
-        } else if (message.getMergingMethod() == MergingType.SONG_ONLY) {
-            LOGGER.infof("[QueueService] Processing SONG_ONLY merging method for messageId: {}", messageId);
-            return getRadioStation(brandName)
-                    .chain(radioStation -> {
-                        //LOGGER.infof("[QueueService] Radio station found: {}, handling SONG_ONLY", brandName);
-                        return createAudioMixingHandler().handleSongOnly(radioStation, message);
-                    })
-                    .onItem().invoke(result -> {
-                        LOGGER.infof("[QueueService] SONG_ONLY operation completed successfully - messageId: {}", messageId);
-                        metricPublisher.publishMetric(brandName, MetricEventType.INFORMATION, "song_only_completed",
-                                Map.of("messageId", messageId, "mergingMethod", "SONG_ONLY"), message.getTraceId());
-                    })
-                    .onFailure().invoke(err -> {
-                        LOGGER.error("[QueueService] SONG_ONLY operation failed - messageId: {}", messageId, err);
-                        metricPublisher.publishMetric(brandName, MetricEventType.ERROR, "song_only_failed",
-                                Map.of("messageId", messageId, "error", err.getMessage()), message.getTraceId());
-                    });
-        } else if (message.getMergingMethod() == MergingType.FILLER_JINGLE) {
-            LOGGER.infof("[QueueService] Processing FILLER_JINGLE merging method for messageId: {}", messageId);
-            return getRadioStation(brandName)
-                    .chain(radioStation -> {
-                        return createAudioMixingHandler().handleFillerJingle(radioStation, message);
-                    })
-                    .onItem().invoke(result -> {
-                        LOGGER.infof("[QueueService] FILLER_JINGLE operation completed successfully - messageId: {}", messageId);
-                        metricPublisher.publishMetric(brandName, MetricEventType.INFORMATION, "filler_jingle_completed",
-                                Map.of("messageId", messageId, "mergingMethod", "FILLER_JINGLE"), message.getTraceId());
-                    })
-                    .onFailure().invoke(err -> {
-                        LOGGER.error("[QueueService] FILLER_JINGLE operation failed - messageId: {}", messageId, err);
-                        metricPublisher.publishMetric(brandName, MetricEventType.ERROR, "filler_jingle_failed",
-                                Map.of("messageId", messageId, "error", err.getMessage()), message.getTraceId());
-                    });
-        } else {
-            LOGGER.warnf("[QueueService] Unknown or unsupported merging method: {} for messageId: {}",
+        IMergingStrategy strategy = mergingStrategyRegistry.get(message.getMergingMethod());
+        if (strategy == null) {
+            LOGGER.warnf("[QueueService] Unknown or unsupported merging method: %s for messageId: %s",
                     message.getMergingMethod(), messageId);
             metricPublisher.publishMetric(brandName, MetricEventType.WARNING, "unsupported_merging_method",
                     Map.of("messageId", messageId, "mergingMethod", String.valueOf(message.getMergingMethod())), message.getTraceId());
             return Uni.createFrom().item(Boolean.FALSE);
         }
-    }
-
-    private AudioMixingHandler createAudioMixingHandler() {
-        try {
-            return new AudioMixingHandler(
-                    aivoxConfig,
-                    soundFragmentRepository,
-                    soundFragmentService,
-                    audioConcatenator,
-                    aiAgentService,
-                    fFmpegProvider
-            );
-        } catch (IOException | AudioMergeException e) {
-            throw new RuntimeException(e);
-        }
+        LOGGER.debugf("[QueueService] Processing %s merging method for messageId: %s", message.getMergingMethod(), messageId);
+        return mergingStrategyRegistry.execute(strategy, getRadioStation(brandName), message);
     }
 
     private Uni<IStream> getRadioStation(String brand) {
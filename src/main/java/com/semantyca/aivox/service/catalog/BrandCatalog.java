@@ -0,0 +1,349 @@
+package com.semantyca.aivox.service.catalog;
+
+import com.semantyca.aivox.model.CatalogEntry;
+import com.semantyca.mixpla.model.cnst.PlaylistItemType;
+import com.semantyca.mixpla.model.cnst.SourceType;
+import com.semantyca.mixpla.model.soundfragment.SoundFragment;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Snapshot of a brand's fragments in parallel arrays, one slot per fragment. Artists, titles,
+ * genres and labels are interned into small dictionaries so the rotation compares ints, and the
+ * fragments of an artist or title are indexed for the separation windows. Play counts are the only
+ * mutable column; changes from the database produce a new snapshot via {@link #apply}, in which
+ * existing fragments keep their slot so the {@link CatalogFilterIndex} and {@link TrigramIndex} are
+ * carried over and patched.
+ */
+final class BrandCatalog {
+    private static final int[] NONE = new int[0];
+    // pg_trgm's default similarity_threshold is 0.3; the SQL path used 0.05
+    private static final double SIMILARITY_THRESHOLD = 0.05;
+
+    private final UUID[] ids;
+    private final PlaylistItemType[] types;
+    private final SourceType[] sources;
+    private final boolean[] archived;
+    private final String[] titles;
+    private final String[] albums;
+    private final int[] lengthsSeconds;
+    private final int[] artists;
+    private final String[] artistNames;
+    private final int[] titleKeys;
+    private final Map<String, Integer> artistDictionary = new HashMap<>();
+    private final Map<String, Integer> titleDictionary = new HashMap<>();
+    private final UUID[] genreIds;
+    private final int[][] genres;
+    private final UUID[] labelIds;
+    private final int[][] labels;
+    private final AtomicIntegerArray playCounts;
+    private final Map<UUID, Integer> slots;
+    private final int[][] songsByArtist;
+    private final int[][] songsByTitle;
+    private final CatalogFilterIndex filterIndex;
+    private final TrigramIndex trigramIndex;
+
+    private BrandCatalog(List<CatalogEntry> entries, CatalogFilterIndex filterIndex, TrigramIndex trigramIndex) {
+        int size = entries.size();
+        ids = new UUID[size];
+        types = new PlaylistItemType[size];
+        sources = new SourceType[size];
+        archived = new boolean[size];
+        titles = new String[size];
+        albums = new String[size];
+        lengthsSeconds = new int[size];
+        artists = new int[size];
+        titleKeys = new int[size];
+        genres = new int[size][];
+        labels = new int[size][];
+        playCounts = new AtomicIntegerArray(size);
+        slots = new HashMap<>(size * 2);
+
+        Map<UUID, Integer> genreDictionary = new LinkedHashMap<>();
+        Map<UUID, Integer> labelDictionary = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            CatalogEntry entry = entries.get(i);
+            ids[i] = entry.id();
+            types[i] = entry.type();
+            sources[i] = entry.source();
+            archived[i] = entry.archived();
+            titles[i] = entry.title();
+            albums[i] = entry.album();
+            lengthsSeconds[i] = (int) (entry.lengthMillis() / 1000);
+            artists[i] = intern(artistDictionary, normalize(entry.artist()));
+            titleKeys[i] = intern(titleDictionary, normalize(entry.title()));
+            genres[i] = internAll(genreDictionary, entry.genres());
+            labels[i] = internAll(labelDictionary, entry.labels());
+            playCounts.set(i, entry.playCount());
+            slots.put(entry.id(), i);
+        }
+        artistNames = new String[artistDictionary.size()];
+        for (int i = 0; i < size; i++) {
+            if (artistNames[artists[i]] == null) {
+                artistNames[artists[i]] = entries.get(i).artist();
+            }
+        }
+        genreIds = genreDictionary.keySet().toArray(new UUID[0]);
+        labelIds = labelDictionary.keySet().toArray(new UUID[0]);
+        songsByArtist = group(artists, artistDictionary.size());
+        songsByTitle = group(titleKeys, titleDictionary.size());
+        this.filterIndex = filterIndex;
+        this.trigramIndex = trigramIndex;
+    }
+
+    static BrandCatalog of(List<CatalogEntry> entries) {
+        CatalogFilterIndex filterIndex = new CatalogFilterIndex();
+        TrigramIndex trigramIndex = new TrigramIndex();
+        for (int slot = 0; slot < entries.size(); slot++) {
+            filterIndex.add(slot, entries.get(slot));
+            trigramIndex.add(slot, searchText(entries.get(slot)));
+        }
+        filterIndex.optimize();
+        trigramIndex.optimize();
+        return new BrandCatalog(entries, filterIndex, trigramIndex);
+    }
+
+    /**
+     * Hands both indexes over to the new snapshot; this one must not be used for filtering or search afterwards.
+     *
+     * @param changes rows modified since the last sync, archived ones included
+     * @return a new snapshot, play counts kept where the in-memory count is ahead of the database
+     */
+    BrandCatalog apply(Collection<CatalogEntry> changes) {
+        Map<UUID, CatalogEntry> merged = new LinkedHashMap<>();
+        for (int slot = 0; slot < ids.length; slot++) {
+            merged.put(ids[slot], entry(slot));
+        }
+        Map<UUID, Integer> appended = new HashMap<>();
+        for (CatalogEntry change : changes) {
+            Integer known = slots.get(change.id());
+            int playCount = known != null ? Math.max(playCounts.get(known), change.playCount()) : change.playCount();
+            CatalogEntry current = new CatalogEntry(change.id(), change.type(), change.source(), change.title(),
+                    change.artist(), change.album(), change.lengthMillis(), change.genres(), change.labels(),
+                    playCount, change.archived());
+            CatalogEntry previous = merged.put(change.id(), current);
+            if (previous != null) {
+                int slot = known != null ? known : appended.get(change.id());
+                filterIndex.update(slot, previous, current);
+                if (!searchText(previous).equals(searchText(current))) {
+                    trigramIndex.update(slot, searchText(current));
+                }
+            } else {
+                appended.put(change.id(), merged.size() - 1);
+                filterIndex.add(merged.size() - 1, current);
+                trigramIndex.add(merged.size() - 1, searchText(current));
+            }
+        }
+        return new BrandCatalog(new ArrayList<>(merged.values()), filterIndex, trigramIndex);
+    }
+
+    /**
+     * Bitmap algebra for the indexed dimensions, then the artist's slots; the search term goes through
+     * the trigram index, matching what {@link #search} would rank.
+     *
+     * @return matching slots, a new bitmap the caller owns
+     */
+    RoaringBitmap candidates(SceneFilter filter) {
+        RoaringBitmap result = filterIndex.match(filter);
+        if (filter.artist() != null && !filter.artist().isBlank()) {
+            result.and(RoaringBitmap.bitmapOf(songsOfArtist(normalize(filter.artist()))));
+        }
+        if (filter.searchTerm() != null && !filter.searchTerm().isBlank()) {
+            RoaringBitmap found = new RoaringBitmap();
+            for (TrigramIndex.Hit hit : search(filter.searchTerm(), result, 0)) {
+                found.add(hit.slot());
+            }
+            result = found;
+        }
+        return result;
+    }
+
+    /**
+     * The in-memory form of {@code search_name ILIKE '%query%' OR similarity(search_name, query) > 0.05
+     * ORDER BY similarity DESC}, over title, artist and album.
+     *
+     * @param allowed slots to search, usually {@link #candidates} of a filter without search term
+     * @param limit   how many to return, best first; 0 for every match in slot order
+     */
+    List<TrigramIndex.Hit> search(String query, RoaringBitmap allowed, int limit) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        return trigramIndex.search(query, allowed,
+                slot -> searchText(slot).toLowerCase(Locale.ROOT).contains(needle), SIMILARITY_THRESHOLD, limit);
+    }
+
+    /**
+     * @return whether the regular rotation may pick it: a song that is not archived
+     */
+    boolean inRotation(int slot) {
+        return types[slot] == PlaylistItemType.SONG && !archived[slot];
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    int artistCount() {
+        return songsByArtist.length;
+    }
+
+    int titleCount() {
+        return songsByTitle.length;
+    }
+
+    long filterIndexBytes() {
+        return filterIndex.sizeInBytes();
+    }
+
+    int trigramCount() {
+        return trigramIndex.trigramCount();
+    }
+
+    /**
+     * @return the slot of the fragment, or -1 when it is not in this snapshot
+     */
+    int slotOf(UUID id) {
+        Integer slot = slots.get(id);
+        return slot != null ? slot : -1;
+    }
+
+    UUID idAt(int slot) {
+        return ids[slot];
+    }
+
+    int playCountAt(int slot) {
+        return playCounts.get(slot);
+    }
+
+    int recordPlay(int slot) {
+        return playCounts.incrementAndGet(slot);
+    }
+
+    /**
+     * @return the artist of the fragment, normalized, as kept in the separation history
+     */
+    String artistKeyAt(int slot) {
+        return normalize(artistNames[artists[slot]]);
+    }
+
+    String titleKeyAt(int slot) {
+        return normalize(titles[slot]);
+    }
+
+    int[] songsOfArtist(String artistKey) {
+        Integer artist = artistDictionary.get(artistKey);
+        return artist != null ? songsByArtist[artist] : NONE;
+    }
+
+    int[] songsWithTitle(String titleKey) {
+        Integer title = titleDictionary.get(titleKey);
+        return title != null ? songsByTitle[title] : NONE;
+    }
+
+    long totalSeconds() {
+        long total = 0;
+        for (int length : lengthsSeconds) {
+            total += length;
+        }
+        return total;
+    }
+
+    /**
+     * What the playlist needs to fetch the file and build metadata; files are resolved later by id.
+     */
+    SoundFragment toSoundFragment(int slot) {
+        SoundFragment doc = new SoundFragment();
+        doc.setId(ids[slot]);
+        doc.setType(types[slot]);
+        doc.setSource(sources[slot]);
+        doc.setTitle(titles[slot]);
+        doc.setArtist(artistNames[artists[slot]]);
+        doc.setAlbum(albums[slot]);
+        doc.setLength(Duration.ofSeconds(lengthsSeconds[slot]));
+        doc.setArchived(archived[slot] ? 1 : 0);
+        doc.setGenres(resolve(genreIds, genres[slot]));
+        doc.setLabels(resolve(labelIds, labels[slot]));
+        doc.setFileMetadataList(List.of());
+        return doc;
+    }
+
+    private CatalogEntry entry(int slot) {
+        return new CatalogEntry(ids[slot], types[slot], sources[slot], titles[slot], artistNames[artists[slot]],
+                albums[slot], lengthsSeconds[slot] * 1000L, resolve(genreIds, genres[slot]).toArray(new UUID[0]),
+                resolve(labelIds, labels[slot]).toArray(new UUID[0]), playCounts.get(slot), archived[slot]);
+    }
+
+    private String searchText(int slot) {
+        return searchText(titles[slot], artistNames[artists[slot]], albums[slot]);
+    }
+
+    private static String searchText(CatalogEntry entry) {
+        return searchText(entry.title(), entry.artist(), entry.album());
+    }
+
+    private static String searchText(String title, String artist, String album) {
+        StringBuilder text = new StringBuilder();
+        for (String part : new String[]{title, artist, album}) {
+            if (part != null && !part.isBlank()) {
+                if (text.length() > 0) {
+                    text.append(' ');
+                }
+                text.append(part);
+            }
+        }
+        return text.toString();
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static <K> int intern(Map<K, Integer> dictionary, K key) {
+        return dictionary.computeIfAbsent(key, k -> dictionary.size());
+    }
+
+    private static int[] internAll(Map<UUID, Integer> dictionary, UUID[] keys) {
+        if (keys == null || keys.length == 0) {
+            return NONE;
+        }
+        int[] result = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            result[i] = intern(dictionary, keys[i]);
+        }
+        return result;
+    }
+
+    private static List<UUID> resolve(UUID[] dictionary, int[] keys) {
+        List<UUID> result = new ArrayList<>(keys.length);
+        for (int key : keys) {
+            result.add(dictionary[key]);
+        }
+        return result;
+    }
+
+    private static int[][] group(int[] keys, int groups) {
+        int[] counts = new int[groups];
+        for (int key : keys) {
+            counts[key]++;
+        }
+        int[][] result = new int[groups][];
+        for (int g = 0; g < groups; g++) {
+            result[g] = new int[counts[g]];
+        }
+        Arrays.fill(counts, 0);
+        for (int slot = 0; slot < keys.length; slot++) {
+            result[keys[slot]][counts[keys[slot]]++] = slot;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,346 @@
+package com.semantyca.aivox.service.catalog;
+
+import com.semantyca.aivox.model.CatalogEntry;
+import com.semantyca.aivox.repository.soundfragment.SoundFragmentBrandRepository;
+import com.semantyca.aivox.repository.soundfragment.SoundFragmentCueRepository;
+import com.semantyca.aivox.service.manipulation.probe.CuePoints;
+import com.semantyca.aivox.service.soundfragment.BrandSoundFragmentUpdateService;
+import com.semantyca.mixpla.model.soundfragment.SoundFragment;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps every active brand's fragments in memory and picks the next ones through its {@link RotationEngine},
+ * so feeding the playlist or a scene costs no database round-trip. A brand is loaded in full on first use, then
+ * only rows modified since the last sync are read; a periodic full reload catches songs that were
+ * detached from the brand, which leave no modified row behind.
+ * <p>
+ * Cue points of the songs are stored in the database and read with the catalog; songs without them are
+ * handed to the {@link CueBackfill} once their brand loads.
+ */
+@ApplicationScoped
+public class BrandCatalogService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BrandCatalogService.class);
+    // overlap for clock skew between this host and the database
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+    // more than the widest separation window, so a restart resumes with full windows
+    private static final int SEEDED_PLAYS = 200;
+
+    private final SoundFragmentBrandRepository repository;
+    private final BrandSoundFragmentUpdateService playHistory;
+    private final SoundFragmentCueRepository cueRepository;
+    private final CueBackfill cueBackfill;
+    private final Map<UUID, Uni<BrandRotation>> rotations = new ConcurrentHashMap<>();
+    // song id -> cue points of its current file, over every loaded brand
+    private final Map<UUID, CuePoints> cues = new ConcurrentHashMap<>();
+    private volatile boolean cueTable;
+
+    @Inject
+    public BrandCatalogService(SoundFragmentBrandRepository repository, BrandSoundFragmentUpdateService playHistory,
+                               SoundFragmentCueRepository cueRepository, CueBackfill cueBackfill) {
+        this.repository = repository;
+        this.playHistory = playHistory;
+        this.cueRepository = cueRepository;
+        this.cueBackfill = cueBackfill;
+    }
+
+    /**
+     * @param excludedIds songs already queued or on air
+     * @return up to {@code quantity} songs, fewer only when the catalog has nothing else left
+     */
+    public Uni<List<SoundFragment>> pick(UUID brandId, int quantity, Collection<UUID> excludedIds) {
+        return rotation(brandId).map(rotation -> rotation.pick(quantity, excludedIds, null));
+    }
+
+    /**
+     * Same rotation rules, restricted to what the scene's playlist request matches.
+     */
+    public Uni<List<SoundFragment>> pick(UUID brandId, int quantity, Collection<UUID> excludedIds, SceneFilter filter) {
+        return rotation(brandId).map(rotation -> rotation.pick(quantity, excludedIds, filter));
+    }
+
+    /**
+     * @return ids of every fragment the filter matches, in catalog order
+     */
+    public Uni<List<UUID>> candidates(UUID brandId, SceneFilter filter) {
+        return rotation(brandId).map(rotation -> rotation.candidates(filter));
+    }
+
+    /**
+     * Ranked like the database's trigram similarity search, answered from the brand's trigram index.
+     *
+     * @return ids of the best matches among fragments that are not archived, best first
+     */
+    public Uni<List<UUID>> search(UUID brandId, String keyword, int limit, int offset) {
+        return rotation(brandId).map(rotation -> rotation.search(keyword, limit, offset));
+    }
+
+    /**
+     * Cue points of the song's current file, from the loaded catalogs or else from the database.
+     *
+     * @return null while the song has not been analyzed, crossfades then use the whole file
+     */
+    public Uni<CuePoints> cuePoints(UUID songId) {
+        CuePoints known = cues.get(songId);
+        if (known != null) {
+            return Uni.createFrom().item(known);
+        }
+        return cueRepository.getCues(songId)
+                .onFailure().recoverWithItem(e -> {
+                    LOGGER.debug("No stored cue points for song {}: {}", songId, e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Counts an airing in memory; songs not in the catalog (waiting audio, mixes of unknown ids) are ignored.
+     */
+    public void recordPlay(UUID brandId, UUID songId) {
+        if (songId == null) {
+            return;
+        }
+        Uni<BrandRotation> loading = rotations.get(brandId);
+        if (loading != null) {
+            loading.subscribe().with(rotation -> rotation.recordPlay(songId), e -> { });
+        }
+    }
+
+    public void evict(UUID brandId) {
+        rotations.remove(brandId);
+    }
+
+    @Scheduled(every = "5m", delayed = "5m", identity = "catalog-sync")
+    public Uni<Void> syncChanges() {
+        return Multi.createFrom().iterable(new ArrayList<>(rotations.entrySet()))
+                .onItem().transformToUniAndConcatenate(entry -> entry.getValue()
+                        .flatMap(rotation -> {
+                            LocalDateTime since = rotation.syncedAt.minus(SYNC_OVERLAP);
+                            LocalDateTime now = now();
+                            return repository.getCatalogEntries(entry.getKey(), since)
+                                    .invoke(changes -> {
+                                        if (!changes.isEmpty()) {
+                                            rotation.apply(changes);
+                                            LOGGER.debug("Catalog {}: applied {} change(s), {} fragments",
+                                                    entry.getKey(), changes.size(), rotation.size());
+                                            if (cueTable) {
+                                                analyzeMissingCues(entry.getKey(), rotation);
+                                            }
+                                        }
+                                        rotation.syncedAt = now;
+                                    });
+                        })
+                        .onFailure().recoverWithItem(e -> {
+                            LOGGER.warn("Catalog sync failed for brand {}", entry.getKey(), e);
+                            return null;
+                        }))
+                .collect().last()
+                .replaceWithVoid();
+    }
+
+    @Scheduled(every = "1h", delayed = "1h", identity = "catalog-reload")
+    public Uni<Void> reload() {
+        return Multi.createFrom().iterable(new ArrayList<>(rotations.entrySet()))
+                .onItem().transformToUniAndConcatenate(entry -> entry.getValue()
+                        .flatMap(rotation -> {
+                            LocalDateTime now = now();
+                            return Uni.combine().all().unis(repository.getCatalogEntries(entry.getKey(), null),
+                                            storedCues(entry.getKey())).asTuple()
+                                    .invoke(loaded -> {
+                                        rotation.replace(BrandCatalog.of(loaded.getItem1()));
+                                        rotation.syncedAt = now;
+                                        refreshCues(entry.getKey(), rotation, loaded.getItem2());
+                                    });
+                        })
+                        .onFailure().recoverWithItem(e -> {
+                            LOGGER.warn("Catalog reload failed for brand {}", entry.getKey(), e);
+                            return null;
+                        }))
+                .collect().last()
+                .replaceWithVoid();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        rotations.forEach((brandId, loading) -> loading.subscribe().with(
+                rotation -> result.put(brandId.toString(), rotation.snapshot()), e -> { }));
+        return result;
+    }
+
+    private Uni<BrandRotation> rotation(UUID brandId) {
+        return rotations.computeIfAbsent(brandId, this::load);
+    }
+
+    private Uni<BrandRotation> load(UUID brandId) {
+        LocalDateTime now = now();
+        long startedAt = System.currentTimeMillis();
+        Uni<List<UUID>> recent = playHistory.getRecentPlays(brandId, SEEDED_PLAYS)
+                .onFailure().recoverWithItem(e -> {
+                    LOGGER.debug("No play history for brand {}: {}", brandId, e.getMessage());
+                    return List.of();
+                });
+        return Uni.combine().all().unis(repository.getCatalogEntries(brandId, null), recent, storedCues(brandId)).asTuple()
+                .map(loaded -> {
+                    BrandRotation rotation = new BrandRotation(BrandCatalog.of(loaded.getItem1()), now);
+                    rotation.seed(loaded.getItem2());
+                    LOGGER.info("Catalog {} loaded: {} fragments, {} artists in {} ms", brandId, rotation.size(),
+                            rotation.engine.catalog().artistCount(), System.currentTimeMillis() - startedAt);
+                    if (loaded.getItem3() == null && !cueTable) {
+                        LOGGER.warn("Cue point table missing, apply db/schema/04_sound_fragment_cues.sql; crossfades use whole files");
+                    }
+                    refreshCues(brandId, rotation, loaded.getItem3());
+                    return rotation;
+                })
+                .onFailure().invoke(e -> {
+                    LOGGER.error("Catalog load failed for brand {}", brandId, e);
+                    rotations.remove(brandId);
+                })
+                .memoize().indefinitely();
+    }
+
+    /**
+     * @return the brand's stored cue points, or null when the cue table does not exist
+     */
+    private Uni<Map<UUID, CuePoints>> storedCues(UUID brandId) {
+        return cueRepository.hasCueTable()
+                .chain(present -> {
+                    cueTable = present;
+                    return present ? cueRepository.getBrandCues(brandId) : Uni.createFrom().<Map<UUID, CuePoints>>nullItem();
+                })
+                .onFailure().recoverWithItem(e -> {
+                    LOGGER.warn("Cue points of brand {} not loaded: {}", brandId, e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Takes the stored points over and analyzes the songs without any, including songs whose file changed.
+     */
+    private void refreshCues(UUID brandId, BrandRotation rotation, Map<UUID, CuePoints> stored) {
+        if (stored == null) {
+            return;
+        }
+        for (UUID songId : rotation.songIds()) {
+            if (!stored.containsKey(songId)) {
+                cues.remove(songId);
+            }
+        }
+        cues.putAll(stored);
+        analyzeMissingCues(brandId, rotation);
+    }
+
+    private void analyzeMissingCues(UUID brandId, BrandRotation rotation) {
+        List<UUID> missing = rotation.songIds().stream().filter(songId -> !cues.containsKey(songId)).toList();
+        cueBackfill.submit(brandId, missing, cues::put);
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now(ZoneOffset.UTC);
+    }
+
+    private static final class BrandRotation {
+        private final RotationEngine engine;
+        private volatile LocalDateTime syncedAt;
+
+        BrandRotation(BrandCatalog catalog, LocalDateTime syncedAt) {
+            this.engine = new RotationEngine(catalog, new Random());
+            this.syncedAt = syncedAt;
+        }
+
+        synchronized List<SoundFragment> pick(int quantity, Collection<UUID> excludedIds, SceneFilter filter) {
+            BrandCatalog catalog = engine.catalog();
+            List<SoundFragment> result = new ArrayList<>(quantity);
+            for (int slot : engine.pick(quantity, excludedIds, filter)) {
+                result.add(catalog.toSoundFragment(slot));
+            }
+            return result;
+        }
+
+        synchronized List<UUID> candidates(SceneFilter filter) {
+            BrandCatalog catalog = engine.catalog();
+            List<UUID> result = new ArrayList<>();
+            catalog.candidates(filter).forEach((int slot) -> result.add(catalog.idAt(slot)));
+            return result;
+        }
+
+        synchronized List<UUID> search(String keyword, int limit, int offset) {
+            BrandCatalog catalog = engine.catalog();
+            List<TrigramIndex.Hit> hits = catalog.search(keyword, catalog.candidates(SceneFilter.any()),
+                    limit > 0 ? limit + offset : 0);
+            if (limit <= 0) {
+                hits.sort(Comparator.comparingDouble(TrigramIndex.Hit::score).reversed());
+            }
+            List<UUID> result = new ArrayList<>();
+            for (int i = offset; i < hits.size(); i++) {
+                result.add(catalog.idAt(hits.get(i).slot()));
+            }
+            return result;
+        }
+
+        /**
+         * @return ids of the songs the rotation may pick
+         */
+        synchronized List<UUID> songIds() {
+            BrandCatalog catalog = engine.catalog();
+            List<UUID> result = new ArrayList<>();
+            for (int slot = 0; slot < catalog.size(); slot++) {
+                if (catalog.inRotation(slot)) {
+                    result.add(catalog.idAt(slot));
+                }
+            }
+            return result;
+        }
+
+        synchronized void recordPlay(UUID songId) {
+            engine.recordPlay(songId);
+        }
+
+        synchronized void seed(List<UUID> airedOldestFirst) {
+            engine.seedHistory(airedOldestFirst);
+        }
+
+        synchronized void apply(List<CatalogEntry> changes) {
+            engine.rebind(engine.catalog().apply(changes));
+        }
+
+        synchronized void replace(BrandCatalog catalog) {
+            engine.rebind(catalog);
+        }
+
+        synchronized int size() {
+            return engine.catalog().size();
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            BrandCatalog catalog = engine.catalog();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("fragments", catalog.size());
+            result.put("artists", catalog.artistCount());
+            result.put("filterIndexBytes", catalog.filterIndexBytes());
+            result.put("trigrams", catalog.trigramCount());
+            result.put("totalSeconds", catalog.totalSeconds());
+            result.put("blocked", engine.blockedCount());
+            result.put("picks", engine.picks());
+            result.put("fallbacks", engine.fallbacks());
+            result.put("syncedAt", syncedAt.toString());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.semantyca.aivox.service.catalog;
+
+import com.semantyca.aivox.model.CatalogEntry;
+import com.semantyca.mixpla.model.cnst.PlaylistItemType;
+import com.semantyca.mixpla.model.cnst.SourceType;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Posting bitmaps over catalog slots: genre, label, type and source to the slots that carry them,
+ * plus the archived slots. A scene filter is answered with a handful of bitmap ORs and ANDs instead
+ * of correlated EXISTS subqueries. Updated in place as rows change; slots never move, so only the
+ * changed row's bits are touched.
+ */
+final class CatalogFilterIndex {
+    private final Map<UUID, RoaringBitmap> byGenre = new HashMap<>();
+    private final Map<UUID, RoaringBitmap> byLabel = new HashMap<>();
+    private final Map<PlaylistItemType, RoaringBitmap> byType = new EnumMap<>(PlaylistItemType.class);
+    private final Map<SourceType, RoaringBitmap> bySource = new EnumMap<>(SourceType.class);
+    private final RoaringBitmap archived = new RoaringBitmap();
+    private int size;
+
+    void add(int slot, CatalogEntry entry) {
+        post(slot, entry, true);
+        size = Math.max(size, slot + 1);
+    }
+
+    void update(int slot, CatalogEntry previous, CatalogEntry current) {
+        post(slot, previous, false);
+        post(slot, current, true);
+    }
+
+    void optimize() {
+        byGenre.values().forEach(RoaringBitmap::runOptimize);
+        byLabel.values().forEach(RoaringBitmap::runOptimize);
+        byType.values().forEach(RoaringBitmap::runOptimize);
+        bySource.values().forEach(RoaringBitmap::runOptimize);
+        archived.runOptimize();
+    }
+
+    /**
+     * Values within a dimension are ORed, dimensions are ANDed; an empty dimension does not filter.
+     * Artist and search term are not indexed here, see {@link BrandCatalog#candidates}.
+     *
+     * @return a new bitmap the caller owns
+     */
+    RoaringBitmap match(SceneFilter filter) {
+        RoaringBitmap result = RoaringBitmap.bitmapOfRange(0, size);
+        if (!filter.includeArchived()) {
+            result.andNot(archived);
+        }
+        result = and(result, byType, filter.types());
+        result = and(result, bySource, filter.sources());
+        result = and(result, byGenre, filter.genres());
+        result = and(result, byLabel, filter.labels());
+        return result;
+    }
+
+    long sizeInBytes() {
+        long bytes = archived.getLongSizeInBytes();
+        for (Map<?, RoaringBitmap> postings : List.of(byGenre, byLabel, byType, bySource)) {
+            for (RoaringBitmap bitmap : postings.values()) {
+                bytes += bitmap.getLongSizeInBytes();
+            }
+        }
+        return bytes;
+    }
+
+    private static <K> RoaringBitmap and(RoaringBitmap result, Map<K, RoaringBitmap> postings, Collection<K> keys) {
+        if (keys == null || keys.isEmpty() || result.isEmpty()) {
+            return result;
+        }
+        RoaringBitmap any = new RoaringBitmap();
+        for (K key : keys) {
+            RoaringBitmap bitmap = postings.get(key);
+            if (bitmap != null) {
+                any.or(bitmap);
+            }
+        }
+        result.and(any);
+        return result;
+    }
+
+    private void post(int slot, CatalogEntry entry, boolean set) {
+        if (entry.genres() != null) {
+            for (UUID genre : entry.genres()) {
+                post(byGenre, genre, slot, set);
+            }
+        }
+        if (entry.labels() != null) {
+            for (UUID label : entry.labels()) {
+                post(byLabel, label, slot, set);
+            }
+        }
+        if (entry.type() != null) {
+            post(byType, entry.type(), slot, set);
+        }
+        if (entry.source() != null) {
+            post(bySource, entry.source(), slot, set);
+        }
+        if (entry.archived() && set) {
+            archived.add(slot);
+        } else if (!set) {
+            archived.remove(slot);
+        }
+    }
+
+    private static <K> void post(Map<K, RoaringBitmap> postings, K key, int slot, boolean set) {
+        if (set) {
+            postings.computeIfAbsent(key, k -> new RoaringBitmap()).add(slot);
+            return;
+        }
+        RoaringBitmap bitmap = postings.get(key);
+        if (bitmap != null) {
+            bitmap.remove(slot);
+            if (bitmap.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.semantyca.aivox.service.catalog;
+
+import com.semantyca.aivox.repository.soundfragment.SoundFragmentCueRepository;
+import com.semantyca.aivox.repository.soundfragment.SoundFragmentFileHandler;
+import com.semantyca.aivox.service.manipulation.probe.AudioProbeService;
+import com.semantyca.aivox.service.manipulation.probe.CuePoints;
+import com.semantyca.aivox.service.scratch.ScratchFile;
+import com.semantyca.aivox.service.scratch.ScratchStorage;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Analyzes the cue points of catalog songs that have none stored yet and saves them with the fragment, so a
+ * crossfade reads them from the catalog instead of decoding the songs while it mixes. Songs of one
+ * submission are analyzed one at a time, in the background.
+ */
+@ApplicationScoped
+public class CueBackfill {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CueBackfill.class);
+
+    private final SoundFragmentCueRepository repository;
+    private final SoundFragmentFileHandler fileHandler;
+    private final AudioProbeService probeService;
+    private final ScratchStorage scratchStorage;
+    // submitted and not finished yet, so a sync or reload does not queue a song twice
+    private final Set<UUID> pending = ConcurrentHashMap.newKeySet();
+
+    @Inject
+    public CueBackfill(SoundFragmentCueRepository repository, SoundFragmentFileHandler fileHandler,
+                       AudioProbeService probeService, ScratchStorage scratchStorage) {
+        this.repository = repository;
+        this.fileHandler = fileHandler;
+        this.probeService = probeService;
+        this.scratchStorage = scratchStorage;
+    }
+
+    /**
+     * @param onAnalyzed called with each song's cue points once they are saved
+     */
+    public void submit(UUID brandId, Collection<UUID> songIds, BiConsumer<UUID, CuePoints> onAnalyzed) {
+        List<UUID> queued = songIds.stream().filter(pending::add).toList();
+        if (queued.isEmpty()) {
+            return;
+        }
+        LOGGER.info("Catalog {}: analyzing cue points of {} song(s)", brandId, queued.size());
+        Multi.createFrom().iterable(queued)
+                .onItem().transformToUniAndConcatenate(songId -> analyze(songId)
+                        .invoke(cues -> onAnalyzed.accept(songId, cues))
+                        .onFailure().recoverWithItem(e -> {
+                            LOGGER.warn("No cue points for song {}: {}", songId, e.getMessage());
+                            return null;
+                        })
+                        .eventually(() -> pending.remove(songId)))
+                .collect().last()
+                .subscribe().with(
+                        done -> LOGGER.info("Catalog {}: cue point analysis finished", brandId),
+                        e -> LOGGER.warn("Catalog {}: cue point analysis stopped", brandId, e));
+    }
+
+    private Uni<CuePoints> analyze(UUID songId) {
+        AtomicReference<String> fileKey = new AtomicReference<>();
+        return fileHandler.getFirstFile(songId)
+                .invoke(metadata -> fileKey.set(metadata.getFileKey()))
+                .chain(metadata -> Uni.createFrom().item(this::downloadDirectory)
+                        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                        .chain(dir -> metadata.materializeFileStream(dir)))
+                .map(scratchStorage::adopt)
+                .chain(file -> Uni.createFrom().item(() -> analyzeFile(file))
+                        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                        .eventually(file::release))
+                .call(cues -> repository.save(songId, fileKey.get(), cues));
+    }
+
+    private CuePoints analyzeFile(ScratchFile file) {
+        try {
+            return probeService.analyzeCues(file.path());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String downloadDirectory() {
+        try {
+            return scratchStorage.downloadDirectory().toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package com.semantyca.aivox.service.catalog;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Picks songs from a {@link BrandCatalog}. Every song carries a weight that falls with its play count;
+ * songs played recently, by an artist in the artist window or with a title in the title window are
+ * blocked and weigh nothing. Weights live in a Fenwick tree, so a pick is one O(log n) descent and
+ * blocking or releasing a song is one O(log n) update.
+ * <p>
+ * Only songs that are not archived are in the tree. A scene gets a tree of its own over its candidate
+ * slots, built in O(k) on its first pick and then kept in step with every block, release and play count,
+ * so later picks are O(log k) too and every update costs O(log k) more per cached scene. Up to
+ * {@value #MAX_SCENES} scenes are cached, least recently picked evicted first.
+ * <p>
+ * {@link #rebind} rebuilds the weights and the tree in O(n) and drops the scene trees, whose slots belong
+ * to the old snapshot. It runs once per non-empty catalog delta, at most every sync interval.
+ * <p>
+ * Windows count picks, not minutes, and shrink with small catalogs so there is always something left
+ * to pick. History is kept as ids and normalized names, so it survives {@link #rebind} to a new
+ * snapshot. Not thread-safe; the caller serializes access per brand.
+ */
+final class RotationEngine {
+    private static final int RECENT_WINDOW = 50;
+    private static final int ARTIST_WINDOW = 4;
+    private static final int TITLE_WINDOW = 20;
+    private static final int MAX_SCENES = 16;
+
+    private final Random random;
+    private final Deque<UUID> recentSongs = new ArrayDeque<>();
+    private final Deque<String> recentArtists = new ArrayDeque<>();
+    private final Deque<String> recentTitles = new ArrayDeque<>();
+    private final Map<SceneFilter, SceneTree> scenes = new LinkedHashMap<>(MAX_SCENES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SceneFilter, SceneTree> eldest) {
+            return size() > MAX_SCENES;
+        }
+    };
+
+    private BrandCatalog catalog;
+    private double[] weights;
+    private int[] blocks;
+    private double[] tree;
+    private long totalPlays;
+    private int recentWindow;
+    private int artistWindow;
+    private int titleWindow;
+    private long picks;
+    private long fallbacks;
+
+    RotationEngine(BrandCatalog catalog, Random random) {
+        this.random = random;
+        rebind(catalog);
+    }
+
+    /**
+     * Moves to a new snapshot and re-applies the separation history to it.
+     */
+    void rebind(BrandCatalog catalog) {
+        this.catalog = catalog;
+        scenes.clear();
+        int size = catalog.size();
+        weights = new double[size];
+        blocks = new int[size];
+        tree = new double[size + 1];
+        recentWindow = Math.min(RECENT_WINDOW, size / 2);
+        artistWindow = Math.min(ARTIST_WINDOW, catalog.artistCount() / 2);
+        titleWindow = Math.min(TITLE_WINDOW, catalog.titleCount() / 2);
+
+        totalPlays = 0;
+        for (int slot = 0; slot < size; slot++) {
+            totalPlays += catalog.playCountAt(slot);
+        }
+        for (int slot = 0; slot < size; slot++) {
+            weights[slot] = weightOf(catalog.playCountAt(slot));
+        }
+        // linear-time Fenwick build
+        for (int i = 1; i <= size; i++) {
+            tree[i] += catalog.inRotation(i - 1) ? weights[i - 1] : 0;
+            int parent = i + (i & -i);
+            if (parent <= size) {
+                tree[parent] += tree[i];
+            }
+        }
+
+        trim(recentSongs, recentWindow);
+        trim(recentArtists, artistWindow);
+        trim(recentTitles, titleWindow);
+        for (UUID id : recentSongs) {
+            int slot = catalog.slotOf(id);
+            if (slot >= 0) {
+                block(slot);
+            }
+        }
+        for (String artist : recentArtists) {
+            blockAll(catalog.songsOfArtist(artist));
+        }
+        for (String title : recentTitles) {
+            blockAll(catalog.songsWithTitle(title));
+        }
+    }
+
+    List<Integer> pick(int quantity, Collection<UUID> excluded) {
+        return pick(quantity, excluded, null);
+    }
+
+    /**
+     * @param excluded songs already queued or on air, skipped for this call only
+     * @param scene    what a scene allows, or null for the regular rotation
+     * @return up to {@code quantity} distinct slots, each one already counted in the windows
+     */
+    List<Integer> pick(int quantity, Collection<UUID> excluded, SceneFilter scene) {
+        List<Integer> excludedSlots = new ArrayList<>();
+        for (UUID id : excluded) {
+            int slot = catalog.slotOf(id);
+            if (slot >= 0) {
+                block(slot);
+                excludedSlots.add(slot);
+            }
+        }
+        List<Integer> result = new ArrayList<>(quantity);
+        try {
+            // built after the exclusions are blocked, so the new tree starts in step with them
+            SceneTree sceneTree = scene != null ? sceneTree(scene) : null;
+            for (int i = 0; i < quantity; i++) {
+                int slot = sceneTree == null ? sample() : sceneTree.sample();
+                if (slot < 0) {
+                    slot = fallback(result, excluded, sceneTree);
+                }
+                if (slot < 0) {
+                    break;
+                }
+                picks++;
+                played(slot);
+                result.add(slot);
+            }
+        } finally {
+            for (int slot : excludedSlots) {
+                unblock(slot);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The song aired: its weight drops with the new count. The windows already hold it from the pick.
+     */
+    void recordPlay(UUID id) {
+        int slot = catalog.slotOf(id);
+        if (slot < 0) {
+            return;
+        }
+        totalPlays++;
+        double weight = weightOf(catalog.recordPlay(slot));
+        if (blocks[slot] == 0) {
+            adjust(slot, weight - weights[slot]);
+        }
+        weights[slot] = weight;
+    }
+
+    /**
+     * Replays songs aired before this engine existed into the windows, oldest first, so a restart does not
+     * forget what was just on air. Play counts are left alone; the catalog already has them.
+     */
+    void seedHistory(List<UUID> airedOldestFirst) {
+        for (UUID id : airedOldestFirst) {
+            int slot = catalog.slotOf(id);
+            if (slot >= 0) {
+                played(slot);
+            }
+        }
+    }
+
+    BrandCatalog catalog() {
+        return catalog;
+    }
+
+    long picks() {
+        return picks;
+    }
+
+    long fallbacks() {
+        return fallbacks;
+    }
+
+    int blockedCount() {
+        int count = 0;
+        for (int block : blocks) {
+            if (block > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int sample() {
+        int size = weights.length;
+        double total = prefix(tree, size);
+        if (total <= 1e-9) {
+            return -1;
+        }
+        int slot = Math.min(descend(tree, random.nextDouble() * total), size - 1);
+        // floating point drift can land on a zero-weight neighbour
+        return blocks[slot] == 0 && catalog.inRotation(slot) ? slot : -1;
+    }
+
+    private SceneTree sceneTree(SceneFilter scene) {
+        SceneTree sceneTree = scenes.get(scene);
+        if (sceneTree == null) {
+            sceneTree = new SceneTree(catalog.candidates(scene));
+            scenes.put(scene, sceneTree);
+        }
+        return sceneTree;
+    }
+
+    /**
+     * Everything is blocked, usually a tiny catalog or a narrow scene: take any allowed fragment that is
+     * neither queued nor just picked.
+     */
+    private int fallback(List<Integer> picked, Collection<UUID> excluded, SceneTree sceneTree) {
+        int size = sceneTree == null ? weights.length : sceneTree.slots.length;
+        if (size == 0) {
+            return -1;
+        }
+        int start = random.nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int slot = sceneTree == null ? (start + i) % size : sceneTree.slots[(start + i) % size];
+            boolean allowed = sceneTree != null || catalog.inRotation(slot);
+            if (allowed && !picked.contains(slot) && !excluded.contains(catalog.idAt(slot))) {
+                fallbacks++;
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void played(int slot) {
+        if (push(recentSongs, catalog.idAt(slot), recentWindow, evicted -> {
+            int evictedSlot = catalog.slotOf(evicted);
+            if (evictedSlot >= 0) {
+                unblock(evictedSlot);
+            }
+        })) {
+            block(slot);
+        }
+        String artist = catalog.artistKeyAt(slot);
+        if (push(recentArtists, artist, artistWindow, evicted -> unblockAll(catalog.songsOfArtist(evicted)))) {
+            blockAll(catalog.songsOfArtist(artist));
+        }
+        String title = catalog.titleKeyAt(slot);
+        if (push(recentTitles, title, titleWindow, evicted -> unblockAll(catalog.songsWithTitle(evicted)))) {
+            blockAll(catalog.songsWithTitle(title));
+        }
+    }
+
+    /**
+     * @return false when the window is disabled and nothing was recorded
+     */
+    private static <T> boolean push(Deque<T> history, T value, int window, Consumer<T> onEvict) {
+        if (window <= 0) {
+            return false;
+        }
+        history.addLast(value);
+        while (history.size() > window) {
+            onEvict.accept(history.pollFirst());
+        }
+        return true;
+    }
+
+    private static <T> void trim(Deque<T> history, int window) {
+        while (history.size() > Math.max(window, 0)) {
+            history.pollFirst();
+        }
+    }
+
+    private void blockAll(int[] slots) {
+        for (int slot : slots) {
+            block(slot);
+        }
+    }
+
+    private void unblockAll(int[] slots) {
+        for (int slot : slots) {
+            unblock(slot);
+        }
+    }
+
+    private void block(int slot) {
+        if (blocks[slot]++ == 0) {
+            adjust(slot, -weights[slot]);
+        }
+    }
+
+    private void unblock(int slot) {
+        if (blocks[slot] > 0 && --blocks[slot] == 0) {
+            adjust(slot, weights[slot]);
+        }
+    }
+
+    private void adjust(int slot, double delta) {
+        if (catalog.inRotation(slot)) {
+            add(tree, slot, delta);
+        }
+        for (SceneTree sceneTree : scenes.values()) {
+            sceneTree.adjust(slot, delta);
+        }
+    }
+
+    private static void add(double[] tree, int index, double delta) {
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    private static double prefix(double[] tree, int count) {
+        double sum = 0;
+        for (int i = count; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return the index whose range of the cumulative weight holds {@code target}
+     */
+    private static int descend(double[] tree, double target) {
+        int size = tree.length - 1;
+        int position = 0;
+        for (int step = Integer.highestOneBit(size); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= size && tree[next] <= target) {
+                position = next;
+                target -= tree[next];
+            }
+        }
+        return position;
+    }
+
+    // relative to the catalog average, so weights keep their spread as counts grow
+    private double weightOf(int playCount) {
+        double averagePlays = weights.length > 0 ? (double) totalPlays / weights.length : 0;
+        return 1.0 / (1.0 + playCount / (averagePlays + 1.0));
+    }
+
+    /**
+     * The weights of one scene's candidates, archived ones included when the scene allows them, in a
+     * Fenwick tree over their sorted slots.
+     */
+    private final class SceneTree {
+        private final int[] slots;
+        private final double[] tree;
+
+        SceneTree(RoaringBitmap candidates) {
+            slots = candidates.toArray();
+            tree = new double[slots.length + 1];
+            for (int i = 1; i <= slots.length; i++) {
+                int slot = slots[i - 1];
+                tree[i] += blocks[slot] == 0 ? weights[slot] : 0;
+                int parent = i + (i & -i);
+                if (parent <= slots.length) {
+                    tree[parent] += tree[i];
+                }
+            }
+        }
+
+        void adjust(int slot, double delta) {
+            int position = Arrays.binarySearch(slots, slot);
+            if (position >= 0) {
+                add(tree, position, delta);
+            }
+        }
+
+        int sample() {
+            double total = prefix(tree, slots.length);
+            if (total <= 1e-9) {
+                return -1;
+            }
+            int slot = slots[Math.min(descend(tree, random.nextDouble() * total), slots.length - 1)];
+            return blocks[slot] == 0 ? slot : -1;
+        }
+    }
+}
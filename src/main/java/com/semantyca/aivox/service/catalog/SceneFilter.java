@@ -0,0 +1,34 @@
+package com.semantyca.aivox.service.catalog;
+
+import com.semantyca.aivox.model.stream.LiveScene;
+import com.semantyca.mixpla.model.cnst.PlaylistItemType;
+import com.semantyca.mixpla.model.cnst.SourceType;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * What a scene's playlist request asks of the catalog. Empty lists and null strings do not filter.
+ */
+public record SceneFilter(List<UUID> genres, List<UUID> labels, List<PlaylistItemType> types,
+                          List<SourceType> sources, String artist, String searchTerm, boolean includeArchived) {
+
+    public static SceneFilter of(LiveScene scene) {
+        return new SceneFilter(scene.getGenres(), scene.getLabels(), scene.getPlaylistItemTypes(),
+                scene.getSourceTypes(), scene.getArtist(), scene.getSearchTerm(), false);
+    }
+
+    /**
+     * Every fragment that is not archived, whatever its type.
+     */
+    public static SceneFilter any() {
+        return new SceneFilter(List.of(), List.of(), List.of(), List.of(), null, null, false);
+    }
+
+    /**
+     * The regular rotation: songs only, nothing archived.
+     */
+    public static SceneFilter songs() {
+        return new SceneFilter(List.of(), List.of(), List.of(PlaylistItemType.SONG), List.of(), null, null, false);
+    }
+}
@@ -0,0 +1,319 @@
+package com.semantyca.aivox.service.catalog;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+
+/**
+ * Trigram inverted index over catalog slots with pg_trgm's semantics: lower-cased alphanumeric words,
+ * each padded with two spaces in front and one behind, similarity being shared distinct trigrams over
+ * the union. A query walks only the postings of its own trigrams, so its cost follows how common those
+ * trigrams are rather than the catalog size, and a top-k query can leave the most common ones unwalked.
+ * Updated in place per slot; not thread-safe.
+ */
+final class TrigramIndex {
+    private static final long[] NONE = new long[0];
+    // postings covering more than this share of the slots are skipped on the top-k path when possible
+    private static final int COMMON_FRACTION = 16;
+    private static final Comparator<Hit> BEST = (a, b) -> a.score != b.score
+            ? Double.compare(b.score, a.score) : Integer.compare(a.slot, b.slot);
+
+    private final Map<Long, RoaringBitmap> postings = new HashMap<>();
+    private long[][] grams = new long[0][];
+    // per-query scratch: trigrams each slot shares with the query, and the slots that share any
+    private int[] shared = new int[0];
+    private int[] touched = new int[0];
+
+    void add(int slot, String text) {
+        ensureCapacity(slot + 1);
+        grams[slot] = trigrams(text);
+        for (long gram : grams[slot]) {
+            postings.computeIfAbsent(gram, g -> new RoaringBitmap()).add(slot);
+        }
+    }
+
+    void update(int slot, String text) {
+        if (slot < grams.length && grams[slot] != null) {
+            for (long gram : grams[slot]) {
+                RoaringBitmap bitmap = postings.get(gram);
+                if (bitmap != null) {
+                    bitmap.remove(slot);
+                    if (bitmap.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        }
+        add(slot, text);
+    }
+
+    void optimize() {
+        postings.values().forEach(RoaringBitmap::runOptimize);
+    }
+
+    /**
+     * @param allowed   slots that may match, or null for all
+     * @param contains  the ILIKE '%query%' side of the match, checked only where trigrams cannot decide
+     * @param threshold minimum similarity, exclusive, for a match without the substring
+     * @param limit     how many to return, best first; 0 for every match in slot order
+     */
+    List<Hit> search(String query, RoaringBitmap allowed, IntPredicate contains, double threshold, int limit) {
+        long[] queryGrams = trigrams(query);
+        // a row containing the query holds every trigram from inside the query's words, so rows
+        // sharing fewer cannot pass the substring test and skip building their text
+        int inner = innerTrigramCount(queryGrams);
+        if (limit > 0 && inner > 0) {
+            List<Hit> top = topByRareTrigrams(queryGrams, allowed, threshold, limit);
+            if (top != null) {
+                return top;
+            }
+        }
+        List<RoaringBitmap> lists = postingsOf(queryGrams);
+        int touchedCount = count(lists, 0, lists.size(), 0);
+
+        List<Hit> hits = new ArrayList<>();
+        try {
+            for (int i = 0; i < touchedCount; i++) {
+                int slot = touched[i];
+                if (allowed != null && !allowed.contains(slot)) {
+                    continue;
+                }
+                double score = (double) shared[slot] / (queryGrams.length + grams[slot].length - shared[slot]);
+                if (score > threshold || shared[slot] >= inner && contains.test(slot)) {
+                    hits.add(new Hit(slot, score));
+                }
+            }
+            if (inner == 0) {
+                // a substring without a whole trigram of its own can match with no trigram in common
+                RoaringBitmap scope = allowed != null ? allowed : RoaringBitmap.bitmapOfRange(0, grams.length);
+                IntIterator it = scope.getIntIterator();
+                while (it.hasNext()) {
+                    int slot = it.next();
+                    if (slot < grams.length && grams[slot] != null && shared[slot] == 0 && contains.test(slot)) {
+                        hits.add(new Hit(slot, 0));
+                    }
+                }
+            }
+        } finally {
+            for (int i = 0; i < touchedCount; i++) {
+                shared[touched[i]] = 0;
+            }
+        }
+        if (limit > 0) {
+            return top(hits, limit);
+        }
+        hits.sort(Comparator.comparingInt(Hit::slot));
+        return hits;
+    }
+
+    /**
+     * Top-k without walking the postings of the query's most common trigrams: counts over the rarer ones,
+     * completes those candidates' counts with lookups in the common ones and keeps the best. A slot found
+     * only in common postings shares at most as many trigrams as there are common ones, so it scores at
+     * most that over the query's trigram count. When that is not below the k-th score found, the k-th
+     * score still bounds the final one from below, so enough of the common postings are counted too to
+     * make the bound hold and the candidates are scored once more. Rows that pass only by the substring
+     * test score at or under the threshold and cannot make the cut.
+     *
+     * @return null when nothing could be skipped and the full count is needed
+     */
+    private List<Hit> topByRareTrigrams(long[] queryGrams, RoaringBitmap allowed, double threshold, int limit) {
+        List<RoaringBitmap> lists = postingsOf(queryGrams);
+        lists.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+        int rare = lists.size();
+        while (rare > 1 && lists.get(rare - 1).getCardinality() > grams.length / COMMON_FRACTION) {
+            rare--;
+        }
+        if (rare == lists.size()) {
+            return null;
+        }
+
+        int touchedCount = count(lists, 0, rare, 0);
+        try {
+            PriorityQueue<Hit> heap = best(lists, rare, touchedCount, queryGrams.length, allowed, threshold, limit);
+            if (heap.size() < limit) {
+                return null;
+            }
+            // the most common postings that may stay uncounted under the k-th score found so far
+            int skippable = (int) Math.ceil(heap.peek().score() * queryGrams.length) - 1;
+            if (skippable < lists.size() - rare) {
+                int counted = rare;
+                rare = lists.size() - Math.max(skippable, 0);
+                touchedCount = count(lists, counted, rare, touchedCount);
+                heap = best(lists, rare, touchedCount, queryGrams.length, allowed, threshold, limit);
+            }
+            List<Hit> result = new ArrayList<>(heap);
+            result.sort(BEST);
+            return result;
+        } finally {
+            for (int i = 0; i < touchedCount; i++) {
+                shared[touched[i]] = 0;
+            }
+        }
+    }
+
+    private List<RoaringBitmap> postingsOf(long[] queryGrams) {
+        List<RoaringBitmap> lists = new ArrayList<>(queryGrams.length);
+        for (long gram : queryGrams) {
+            RoaringBitmap posting = postings.get(gram);
+            if (posting != null) {
+                lists.add(posting);
+            }
+        }
+        return lists;
+    }
+
+    private int count(List<RoaringBitmap> lists, int from, int to, int touchedCount) {
+        for (int j = from; j < to; j++) {
+            IntIterator it = lists.get(j).getIntIterator();
+            while (it.hasNext()) {
+                int slot = it.next();
+                if (shared[slot]++ == 0) {
+                    touched[touchedCount++] = slot;
+                }
+            }
+        }
+        return touchedCount;
+    }
+
+    private PriorityQueue<Hit> best(List<RoaringBitmap> lists, int rare, int touchedCount, int queryLength,
+                                    RoaringBitmap allowed, double threshold, int limit) {
+        PriorityQueue<Hit> heap = new PriorityQueue<>(limit + 1, BEST.reversed());
+        for (int i = 0; i < touchedCount; i++) {
+            int slot = touched[i];
+            if (allowed != null && !allowed.contains(slot)) {
+                continue;
+            }
+            int count = shared[slot];
+            for (int j = rare; j < lists.size(); j++) {
+                if (lists.get(j).contains(slot)) {
+                    count++;
+                }
+            }
+            double score = (double) count / (queryLength + grams[slot].length - count);
+            if (score > threshold && (heap.size() < limit || score >= heap.peek().score())) {
+                offer(heap, new Hit(slot, score), limit);
+            }
+        }
+        return heap;
+    }
+
+    int trigramCount() {
+        return postings.size();
+    }
+
+    static double similarity(String a, String b) {
+        long[] left = trigrams(a);
+        long[] right = trigrams(b);
+        int common = 0;
+        for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+            if (left[i] == right[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (left[i] < right[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        int union = left.length + right.length - common;
+        return union == 0 ? 0 : (double) common / union;
+    }
+
+    /**
+     * @return distinct trigrams, sorted, three UTF-16 chars packed in a long
+     */
+    static long[] trigrams(String text) {
+        if (text == null || text.isEmpty()) {
+            return NONE;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        long[] result = new long[lower.length() * 2 + 2];
+        int count = 0;
+        int i = 0;
+        while (i < lower.length()) {
+            while (i < lower.length() && !Character.isLetterOrDigit(lower.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < lower.length() && Character.isLetterOrDigit(lower.charAt(i))) {
+                i++;
+            }
+            if (i == start) {
+                break;
+            }
+            String padded = "  " + lower.substring(start, i) + " ";
+            if (count + padded.length() > result.length) {
+                result = Arrays.copyOf(result, (count + padded.length()) * 2);
+            }
+            for (int k = 0; k + 3 <= padded.length(); k++) {
+                result[count++] = pack(padded.charAt(k), padded.charAt(k + 1), padded.charAt(k + 2));
+            }
+        }
+        long[] sorted = Arrays.copyOf(result, count);
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int k = 0; k < sorted.length; k++) {
+            if (k == 0 || sorted[k] != sorted[k - 1]) {
+                sorted[distinct++] = sorted[k];
+            }
+        }
+        return Arrays.copyOf(sorted, distinct);
+    }
+
+    private static int innerTrigramCount(long[] grams) {
+        int count = 0;
+        for (long gram : grams) {
+            if ((gram >>> 32) != ' ' && ((gram >>> 16) & 0xFFFF) != ' ' && (gram & 0xFFFF) != ' ') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long pack(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    private static List<Hit> top(List<Hit> hits, int limit) {
+        PriorityQueue<Hit> heap = new PriorityQueue<>(limit + 1, BEST.reversed());
+        for (Hit hit : hits) {
+            offer(heap, hit, limit);
+        }
+        List<Hit> result = new ArrayList<>(heap);
+        result.sort(BEST);
+        return result;
+    }
+
+    // most hits lose to the current k-th best; skip the heap for those
+    private static void offer(PriorityQueue<Hit> heap, Hit hit, int limit) {
+        if (heap.size() < limit) {
+            heap.offer(hit);
+        } else if (BEST.compare(hit, heap.peek()) < 0) {
+            heap.poll();
+            heap.offer(hit);
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > grams.length) {
+            int capacity = Math.max(size, grams.length + (grams.length >> 1) + 16);
+            grams = Arrays.copyOf(grams, capacity);
+            shared = Arrays.copyOf(shared, capacity);
+            touched = new int[capacity];
+        }
+    }
+
+    record Hit(int slot, double score) {
+    }
+}
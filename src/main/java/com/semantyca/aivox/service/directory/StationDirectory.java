@@ -0,0 +1,171 @@
+package com.semantyca.aivox.service.directory;
+
+import com.semantyca.aivox.dto.radiostation.BrandDTO;
+import com.semantyca.aivox.service.BrandService;
+import com.semantyca.aivox.service.readmodel.ReadModelCache;
+import com.semantyca.aivox.streaming.RadioStationPool;
+import com.semantyca.mixpla.model.stream.IStream;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.Json;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The public station directory, built in the background and served as ready JSON bytes with an ETag. A rebuild
+ * happens when the read model's brands or agents or a station's live status have changed, checked every few
+ * seconds, so directory traffic costs neither queries nor mapping however often it polls. Pages are encoded on
+ * first request and kept with the snapshot they were cut from.
+ */
+@ApplicationScoped
+public class StationDirectory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StationDirectory.class);
+    // distinct limit/offset pairs kept per snapshot; clients use a handful, anything beyond is encoded per request
+    private static final int MAX_CACHED_PAGES = 32;
+
+    private final BrandService brandService;
+    private final RadioStationPool radioStationPool;
+    private final ReadModelCache readModel;
+
+    private volatile Snapshot snapshot;
+    private final AtomicBoolean building = new AtomicBoolean();
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder served = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+
+    @Inject
+    public StationDirectory(BrandService brandService, RadioStationPool radioStationPool, ReadModelCache readModel) {
+        this.brandService = brandService;
+        this.radioStationPool = radioStationPool;
+        this.readModel = readModel;
+    }
+
+    /**
+     * @param ifNoneMatch the request's {@code If-None-Match}, may be {@code null}
+     * @return the page; {@link Page#modified()} is false when the client's copy is current and no body should be sent
+     */
+    public Uni<Page> page(int limit, int offset, String ifNoneMatch) {
+        Snapshot current = snapshot;
+        Uni<Snapshot> ready = current != null ? Uni.createFrom().item(current) : build(signature());
+        return ready.map(built -> {
+            Page page = built.page(limit, offset);
+            if (matches(ifNoneMatch, page.etag())) {
+                notModified.increment();
+                return page.unmodified();
+            }
+            served.increment();
+            return page;
+        });
+    }
+
+    @Scheduled(every = "5s", delayed = "5s", identity = "station-directory-refresh")
+    public Uni<Void> refresh() {
+        String signature = signature();
+        Snapshot current = snapshot;
+        if (current != null && current.signature().equals(signature)) {
+            return Uni.createFrom().voidItem();
+        }
+        if (!building.compareAndSet(false, true)) {
+            return Uni.createFrom().voidItem();
+        }
+        return build(signature)
+                .onFailure().invoke(e -> LOGGER.warn("Station directory rebuild failed", e))
+                .onFailure().recoverWithNull()
+                .eventually(() -> building.set(false))
+                .replaceWithVoid();
+    }
+
+    public Map<String, Object> getStats() {
+        Snapshot current = snapshot;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("stations", current != null ? current.brands().size() : 0);
+        result.put("cachedPages", current != null ? current.pages().size() : 0);
+        result.put("rebuilds", rebuilds.sum());
+        result.put("served", served.sum());
+        result.put("notModified", notModified.sum());
+        return result;
+    }
+
+    private Uni<Snapshot> build(String signature) {
+        return brandService.getAllDTO(0, 0).map(brands -> {
+            Snapshot built = new Snapshot(List.copyOf(brands), signature, new ConcurrentHashMap<>());
+            snapshot = built;
+            rebuilds.increment();
+            return built;
+        });
+    }
+
+    // everything the directory is derived from that lives in memory: read model version and live statuses
+    private String signature() {
+        Map<String, String> statuses = new TreeMap<>();
+        for (IStream stream : radioStationPool.getOnlineStationsSnapshot()) {
+            statuses.put(stream.getSlugName(), String.valueOf(stream.getStatus()));
+        }
+        return readModel.getVersion() + ":" + statuses;
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param body JSON array of the page's stations, {@code null} when {@code modified} is false
+     */
+    public record Page(byte[] body, String etag, boolean modified) {
+        Page unmodified() {
+            return new Page(null, etag, false);
+        }
+    }
+
+    private record Snapshot(List<BrandDTO> brands, String signature, Map<Long, Page> pages) {
+        Page page(int limit, int offset) {
+            long key = ((long) limit << 32) | (offset & 0xffffffffL);
+            Page page = pages.get(key);
+            if (page == null) {
+                page = encode(limit, offset);
+                if (pages.size() < MAX_CACHED_PAGES) {
+                    pages.putIfAbsent(key, page);
+                }
+            }
+            return page;
+        }
+
+        private Page encode(int limit, int offset) {
+            int from = Math.min(Math.max(offset, 0), brands.size());
+            int to = limit > 0 ? Math.min(from + limit, brands.size()) : brands.size();
+            byte[] body = Json.encodeToBuffer(brands.subList(from, to)).getBytes();
+            return new Page(body, etag(body), true);
+        }
+    }
+}
@@ -3,7 +3,7 @@ package com.semantyca.aivox.service.maintenance;
 import com.semantyca.aivox.config.AivoxConfig;
 import com.semantyca.aivox.messaging.MetricPublisher;
 import com.semantyca.aivox.model.stream.OneTimeStream;
-import com.semantyca.aivox.service.BrandService;
+import com.semantyca.aivox.service.stats.ListenerActivity;
 import com.semantyca.aivox.streaming.RadioStationPool;
 import com.semantyca.mixpla.dto.queue.metric.MetricEventType;
 import com.semantyca.mixpla.model.cnst.StreamStatus;
@@ -21,7 +21,7 @@ import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -30,9 +30,9 @@ import java.util.concurrent.ConcurrentHashMap;
 public class StationInactivityChecker {
     private static final Logger LOGGER = LoggerFactory.getLogger(StationInactivityChecker.class);
     private static final int INTERVAL_SECONDS = 60;
+    private static final int LISTENER_CHECK_SECONDS = 1;
     private static final Duration INITIAL_DELAY = Duration.ofMinutes(5);
 
-    private static final int IDLE_THRESHOLD_MINUTES = 5;
     private static final int IDLE_TO_OFFLINE_THRESHOLD_MINUTES = 120;
     private static final int REMOVAL_DELAY_MINUTES = 1;
 
@@ -49,7 +49,7 @@ public class StationInactivityChecker {
     );
 
     @Inject
-    BrandService brandService;
+    ListenerActivity listenerActivity;
 
     @Inject
     RadioStationPool radioStationPool;
@@ -61,6 +61,7 @@ public class StationInactivityChecker {
     MetricPublisher metricPublisher;
 
     private Cancellable cleanupSubscription;
+    private Cancellable listenerSubscription;
     private final ConcurrentHashMap<String, Instant> stationsMarkedForRemoval = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, Instant> idleStatusTime = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, Instant> stationStartTime = new ConcurrentHashMap<>();
@@ -82,6 +83,14 @@ public class StationInactivityChecker {
                 .onFailure().invoke(error -> LOGGER.error("Timer error", error))
                 .onFailure().retry().withBackOff(Duration.ofSeconds(10), Duration.ofMinutes(5)).indefinitely()
                 .subscribe().with(item -> {}, failure -> LOGGER.error("Subscription failed", failure));
+        listenerSubscription = Multi.createFrom().ticks()
+                .startingAfter(INITIAL_DELAY)
+                .every(Duration.ofSeconds(LISTENER_CHECK_SECONDS))
+                .onOverflow().drop()
+                .onItem().invoke(this::checkListenerChanges)
+                .onFailure().invoke(error -> LOGGER.error("Listener timer error", error))
+                .onFailure().retry().withBackOff(Duration.ofSeconds(10), Duration.ofMinutes(5)).indefinitely()
+                .subscribe().with(item -> {}, failure -> LOGGER.error("Listener subscription failed", failure));
     }
 
     private Multi<Long> getTicker() {
@@ -96,12 +105,14 @@ public class StationInactivityChecker {
             cleanupSubscription.cancel();
             cleanupSubscription = null;
         }
+        if (listenerSubscription != null) {
+            listenerSubscription.cancel();
+            listenerSubscription = null;
+        }
     }
 
     private Uni<Void> checkStationActivity(Long tick) {
         Instant now = Instant.now();
-        Instant idleThreshold = now.minusSeconds(IDLE_THRESHOLD_MINUTES * 60L);
-        Instant idleToOfflineThreshold = now.minusSeconds(IDLE_TO_OFFLINE_THRESHOLD_MINUTES * 60L);
         Instant removalThreshold = now.minusSeconds(REMOVAL_DELAY_MINUTES * 60L);
 
         return Multi.createFrom().iterable(stationsMarkedForRemoval.entrySet())
@@ -115,6 +126,7 @@ public class StationInactivityChecker {
                         stationsMarkedForRemoval.remove(slug);
                         idleStatusTime.remove(slug);
                         stationStartTime.remove(slug);
+                        listenerActivity.forget(slug);
                         return radioStationPool.stopAndRemoveStation(slug).replaceWithVoid();
                     }
                     return Uni.createFrom().voidItem();
@@ -122,92 +134,99 @@ public class StationInactivityChecker {
                 .merge()
                 .toUni()
                 .replaceWithVoid()
-                .chain(() -> {
-                    Collection<IStream> currentOnlineStations = radioStationPool.getOnlineStationsSnapshot();
-
-                    return Multi.createFrom().iterable(currentOnlineStations)
-                            .onItem().transformToUni(radioStation -> {
-                                String slug = radioStation.getSlugName();
-                                StreamStatus currentStatus = radioStation.getStatus();
-
-                                return brandService.findLastAccessTimeByStationName(slug)
-                                        .onItem().transformToUni(lastAccessTime -> {
-                                            if (lastAccessTime != null) {
-                                                Instant lastAccessInstant = lastAccessTime.toInstant();
-                                                boolean isPastIdleThreshold = lastAccessInstant.isBefore(idleThreshold);
-
-                                                if (!isPastIdleThreshold && currentStatus != StreamStatus.OFF_LINE) {
-                                                    if (currentStatus != StreamStatus.ON_LINE) {
-                                                        radioStation.setStatus(StreamStatus.ON_LINE);
-                                                        metricPublisher.publishMetric(slug, MetricEventType.INFORMATION, "station_reactivated",
-                                                                Map.of("previousStatus", currentStatus.toString(), "newStatus", "ON_LINE"));
-                                                        stationsMarkedForRemoval.remove(slug);
-                                                        idleStatusTime.remove(slug);
-                                                    }
-                                                    return Uni.createFrom().voidItem();
-                                                }
-
-                                                if (TERMINAL_STATUSES.contains(currentStatus))
-                                                    return Uni.createFrom().voidItem();
-
-                                                if (currentStatus == StreamStatus.IDLE) {
-                                                    Instant idleStartTime = idleStatusTime.get(slug);
-                                                    if (idleStartTime != null && idleStartTime.isBefore(idleToOfflineThreshold)) {
-                                                        long idleMinutes = Duration.between(idleStartTime, now).toMinutes();
-                                                        radioStation.setStatus(StreamStatus.OFF_LINE);
-                                                        metricPublisher.publishMetric(slug, MetricEventType.WARNING, "station_offline",
-                                                                Map.of("reason", "idle_timeout", "idleMinutes", idleMinutes));
-                                                        stationsMarkedForRemoval.put(slug, now);
-                                                        idleStatusTime.remove(slug);
-                                                        stationStartTime.remove(slug);
-                                                    }
-                                                } else if (ACTIVE_STATUSES.contains(currentStatus)) {
-                                                    if (isPastIdleThreshold) {
-                                                        long inactiveMinutes = Duration.between(lastAccessInstant, now).toMinutes();
-                                                        radioStation.setStatus(StreamStatus.IDLE);
-                                                        metricPublisher.publishMetric(slug, MetricEventType.INFORMATION, "station_idle",
-                                                                Map.of("previousStatus", currentStatus.toString(), "inactiveMinutes", inactiveMinutes));
-                                                        idleStatusTime.put(slug, now);
-                                                    }
-                                                } else if (currentStatus == StreamStatus.FINISHED && radioStation instanceof OneTimeStream) {
-                                                    metricPublisher.publishMetric(slug, MetricEventType.INFORMATION, "onetime_stream_finished",
-                                                            Map.of("streamType", "OneTimeStream"));
-                                                    stationsMarkedForRemoval.put(slug, now);
-                                                    idleStatusTime.remove(slug);
-                                                    stationStartTime.remove(slug);
-                                                }
-                                            } else {
-                                                stationStartTime.putIfAbsent(slug, now);
-                                                Instant startTime = stationStartTime.get(slug);
-                                                boolean hasBeenRunning5Min = startTime.isBefore(idleThreshold);
-                                                
-                                                if (ACTIVE_STATUSES.contains(currentStatus) && hasBeenRunning5Min) {
-                                                    radioStation.setStatus(StreamStatus.IDLE);
-                                                    metricPublisher.publishMetric(slug, MetricEventType.INFORMATION, "station_idle",
-                                                            Map.of("previousStatus", currentStatus.toString(), "reason", "no_access_data"));
-                                                    idleStatusTime.put(slug, now);
-                                                }
-                                                
-                                                if (currentStatus == StreamStatus.IDLE) {
-                                                    Instant idleStartTime = idleStatusTime.get(slug);
-                                                    if (idleStartTime != null && idleStartTime.isBefore(idleToOfflineThreshold)) {
-                                                        long idleMinutes = Duration.between(idleStartTime, now).toMinutes();
-                                                        radioStation.setStatus(StreamStatus.OFF_LINE);
-                                                        metricPublisher.publishMetric(slug, MetricEventType.WARNING, "station_offline",
-                                                                Map.of("reason", "idle_timeout_no_access_data", "idleMinutes", idleMinutes));
-                                                        stationsMarkedForRemoval.put(slug, now);
-                                                        idleStatusTime.remove(slug);
-                                                        stationStartTime.remove(slug);
-                                                    }
-                                                }
-                                            }
-                                            return Uni.createFrom().voidItem();
-                                        })
-                                        .onFailure().recoverWithUni(failure -> Uni.createFrom().voidItem());
-                            })
-                            .merge()
-                            .toUni()
-                            .replaceWithVoid();
+                .invoke(() -> {
+                    for (IStream radioStation : radioStationPool.getOnlineStationsSnapshot()) {
+                        evaluate(radioStation, now);
+                    }
                 });
     }
+
+    private void checkListenerChanges(Long tick) {
+        Set<String> changed = new HashSet<>();
+        listenerActivity.advance(System.currentTimeMillis(), changed::add, changed::add);
+        if (changed.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        for (IStream radioStation : radioStationPool.getOnlineStationsSnapshot()) {
+            if (changed.contains(radioStation.getSlugName())) {
+                evaluate(radioStation, now);
+            }
+        }
+    }
+
+    private synchronized void evaluate(IStream radioStation, Instant now) {
+        Instant idleThreshold = now.minus(ListenerActivity.IDLE_AFTER);
+        Instant idleToOfflineThreshold = now.minusSeconds(IDLE_TO_OFFLINE_THRESHOLD_MINUTES * 60L);
+        String slug = radioStation.getSlugName();
+        StreamStatus currentStatus = radioStation.getStatus();
+        Instant lastAccessInstant = listenerActivity.lastAccess(slug);
+
+        if (lastAccessInstant != null) {
+            boolean isPastIdleThreshold = lastAccessInstant.isBefore(idleThreshold);
+
+            if (!isPastIdleThreshold && currentStatus != StreamStatus.OFF_LINE) {
+                if (currentStatus != StreamStatus.ON_LINE) {
+                    radioStation.setStatus(StreamStatus.ON_LINE);
+                    metricPublisher.publishMetric(slug, MetricEventType.INFORMATION, "station_reactivated",
+                            Map.of("previousStatus", currentStatus.toString(), "newStatus", "ON_LINE"));
+                    stationsMarkedForRemoval.remove(slug);
+                    idleStatusTime.remove(slug);
+                }
+                return;
+            }
+
+            if (TERMINAL_STATUSES.contains(currentStatus))
+                return;
+
+            if (currentStatus == StreamStatus.IDLE) {
+                Instant idleStartTime = idleStatusTime.get(slug);
+                if (idleStartTime != null && idleStartTime.isBefore(idleToOfflineThreshold)) {
+                    long idleMinutes = Duration.between(idleStartTime, now).toMinutes();
+                    radioStation.setStatus(StreamStatus.OFF_LINE);
+                    metricPublisher.publishMetric(slug, MetricEventType.WARNING, "station_offline",
+                            Map.of("reason", "idle_timeout", "idleMinutes", idleMinutes));
+                    stationsMarkedForRemoval.put(slug, now);
+                    idleStatusTime.remove(slug);
+                    stationStartTime.remove(slug);
+                }
+            } else if (ACTIVE_STATUSES.contains(currentStatus)) {
+                long inactiveMinutes = Duration.between(lastAccessInstant, now).toMinutes();
+                radioStation.setStatus(StreamStatus.IDLE);
+                metricPublisher.publishMetric(slug, MetricEventType.INFORMATION, "station_idle",
+                        Map.of("previousStatus", currentStatus.toString(), "inactiveMinutes", inactiveMinutes));
+                idleStatusTime.put(slug, now);
+            } else if (currentStatus == StreamStatus.FINISHED && radioStation instanceof OneTimeStream) {
+                metricPublisher.publishMetric(slug, MetricEventType.INFORMATION, "onetime_stream_finished",
+                        Map.of("streamType", "OneTimeStream"));
+                stationsMarkedForRemoval.put(slug, now);
+                idleStatusTime.remove(slug);
+                stationStartTime.remove(slug);
+            }
+        } else {
+            stationStartTime.putIfAbsent(slug, now);
+            Instant startTime = stationStartTime.get(slug);
+            boolean hasBeenRunning5Min = startTime.isBefore(idleThreshold);
+
+            if (ACTIVE_STATUSES.contains(currentStatus) && hasBeenRunning5Min) {
+                radioStation.setStatus(StreamStatus.IDLE);
+                metricPublisher.publishMetric(slug, MetricEventType.INFORMATION, "station_idle",
+                        Map.of("previousStatus", currentStatus.toString(), "reason", "no_access_data"));
+                idleStatusTime.put(slug, now);
+            }
+
+            if (currentStatus == StreamStatus.IDLE) {
+                Instant idleStartTime = idleStatusTime.get(slug);
+                if (idleStartTime != null && idleStartTime.isBefore(idleToOfflineThreshold)) {
+                    long idleMinutes = Duration.between(idleStartTime, now).toMinutes();
+                    radioStation.setStatus(StreamStatus.OFF_LINE);
+                    metricPublisher.publishMetric(slug, MetricEventType.WARNING, "station_offline",
+                            Map.of("reason", "idle_timeout_no_access_data", "idleMinutes", idleMinutes));
+                    stationsMarkedForRemoval.put(slug, now);
+                    idleStatusTime.remove(slug);
+                    stationStartTime.remove(slug);
+                }
+            }
+        }
+    }
 }
@@ -1,52 +1,93 @@
 package com.semantyca.aivox.service.manipulation;
 
-import com.semantyca.aivox.config.AivoxConfig;
 import com.semantyca.aivox.config.HlsConfig;
+import com.semantyca.aivox.service.manipulation.mixing.MixGraph;
+import com.semantyca.aivox.service.manipulation.mixing.PcmDecoder;
+import com.semantyca.aivox.service.scratch.ScratchStorage;
 import com.semantyca.aivox.streaming.HlsSegment;
 import com.semantyca.aivox.streaming.SongMetadata;
 import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.infrastructure.Infrastructure;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import net.bramp.ffmpeg.FFmpegExecutor;
 import net.bramp.ffmpeg.builder.FFmpegBuilder;
+import net.bramp.ffmpeg.builder.FFmpegOutputBuilder;
 import org.jboss.logging.Logger;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
 
 @ApplicationScoped
 public class AudioSegmentationService {
     private static final Logger LOGGER = Logger.getLogger(AudioSegmentationService.class);
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    private static final DateTimeFormatter HOUR_FORMATTER = DateTimeFormatter.ofPattern("HH");
+    // per rendition, about ten minutes of AAC at 192k
+    private static final long SEGMENT_BYTES_ESTIMATE = 16L * 1024 * 1024;
+    private static final String LOUDNESS_FILTER = "dynaudnorm,acompressor";
+    private static final int PIPE_CHUNK_SAMPLES = 32 * 1024;
     
     private final FFmpegProvider ffmpeg;
-    private final String outputDir;
+    private final ScratchStorage scratchStorage;
     private final int segmentDuration;
 
     @Inject
-    public AudioSegmentationService(AivoxConfig aivoxConfig, FFmpegProvider ffmpeg, HlsConfig hlsConfig) {
+    public AudioSegmentationService(FFmpegProvider ffmpeg, HlsConfig hlsConfig, ScratchStorage scratchStorage) {
         this.ffmpeg = ffmpeg;
-        this.outputDir = aivoxConfig.segmentation().output().dir();
+        this.scratchStorage = scratchStorage;
         this.segmentDuration = hlsConfig.getSegmentDuration();
-        new File(outputDir).mkdirs();
-        preallocateDirectories();
     }
 
     public Uni<Map<Long, ConcurrentLinkedQueue<HlsSegment>>> slice(SongMetadata songMetadata, Path filePath, List<Long> bitRates) {
-        return Uni.createFrom().item(() -> segmentAudioFileMultipleBitrates(filePath, songMetadata, bitRates))
+        return sliceInto(bitRates, dir -> segmentAudioFileMultipleBitrates(filePath, songMetadata, bitRates, dir))
+                .onFailure().invoke(e -> LOGGER.error("Failed to slice audio file: " + filePath, e));
+    }
+
+    /**
+     * Renders a mix graph from its source files directly into segments, one ffmpeg run for all bitrates.
+     */
+    public Uni<Map<Long, ConcurrentLinkedQueue<HlsSegment>>> slice(SongMetadata songMetadata, MixGraph graph, List<Long> bitRates) {
+        return sliceInto(bitRates, dir -> segmentMixGraphMultipleBitrates(graph, songMetadata, bitRates, dir))
+                .onFailure().invoke(e -> LOGGER.error("Failed to render mix graph: " + graph.description(), e));
+    }
+
+    /**
+     * Segments samples that are already decoded in memory by piping them into ffmpeg, so they need no
+     * file of their own.
+     *
+     * @param pcm interleaved 44.1 kHz / 16-bit / stereo samples, read from its position to its limit
+     */
+    public Uni<Map<Long, ConcurrentLinkedQueue<HlsSegment>>> slice(SongMetadata songMetadata, ShortBuffer pcm, List<Long> bitRates) {
+        return sliceInto(bitRates, dir -> segmentPcmMultipleBitrates(pcm, songMetadata, bitRates, dir))
+                .onFailure().invoke(e -> LOGGER.error("Failed to slice PCM of: " + songMetadata, e));
+    }
+
+    /**
+     * Segment files only live until they are read into memory, so each run writes into its own scratch
+     * directory which is released right after.
+     */
+    private Uni<Map<Long, ConcurrentLinkedQueue<HlsSegment>>> sliceInto(List<Long> bitRates,
+                                                                        Function<Path, Map<Long, List<SegmentInfo>>> renderer) {
+        return Uni.createFrom().item(() -> {
+                    try {
+                        return scratchStorage.newDirectory("segments_", SEGMENT_BYTES_ESTIMATE * bitRates.size());
+                    } catch (IOException e) {
+                        throw new RuntimeException("Failed to allocate segment directory", e);
+                    }
+                })
                 .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
-                .onFailure().invoke(e -> LOGGER.error("Failed to slice audio file: " + filePath, e))
-                .chain(this::createHlsQueueFromMultipleBitrateSegments);
+                .chain(dir -> Uni.createFrom().item(() -> renderer.apply(dir.path()))
+                        .chain(this::createHlsQueueFromMultipleBitrateSegments)
+                        .eventually(dir::release));
     }
 
     private Uni<Map<Long, ConcurrentLinkedQueue<HlsSegment>>> createHlsQueueFromMultipleBitrateSegments(
@@ -54,18 +95,17 @@ public class AudioSegmentationService {
         if (segmentsByBitrate.isEmpty()) {
             return Uni.createFrom().item(new ConcurrentHashMap<>());
         }
-        return Uni.createFrom().item(() -> {
-            Map<Long, ConcurrentLinkedQueue<HlsSegment>> resultMap = new ConcurrentHashMap<>();
-            List<Uni<Void>> tasks = segmentsByBitrate.entrySet().stream()
-                    .map(entry -> Uni.createFrom().item(() -> {
-                        ConcurrentLinkedQueue<HlsSegment> segments = createHlsQueueFromSegments(entry.getValue());
-                        resultMap.put(entry.getKey(), segments);
-                        return (Void) null;
-                    }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool()))
-                    .toList();
-            Uni.combine().all().unis(tasks).with(list -> (Void) null).await().indefinitely();
-            return resultMap;
-        }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+        // one read task per bitrate, joined without parking a worker thread on the others
+        List<Uni<Map.Entry<Long, ConcurrentLinkedQueue<HlsSegment>>>> tasks = segmentsByBitrate.entrySet().stream()
+                .map(entry -> Uni.createFrom().item(() -> Map.entry(entry.getKey(), createHlsQueueFromSegments(entry.getValue())))
+                        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool()))
+                .toList();
+        return Uni.join().all(tasks).andFailFast()
+                .onItem().transform(entries -> {
+                    Map<Long, ConcurrentLinkedQueue<HlsSegment>> resultMap = new ConcurrentHashMap<>();
+                    entries.forEach(entry -> resultMap.put(entry.getKey(), entry.getValue()));
+                    return resultMap;
+                });
     }
 
     private ConcurrentLinkedQueue<HlsSegment> createHlsQueueFromSegments(List<SegmentInfo> segments) {
@@ -87,69 +127,154 @@ public class AudioSegmentationService {
         return hlsSegments;
     }
 
-    public Map<Long, List<SegmentInfo>> segmentAudioFileMultipleBitrates(Path audioFilePath, SongMetadata songMetadata, List<Long> bitRates) {
-        Map<Long, List<SegmentInfo>> segmentsByBitrate = new ConcurrentHashMap<>();
-        LocalDateTime now = LocalDateTime.now();
-        String today = now.format(DATE_FORMATTER);
-        String currentHour = now.format(HOUR_FORMATTER);
-        String sanitizedSongName = sanitizeFileName(songMetadata.toString());
-
+    public Map<Long, List<SegmentInfo>> segmentAudioFileMultipleBitrates(Path audioFilePath, SongMetadata songMetadata, List<Long> bitRates,
+                                                                         Path outputDir) {
         try {
             FFmpegBuilder builder = new FFmpegBuilder().setInput(audioFilePath.toString());
             Map<Long, BitrateOutputInfo> outputInfoMap = new HashMap<>();
-
             for (Long bitRate : bitRates) {
-                String bitrateDir = sanitizedSongName + "_" + bitRate + "k";
-                Path songDir = Paths.get(outputDir, today, currentHour, bitrateDir);
-                Files.createDirectories(songDir);
-                String baseName = UUID.randomUUID().toString();
-                String segmentPattern = songDir + File.separator + baseName + "_%03d.ts";
-                String segmentListFile = songDir + File.separator + baseName + "_segments.txt";
-                outputInfoMap.put(bitRate, new BitrateOutputInfo(songDir, segmentListFile, songMetadata));
-
-                builder.addOutput(segmentPattern)
-                        .setAudioCodec("aac")
-                        .setAudioBitRate(bitRate)
-                        .setFormat("segment")
-                        .addExtraArgs("-segment_time", String.valueOf(segmentDuration))
-                        .addExtraArgs("-segment_format", "mpegts")
-                        .addExtraArgs("-segment_list", segmentListFile)
-                        .addExtraArgs("-segment_list_type", "flat")
-                        .addExtraArgs("-ac", "2")
-                        .addExtraArgs("-ar", "44100")
-                        .addExtraArgs("-channel_layout", "stereo")
+                addSegmentOutput(builder, bitRate, songMetadata, outputDir, outputInfoMap)
                         .addExtraArgs("-map", "0:a")
-                        .addExtraArgs("-metadata", "title=" + songMetadata.getTitle())
-                        .addExtraArgs("-metadata", "artist=" + songMetadata.getArtist())
-                        .addExtraArgs("-af", "dynaudnorm,acompressor")
-                        .addExtraArgs("-threads", "0")
-                        .addExtraArgs("-preset", "ultrafast")
-                        .addExtraArgs("-aac_coder", "twoloop")
-                        .addExtraArgs("-nostdin")
-                        .addExtraArgs("-vn")
+                        .addExtraArgs("-af", LOUDNESS_FILTER)
                         .done();
             }
-
-            FFmpegExecutor executor = new FFmpegExecutor(ffmpeg.getFFmpeg());
-            executor.createJob(builder).run();
-
-            Map<Long, List<SegmentInfo>> processedSegments = new ConcurrentHashMap<>();
-            List<Uni<Void>> segmentTasks = outputInfoMap.entrySet().stream()
-                    .map(entry -> Uni.createFrom().item(() -> {
-                        List<SegmentInfo> segments = processSegmentList(entry.getKey(), entry.getValue());
-                        processedSegments.put(entry.getKey(), segments);
-                        return (Void) null;
-                    }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool()))
-                    .toList();
-            Uni.combine().all().unis(segmentTasks).with(list -> (Void) null).await().indefinitely();
-            segmentsByBitrate.putAll(processedSegments);
-
+            return runSegmentation(builder, outputInfoMap);
         } catch (IOException e) {
             LOGGER.error("FFmpeg error for file: " + audioFilePath + ", error: " + e.getMessage());
         } catch (Exception e) {
             LOGGER.error("Error segmenting audio file: " + audioFilePath, e);
         }
-        return segmentsByBitrate;
+        return new ConcurrentHashMap<>();
+    }
+
+    private Map<Long, List<SegmentInfo>> segmentPcmMultipleBitrates(ShortBuffer pcm, SongMetadata songMetadata, List<Long> bitRates,
+                                                                    Path outputDir) {
+        try {
+            FFmpegBuilder builder = new FFmpegBuilder()
+                    .addExtraArgs("-f", "s16le", "-ar", String.valueOf(PcmDecoder.SAMPLE_RATE),
+                            "-ac", String.valueOf(PcmDecoder.CHANNELS))
+                    .setInput("pipe:0");
+            Map<Long, BitrateOutputInfo> outputInfoMap = new HashMap<>();
+            for (Long bitRate : bitRates) {
+                addSegmentOutput(builder, bitRate, songMetadata, outputDir, outputInfoMap)
+                        .addExtraArgs("-map", "0:a")
+                        .addExtraArgs("-af", LOUDNESS_FILTER)
+                        .done();
+            }
+            runPiped(builder, pcm, songMetadata);
+            return collectSegments(outputInfoMap);
+        } catch (IOException e) {
+            LOGGER.error("FFmpeg error for PCM of: " + songMetadata + ", error: " + e.getMessage());
+        } catch (Exception e) {
+            LOGGER.error("Error segmenting PCM of: " + songMetadata, e);
+        }
+        return new ConcurrentHashMap<>();
+    }
+
+    private Map<Long, List<SegmentInfo>> segmentMixGraphMultipleBitrates(MixGraph graph, SongMetadata songMetadata, List<Long> bitRates,
+                                                                         Path outputDir) {
+        try {
+            FFmpegBuilder builder = new FFmpegBuilder();
+            for (Path input : graph.inputs()) {
+                builder.addInput(input.toString());
+            }
+            // a filter output can feed only one consumer, so the mixed signal is split per bitrate
+            StringBuilder filter = new StringBuilder(graph.filter())
+                    .append(',').append(LOUDNESS_FILTER)
+                    .append(",asplit=").append(bitRates.size());
+            for (int i = 0; i < bitRates.size(); i++) {
+                filter.append("[out").append(i).append(']');
+            }
+            builder.setComplexFilter(filter.toString());
+
+            Map<Long, BitrateOutputInfo> outputInfoMap = new HashMap<>();
+            for (int i = 0; i < bitRates.size(); i++) {
+                addSegmentOutput(builder, bitRates.get(i), songMetadata, outputDir, outputInfoMap)
+                        .addExtraArgs("-map", "[out" + i + "]")
+                        .done();
+            }
+            return runSegmentation(builder, outputInfoMap);
+        } catch (Exception e) {
+            LOGGER.error("Error rendering mix graph: " + graph.description() + " for " + songMetadata, e);
+        }
+        return new ConcurrentHashMap<>();
+    }
+
+    private FFmpegOutputBuilder addSegmentOutput(FFmpegBuilder builder, Long bitRate, SongMetadata songMetadata,
+                                                 Path outputDir, Map<Long, BitrateOutputInfo> outputInfoMap) throws IOException {
+        String bitrateDir = sanitizeFileName(songMetadata.toString()) + "_" + bitRate + "k";
+        Path songDir = outputDir.resolve(bitrateDir);
+        Files.createDirectories(songDir);
+        String baseName = UUID.randomUUID().toString();
+        String segmentPattern = songDir + File.separator + baseName + "_%03d.ts";
+        String segmentListFile = songDir + File.separator + baseName + "_segments.txt";
+        outputInfoMap.put(bitRate, new BitrateOutputInfo(songDir, segmentListFile, songMetadata));
+
+        return builder.addOutput(segmentPattern)
+                .setAudioCodec("aac")
+                .setAudioBitRate(bitRate)
+                .setFormat("segment")
+                .addExtraArgs("-segment_time", String.valueOf(segmentDuration))
+                .addExtraArgs("-segment_format", "mpegts")
+                .addExtraArgs("-segment_list", segmentListFile)
+                .addExtraArgs("-segment_list_type", "flat")
+                .addExtraArgs("-ac", "2")
+                .addExtraArgs("-ar", "44100")
+                .addExtraArgs("-channel_layout", "stereo")
+                .addExtraArgs("-metadata", "title=" + songMetadata.getTitle())
+                .addExtraArgs("-metadata", "artist=" + songMetadata.getArtist())
+                .addExtraArgs("-threads", "0")
+                .addExtraArgs("-preset", "ultrafast")
+                .addExtraArgs("-aac_coder", "twoloop")
+                .addExtraArgs("-nostdin")
+                .addExtraArgs("-vn");
+    }
+
+    private Map<Long, List<SegmentInfo>> runSegmentation(FFmpegBuilder builder, Map<Long, BitrateOutputInfo> outputInfoMap) {
+        ffmpeg.getExecutor().createJob(builder).run();
+        return collectSegments(outputInfoMap);
+    }
+
+    /**
+     * Runs the job with {@code pcm} written to ffmpeg's stdin as little-endian samples, a chunk at a time.
+     */
+    private void runPiped(FFmpegBuilder builder, ShortBuffer pcm, SongMetadata songMetadata) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(ffmpeg.getFFmpeg().getPath());
+        command.addAll(builder.build());
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            try (OutputStream stdin = process.getOutputStream()) {
+                ShortBuffer samples = pcm.duplicate();
+                ByteBuffer chunk = ByteBuffer.allocate(PIPE_CHUNK_SAMPLES * 2).order(ByteOrder.LITTLE_ENDIAN);
+                while (samples.hasRemaining()) {
+                    int n = Math.min(samples.remaining(), PIPE_CHUNK_SAMPLES);
+                    chunk.clear();
+                    chunk.asShortBuffer().put(samples.slice().limit(n));
+                    samples.position(samples.position() + n);
+                    stdin.write(chunk.array(), 0, n * 2);
+                }
+            }
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("FFmpeg failed with exit code " + exitCode + " segmenting " + songMetadata);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while segmenting " + songMetadata, e);
+        } finally {
+            process.destroy();
+        }
+    }
+
+    private Map<Long, List<SegmentInfo>> collectSegments(Map<Long, BitrateOutputInfo> outputInfoMap) {
+        // the segment lists are a few lines each, reading them inline is cheaper than fanning out
+        Map<Long, List<SegmentInfo>> processedSegments = new HashMap<>();
+        outputInfoMap.forEach((bitRate, outputInfo) -> processedSegments.put(bitRate, processSegmentList(bitRate, outputInfo)));
+        return processedSegments;
     }
 
     private List<SegmentInfo> processSegmentList(Long bitRate, BitrateOutputInfo outputInfo) {
@@ -175,19 +300,6 @@ public class AudioSegmentationService {
         return segments;
     }
 
-    private void preallocateDirectories() {
-        LocalDateTime now = LocalDateTime.now();
-        String today = now.format(DATE_FORMATTER);
-        for (int hour = 0; hour < 24; hour++) {
-            Path hourDir = Paths.get(outputDir, today, String.format("%02d", hour));
-            try {
-                Files.createDirectories(hourDir);
-            } catch (IOException e) {
-                LOGGER.warn("Could not pre-create directory: " + hourDir);
-            }
-        }
-    }
-
     private String sanitizeFileName(String input) {
         return input.replaceAll("[\\\\/:*?\"<>|]", "_")
                 .replaceAll("\\s+", "_")
@@ -5,6 +5,7 @@ import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.annotation.PostConstruct;
 import jakarta.inject.Inject;
 import net.bramp.ffmpeg.FFmpeg;
+import net.bramp.ffmpeg.FFmpegExecutor;
 import net.bramp.ffmpeg.FFprobe;
 
 import java.io.IOException;
@@ -16,11 +17,13 @@ public class FFmpegProvider {
     
     private FFmpeg ffmpeg;
     private FFprobe ffprobe;
+    private FFmpegExecutor executor;
 
     @PostConstruct
     void init() throws IOException {
         this.ffmpeg = new FFmpeg(config.ffmpeg().path());
         this.ffprobe = new FFprobe(config.ffprobe().path());
+        this.executor = new FFmpegExecutor(ffmpeg, ffprobe);
     }
 
     public FFmpeg getFFmpeg() {
@@ -30,4 +33,11 @@ public class FFmpegProvider {
     public FFprobe getFFprobe() {
         return ffprobe;
     }
+
+    /**
+     * One executor for the whole application; it is stateless, jobs carry their own builder.
+     */
+    public FFmpegExecutor getExecutor() {
+        return executor;
+    }
 }
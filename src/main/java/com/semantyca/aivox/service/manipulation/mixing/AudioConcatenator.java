@@ -3,16 +3,14 @@ package com.semantyca.aivox.service.manipulation.mixing;
 import com.semantyca.aivox.config.AivoxConfig;
 import com.semantyca.aivox.messaging.MetricPublisher;
 import com.semantyca.aivox.service.manipulation.FFmpegProvider;
+import com.semantyca.aivox.service.manipulation.probe.CuePoints;
 import com.semantyca.mixpla.model.cnst.ConcatenationType;
-import com.semantyca.mixpla.service.exceptions.AudioMergeException;
 import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.infrastructure.Infrastructure;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import net.bramp.ffmpeg.FFmpegExecutor;
-import net.bramp.ffmpeg.FFprobe;
 import net.bramp.ffmpeg.builder.FFmpegBuilder;
-import net.bramp.ffmpeg.probe.FFmpegProbeResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,51 +18,32 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Locale;
 import java.util.UUID;
 
 @ApplicationScoped
 public class AudioConcatenator {
     private static final Logger LOGGER = LoggerFactory.getLogger(AudioConcatenator.class);
     private static final int SAMPLE_RATE = 44100;
+    private static final double MIN_AUTO_CROSSFADE = 1.0;
+    private static final double MAX_AUTO_CROSSFADE = 8.0;
 
     private final FFmpegExecutor executor;
-    private final FFprobe ffprobe;
     private final String outputDir;
     
 
 
     @Inject
-    public AudioConcatenator(AivoxConfig config, FFmpegProvider ffmpeg) throws AudioMergeException {
+    public AudioConcatenator(AivoxConfig config, FFmpegProvider ffmpeg) {
         this.outputDir = config.getPathForMerged();
-
-        try {
-            this.executor = new FFmpegExecutor(ffmpeg.getFFmpeg());
-            this.ffprobe = new FFprobe(config.ffprobe().path());
-        } catch (IOException e) {
-            throw new AudioMergeException("Failed to initialize FFmpeg executor", e);
-        }
+        this.executor = ffmpeg.getExecutor();
 
         initializeOutputDirectory();
     }
 
     private void initializeOutputDirectory() {
+        // leftovers in here are swept by ScratchStorage
         new File(outputDir).mkdirs();
-        cleanupTempFiles();
-    }
-
-    private void cleanupTempFiles() {
-        try {
-            File directory = new File(outputDir);
-            File[] files = directory.listFiles((dir, name) -> name.startsWith("silence_") || name.startsWith("temp_song_"));
-            if (files != null) {
-                for (File file : files) {
-                    Files.deleteIfExists(file.toPath());
-                    LOGGER.info("Deleted temporary file: {}", file.getName());
-                }
-            }
-        } catch (IOException e) {
-            LOGGER.warn("Error cleaning up temporary files", e);
-        }
     }
 
     public Uni<String> concatenate(String firstPath, String secondPath, String outputPath,
@@ -91,11 +70,7 @@ public class AudioConcatenator {
         FFmpegBuilder builder = new FFmpegBuilder()
                 .setInput(firstPath)
                 .addInput(secondPath)
-                .setComplexFilter(String.format(
-                        "[0]volume=%.2f,aresample=async=1,aformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo[first];" +
-                                "[1]aresample=async=1,aformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo[second];" +
-                                "[first][second]concat=n=2:v=0:a=1",
-                        mixParam))
+                .setComplexFilter(concatFilter(ConcatenationType.DIRECT_CONCAT, mixParam, null, null))
                 .addOutput(outputPath)
                 .setAudioCodec("pcm_s16le")
                 .setAudioSampleRate(SAMPLE_RATE)
@@ -108,34 +83,8 @@ public class AudioConcatenator {
 
     private String createCrossfadeMix(String firstPath, String secondPath, String outputPath,
                                       double mixParam) throws Exception {
-        double firstDuration = getAudioDuration(firstPath);
-        double crossfadeStart = Math.max(0, firstDuration - mixParam);
-
-        // ORIGINAL CODE - WORKING VERSION
-        /*String filterComplex = String.format(
-                // First: remove trailing silence by reversing, trimming leading, then reverse back
-                "[0:a]aformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo,areverse," +
-                        "silenceremove=start_periods=1:start_threshold=-40dB:stop_periods=0:detection=rms,areverse,asetpts=PTS-STARTPTS[a0];" +
-                        // Second: remove leading silence
-                        "[1:a]silenceremove=start_periods=1:start_threshold=-40dB:stop_periods=0:detection=rms," +
-                        "aformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo,asetpts=PTS-STARTPTS[a1];" +
-                        // Crossfade
-                        "[a0][a1]acrossfade=d=%.3f:c1=tri:c2=tri",
-                mixParam
-        );*/
-
-        // MODIFIED VERSION - with logarithmic curve for more aggressive song fadeout
-        String filterComplex = String.format(
-                // First: remove trailing silence by reversing, trimming leading, then reverse back
-                "[0:a]aformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo,areverse," +
-                        "silenceremove=start_periods=1:start_threshold=-40dB:stop_periods=0:detection=rms,areverse,asetpts=PTS-STARTPTS[a0];" +
-                        // Second: remove leading silence
-                        "[1:a]silenceremove=start_periods=1:start_threshold=-40dB:stop_periods=0:detection=rms," +
-                        "aformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo,asetpts=PTS-STARTPTS[a1];" +
-                        // Crossfade with logarithmic curve to reduce song volume more during overlap
-                        "[a0][a1]acrossfade=d=%.3f:c1=log:c2=tri:o=1",
-                mixParam
-        );
+        // bare paths have no catalog entry to take cue points from, so the whole files are crossfaded
+        String filterComplex = concatFilter(ConcatenationType.CROSSFADE, mixParam, null, null);
 
         FFmpegBuilder builder = new FFmpegBuilder()
                 .addExtraArgs("-err_detect", "ignore_err")
@@ -159,11 +108,7 @@ public class AudioConcatenator {
         FFmpegBuilder builder = new FFmpegBuilder()
                 .setInput(firstPath)
                 .addInput(secondPath)
-                .setComplexFilter(String.format(
-                        "[0]volume=%.2f,aformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo[speech];" +
-                                "[1]aformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo[song];" +
-                                "[speech][song]concat=n=2:v=0:a=1",
-                        mixParam))
+                .setComplexFilter(concatFilter(ConcatenationType.VOLUME_CONCAT, mixParam, null, null))
                 .addOutput(outputPath)
                 .setAudioCodec("libmp3lame")
                 .setAudioSampleRate(SAMPLE_RATE)
@@ -174,10 +119,55 @@ public class AudioConcatenator {
         return outputPath;
     }
 
-    private double getAudioDuration(String filePath) throws IOException {
-        FFmpegProbeResult probeResult = ffprobe.probe(filePath);
-        return probeResult.getFormat().duration;
+    /**
+     * Filter graph over inputs 0 and 1 for the given concatenation. The last chain is left without an
+     * output label so it can be written to a file as is, or extended when rendered straight to segments.
+     * Crossfades cut both tracks at their precomputed cue points; without cue points the whole tracks
+     * are used.
+     *
+     * @param mixParam gain of the first track for the plain concatenations, where 0 mutes it; crossfade
+     *                 length in seconds for {@code CROSSFADE}, where 0 follows the first track's fade-out
+     */
+    static String concatFilter(ConcatenationType mixingType, double mixParam, CuePoints first, CuePoints second) {
+        return switch (mixingType) {
+            case DIRECT_CONCAT -> String.format(Locale.ROOT,
+                    "[0]volume=%.2f,aresample=async=1,aformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo[first];" +
+                            "[1]aresample=async=1,aformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo[second];" +
+                            "[first][second]concat=n=2:v=0:a=1",
+                    mixParam);
+            // logarithmic curve for more aggressive song fadeout
+            case CROSSFADE -> String.format(Locale.ROOT,
+                    "[0:a]%saformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo,asetpts=PTS-STARTPTS[a0];" +
+                            "[1:a]%saformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo,asetpts=PTS-STARTPTS[a1];" +
+                            "[a0][a1]acrossfade=d=%.3f:c1=log:c2=tri:o=1",
+                    trim(first, true), trim(second, false), crossfadeLength(mixParam, first));
+            case VOLUME_CONCAT -> String.format(Locale.ROOT,
+                    "[0]volume=%.2f,aformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo[speech];" +
+                            "[1]aformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo[song];" +
+                            "[speech][song]concat=n=2:v=0:a=1",
+                    mixParam);
+        };
     }
+
+    private static String trim(CuePoints cues, boolean cutEnd) {
+        if (cues == null) {
+            return "";
+        }
+        return cutEnd
+                ? String.format(Locale.ROOT, "atrim=start=%.3f:end=%.3f,", cues.cueIn(), cues.cueOut())
+                : String.format(Locale.ROOT, "atrim=start=%.3f,", cues.cueIn());
+    }
+
+    /**
+     * An explicit length wins; otherwise the overlap follows the first track's own fade-out.
+     */
+    private static double crossfadeLength(double mixParam, CuePoints first) {
+        if (mixParam > 0 || first == null) {
+            return mixParam;
+        }
+        return Math.max(MIN_AUTO_CROSSFADE, Math.min(MAX_AUTO_CROSSFADE, first.fadeOutLength()));
+    }
+
     private void cleanupFiles(String... paths) {
         for (String path : paths) {
             try {
@@ -0,0 +1,75 @@
+package com.semantyca.aivox.service.manipulation.mixing;
+
+import com.semantyca.aivox.service.manipulation.mixing.handler.FadeCurve;
+import com.semantyca.aivox.service.manipulation.probe.CuePoints;
+import com.semantyca.mixpla.model.cnst.ConcatenationType;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One ffmpeg filter_complex over the original source files. The last chain of {@code filter} has no
+ * output label, so the segmenter can append loudness processing and one branch per bitrate and render
+ * HLS segments in a single pass.
+ */
+public record MixGraph(List<Path> inputs, String filter, String description) {
+    private static final String FORMAT = "aformat=sample_rates=44100:channel_layouts=stereo";
+    // the curve the Java mixer ducks with
+    private static final FadeCurve DUCK_RAMP = FadeCurve.STEEP;
+
+    /**
+     * Song ducked to {@code minDuck} under an intro that ends together with the song.
+     */
+    public static MixGraph songWithIntro(Path song, double songDuration, Path intro, double introDuration,
+                                         double fadeLengthSeconds, double minDuck) {
+        String filter = "[0:a]" + FORMAT + ",asetpts=PTS-STARTPTS[bed];" +
+                duckUnderIntro("bed", songDuration, 1, introDuration, fadeLengthSeconds, minDuck);
+        return new MixGraph(List.of(song, intro), filter, "song+intro");
+    }
+
+    /**
+     * Intro, then the song, with the second intro ducked over the song's ending.
+     */
+    public static MixGraph introSongWithIntro(Path intro1, double intro1Duration, Path song, double songDuration,
+                                              Path intro2, double intro2Duration,
+                                              double fadeLengthSeconds, double minDuck) {
+        String filter = "[0:a]aresample=async=1," + FORMAT + "[first];" +
+                "[1:a]aresample=async=1," + FORMAT + "[second];" +
+                "[first][second]concat=n=2:v=0:a=1[bed];" +
+                duckUnderIntro("bed", intro1Duration + songDuration, 2, intro2Duration, fadeLengthSeconds, minDuck);
+        return new MixGraph(List.of(intro1, song, intro2), filter, "intro+song+intro");
+    }
+
+    /**
+     * @param firstCues  cue points of {@code first}, or null to use the whole file
+     * @param secondCues cue points of {@code second}, or null to use the whole file
+     */
+    public static MixGraph concat(Path first, CuePoints firstCues, Path second, CuePoints secondCues,
+                                  ConcatenationType type, double mixParam) {
+        return new MixGraph(List.of(first, second), AudioConcatenator.concatFilter(type, mixParam, firstCues, secondCues),
+                "concat " + type);
+    }
+
+    private static String duckUnderIntro(String bedLabel, double bedDuration, int introInput, double introDuration,
+                                         double fadeLengthSeconds, double minDuck) {
+        double introStart = Math.max(0, bedDuration - introDuration);
+        double introSkip = Math.max(0, introDuration - bedDuration);
+        double rampStart = Math.max(0, introStart - fadeLengthSeconds);
+        double rampLength = introStart - rampStart;
+
+        String gain = rampLength > 0
+                ? DUCK_RAMP.volumeExpression(rampStart, rampLength, 1, minDuck)
+                : fmt("if(lt(t,%.3f),1,%.3f)", introStart, minDuck);
+        long delayMs = Math.round(introStart * 1000);
+
+        return fmt("[%s]volume='%s':eval=frame[ducked];", bedLabel, gain) +
+                fmt("[%d:a]%s,atrim=start=%.3f,asetpts=PTS-STARTPTS,adelay=%d|%d[over];",
+                        introInput, FORMAT, introSkip, delayMs, delayMs) +
+                "[ducked][over]amix=inputs=2:duration=first:dropout_transition=0:normalize=0";
+    }
+
+    private static String fmt(String format, Object... args) {
+        return String.format(Locale.ROOT, format, args);
+    }
+}
@@ -0,0 +1,56 @@
+package com.semantyca.aivox.service.manipulation.mixing;
+
+import java.nio.ShortBuffer;
+
+/**
+ * A bundled sound decoded to 44.1 kHz / 16-bit / stereo PCM. The samples are shared between all
+ * callers, so they are only handed out as read-only views.
+ */
+public final class PcmAsset {
+    // -40 dB, the threshold the old silenceremove filters used
+    private static final int SILENCE_LEVEL = 328;
+
+    private final String resource;
+    private final short[] samples;
+    private final int trimStart;
+    private final int trimEnd;
+
+    PcmAsset(String resource, short[] samples) {
+        this.resource = resource;
+        this.samples = samples;
+        int channels = PcmDecoder.CHANNELS;
+        int first = 0;
+        while (first < samples.length && Math.abs(samples[first]) < SILENCE_LEVEL) {
+            first++;
+        }
+        int last = samples.length - 1;
+        while (last > first && Math.abs(samples[last]) < SILENCE_LEVEL) {
+            last--;
+        }
+        this.trimStart = first / channels * channels;
+        this.trimEnd = Math.min(samples.length, (last / channels + 1) * channels);
+    }
+
+    public String resource() {
+        return resource;
+    }
+
+    public String fileName() {
+        return resource.substring(resource.lastIndexOf('/') + 1);
+    }
+
+    public ShortBuffer samples() {
+        return ShortBuffer.wrap(samples).asReadOnlyBuffer();
+    }
+
+    /**
+     * Samples without leading and trailing silence.
+     */
+    public ShortBuffer trimmed() {
+        return ShortBuffer.wrap(samples, trimStart, trimEnd - trimStart).slice().asReadOnlyBuffer();
+    }
+
+    public double durationSeconds() {
+        return (double) samples.length / PcmDecoder.CHANNELS / PcmDecoder.SAMPLE_RATE;
+    }
+}
@@ -0,0 +1,195 @@
+package com.semantyca.aivox.service.manipulation.mixing;
+
+import com.semantyca.aivox.config.AivoxConfig;
+import com.semantyca.aivox.service.scratch.ScratchFile;
+import com.semantyca.aivox.service.scratch.ScratchStorage;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decoded 44.1 kHz / 16-bit / stereo WAV copies of the songs that get mixed, kept under the temp directory
+ * across restarts and keyed by the song's storage file key. A mix graph reads the copy instead of decoding
+ * the song again, and the Java mixer maps its samples without a decode or a heap copy.
+ * <p>
+ * Least recently used copies are dropped once the configured size is exceeded. Copies are handed out as
+ * {@link ScratchFile}s, so one dropped while a mix still reads it is deleted when that mix releases it.
+ */
+@ApplicationScoped
+public class PcmCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PcmCache.class);
+    private static final String EXTENSION = ".wav";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final PcmDecoder decoder;
+    private final ScratchStorage scratchStorage;
+    // key -> copy, in access order
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Inject
+    public PcmCache(AivoxConfig config, PcmDecoder decoder, ScratchStorage scratchStorage) {
+        this.directory = Paths.get(config.path().temp(), "pcm-cache");
+        this.maxBytes = config.pcmCache().maxMb() * 1024 * 1024;
+        this.decoder = decoder;
+        this.scratchStorage = scratchStorage;
+        loadExisting();
+    }
+
+    /**
+     * The decoded copy of a stored song, decoded on the first call. Without a file key there is nothing to
+     * key the copy by and the source itself is handed out. Release the returned file when done.
+     *
+     * @param fileKey storage key of the song's file, or null
+     */
+    public ScratchFile acquire(String fileKey, Path source) throws IOException {
+        if (fileKey == null) {
+            return scratchStorage.adopt(source);
+        }
+        String key = UUID.nameUUIDFromBytes(fileKey.getBytes(StandardCharsets.UTF_8)).toString();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits.incrementAndGet();
+                return entry.file.retain();
+            }
+        }
+        misses.incrementAndGet();
+        Path decoded = directory.resolve(UUID.randomUUID() + ".tmp");
+        try {
+            decoder.decodeWav(source, decoded);
+        } catch (IOException e) {
+            Files.deleteIfExists(decoded);
+            throw e;
+        }
+        List<ScratchFile> evicted;
+        ScratchFile result;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                // decoded concurrently by another mix
+                Files.deleteIfExists(decoded);
+                return entry.file.retain();
+            }
+            // a copy dropped earlier may still be read under its old name
+            Path target = directory.resolve(key + "_" + UUID.randomUUID() + EXTENSION);
+            Files.move(decoded, target, StandardCopyOption.ATOMIC_MOVE);
+            entry = new Entry(scratchStorage.adopt(target), Files.size(target));
+            entries.put(key, entry);
+            totalBytes += entry.bytes;
+            result = entry.file.retain();
+            evicted = evict();
+        }
+        evicted.forEach(ScratchFile::release);
+        return result;
+    }
+
+    /**
+     * Samples of {@code file}, interleaved stereo: mapped in place for a cached copy, decoded otherwise.
+     */
+    public ShortBuffer samples(Path file) throws IOException {
+        if (directory.equals(file.getParent()) && file.getFileName().toString().endsWith(EXTENSION)) {
+            return PcmDecoder.mapWav(file);
+        }
+        return decoder.samples(file);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+    public synchronized long getSizeBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Callers hold the lock and release the returned files after letting go of it.
+     */
+    private List<ScratchFile> evict() {
+        List<ScratchFile> evicted = new ArrayList<>();
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (totalBytes > maxBytes && entries.size() > 1 && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            totalBytes -= entry.bytes;
+            evictions.incrementAndGet();
+            evicted.add(entry.file);
+        }
+        return evicted;
+    }
+
+    /**
+     * Keeps copies from the previous run, oldest first so they are evicted first; stale temp files are removed.
+     */
+    private void loadExisting() {
+        List<ScratchFile> evicted = List.of();
+        synchronized (this) {
+            try {
+                Files.createDirectories(directory);
+                File[] files = directory.toFile().listFiles();
+                if (files == null) {
+                    return;
+                }
+                Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+                for (File f : files) {
+                    String name = f.getName();
+                    int separator = name.indexOf('_');
+                    if (separator > 0 && name.endsWith(EXTENSION)) {
+                        Entry previous = entries.put(name.substring(0, separator),
+                                new Entry(scratchStorage.adopt(f.toPath()), f.length()));
+                        totalBytes += f.length();
+                        if (previous != null) {
+                            totalBytes -= previous.bytes;
+                            previous.file.release();
+                        }
+                    } else {
+                        f.delete();
+                    }
+                }
+                evicted = evict();
+                LOGGER.info("PCM cache at {}: {} files, {} MB", directory, entries.size(), totalBytes / (1024 * 1024));
+            } catch (IOException e) {
+                LOGGER.warn("Could not prepare PCM cache at {}: {}", directory, e.getMessage());
+            }
+        }
+        evicted.forEach(ScratchFile::release);
+    }
+
+    private record Entry(ScratchFile file, long bytes) {
+    }
+}
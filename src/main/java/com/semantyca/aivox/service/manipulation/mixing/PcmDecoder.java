@@ -0,0 +1,166 @@
+package com.semantyca.aivox.service.manipulation.mixing;
+
+import com.semantyca.aivox.config.AivoxConfig;
+import com.semantyca.aivox.service.manipulation.FFmpegProvider;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * Decodes audio to 44.1 kHz / 16-bit / stereo PCM and hands it out as a memory-mapped buffer, so a mix reads
+ * its inputs without copying them into the heap. Nothing is kept: the decoded file is deleted right after
+ * mapping, the mapping stays readable until it is garbage collected. Copies worth keeping go through
+ * {@link PcmCache}.
+ */
+@ApplicationScoped
+public class PcmDecoder {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PcmDecoder.class);
+    public static final int SAMPLE_RATE = 44100;
+    public static final int CHANNELS = 2;
+
+    private final Path directory;
+    private final String ffmpegPath;
+
+    @Inject
+    public PcmDecoder(AivoxConfig config, FFmpegProvider ffmpegProvider) {
+        this.directory = Paths.get(config.path().temp(), "pcm");
+        this.ffmpegPath = ffmpegProvider.getFFmpeg().getPath();
+        prepare();
+    }
+
+    /**
+     * Samples of {@code source}, interleaved stereo.
+     */
+    public ShortBuffer samples(Path source) throws IOException {
+        Path decoded = decode(source);
+        try {
+            return map(decoded);
+        } finally {
+            Files.deleteIfExists(decoded);
+        }
+    }
+
+    /**
+     * Decodes {@code source} into a 16-bit PCM WAV at {@code target}, which ffmpeg reads without decoding
+     * and {@link #mapWav} maps in place.
+     */
+    public void decodeWav(Path source, Path target) throws IOException {
+        run(new ProcessBuilder(
+                ffmpegPath, "-y", "-v", "error",
+                "-i", source.toString(),
+                "-vn", "-map_metadata", "-1",
+                "-ar", String.valueOf(SAMPLE_RATE),
+                "-ac", String.valueOf(CHANNELS),
+                "-c:a", "pcm_s16le",
+                "-f", "wav",
+                target.toString()
+        ), source, target);
+    }
+
+    /**
+     * Samples of a WAV written by {@link #decodeWav}, interleaved stereo, mapped from its data chunk.
+     */
+    public static ShortBuffer mapWav(Path wav) throws IOException {
+        try (FileChannel channel = FileChannel.open(wav, StandardOpenOption.READ)) {
+            ByteBuffer chunk = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            long position = 12;
+            while (position + 8 <= channel.size()) {
+                chunk.clear();
+                channel.read(chunk, position);
+                long size = Integer.toUnsignedLong(chunk.getInt(4));
+                position += 8;
+                if (chunk.get(0) == 'd' && chunk.get(1) == 'a' && chunk.get(2) == 't' && chunk.get(3) == 'a') {
+                    long length = Math.min(size, channel.size() - position) & ~3L;
+                    return channel.map(FileChannel.MapMode.READ_ONLY, position, length)
+                            .order(ByteOrder.LITTLE_ENDIAN)
+                            .asShortBuffer();
+                }
+                position += size + (size & 1);
+            }
+            throw new IOException("No data chunk in " + wav);
+        }
+    }
+
+    /**
+     * Canonical 44-byte WAV header for {@code dataBytes} of PCM in this decoder's format.
+     */
+    public static ByteBuffer wavHeader(long dataBytes) {
+        int blockAlign = CHANNELS * 2;
+        ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt((int) (36 + dataBytes))
+                .put("WAVE".getBytes(StandardCharsets.US_ASCII))
+                .put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+                .putShort((short) 1).putShort((short) CHANNELS)
+                .putInt(SAMPLE_RATE).putInt(SAMPLE_RATE * blockAlign)
+                .putShort((short) blockAlign).putShort((short) 16)
+                .put("data".getBytes(StandardCharsets.US_ASCII)).putInt((int) dataBytes);
+        return header.flip();
+    }
+
+    private Path decode(Path source) throws IOException {
+        Path target = directory.resolve(UUID.randomUUID() + ".tmp");
+        run(new ProcessBuilder(
+                ffmpegPath, "-y", "-v", "error",
+                "-i", source.toString(),
+                "-ar", String.valueOf(SAMPLE_RATE),
+                "-ac", String.valueOf(CHANNELS),
+                "-f", "s16le",
+                target.toString()
+        ), source, target);
+        return target;
+    }
+
+    private static void run(ProcessBuilder pb, Path source, Path target) throws IOException {
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        try {
+            int exitCode = pb.start().waitFor();
+            if (exitCode != 0) {
+                Files.deleteIfExists(target);
+                throw new IOException("FFmpeg failed with exit code " + exitCode + " decoding " + source);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Files.deleteIfExists(target);
+            throw new IOException("Interrupted while decoding " + source, e);
+        }
+    }
+
+    private static ShortBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asShortBuffer();
+        }
+    }
+
+    /**
+     * Creates the decode directory, clearing files of an interrupted run.
+     */
+    private void prepare() {
+        try {
+            Files.createDirectories(directory);
+            File[] files = directory.toFile().listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    f.delete();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not prepare PCM decode directory at {}: {}", directory, e.getMessage());
+        }
+    }
+}
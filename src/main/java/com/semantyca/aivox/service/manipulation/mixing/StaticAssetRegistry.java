@@ -0,0 +1,129 @@
+package com.semantyca.aivox.service.manipulation.mixing;
+
+import com.semantyca.aivox.service.manipulation.mixing.dsp.PcmKernels;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Bundled sounds (jingles, beds, waiting audio) decoded once into shared PCM. Everything under
+ * {@code audio/} on the classpath is decoded at startup; other resources are decoded on first use.
+ */
+@ApplicationScoped
+public class StaticAssetRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StaticAssetRegistry.class);
+    private static final String ASSET_ROOT = "audio";
+    private static final AudioFormat TARGET_FORMAT = new AudioFormat(
+            AudioFormat.Encoding.PCM_SIGNED, PcmDecoder.SAMPLE_RATE, 16, PcmDecoder.CHANNELS,
+            PcmDecoder.CHANNELS * 2, PcmDecoder.SAMPLE_RATE, false);
+
+    private final Map<String, PcmAsset> assets = new ConcurrentHashMap<>();
+    private volatile boolean preloaded;
+
+    void onStart(@Observes StartupEvent event) {
+        preload();
+    }
+
+    private synchronized void preload() {
+        if (preloaded) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        for (String resource : listResources(ASSET_ROOT)) {
+            try {
+                assets.computeIfAbsent(resource, this::load);
+            } catch (RuntimeException e) {
+                LOGGER.error("Could not decode bundled asset {}", resource, e);
+            }
+        }
+        preloaded = true;
+        LOGGER.info("Decoded {} static audio assets in {} ms", assets.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @param resource classpath location, e.g. {@code audio/waiting/Waiting_State.wav}
+     */
+    public PcmAsset get(String resource) {
+        return assets.computeIfAbsent(resource, this::load);
+    }
+
+    public List<PcmAsset> list(String folder) {
+        preload();
+        String prefix = folder.endsWith("/") ? folder : folder + "/";
+        return assets.values().stream()
+                .filter(asset -> asset.resource().startsWith(prefix))
+                .sorted(Comparator.comparing(PcmAsset::resource))
+                .toList();
+    }
+
+    private PcmAsset load(String resource) {
+        InputStream raw = getClass().getClassLoader().getResourceAsStream(resource);
+        if (raw == null) {
+            throw new IllegalArgumentException("Audio resource not found in classpath: " + resource);
+        }
+        try (AudioInputStream source = AudioSystem.getAudioInputStream(new BufferedInputStream(raw));
+             AudioInputStream converted = AudioSystem.getAudioInputStream(TARGET_FORMAT, source)) {
+            return new PcmAsset(resource, PcmKernels.toShorts(converted.readAllBytes()));
+        } catch (IOException | UnsupportedAudioFileException e) {
+            throw new IllegalStateException("Failed to decode audio resource " + resource, e);
+        }
+    }
+
+    private List<String> listResources(String folder) {
+        List<String> resources = new ArrayList<>();
+        URL url = getClass().getClassLoader().getResource(folder);
+        if (url == null) {
+            LOGGER.warn("Audio asset folder not found: {}", folder);
+            return resources;
+        }
+        try {
+            URI uri = url.toURI();
+            Path root;
+            if (uri.getScheme().equals("jar")) {
+                FileSystem jarFileSystem;
+                try {
+                    jarFileSystem = FileSystems.newFileSystem(uri, Collections.emptyMap());
+                } catch (FileSystemAlreadyExistsException e) {
+                    jarFileSystem = FileSystems.getFileSystem(uri);
+                }
+                root = jarFileSystem.getPath(folder);
+            } else {
+                root = Paths.get(uri);
+            }
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.filter(Files::isRegularFile)
+                        .filter(p -> p.toString().toLowerCase().endsWith(".wav"))
+                        .forEach(p -> resources.add(folder + "/" + root.relativize(p).toString().replace('\\', '/')));
+            }
+        } catch (IOException | URISyntaxException e) {
+            LOGGER.error("Error listing audio assets in {}", folder, e);
+        }
+        return resources;
+    }
+}
@@ -0,0 +1,29 @@
+package com.semantyca.aivox.service.manipulation.mixing.dsp;
+
+/**
+ * Sample-level mixing primitives. PCM16 variants saturate to the short range,
+ * float variants clamp to [-1, 1]. Envelopes are interleaved per-sample gains
+ * (see {@link com.semantyca.aivox.service.manipulation.mixing.handler.FadeCurve#envelope}).
+ */
+public interface IPcmKernel {
+
+    void scale(short[] buf, int off, int len, float gain);
+
+    void applyEnvelope(short[] buf, int off, float[] envelope, int envOff, int len);
+
+    /** dst = dst * dstGain + src * srcGain */
+    void mix(short[] dst, int dstOff, short[] src, int srcOff, int len, float dstGain, float srcGain);
+
+    /** bed = bed * envelope + over */
+    void duck(short[] bed, int bedOff, float[] envelope, int envOff, short[] over, int overOff, int len);
+
+    /** out = a * fadeOut + b * fadeIn */
+    void crossfade(short[] out, int outOff, short[] a, int aOff, short[] b, int bOff,
+                   float[] fadeOut, float[] fadeIn, int envOff, int len);
+
+    void scale(float[] buf, int off, int len, float gain);
+
+    void mix(float[] dst, int dstOff, float[] src, int srcOff, int len, float dstGain, float srcGain);
+
+    String name();
+}
@@ -0,0 +1,70 @@
+package com.semantyca.aivox.service.manipulation.mixing.dsp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Picks the kernel implementation once per JVM. The Vector API kernel is used when it was compiled in (build
+ * with {@code -Dvector}) and the JVM was started with {@code --add-modules jdk.incubator.vector};
+ * {@code -Daivox.dsp.scalar=true} forces the scalar one.
+ */
+public final class PcmKernels {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PcmKernels.class);
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    // loaded by name: the class is only compiled with the vector profile
+    private static final String VECTOR_KERNEL = "com.semantyca.aivox.service.manipulation.mixing.dsp.VectorPcmKernel";
+
+    private static final IPcmKernel SCALAR = new ScalarPcmKernel();
+    private static final IPcmKernel DEFAULT = select();
+
+    private PcmKernels() {
+    }
+
+    public static IPcmKernel get() {
+        return DEFAULT;
+    }
+
+    public static IPcmKernel scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * Decodes little-endian PCM16 bytes into interleaved samples.
+     */
+    public static short[] toShorts(byte[] pcm) {
+        short[] samples = new short[pcm.length / 2];
+        ByteBuffer.wrap(pcm).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(samples);
+        return samples;
+    }
+
+    public static byte[] toBytes(short[] samples) {
+        byte[] pcm = new byte[samples.length * 2];
+        ByteBuffer.wrap(pcm).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().put(samples);
+        return pcm;
+    }
+
+    private static IPcmKernel select() {
+        if (Boolean.getBoolean("aivox.dsp.scalar")) {
+            LOGGER.info("PCM kernels: scalar (forced by aivox.dsp.scalar)");
+            return SCALAR;
+        }
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            LOGGER.info("PCM kernels: scalar ({} not enabled)", VECTOR_MODULE);
+            return SCALAR;
+        }
+        try {
+            IPcmKernel kernel = (IPcmKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+            LOGGER.info("PCM kernels: {}", kernel.name());
+            return kernel;
+        } catch (ClassNotFoundException e) {
+            LOGGER.info("PCM kernels: scalar (built without the vector profile)");
+            return SCALAR;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOGGER.warn("PCM kernels: Vector API unavailable, falling back to scalar: {}", e.getMessage());
+            return SCALAR;
+        }
+    }
+}
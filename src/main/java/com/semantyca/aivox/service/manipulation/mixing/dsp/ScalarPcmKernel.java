@@ -0,0 +1,70 @@
+package com.semantyca.aivox.service.manipulation.mixing.dsp;
+
+class ScalarPcmKernel implements IPcmKernel {
+
+    @Override
+    public void scale(short[] buf, int off, int len, float gain) {
+        for (int i = off, end = off + len; i < end; i++) {
+            buf[i] = saturate(buf[i] * gain);
+        }
+    }
+
+    @Override
+    public void applyEnvelope(short[] buf, int off, float[] envelope, int envOff, int len) {
+        for (int i = 0; i < len; i++) {
+            buf[off + i] = saturate(buf[off + i] * envelope[envOff + i]);
+        }
+    }
+
+    @Override
+    public void mix(short[] dst, int dstOff, short[] src, int srcOff, int len, float dstGain, float srcGain) {
+        for (int i = 0; i < len; i++) {
+            dst[dstOff + i] = saturate(dst[dstOff + i] * dstGain + src[srcOff + i] * srcGain);
+        }
+    }
+
+    @Override
+    public void duck(short[] bed, int bedOff, float[] envelope, int envOff, short[] over, int overOff, int len) {
+        for (int i = 0; i < len; i++) {
+            bed[bedOff + i] = saturate(bed[bedOff + i] * envelope[envOff + i] + over[overOff + i]);
+        }
+    }
+
+    @Override
+    public void crossfade(short[] out, int outOff, short[] a, int aOff, short[] b, int bOff,
+                          float[] fadeOut, float[] fadeIn, int envOff, int len) {
+        for (int i = 0; i < len; i++) {
+            out[outOff + i] = saturate(a[aOff + i] * fadeOut[envOff + i] + b[bOff + i] * fadeIn[envOff + i]);
+        }
+    }
+
+    @Override
+    public void scale(float[] buf, int off, int len, float gain) {
+        for (int i = off, end = off + len; i < end; i++) {
+            buf[i] = clamp(buf[i] * gain);
+        }
+    }
+
+    @Override
+    public void mix(float[] dst, int dstOff, float[] src, int srcOff, int len, float dstGain, float srcGain) {
+        for (int i = 0; i < len; i++) {
+            dst[dstOff + i] = clamp(dst[dstOff + i] * dstGain + src[srcOff + i] * srcGain);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    // truncates toward zero, same as the F2S lane conversion in VectorPcmKernel
+    static short saturate(float v) {
+        if (v >= Short.MAX_VALUE) return Short.MAX_VALUE;
+        if (v <= Short.MIN_VALUE) return Short.MIN_VALUE;
+        return (short) v;
+    }
+
+    static float clamp(float v) {
+        return Math.max(-1f, Math.min(1f, v));
+    }
+}
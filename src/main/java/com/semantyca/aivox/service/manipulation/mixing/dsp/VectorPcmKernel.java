@@ -0,0 +1,107 @@
+package com.semantyca.aivox.service.manipulation.mixing.dsp;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API implementation. Shorts are widened to floats lane-for-lane, so the short species
+ * is half the bit size of the preferred float species. Only loaded when the
+ * {@code jdk.incubator.vector} module is present (see {@link PcmKernels}); tails go through the scalar code.
+ */
+class VectorPcmKernel implements IPcmKernel {
+    private static final VectorSpecies<Float> F = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Short> S = VectorSpecies.of(short.class, VectorShape.forBitSize(F.vectorBitSize() / 2));
+    private static final float MAX = Short.MAX_VALUE;
+    private static final float MIN = Short.MIN_VALUE;
+
+    private final ScalarPcmKernel tail = new ScalarPcmKernel();
+
+    @Override
+    public void scale(short[] buf, int off, int len, float gain) {
+        int i = 0;
+        for (int bound = S.loopBound(len); i < bound; i += S.length()) {
+            store(load(buf, off + i).mul(gain), buf, off + i);
+        }
+        tail.scale(buf, off + i, len - i, gain);
+    }
+
+    @Override
+    public void applyEnvelope(short[] buf, int off, float[] envelope, int envOff, int len) {
+        int i = 0;
+        for (int bound = S.loopBound(len); i < bound; i += S.length()) {
+            FloatVector g = FloatVector.fromArray(F, envelope, envOff + i);
+            store(load(buf, off + i).mul(g), buf, off + i);
+        }
+        tail.applyEnvelope(buf, off + i, envelope, envOff + i, len - i);
+    }
+
+    @Override
+    public void mix(short[] dst, int dstOff, short[] src, int srcOff, int len, float dstGain, float srcGain) {
+        int i = 0;
+        for (int bound = S.loopBound(len); i < bound; i += S.length()) {
+            FloatVector d = load(dst, dstOff + i).mul(dstGain);
+            FloatVector s = load(src, srcOff + i).mul(srcGain);
+            store(d.add(s), dst, dstOff + i);
+        }
+        tail.mix(dst, dstOff + i, src, srcOff + i, len - i, dstGain, srcGain);
+    }
+
+    @Override
+    public void duck(short[] bed, int bedOff, float[] envelope, int envOff, short[] over, int overOff, int len) {
+        int i = 0;
+        for (int bound = S.loopBound(len); i < bound; i += S.length()) {
+            FloatVector g = FloatVector.fromArray(F, envelope, envOff + i);
+            FloatVector b = load(bed, bedOff + i).mul(g);
+            store(b.add(load(over, overOff + i)), bed, bedOff + i);
+        }
+        tail.duck(bed, bedOff + i, envelope, envOff + i, over, overOff + i, len - i);
+    }
+
+    @Override
+    public void crossfade(short[] out, int outOff, short[] a, int aOff, short[] b, int bOff,
+                          float[] fadeOut, float[] fadeIn, int envOff, int len) {
+        int i = 0;
+        for (int bound = S.loopBound(len); i < bound; i += S.length()) {
+            FloatVector va = load(a, aOff + i).mul(FloatVector.fromArray(F, fadeOut, envOff + i));
+            FloatVector vb = load(b, bOff + i).mul(FloatVector.fromArray(F, fadeIn, envOff + i));
+            store(va.add(vb), out, outOff + i);
+        }
+        tail.crossfade(out, outOff + i, a, aOff + i, b, bOff + i, fadeOut, fadeIn, envOff + i, len - i);
+    }
+
+    @Override
+    public void scale(float[] buf, int off, int len, float gain) {
+        int i = 0;
+        for (int bound = F.loopBound(len); i < bound; i += F.length()) {
+            FloatVector.fromArray(F, buf, off + i).mul(gain).max(-1f).min(1f).intoArray(buf, off + i);
+        }
+        tail.scale(buf, off + i, len - i, gain);
+    }
+
+    @Override
+    public void mix(float[] dst, int dstOff, float[] src, int srcOff, int len, float dstGain, float srcGain) {
+        int i = 0;
+        for (int bound = F.loopBound(len); i < bound; i += F.length()) {
+            FloatVector d = FloatVector.fromArray(F, dst, dstOff + i).mul(dstGain);
+            FloatVector s = FloatVector.fromArray(F, src, srcOff + i).mul(srcGain);
+            d.add(s).max(-1f).min(1f).intoArray(dst, dstOff + i);
+        }
+        tail.mix(dst, dstOff + i, src, srcOff + i, len - i, dstGain, srcGain);
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + F.vectorBitSize();
+    }
+
+    private static FloatVector load(short[] arr, int off) {
+        return (FloatVector) ShortVector.fromArray(S, arr, off).convertShape(VectorOperators.S2F, F, 0);
+    }
+
+    private static void store(FloatVector v, short[] arr, int off) {
+        ((ShortVector) v.max(MIN).min(MAX).convertShape(VectorOperators.F2S, S, 0)).intoArray(arr, off);
+    }
+}
@@ -1,11 +1,21 @@
 package com.semantyca.aivox.service.manipulation.mixing.handler;
 
-import com.semantyca.aivox.config.AivoxConfig;
-import com.semantyca.aivox.repository.soundfragment.SoundFragmentRepository;
 import com.semantyca.aivox.service.AiAgentService;
+import com.semantyca.aivox.service.catalog.BrandCatalogService;
 import com.semantyca.aivox.service.manipulation.FFmpegProvider;
 import com.semantyca.aivox.service.manipulation.mixing.AudioConcatenator;
+import com.semantyca.aivox.service.manipulation.mixing.MixGraph;
+import com.semantyca.aivox.service.manipulation.mixing.PcmCache;
+import com.semantyca.aivox.service.manipulation.mixing.PcmDecoder;
+import com.semantyca.aivox.service.manipulation.mixing.StaticAssetRegistry;
+import com.semantyca.aivox.service.manipulation.mixing.dsp.IPcmKernel;
+import com.semantyca.aivox.service.manipulation.mixing.dsp.PcmKernels;
+import com.semantyca.aivox.service.manipulation.probe.AudioProbeService;
+import com.semantyca.aivox.service.manipulation.probe.CuePoints;
+import com.semantyca.aivox.service.playlist.EnqueueStatus;
 import com.semantyca.aivox.service.playlist.PlaylistManager;
+import com.semantyca.aivox.service.scratch.ScratchFile;
+import com.semantyca.aivox.service.scratch.ScratchStorage;
 import com.semantyca.aivox.service.soundfragment.SoundFragmentService;
 import com.semantyca.core.model.FileMetadata;
 import com.semantyca.core.model.cnst.LanguageCode;
@@ -19,187 +29,130 @@ import com.semantyca.mixpla.model.cnst.PlaylistItemType;
 import com.semantyca.mixpla.model.cnst.SourceType;
 import com.semantyca.mixpla.model.soundfragment.SoundFragment;
 import com.semantyca.mixpla.model.stream.IStream;
-import com.semantyca.mixpla.service.exceptions.AudioMergeException;
 import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import net.bramp.ffmpeg.builder.FFmpegBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.sound.sampled.AudioFileFormat;
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.UnsupportedAudioFileException;
-import java.io.ByteArrayInputStream;
-import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
-import java.util.Arrays;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Function;
 
+@ApplicationScoped
 public class AudioMixingHandler extends MixingHandlerBase {
     private static final Logger LOGGER = LoggerFactory.getLogger(AudioMixingHandler.class);
     private static final int SAMPLE_RATE = 44100;
-    //TODO we should not use repo directly
-    private final SoundFragmentRepository soundFragmentRepository;
-    private final SoundFragmentService soundFragmentService;
+    private static final double INTRO_FADE_SECONDS = 2.0;
+    private static final double INTRO_MIN_DUCK = 0.2;
+    private static final int MIX_BLOCK_SAMPLES = 64 * 1024;
+    private static final float CONTENT_GAIN = 3.0f;
+    // ten minutes of 44.1 kHz / 16-bit / stereo
+    static final long WAV_BYTES_ESTIMATE = 600L * PcmDecoder.SAMPLE_RATE * PcmDecoder.CHANNELS * 2;
     private final AudioConcatenator audioConcatenator;
     private final AiAgentService aiAgentService;
-    private final String outputDir;
-    private final String tempBaseDir;
-
-    public AudioMixingHandler(AivoxConfig config,
-                              SoundFragmentRepository repository,
-                              SoundFragmentService soundFragmentService,
+    private final PcmDecoder pcmDecoder;
+    private final PcmCache pcmCache;
+    private final StaticAssetRegistry assetRegistry;
+    private final MessageAssetResolver assetResolver;
+    private final ScratchStorage scratchStorage;
+    private final BrandCatalogService catalogService;
+
+    @Inject
+    public AudioMixingHandler(SoundFragmentService soundFragmentService,
                               AudioConcatenator audioConcatenator,
                               AiAgentService aiAgentService,
-                              FFmpegProvider fFmpegProvider) throws IOException, AudioMergeException {
-        super(fFmpegProvider);
-        this.soundFragmentRepository = repository;
-        this.soundFragmentService = soundFragmentService;
+                              FFmpegProvider fFmpegProvider,
+                              AudioProbeService probeService,
+                              PcmDecoder pcmDecoder,
+                              PcmCache pcmCache,
+                              StaticAssetRegistry assetRegistry,
+                              ScratchStorage scratchStorage,
+                              BrandCatalogService catalogService) {
+        super(fFmpegProvider, probeService);
+        this.pcmDecoder = pcmDecoder;
+        this.pcmCache = pcmCache;
+        this.assetRegistry = assetRegistry;
         this.audioConcatenator = audioConcatenator;
         this.aiAgentService = aiAgentService;
-        this.outputDir = config.getPathForMerged();
-        this.tempBaseDir = config.getPathUploads() + "/audio-processing";
+        this.scratchStorage = scratchStorage;
+        this.catalogService = catalogService;
+        this.assetResolver = new MessageAssetResolver(soundFragmentService, scratchStorage);
     }
 
     public Uni<Boolean> handleSongIntroSong(IStream stream, SongQueueMessageDTO toQueueDTO) {
         PlaylistManager playlistManager = (PlaylistManager) stream.getStreamer().getPlaylistManager();
-        SongInfoDTO songInfo1 = toQueueDTO.getSongs().get(SongKey.SONG_1);
-        String introSongPath = toQueueDTO.getFilePaths().get(IntroKey.INTRO_1).getFilePath();
-        SongInfoDTO songInfo2 = toQueueDTO.getSongs().get(SongKey.SONG_2);
         MixingProfile settings = MixingProfile.randomProfile(12345L);
         LOGGER.info("Applied Mixing sis {}", settings.description);
 
-        return aiAgentService.getById(stream.getAiAgentId(), SuperUser.build(), LanguageCode.en)
-                .chain(aiAgent -> {
-                    return soundFragmentService.getById(songInfo1.getSongId())
-                            .chain(soundFragment1 -> {
-                                return soundFragmentRepository.getFirstFile(soundFragment1.getId())
-                                        .chain(songMetadata1 -> {
-                                            return songMetadata1.materializeFileStream(tempBaseDir)
-                                                    .chain(tempPath1 -> {
-                                                        String tempMixPath = outputDir + "/temp_mix_" +
-                                                                soundFragment1.getSlugName() + "_i_" +
-                                                                System.currentTimeMillis() + ".wav";
-                                                        return mixSongPlusIntro(tempPath1.toString(),
-                                                                introSongPath,
-                                                                tempMixPath,
-                                                                2.0,
-                                                                false,
-                                                                -3,
-                                                                0.2);
-                                                    })
-                                                    .chain(actualTempMixPath -> {
-                                                        return soundFragmentService.getById(songInfo2.getSongId())
-                                                                .chain(soundFragment2 -> {
-                                                                    return soundFragmentRepository.getFirstFile(soundFragment2.getId())
-                                                                            .chain(songMetadata2 -> {
-                                                                                return songMetadata2.materializeFileStream(tempBaseDir)
-                                                                                        .chain(tempPath2 -> {
-                                                                                            SoundFragment fragment1 = new SoundFragment();
-                                                                                            fragment1.setId(soundFragment1.getId());
-                                                                                            fragment1.setTitle(soundFragment1.getTitle());
-                                                                                            fragment1.setArtist(soundFragment1.getArtist());
-                                                                                            fragment1.setSource(soundFragment1.getSource());
-                                                                                            FileMetadata fileMetadata1 = new FileMetadata();
-                                                                                            fileMetadata1.setTemporaryFilePath(Path.of(actualTempMixPath));
-                                                                                            fragment1.setFileMetadataList(List.of(fileMetadata1));
-                                                                                            fragment1.setType(PlaylistItemType.MIX_1_SONG);
-
-                                                                                            SoundFragment fragment2 = new SoundFragment();
-                                                                                            fragment2.setId(soundFragment2.getId());
-                                                                                            fragment2.setTitle(soundFragment2.getTitle());
-                                                                                            fragment2.setArtist(soundFragment2.getArtist());
-                                                                                            fragment2.setSource(soundFragment2.getSource());
-                                                                                            FileMetadata fileMetadata2 = new FileMetadata();
-                                                                                            fileMetadata2.setTemporaryFilePath(tempPath2);
-                                                                                            fragment2.setFileMetadataList(List.of(fileMetadata2));
-                                                                                            fragment2.setType(PlaylistItemType.MIX_2_SONG);
-
-                                                                                            return playlistManager.addFragmentToQueue(fragment1, toQueueDTO.getPriority(), toQueueDTO.getTraceId())
-                                                                                                    .chain(() ->
-                                                                                                            playlistManager.addFragmentToQueue(fragment2, toQueueDTO.getPriority(), toQueueDTO.getTraceId()));
-                                                                                        });
-                                                                            });
-                                                                });
-                                                    });
-                                        });
-                            });
+        return Uni.combine().all().unis(
+                        aiAgentService.getById(stream.getAiAgentId(), SuperUser.build(), LanguageCode.en),
+                        assetResolver.resolve(toQueueDTO))
+                .asTuple()
+                .chain(resolved -> {
+                    MessageAssetResolver.Assets assets = resolved.getItem2();
+                    MessageAssetResolver.Song song1 = assets.song(SongKey.SONG_1);
+                    Path songPath1 = song1.path();
+                    Path introPath = assets.intro(IntroKey.INTRO_1);
+                    SoundFragment fragment1 = copyOf(song1.fragment(), PlaylistItemType.MIX_1_SONG);
+                    return decoded(song1)
+                            .chain(decoded -> Uni.combine().all().unis(probeDuration(songPath1, song1.fileKey(), song1.fragment().getLength()), probeDuration(introPath, null, null)).asTuple()
+                                    .chain(durations -> playlistManager.addMixToQueue(fragment1,
+                                            MixGraph.songWithIntro(decoded.path(), durations.getItem1(), introPath, durations.getItem2(),
+                                                    INTRO_FADE_SECONDS, INTRO_MIN_DUCK),
+                                            toQueueDTO.getPriority(), toQueueDTO.getTraceId(), sceneDeadline(toQueueDTO)))
+                                    .chain(status -> status != EnqueueStatus.NOTHING_RENDERED
+                                            ? Uni.createFrom().item(status == EnqueueStatus.ADDED)
+                                            : feedFileMix(playlistManager, fragment1, toQueueDTO,
+                                                    out -> mixSongPlusIntro(decoded.path().toString(), introPath.toString(), out,
+                                                            INTRO_FADE_SECONDS, false, -3, INTRO_MIN_DUCK)))
+                                    .eventually(decoded::release))
+                            .chain(() -> feedSong(playlistManager, assets.song(SongKey.SONG_2), PlaylistItemType.MIX_2_SONG, toQueueDTO))
+                            .eventually(assets::release);
                 });
     }
 
     public Uni<Boolean> handleIntroSongIntroSong(IStream stream, SongQueueMessageDTO message) {
         PlaylistManager playlistManager = (PlaylistManager) stream.getStreamer().getPlaylistManager();
-        String part1 = message.getFilePaths().get(IntroKey.INTRO_1).getFilePath();           // intro1
-        SongInfoDTO songInfo1 = message.getSongs().get(SongKey.SONG_1);       // song
-        String part2 = message.getFilePaths().get(IntroKey.INTRO_2).getFilePath();           // intro2
-        SongInfoDTO songInfo2 = message.getSongs().get(SongKey.SONG_2);      // next song
         MixingProfile settings = MixingProfile.randomProfile(12345L);
         LOGGER.info("Applied Mixing isis {}", settings.description);
 
-        return aiAgentService.getById(stream.getAiAgentId(), SuperUser.build(), LanguageCode.en)
-                .chain(aiAgent -> {
-                    return soundFragmentService.getById(songInfo1.getSongId())
-                            .chain(soundFragment1 -> {
-                                return soundFragmentRepository.getFirstFile(soundFragment1.getId())
-                                        .chain(songMetadata1 -> {
-                                            return songMetadata1.materializeFileStream(tempBaseDir)
-                                                    .chain(tempPath1 -> {
-                                                        String tempMixPath = outputDir + "/temp_mix_" +
-                                                                soundFragment1.getSlugName() + "_i_" +
-                                                                System.currentTimeMillis() + ".wav";
-
-                                                        return mixIntroSongPlusIntro(
-                                                                part1,                     // intro1
-                                                                tempPath1.toString(),      // song
-                                                                part2,                     // intro2
-                                                                tempMixPath,               // output
-                                                                message.getBrandSlug(),
-                                                                message.getTraceId()
-                                                        ).chain(actualTempMixPath -> {
-                                                            return soundFragmentService.getById(songInfo2.getSongId())
-                                                                    .chain(soundFragment2 -> {
-                                                                        return soundFragmentRepository.getFirstFile(soundFragment2.getId())
-                                                                                .chain(songMetadata2 -> {
-                                                                                    return songMetadata2.materializeFileStream(tempBaseDir)
-                                                                                            .chain(tempPath2 -> {
-                                                                                                SoundFragment fragment1 = new SoundFragment();
-                                                                                                fragment1.setId(soundFragment1.getId());
-                                                                                                fragment1.setTitle(soundFragment1.getTitle());
-                                                                                                fragment1.setArtist(soundFragment1.getArtist());
-                                                                                                fragment1.setSource(soundFragment1.getSource());
-                                                                                                FileMetadata fileMetadata1 = new FileMetadata();
-                                                                                                fileMetadata1.setTemporaryFilePath(Path.of(actualTempMixPath));
-                                                                                                fragment1.setFileMetadataList(List.of(fileMetadata1));
-                                                                                                fragment1.setType(PlaylistItemType.MIX_1_INTRO_FADED_SONG);
-
-                                                                                                SoundFragment fragment2 = new SoundFragment();
-                                                                                                fragment2.setId(soundFragment2.getId());
-                                                                                                fragment2.setTitle(soundFragment2.getTitle());
-                                                                                                fragment2.setArtist(soundFragment2.getArtist());
-                                                                                                fragment2.setSource(soundFragment2.getSource());
-                                                                                                FileMetadata fileMetadata2 = new FileMetadata();
-                                                                                                fileMetadata2.setTemporaryFilePath(tempPath2);
-                                                                                                fragment2.setFileMetadataList(List.of(fileMetadata2));
-                                                                                                fragment2.setType(PlaylistItemType.MIX_2_SONG);
-
-
-                                                                                                return playlistManager.addFragmentToQueue(fragment1, message.getPriority(), message.getTraceId())
-                                                                                                        .chain(() ->
-                                                                                                                playlistManager.addFragmentToQueue(fragment2, message.getPriority(), message.getTraceId()));
-                                                                                            });
-                                                                                });
-                                                                    });
-                                                        });
-                                                    });
-                                        });
-                            });
+        return Uni.combine().all().unis(
+                        aiAgentService.getById(stream.getAiAgentId(), SuperUser.build(), LanguageCode.en),
+                        assetResolver.resolve(message))
+                .asTuple()
+                .chain(resolved -> {
+                    MessageAssetResolver.Assets assets = resolved.getItem2();
+                    Path part1 = assets.intro(IntroKey.INTRO_1);                     // intro1
+                    MessageAssetResolver.Song song1 = assets.song(SongKey.SONG_1);   // song
+                    Path songPath1 = song1.path();
+                    Path part2 = assets.intro(IntroKey.INTRO_2);                     // intro2
+                    SoundFragment fragment1 = copyOf(song1.fragment(), PlaylistItemType.MIX_1_INTRO_FADED_SONG);
+                    return decoded(song1)
+                            .chain(decoded -> Uni.combine().all().unis(probeDuration(part1, null, null), probeDuration(songPath1, song1.fileKey(), song1.fragment().getLength()), probeDuration(part2, null, null)).asTuple()
+                                    .chain(durations -> playlistManager.addMixToQueue(fragment1,
+                                            MixGraph.introSongWithIntro(part1, durations.getItem1(), decoded.path(), durations.getItem2(),
+                                                    part2, durations.getItem3(), INTRO_FADE_SECONDS, INTRO_MIN_DUCK),
+                                            message.getPriority(), message.getTraceId(), sceneDeadline(message)))
+                                    .chain(status -> status != EnqueueStatus.NOTHING_RENDERED
+                                            ? Uni.createFrom().item(status == EnqueueStatus.ADDED)
+                                            : feedFileMix(playlistManager, fragment1, message,
+                                                    out -> mixIntroSongPlusIntro(part1.toString(), decoded.path().toString(), part2.toString(),
+                                                            out, message.getBrandSlug(), message.getTraceId())))
+                                    .eventually(decoded::release))
+                            // next song
+                            .chain(() -> feedSong(playlistManager, assets.song(SongKey.SONG_2), PlaylistItemType.MIX_2_SONG, message))
+                            .eventually(assets::release);
                 });
     }
 
@@ -209,140 +162,167 @@ public class AudioMixingHandler extends MixingHandlerBase {
 
         LOGGER.info("Handling single song feed");
 
-        return soundFragmentService.getById(songInfo1.getSongId())
-                .chain(soundFragment -> soundFragmentRepository.getFirstFile(soundFragment.getId())
-                        .chain(songMetadata -> songMetadata.materializeFileStream(tempBaseDir)
-                                .chain(tempPath -> {
-                                    SoundFragment fragment = new SoundFragment();
-                                    fragment.setId(soundFragment.getId());
-                                    fragment.setTitle(soundFragment.getTitle());
-                                    fragment.setArtist(soundFragment.getArtist());
-                                    fragment.setSource(soundFragment.getSource());
-                                    FileMetadata fileMetadata = new FileMetadata();
-                                    fileMetadata.setTemporaryFilePath(tempPath);
-                                    fragment.setFileMetadataList(List.of(fileMetadata));
-                                    fragment.setType(PlaylistItemType.SONG);
-
-                                    return playlistManager.addFragmentToQueue(
-                                            fragment,
-                                            toQueueDTO.getPriority(),
-                                            toQueueDTO.getTraceId()
-                                    ).replaceWith(Boolean.TRUE);
-                                })));
+        return assetResolver.resolveSong(songInfo1.getSongId())
+                .chain(song -> {
+                    SoundFragment soundFragment = song.fragment();
+                    SoundFragment fragment = new SoundFragment();
+                    fragment.setId(soundFragment.getId());
+                    fragment.setTitle(soundFragment.getTitle());
+                    fragment.setArtist(soundFragment.getArtist());
+                    fragment.setSource(soundFragment.getSource());
+                    FileMetadata fileMetadata = new FileMetadata();
+                    fileMetadata.setTemporaryFilePath(song.path());
+                    fragment.setFileMetadataList(List.of(fileMetadata));
+                    fragment.setType(PlaylistItemType.SONG);
+
+                    return playlistManager.addFragmentToQueue(
+                            fragment,
+                            toQueueDTO.getPriority(),
+                            toQueueDTO.getTraceId(),
+                            sceneDeadline(toQueueDTO)
+                    ).replaceWith(Boolean.TRUE).eventually(song::release);
+                });
     }
 
     public Uni<Boolean> handleConcatenationAndFeed(IStream stream, SongQueueMessageDTO toQueueDTO, ConcatenationType concatType) {
-        PlaylistManager playlistManager = (PlaylistManager) stream.getStreamer().getPlaylistManager();
-        SongInfoDTO songInfo1 = toQueueDTO.getSongs().get(SongKey.SONG_1);
-        SongInfoDTO songInfo2 = toQueueDTO.getSongs().get(SongKey.SONG_2);
-
         LOGGER.info("Applied Concatenation Type {}", concatType);
-
-        return soundFragmentService.getById(songInfo1.getSongId())
-                .chain(sf1 -> soundFragmentRepository.getFirstFile(sf1.getId())
-                        .chain(meta1 -> meta1.materializeFileStream(tempBaseDir)
-                                .chain(tempPath1 ->
-                                        soundFragmentService.getById(songInfo2.getSongId())
-                                                .chain(sf2 -> soundFragmentRepository.getFirstFile(sf2.getId())
-                                                        .chain(meta2 -> meta2.materializeFileStream(tempBaseDir)
-                                                                .chain(tempPath2 -> {
-                                                                    String outputPath = outputDir + "/crossfade_" +
-                                                                            System.currentTimeMillis() + ".wav";
-                                                                    return audioConcatenator.concatenate(
-                                                                                    tempPath1.toString(),
-                                                                                    tempPath2.toString(),
-                                                                                    outputPath,
-                                                                                    concatType,
-                                                                                    0,
-                                                                                    toQueueDTO.getBrandSlug(),
-                                                                                    toQueueDTO.getTraceId()
-                                                                            )
-                                                                            .chain(finalPath -> {
-                                                                                SoundFragment crossfadeFragment = new SoundFragment();
-                                                                                if (sf1.getType() == PlaylistItemType.JINGLE) {
-                                                                                    crossfadeFragment.setId(sf2.getId());
-                                                                                    crossfadeFragment.setTitle(sf2.getTitle());
-                                                                                    crossfadeFragment.setArtist(sf2.getArtist());
-                                                                                } else {
-                                                                                    crossfadeFragment.setId(sf1.getId());  //at least one gonna be marked as played
-                                                                                    crossfadeFragment.setTitle(sf1.getTitle() + " → " + sf2.getTitle());
-                                                                                    crossfadeFragment.setArtist(sf1.getArtist() + " / " + sf2.getArtist());
-                                                                                }
-                                                                                crossfadeFragment.setSource(SourceType.TEMPORARY_MIX);
-                                                                                crossfadeFragment.setType(PlaylistItemType.MIX_SONG_1_SONG_2);
-
-                                                                                FileMetadata fileMetadata = new FileMetadata();
-                                                                                fileMetadata.setTemporaryFilePath(Path.of(finalPath));
-                                                                                crossfadeFragment.setFileMetadataList(List.of(fileMetadata));
-
-                                                                                return playlistManager.addFragmentToQueue(
-                                                                                        crossfadeFragment,
-                                                                                        toQueueDTO.getPriority(),
-                                                                                        toQueueDTO.getTraceId()
-                                                                                ).replaceWith(Boolean.TRUE);
-                                                                            });
-                                                                }))))));
+        return concatenateAndFeed(stream, toQueueDTO, concatType);
     }
 
     public Uni<Boolean> handleFillerJingle(IStream stream, SongQueueMessageDTO toQueueDTO) {
+        LOGGER.info("[AudioMixingHandler] Processing FILLER_JINGLE with DIRECT_CONCAT");
+        return concatenateAndFeed(stream, toQueueDTO, ConcatenationType.DIRECT_CONCAT);
+    }
+
+    private Uni<Boolean> concatenateAndFeed(IStream stream, SongQueueMessageDTO toQueueDTO, ConcatenationType concatType) {
         PlaylistManager playlistManager = (PlaylistManager) stream.getStreamer().getPlaylistManager();
-        SongInfoDTO songInfo1 = toQueueDTO.getSongs().get(SongKey.SONG_1);
-        SongInfoDTO songInfo2 = toQueueDTO.getSongs().get(SongKey.SONG_2);
 
-        LOGGER.info("[AudioMixingHandler] Processing FILLER_JINGLE with DIRECT_CONCAT");
+        return assetResolver.resolve(toQueueDTO)
+                .chain(assets -> {
+                    MessageAssetResolver.Song song1 = assets.song(SongKey.SONG_1);
+                    MessageAssetResolver.Song song2 = assets.song(SongKey.SONG_2);
+                    SoundFragment sf1 = song1.fragment();
+                    SoundFragment sf2 = song2.fragment();
+                    SoundFragment concatenatedFragment = new SoundFragment();
+                    if (sf1.getType() == PlaylistItemType.JINGLE) {
+                        concatenatedFragment.setId(sf2.getId());
+                        concatenatedFragment.setTitle(sf2.getTitle());
+                        concatenatedFragment.setArtist(sf2.getArtist());
+                    } else {
+                        concatenatedFragment.setId(sf1.getId());  //at least one gonna be marked as played
+                        concatenatedFragment.setTitle(sf1.getTitle() + " → " + sf2.getTitle());
+                        concatenatedFragment.setArtist(sf1.getArtist() + " / " + sf2.getArtist());
+                    }
+                    concatenatedFragment.setSource(SourceType.TEMPORARY_MIX);
+                    concatenatedFragment.setType(PlaylistItemType.MIX_SONG_1_SONG_2);
+
+                    // only crossfades cut at cue points, plain concatenation keeps the files whole
+                    boolean useCues = concatType == ConcatenationType.CROSSFADE;
+                    // a crossfade takes its length from the cue points, a plain concatenation keeps the first track at full gain
+                    double mixParam = concatType == ConcatenationType.CROSSFADE ? 0 : 1.0;
+                    return decoded(song1)
+                            .chain(decoded1 -> decoded(song2)
+                                    .chain(decoded2 -> Uni.combine().all().unis(cuePoints(song1, useCues), cuePoints(song2, useCues)).asTuple()
+                                            .chain(cues -> playlistManager.addMixToQueue(
+                                                    concatenatedFragment,
+                                                    MixGraph.concat(decoded1.path(), cues.getItem1(), decoded2.path(), cues.getItem2(), concatType, mixParam),
+                                                    toQueueDTO.getPriority(),
+                                                    toQueueDTO.getTraceId(),
+                                                    sceneDeadline(toQueueDTO)
+                                            ))
+                                            .eventually(decoded2::release))
+                                    .eventually(decoded1::release))
+                            .replaceWith(Boolean.TRUE)
+                            .eventually(assets::release);
+                });
+    }
+
+    private Uni<Boolean> feedSong(PlaylistManager playlistManager, MessageAssetResolver.Song song, PlaylistItemType type,
+                                  SongQueueMessageDTO message) {
+        SoundFragment fragment = copyOf(song.fragment(), type);
+        FileMetadata fileMetadata = new FileMetadata();
+        fileMetadata.setTemporaryFilePath(song.path());
+        fragment.setFileMetadataList(List.of(fileMetadata));
+        return playlistManager.addFragmentToQueue(fragment, message.getPriority(), message.getTraceId(),
+                sceneDeadline(message));
+    }
+
+    /**
+     * Old path for the ducked mixes: mix into a WAV in Java, then segment that file.
+     * Only used when the single-pass graph rendered nothing, never when the ready queue was full.
+     */
+    private Uni<Boolean> feedFileMix(PlaylistManager playlistManager, SoundFragment fragment, SongQueueMessageDTO message,
+                                     Function<String, Uni<String>> mixer) {
+        LOGGER.warn("Single-pass render of {} produced no segments, falling back to the file mix", fragment.getTitle());
+        ScratchFile mix;
+        try {
+            mix = scratchStorage.newFile("temp_mix_", ".wav", WAV_BYTES_ESTIMATE);
+        } catch (IOException e) {
+            return Uni.createFrom().failure(e);
+        }
+        return mixer.apply(mix.path().toString())
+                .chain(actualTempMixPath -> {
+                    FileMetadata fileMetadata = new FileMetadata();
+                    fileMetadata.setTemporaryFilePath(Path.of(actualTempMixPath));
+                    fragment.setFileMetadataList(List.of(fileMetadata));
+                    return playlistManager.addFragmentToQueue(fragment, message.getPriority(), message.getTraceId(),
+                sceneDeadline(message));
+                })
+                .eventually(mix::release);
+    }
 
-        return soundFragmentService.getById(songInfo1.getSongId())
-                .chain(sf1 -> soundFragmentRepository.getFirstFile(sf1.getId())
-                        .chain(meta1 -> meta1.materializeFileStream(tempBaseDir)
-                                .chain(tempPath1 ->
-                                        soundFragmentService.getById(songInfo2.getSongId())
-                                                .chain(sf2 -> soundFragmentRepository.getFirstFile(sf2.getId())
-                                                        .chain(meta2 -> meta2.materializeFileStream(tempBaseDir)
-                                                                .chain(tempPath2 -> {
-                                                                    String outputPath = outputDir + "/filler_jingle_" +
-                                                                            System.currentTimeMillis() + ".wav";
-                                                                    return audioConcatenator.concatenate(
-                                                                                    tempPath1.toString(),
-                                                                                    tempPath2.toString(),
-                                                                                    outputPath,
-                                                                                    ConcatenationType.DIRECT_CONCAT,
-                                                                                    0,
-                                                                                    toQueueDTO.getBrandSlug(),
-                                                                                    toQueueDTO.getTraceId()
-                                                                            )
-                                                                            .chain(finalPath -> {
-                                                                                SoundFragment concatenatedFragment = new SoundFragment();
-                                                                                if (sf1.getType() == PlaylistItemType.JINGLE) {
-                                                                                    concatenatedFragment.setId(sf2.getId());
-                                                                                    concatenatedFragment.setTitle(sf2.getTitle());
-                                                                                    concatenatedFragment.setArtist(sf2.getArtist());
-                                                                                } else {
-                                                                                    concatenatedFragment.setId(sf1.getId());
-                                                                                    concatenatedFragment.setTitle(sf1.getTitle() + " → " + sf2.getTitle());
-                                                                                    concatenatedFragment.setArtist(sf1.getArtist() + " / " + sf2.getArtist());
-                                                                                }
-                                                                                concatenatedFragment.setSource(SourceType.TEMPORARY_MIX);
-                                                                                concatenatedFragment.setType(PlaylistItemType.MIX_SONG_1_SONG_2);
-
-                                                                                FileMetadata fileMetadata = new FileMetadata();
-                                                                                fileMetadata.setTemporaryFilePath(Path.of(finalPath));
-                                                                                concatenatedFragment.setFileMetadataList(List.of(fileMetadata));
-
-                                                                                return playlistManager.addFragmentToQueue(
-                                                                                        concatenatedFragment,
-                                                                                        toQueueDTO.getPriority(),
-                                                                                        toQueueDTO.getTraceId()
-                                                                                ).replaceWith(Boolean.TRUE);
-                                                                            });
-                                                                }))))));
+    /**
+     * @param fileKey storage key of a song's file, null for intros and other generated audio
+     */
+    private Uni<Double> probeDuration(Path path, String fileKey, Duration knownLength) {
+        return Uni.createFrom().item(() -> {
+            try {
+                return probeService.durationSeconds(path, fileKey, knownLength);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to probe " + path, e);
+            }
+        }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
     }
 
+    /**
+     * The song's decoded copy from the cache, or the song itself when it cannot be decoded; release it when done.
+     */
+    private Uni<ScratchFile> decoded(MessageAssetResolver.Song song) {
+        return Uni.createFrom().item(() -> {
+            try {
+                return pcmCache.acquire(song.fileKey(), song.path());
+            } catch (IOException e) {
+                LOGGER.warn("Mixing {} from its source, decoding failed: {}", song.path().getFileName(), e.getMessage());
+                return song.file().retain();
+            }
+        }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+
+    /**
+     * Cue points stored with the song's catalog entry; null, and so the whole file, when it has none yet.
+     */
+    private Uni<CuePoints> cuePoints(MessageAssetResolver.Song song, boolean needed) {
+        if (!needed) {
+            return Uni.createFrom().nullItem();
+        }
+        return catalogService.cuePoints(song.fragment().getId());
+    }
+
+    private static SoundFragment copyOf(SoundFragment source, PlaylistItemType type) {
+        SoundFragment fragment = new SoundFragment();
+        fragment.setId(source.getId());
+        fragment.setTitle(source.getTitle());
+        fragment.setArtist(source.getArtist());
+        fragment.setSource(source.getSource());
+        fragment.setType(type);
+        return fragment;
+    }
 
     public Uni<String> createOutroIntroMix(String mainSongPath, String introSongPath, String outputPath, MixingProfile settings, double gainValue) {
         return Uni.createFrom().item(() -> {
             try {
-                double mainDuration = getAudioDuration(mainSongPath);
-                double introDuration = getAudioDuration(introSongPath);
+                double mainDuration = getAudioDuration(mainSongPath, null);
+                double introDuration = getAudioDuration(introSongPath, null);
 
                 LOGGER.info("Main song duration: {}s, Intro duration: {}s", mainDuration, introDuration);
 
@@ -390,119 +370,113 @@ public class AudioMixingHandler extends MixingHandlerBase {
         }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
     }
 
+    /**
+     * Ducks the song under the intro, reading both from mapped PCM and writing the WAV block by block,
+     * so neither file is held in the heap.
+     */
     private Uni<String> mixSongPlusIntro(String songFile, String introFile, String outputFile,
                                          double fadeLengthSeconds, boolean fadeOutBack,
                                          double tail, double minDuck) {
+        return Uni.createFrom().item(() -> {
+            try {
+                ShortBuffer song = pcmCache.samples(Path.of(songFile));
+                ShortBuffer intro = pcmDecoder.samples(Path.of(introFile));
 
+                int channels = PcmDecoder.CHANNELS;
+                int songFrames = song.remaining() / channels;
+                int introFrames = intro.remaining() / channels;
 
-        return convertToWav(songFile).chain(songWav ->
-                convertToWav(introFile).chain(introWav ->
-                        Uni.createFrom().item(() -> {
-                            try (AudioInputStream song  = AudioSystem.getAudioInputStream(songWav.file);
-                                 AudioInputStream intro = AudioSystem.getAudioInputStream(introWav.file)) {
-
-                                double introStartSeconds = songWav.durationSeconds - introWav.durationSeconds - tail;
-                                if (introStartSeconds < 0) introStartSeconds = 0;
-
-                                AudioFormat targetFormat = new AudioFormat(
-                                        AudioFormat.Encoding.PCM_SIGNED,
-                                        44100, 16, 2, 4, 44100, false
-                                );
-
-                                AudioInputStream convertedSong  = AudioSystem.getAudioInputStream(targetFormat, song);
-                                AudioInputStream convertedIntro = AudioSystem.getAudioInputStream(targetFormat, intro);
-
-                                byte[] songBytes  = convertedSong.readAllBytes();
-                                byte[] introBytes = convertedIntro.readAllBytes();
-
-                                int frameSize = targetFormat.getFrameSize();
-                                int songFrames  = songBytes.length / frameSize;
-                                int introFrames = introBytes.length / frameSize;
+                double introStartSeconds = (double) (songFrames - introFrames) / PcmDecoder.SAMPLE_RATE - tail;
+                if (introStartSeconds < 0) introStartSeconds = 0;
 
-                                int introStartFrame = (int) (introStartSeconds * targetFormat.getFrameRate());
-                                if (introStartFrame < 0) introStartFrame = 0;
-                                if (introStartFrame > songFrames - introFrames) {
-                                    introStartFrame = songFrames - introFrames;
-                                }
-
-                                int introStartBytes = introStartFrame * frameSize;
-                                int fadeFrames = (int) (fadeLengthSeconds * targetFormat.getFrameRate());
-                                int fadeBytes  = fadeFrames * frameSize;
-
-                                byte[] mixed = Arrays.copyOf(songBytes, songBytes.length);
-                                double maxDuck = 1.0;
-                                
-                                int fadeStart = Math.max(0, introStartBytes - fadeBytes);
-                                int fadeEnd   = introStartBytes + introBytes.length;
-
-                                for (int i = 0; i < introBytes.length && (i + introStartBytes + 1) < mixed.length; i += 2) {
-                                    int pos = i + introStartBytes;
-                                    
-                                    if (pos < 0 || pos + 1 >= mixed.length) {
-                                        continue;
-                                    }
-
-                                    double duckFactor;
-                                    if (pos < introStartBytes) {
-                                        if (pos >= fadeStart) {
-                                            double progress = (double) (pos - fadeStart) / fadeBytes;
-                                            double eased = smoothFade(progress);
-                                            duckFactor = maxDuck - eased * (maxDuck - minDuck);
-                                        } else {
-                                            duckFactor = maxDuck;
-                                        }
-                                    } else if (fadeOutBack && pos >= fadeEnd && pos < fadeEnd + fadeBytes) {
-                                        double progress = (double) (pos - fadeEnd) / fadeBytes;
-                                        double eased = smoothFade(progress);
-                                        duckFactor = maxDuck - eased * (maxDuck - minDuck);
-                                    } else if (pos >= introStartBytes && pos < fadeEnd) {
-                                        duckFactor = minDuck;
-                                    } else {
-                                        duckFactor = fadeOutBack ? maxDuck : minDuck;
-                                    }
-
-                                    short s1 = (short) ((mixed[pos+1] << 8) | (mixed[pos] & 0xff));
-                                    short s2 = (short) ((introBytes[i+1] << 8) | (introBytes[i] & 0xff));
-
-                                    int scaledSong = (int) Math.round(s1 * duckFactor);
-                                    int sum = scaledSong + s2;
-
-                                    if (sum > Short.MAX_VALUE) sum = Short.MAX_VALUE;
-                                    if (sum < Short.MIN_VALUE) sum = Short.MIN_VALUE;
-
-                                    mixed[pos]   = (byte) (sum & 0xff);
-                                    mixed[pos+1] = (byte) ((sum >> 8) & 0xff);
-                                }
+                int introStartFrame = (int) (introStartSeconds * PcmDecoder.SAMPLE_RATE);
+                if (introStartFrame > songFrames - introFrames) {
+                    introStartFrame = songFrames - introFrames;
+                }
 
-                                try (ByteArrayInputStream bais = new ByteArrayInputStream(mixed);
-                                     AudioInputStream mixedStream = new AudioInputStream(bais, targetFormat, mixed.length / frameSize)) {
-                                    AudioSystem.write(mixedStream, AudioFileFormat.Type.WAVE, new File(outputFile));
-                                } catch (IOException e) {
-                                    throw new RuntimeException("Failed to write mixed audio file", e);
+                int fadeFrames = (int) (fadeLengthSeconds * PcmDecoder.SAMPLE_RATE);
+                float maxDuck = 1.0f;
+                IPcmKernel kernel = PcmKernels.get();
+
+                int total = songFrames * channels;
+                int introOffset = Math.max(0, -introStartFrame) * channels;
+                int introStart = Math.max(0, introStartFrame) * channels;
+                int overlap = Math.max(0, Math.min(introFrames * channels - introOffset, total - introStart));
+                int fadeEnd = introStart + overlap;
+
+                int rampStart = Math.max(0, introStart - fadeFrames * channels);
+                float[] down = FadeCurve.STEEP.envelope((introStart - rampStart) / channels, channels, maxDuck, (float) minDuck);
+                float[] up = fadeOutBack
+                        ? FadeCurve.STEEP.envelope(Math.min(fadeFrames, (total - fadeEnd) / channels), channels, (float) minDuck, maxDuck)
+                        : new float[0];
+
+                short[] block = new short[MIX_BLOCK_SAMPLES];
+                short[] over = new short[MIX_BLOCK_SAMPLES];
+                ByteBuffer bytes = ByteBuffer.allocate(MIX_BLOCK_SAMPLES * 2).order(ByteOrder.LITTLE_ENDIAN);
+
+                try (FileChannel out = FileChannel.open(Path.of(outputFile), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    out.write(PcmDecoder.wavHeader((long) total * 2));
+                    for (int pos = 0; pos < total; pos += MIX_BLOCK_SAMPLES) {
+                        int n = Math.min(MIX_BLOCK_SAMPLES, total - pos);
+                        song.get(pos, block, 0, n);
+
+                        int from = Math.max(pos, rampStart);
+                        int to = Math.min(pos + n, introStart);
+                        if (from < to) {
+                            kernel.applyEnvelope(block, from - pos, down, from - rampStart, to - from);
+                        }
+
+                        from = Math.max(pos, introStart);
+                        to = Math.min(pos + n, fadeEnd);
+                        if (from < to) {
+                            intro.get(introOffset + from - introStart, over, 0, to - from);
+                            kernel.mix(block, from - pos, over, 0, to - from, (float) minDuck, 1.0f);
+                        }
+
+                        from = Math.max(pos, fadeEnd);
+                        to = pos + n;
+                        if (overlap > 0 && from < to) {
+                            if (fadeOutBack) {
+                                int upEnd = Math.min(to, fadeEnd + up.length);
+                                if (from < upEnd) {
+                                    kernel.applyEnvelope(block, from - pos, up, from - fadeEnd, upEnd - from);
                                 }
-
-                                return outputFile;
-                            } catch (IOException | UnsupportedAudioFileException e) {
-                                throw new RuntimeException("Failed to process audio streams", e);
-                            } finally {
-                                songWav.file.delete();
-                                introWav.file.delete();
+                            } else {
+                                kernel.scale(block, from - pos, to - from, (float) minDuck);
                             }
-                        }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
-                )
-        );
+                        }
+
+                        writeBlock(out, block, n, bytes);
+                    }
+                }
+                return outputFile;
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to process audio streams", e);
+            }
+        }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
     }
 
     private Uni<String> mixIntroSongPlusIntro(String intro1, String song, String intro2, String outputFile, String brand, UUID traceId) {
-        String firstConcat = outputDir + "/temp_intro_song_" + System.currentTimeMillis() + ".wav";
+        ScratchFile firstConcat;
+        try {
+            firstConcat = scratchStorage.newFile("temp_intro_song_", ".wav", WAV_BYTES_ESTIMATE);
+        } catch (IOException e) {
+            return Uni.createFrom().failure(e);
+        }
 
-        return audioConcatenator.concatenate(intro1, song, firstConcat,
+        return audioConcatenator.concatenate(intro1, song, firstConcat.path().toString(),
                         ConcatenationType.DIRECT_CONCAT, 1.0, brand, traceId)
                 .chain(temp -> mixSongPlusIntro(temp, intro2, outputFile,
-                        2.0, false, -3, 0.2));
+                                INTRO_FADE_SECONDS, false, -3, INTRO_MIN_DUCK))
+                .eventually(firstConcat::release);
     }
 
 
+    /**
+     * Intro jingle, the content over the looped background bed, then the jingle again. Jingle and bed
+     * come decoded from the asset registry; the bed is looped by index, not through an ffmpeg loop buffer.
+     */
     public Uni<String> mixContentWithBackgroundAndIntros(
             String contentTtsPath,
             String outputPath,
@@ -510,114 +484,69 @@ public class AudioMixingHandler extends MixingHandlerBase {
             String introJingleResource,
             String backgroundMusicResource) {
         return Uni.createFrom().item(() -> {
-            File tempIntroJingle = null;
-            File tempBackgroundMusic = null;
-            File tempContentWithBg = null;
-            InputStream introJingleStream = null;
-            InputStream backgroundMusicStream = null;
-
             try {
-                introJingleStream = getClass().getClassLoader().getResourceAsStream(introJingleResource);
-                backgroundMusicStream = getClass().getClassLoader().getResourceAsStream(backgroundMusicResource);
-                if (introJingleStream == null || backgroundMusicStream == null) {
-                    throw new RuntimeException("Required audio resources not found in classpath");
+                ShortBuffer jingle = assetRegistry.get(introJingleResource).trimmed();
+                ShortBuffer bed = assetRegistry.get(backgroundMusicResource).samples();
+                ShortBuffer content = pcmDecoder.samples(Path.of(contentTtsPath));
+                IPcmKernel kernel = PcmKernels.get();
+
+                int contentLength = content.remaining();
+                int bedLength = bed.remaining();
+                long total = 2L * jingle.remaining() + contentLength;
+
+                short[] block = new short[MIX_BLOCK_SAMPLES];
+                short[] under = new short[MIX_BLOCK_SAMPLES];
+                ByteBuffer bytes = ByteBuffer.allocate(MIX_BLOCK_SAMPLES * 2).order(ByteOrder.LITTLE_ENDIAN);
+
+                try (FileChannel out = FileChannel.open(Path.of(outputPath), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    out.write(PcmDecoder.wavHeader(total * 2));
+                    writeSamples(out, jingle, block, bytes);
+                    for (int pos = 0; pos < contentLength; pos += MIX_BLOCK_SAMPLES) {
+                        int n = Math.min(MIX_BLOCK_SAMPLES, contentLength - pos);
+                        content.get(pos, block, 0, n);
+                        if (bedLength > 0) {
+                            for (int filled = 0; filled < n; ) {
+                                int bedPos = (pos + filled) % bedLength;
+                                int len = Math.min(n - filled, bedLength - bedPos);
+                                bed.get(bedPos, under, filled, len);
+                                filled += len;
+                            }
+                            kernel.mix(block, 0, under, 0, n, CONTENT_GAIN, (float) backgroundVolume);
+                        } else {
+                            kernel.scale(block, 0, n, CONTENT_GAIN);
+                        }
+                        writeBlock(out, block, n, bytes);
+                    }
+                    writeSamples(out, jingle, block, bytes);
                 }
-
-                tempIntroJingle = File.createTempFile("intro_jingle_", ".wav", new File(outputDir));
-                tempBackgroundMusic = File.createTempFile("bg_music_", ".wav", new File(outputDir));
-                tempContentWithBg = File.createTempFile("content_bg_", ".wav", new File(outputDir));
-
-                String introJinglePath = tempIntroJingle.getAbsolutePath();
-                String backgroundMusicPath = tempBackgroundMusic.getAbsolutePath();
-                String tempContentWithBgPath = tempContentWithBg.getAbsolutePath();
-
-                Files.copy(introJingleStream, tempIntroJingle.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                Files.copy(backgroundMusicStream, tempBackgroundMusic.toPath(), StandardCopyOption.REPLACE_EXISTING);
-
-                double contentDuration = getAudioDuration(contentTtsPath);
-                double mainVolume = 3.0;
-
-                String contentBgFilter = String.format(
-                        "[0:a]volume=%.3f,aformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo[content];" +
-                                "[1:a]aloop=loop=-1:size=2e+09,atrim=duration=%.3f,aformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo,volume=%.3f[bg];" +
-                                "[content][bg]amix=inputs=2:duration=first:dropout_transition=0:normalize=0", mainVolume, contentDuration, backgroundVolume
-                );
-
-                FFmpegBuilder contentWithBgBuilder = new FFmpegBuilder()
-                        .setInput(contentTtsPath)
-                        .addInput(backgroundMusicPath)
-                        .setComplexFilter(contentBgFilter)
-                        .addOutput(tempContentWithBgPath)
-                        .setAudioCodec("pcm_s16le")
-                        .setAudioSampleRate(SAMPLE_RATE)
-                        .setAudioChannels(2)
-                        .done();
-
-                executor.createJob(contentWithBgBuilder).run();
-                LOGGER.info("Mixed content with background: {}", tempContentWithBgPath);
-
-                String finalFilterComplex =
-                        "[0:a]aformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo," +
-                                "silenceremove=start_periods=1:start_duration=0.01:start_threshold=-40dB:" +
-                                "stop_periods=-1:stop_duration=0.01:stop_threshold=-40dB[intro];" +
-                                "[1:a]aformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo[content_bg];" +
-                                "[2:a]aformat=sample_rates=44100:sample_fmts=s16:channel_layouts=stereo," +
-                                "silenceremove=start_periods=1:start_duration=0.01:start_threshold=-40dB:" +
-                                "stop_periods=-1:stop_duration=0.01:stop_threshold=-40dB[outro];" +
-                                "[intro][content_bg][outro]concat=n=3:v=0:a=1";
-
-                FFmpegBuilder finalBuilder = new FFmpegBuilder()
-                        .setInput(introJinglePath)
-                        .addInput(tempContentWithBgPath)
-                        .addInput(introJinglePath)
-                        .setComplexFilter(finalFilterComplex)
-                        .addOutput(outputPath)
-                        .setAudioCodec("pcm_s16le")
-                        .setAudioSampleRate(SAMPLE_RATE)
-                        .setAudioChannels(2)
-                        .done();
-
-                executor.createJob(finalBuilder).run();
                 LOGGER.info("Final content mix created: {}", outputPath);
-
-                cleanupQuietly(tempContentWithBg);
-                cleanupQuietly(tempIntroJingle);
-                cleanupQuietly(tempBackgroundMusic);
-
                 return outputPath;
-
             } catch (Exception e) {
                 LOGGER.error("Error creating content mix: {}", e.getMessage(), e);
-                cleanupQuietly(tempContentWithBg);
-                cleanupQuietly(tempIntroJingle);
-                cleanupQuietly(tempBackgroundMusic);
                 throw new RuntimeException("Failed to create content mix", e);
-            } finally {
-                closeQuietly(introJingleStream);
-                closeQuietly(backgroundMusicStream);
             }
         }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
     }
 
-    private void cleanupQuietly(File file) {
-        if (file != null && file.exists() && !file.delete()) {
-            LOGGER.warn("Failed to delete temp file: {}", file.getAbsolutePath());
+    private static void writeSamples(FileChannel out, ShortBuffer samples, short[] block, ByteBuffer bytes) throws IOException {
+        int length = samples.remaining();
+        for (int pos = 0; pos < length; pos += block.length) {
+            int n = Math.min(block.length, length - pos);
+            samples.get(pos, block, 0, n);
+            writeBlock(out, block, n, bytes);
         }
     }
 
-    private void closeQuietly(InputStream stream) {
-        if (stream != null) {
-            try { stream.close(); } catch (IOException e) {
-                LOGGER.warn("Failed to close stream", e);
-            }
+    private static void writeBlock(FileChannel out, short[] block, int n, ByteBuffer bytes) throws IOException {
+        bytes.clear();
+        bytes.asShortBuffer().put(block, 0, n);
+        bytes.limit(n * 2);
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
         }
     }
 
-    private static double smoothFade(double progress) {
-        return Math.pow(progress, 3.5);  // try 2.0 → 4.0, stronger = steeper
-        //return 1.0 / (1.0 + Math.exp(-12 * (progress - 0.5)));
-    }
-
     private String buildFilter(
             double fadeStartTime,
             double fadeDuration,
@@ -629,8 +558,8 @@ public class AudioMixingHandler extends MixingHandlerBase {
 
         String mainFilter;
         if (fadeDownTo == 0.0) {
-            mainFilter = String.format("afade=t=out:st=%.2f:d=%.2f:curve=%s",
-                    fadeStartTime, fadeDuration, curve.getFfmpegValue());
+            mainFilter = String.format("volume='%s':eval=frame",
+                    curve.volumeExpression(fadeStartTime, fadeDuration, 1, 0));
         } else {
             //TODO it is not working
             mainFilter = String.format(
@@ -1,23 +1,75 @@
 package com.semantyca.aivox.service.manipulation.mixing.handler;
 
-import lombok.Getter;
+import java.util.Locale;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.UnaryOperator;
 
-@Getter
+/**
+ * Fade shapes shared by the ffmpeg filter builders and the Java mixing kernels.
+ * Each curve carries a precomputed lookup table, so per-sample code never calls {@code Math.pow}/{@code Math.sin},
+ * and the same formula as an ffmpeg expression, so a filter graph fades exactly like the Java mixer instead
+ * of through the nearest built-in {@code afade} curve.
+ */
 public enum FadeCurve {
-    LINEAR("tri"),      // ← Fixed: "tri" for linear/triangle
-    SINUSOIDAL("s");    // ← Correct: "s" for sine
+    LINEAR(p -> p, p -> p),
+    SINUSOIDAL(p -> Math.sin(p * Math.PI / 2), p -> "sin(" + p + "*PI/2)"),
+    STEEP(p -> Math.pow(p, 3.5), p -> "pow(" + p + ",3.5)"),
+    // same formula as ffmpeg's afade "log" curve
+    LOGARITHMIC(p -> p <= 0 ? 0 : Math.min(1.0, Math.max(0.0, 1 + 0.2 * Math.log10(p))),
+            p -> "if(lte(" + p + ",0),0,clip(1+0.2*log(" + p + ")/log(10),0,1))");
 
-    private final String ffmpegValue;
+    public static final int TABLE_SIZE = 1024;
 
-    FadeCurve(String ffmpegValue) {
-        this.ffmpegValue = ffmpegValue;
-    }
+    private final float[] table;
+    private final UnaryOperator<String> expression;
 
-    public String getFfmpegValue() {
-        return ffmpegValue;
+    FadeCurve(DoubleUnaryOperator shape, UnaryOperator<String> expression) {
+        this.expression = expression;
+        this.table = new float[TABLE_SIZE + 1];
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            table[i] = (float) shape.applyAsDouble((double) i / TABLE_SIZE);
+        }
     }
 
     public static FadeCurve getDefault() {
         return SINUSOIDAL;
     }
-}
\ No newline at end of file
+
+    /**
+     * Gain of a fade-in at the given progress (0..1), interpolated from the lookup table.
+     */
+    public float gain(float progress) {
+        if (progress <= 0f) return table[0];
+        if (progress >= 1f) return table[TABLE_SIZE];
+        float pos = progress * TABLE_SIZE;
+        int idx = (int) pos;
+        float frac = pos - idx;
+        return table[idx] + (table[idx + 1] - table[idx]) * frac;
+    }
+
+    /**
+     * ffmpeg {@code volume} expression of the same gain as {@link #envelope}: {@code fromGain} until
+     * {@code start}, this curve towards {@code toGain} over {@code length} seconds, then {@code toGain}.
+     */
+    public String volumeExpression(double start, double length, double fromGain, double toGain) {
+        String progress = String.format(Locale.ROOT, "clip((t-%.3f)/%.3f,0,1)", start, length);
+        return String.format(Locale.ROOT, "%.4f%+.4f*%s", fromGain, toGain - fromGain, expression.apply(progress));
+    }
+
+    /**
+     * Builds an interleaved per-sample gain envelope going from {@code fromGain} to {@code toGain}
+     * over {@code frames} frames, so kernels can apply it with plain element-wise multiplies.
+     */
+    public float[] envelope(int frames, int channels, float fromGain, float toGain) {
+        float[] envelope = new float[frames * channels];
+        float span = toGain - fromGain;
+        float step = frames > 1 ? 1f / (frames - 1) : 1f;
+        for (int f = 0, i = 0; f < frames; f++) {
+            float g = fromGain + span * gain(f * step);
+            for (int c = 0; c < channels; c++) {
+                envelope[i++] = g;
+            }
+        }
+        return envelope;
+    }
+}
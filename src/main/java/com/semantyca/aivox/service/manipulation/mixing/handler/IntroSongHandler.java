@@ -1,12 +1,12 @@
 package com.semantyca.aivox.service.manipulation.mixing.handler;
 
-import com.semantyca.aivox.config.AivoxConfig;
 import com.semantyca.aivox.messaging.MetricPublisher;
 import com.semantyca.aivox.repository.soundfragment.SoundFragmentRepository;
 import com.semantyca.aivox.service.AiAgentService;
-import com.semantyca.aivox.service.manipulation.FFmpegProvider;
 import com.semantyca.aivox.service.manipulation.mixing.AudioConcatenator;
 import com.semantyca.aivox.service.playlist.PlaylistManager;
+import com.semantyca.aivox.service.scratch.ScratchFile;
+import com.semantyca.aivox.service.scratch.ScratchStorage;
 import com.semantyca.aivox.service.soundfragment.SoundFragmentService;
 import com.semantyca.core.model.FileMetadata;
 import com.semantyca.core.model.cnst.LanguageCode;
@@ -21,8 +21,8 @@ import com.semantyca.mixpla.model.cnst.ConcatenationType;
 import com.semantyca.mixpla.model.cnst.PlaylistItemType;
 import com.semantyca.mixpla.model.soundfragment.SoundFragment;
 import com.semantyca.mixpla.model.stream.IStream;
-import com.semantyca.mixpla.service.exceptions.AudioMergeException;
 import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,28 +33,29 @@ import java.util.List;
 import java.util.Map;
 
 @Deprecated
+@ApplicationScoped
 public class IntroSongHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(IntroSongHandler.class);
     private final SoundFragmentRepository repository;
     private final SoundFragmentService soundFragmentService;
     private final AiAgentService aiAgentService;
-    private final AivoxConfig config;
     private final AudioConcatenator audioConcatenator;
-    private final String tempBaseDir;
+    private final ScratchStorage scratchStorage;
     private final MetricPublisher metricPublisher;
 
-    public IntroSongHandler(AivoxConfig config,
-                            SoundFragmentRepository repository,
+    @Inject
+    public IntroSongHandler(SoundFragmentRepository repository,
                             SoundFragmentService soundFragmentService,
                             AiAgentService aiAgentService,
-                            FFmpegProvider fFmpegProvider, MetricPublisher metricPublisher) throws IOException, AudioMergeException {
-        this.config = config;
+                            AudioConcatenator audioConcatenator,
+                            ScratchStorage scratchStorage,
+                            MetricPublisher metricPublisher) {
         this.repository = repository;
         this.soundFragmentService = soundFragmentService;
         this.aiAgentService = aiAgentService;
         this.metricPublisher = metricPublisher;
-        this.audioConcatenator = new AudioConcatenator(config, fFmpegProvider);
-        this.tempBaseDir = config.getPathUploads() + "/audio-processing";
+        this.audioConcatenator = audioConcatenator;
+        this.scratchStorage = scratchStorage;
     }
 
     public Uni<Boolean> handle(IStream stream, SongQueueMessageDTO message) {
@@ -100,21 +101,27 @@ public class IntroSongHandler {
 
                     double gainValue = 1.0;
 
-                    return songMetadata.materializeFileStream(tempBaseDir)
-                            .chain(songTempFile -> {
-                                String outputPath = config.getPathForMerged() + "/merged_intro_" +
-                                        soundFragment.getSlugName() + "_" + System.currentTimeMillis() + ".wav";
+                    ScratchFile merged;
+                    String downloadDir;
+                    try {
+                        merged = scratchStorage.newFile("merged_intro_", ".wav", AudioMixingHandler.WAV_BYTES_ESTIMATE);
+                        downloadDir = scratchStorage.downloadDirectory().toString();
+                    } catch (IOException e) {
+                        return Uni.createFrom().failure(e);
+                    }
 
-                                return audioConcatenator.concatenate(
-                                        ttsFilePath,
-                                        songTempFile.toString(),
-                                        outputPath,
-                                        ConcatenationType.DIRECT_CONCAT,
-                                        gainValue,
-                                        message.getBrandSlug(),
-                                        message.getTraceId()
-                                );
-                            })
+                    return songMetadata.materializeFileStream(downloadDir)
+                            .map(scratchStorage::adopt)
+                            .chain(songTempFile -> audioConcatenator.concatenate(
+                                            ttsFilePath,
+                                            songTempFile.path().toString(),
+                                            merged.path().toString(),
+                                            ConcatenationType.DIRECT_CONCAT,
+                                            gainValue,
+                                            message.getBrandSlug(),
+                                            message.getTraceId()
+                                    )
+                                    .eventually(songTempFile::release))
                             .onItem().transform(mergedPath -> {
                                 FileMetadata mergedMetadata = new FileMetadata();
                                 mergedMetadata.setTemporaryFilePath(Path.of(mergedPath));
@@ -123,20 +130,23 @@ public class IntroSongHandler {
                             })
                             .chain(updatedMetadata -> {
                                 updateRadioStationStatus(brand);
-                                return playlistManager.addFragmentToQueue(soundFragment, message.getPriority(), message.getTraceId())
+                                return playlistManager.addFragmentToQueue(soundFragment, message.getPriority(), message.getTraceId(),
+                        MixingHandlerBase.sceneDeadline(message))
                                         .onItem().invoke(result -> {
                                             if (result) {
                                                 LOGGER.info("Added merged song to queue: {}", soundFragment.getTitle());
                                             }
                                         });
-                            });
+                            })
+                            .eventually(merged::release);
                 });
     }
 
     private Uni<Boolean> handleWithoutTtsFile(IStream stream, SongQueueMessageDTO message,
                                               SoundFragment soundFragment, PlaylistManager playlistManager) {
         updateRadioStationStatus(stream);
-        return playlistManager.addFragmentToQueue(soundFragment, message.getPriority(), message.getTraceId())
+        return playlistManager.addFragmentToQueue(soundFragment, message.getPriority(), message.getTraceId(),
+                        MixingHandlerBase.sceneDeadline(message))
                 .onItem().invoke(result -> {
                     if (result) {
                         LOGGER.info("Added song to queue: {}", soundFragment.getTitle());
@@ -0,0 +1,163 @@
+package com.semantyca.aivox.service.manipulation.mixing.handler;
+
+import com.semantyca.aivox.service.scratch.ScratchFile;
+import com.semantyca.aivox.service.scratch.ScratchStorage;
+import com.semantyca.aivox.service.soundfragment.SoundFragmentService;
+import com.semantyca.core.model.FileMetadata;
+import com.semantyca.mixpla.dto.queue.livestream.IntroKey;
+import com.semantyca.mixpla.dto.queue.livestream.SongInfoDTO;
+import com.semantyca.mixpla.dto.queue.livestream.SongKey;
+import com.semantyca.mixpla.dto.queue.livestream.SongQueueMessageDTO;
+import com.semantyca.mixpla.model.soundfragment.SoundFragment;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fetches every song and intro a queue message refers to before any mixing starts. Songs do not depend
+ * on each other, and per song the catalog lookup and the file download only need the song id, so all
+ * of it runs concurrently, capped per message so one message cannot take over the storage client. The
+ * files of all songs are looked up in one batch first, so a message costs one file query, not one per song.
+ * Downloads are owned by {@link ScratchStorage}; callers release the resolved assets once the queue has them.
+ */
+class MessageAssetResolver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageAssetResolver.class);
+    static final int MAX_CONCURRENT_SONGS = 4;
+
+    private final SoundFragmentService soundFragmentService;
+    private final ScratchStorage scratchStorage;
+
+    MessageAssetResolver(SoundFragmentService soundFragmentService, ScratchStorage scratchStorage) {
+        this.soundFragmentService = soundFragmentService;
+        this.scratchStorage = scratchStorage;
+    }
+
+    Uni<Assets> resolve(SongQueueMessageDTO message) {
+        long startedAt = System.currentTimeMillis();
+        Map<IntroKey, Path> intros = new HashMap<>();
+        if (message.getFilePaths() != null) {
+            message.getFilePaths().forEach((key, file) -> intros.put(key, Path.of(file.getFilePath())));
+        }
+        Map<SongKey, SongInfoDTO> songs = message.getSongs() != null ? message.getSongs() : Map.of();
+        // songs already downloaded when another one fails are released right away
+        List<Song> downloaded = Collections.synchronizedList(new ArrayList<>());
+
+        List<UUID> songIds = songs.values().stream().map(SongInfoDTO::getSongId).toList();
+        // a resolved file is a stream to be read once; a song used twice in a message downloads twice
+        Set<UUID> claimed = ConcurrentHashMap.newKeySet();
+
+        return soundFragmentService.getFirstFiles(songIds)
+                .onFailure().invoke(e -> LOGGER.warn("Batch file lookup failed, resolving per song: {}", e.getMessage()))
+                .onFailure().recoverWithItem(Map.of())
+                .onItem().transformToMulti(files -> Multi.createFrom().iterable(songs.entrySet())
+                        .onItem().transformToUni(entry -> {
+                            UUID songId = entry.getValue().getSongId();
+                            return resolveSong(songId, claimed.add(songId) ? files.get(songId) : null)
+                                    .invoke(downloaded::add)
+                                    .map(song -> Map.entry(entry.getKey(), song));
+                        })
+                        .merge(MAX_CONCURRENT_SONGS))
+                .collect().asMap(Map.Entry::getKey, Map.Entry::getValue)
+                .map(resolved -> {
+                    LOGGER.debug("Resolved {} songs and {} intros in {} ms", resolved.size(), intros.size(),
+                            System.currentTimeMillis() - startedAt);
+                    return new Assets(resolved, intros);
+                })
+                .onFailure().invoke(() -> downloaded.forEach(Song::release));
+    }
+
+    /**
+     * The returned song holds a reference to its file, release it when done.
+     */
+    Uni<Song> resolveSong(UUID songId) {
+        return resolveSong(songId, null);
+    }
+
+    /**
+     * @param fileMetadata the song's file when already resolved in a batch, otherwise looked up here
+     */
+    private Uni<Song> resolveSong(UUID songId, FileMetadata fileMetadata) {
+        AtomicReference<ScratchFile> file = new AtomicReference<>();
+        AtomicReference<String> fileKey = new AtomicReference<>();
+        return Uni.combine().all().unis(
+                        soundFragmentService.getById(songId),
+                        Uni.createFrom().item(this::downloadDirectory)
+                                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                                .chain(dir -> (fileMetadata != null
+                                        ? Uni.createFrom().item(fileMetadata)
+                                        : soundFragmentService.getFirstFile(songId))
+                                        .invoke(metadata -> fileKey.set(metadata.getFileKey()))
+                                        .chain(metadata -> metadata.materializeFileStream(dir)))
+                                .map(scratchStorage::adopt)
+                                .invoke(file::set))
+                .asTuple()
+                .onFailure().invoke(() -> {
+                    if (file.get() != null) {
+                        file.get().release();
+                    }
+                })
+                .map(tuple -> new Song(tuple.getItem1(), tuple.getItem2(), fileKey.get()));
+    }
+
+    private String downloadDirectory() {
+        try {
+            return scratchStorage.downloadDirectory().toString();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to prepare download directory", e);
+        }
+    }
+
+    /**
+     * @param fileKey storage key of the downloaded file, null when the storage has none
+     */
+    record Song(SoundFragment fragment, ScratchFile file, String fileKey) {
+
+        Path path() {
+            return file.path();
+        }
+
+        void release() {
+            file.release();
+        }
+    }
+
+    record Assets(Map<SongKey, Song> songs, Map<IntroKey, Path> intros) {
+
+        /**
+         * Intros are files of the sender and stay where they are; only the downloaded songs are released.
+         */
+        void release() {
+            songs.values().forEach(Song::release);
+        }
+
+        Song song(SongKey key) {
+            Song song = songs.get(key);
+            if (song == null) {
+                throw new IllegalArgumentException("Message has no " + key);
+            }
+            return song;
+        }
+
+        Path intro(IntroKey key) {
+            Path intro = intros.get(key);
+            if (intro == null) {
+                throw new IllegalArgumentException("Message has no " + key);
+            }
+            return intro;
+        }
+    }
+}
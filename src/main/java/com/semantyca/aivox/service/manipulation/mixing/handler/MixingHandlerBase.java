@@ -1,100 +1,43 @@
 package com.semantyca.aivox.service.manipulation.mixing.handler;
 
 import com.semantyca.aivox.service.manipulation.FFmpegProvider;
-import io.smallrye.mutiny.Uni;
-import io.smallrye.mutiny.infrastructure.Infrastructure;
+import com.semantyca.aivox.service.manipulation.probe.AudioProbeService;
+import com.semantyca.mixpla.dto.queue.livestream.SongQueueMessageDTO;
 import net.bramp.ffmpeg.FFmpegExecutor;
-import net.bramp.ffmpeg.FFprobe;
-import net.bramp.ffmpeg.probe.FFmpegProbeResult;
-import net.bramp.ffmpeg.probe.FFmpegStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.UnsupportedAudioFileException;
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
 
 public class MixingHandlerBase {
     private static final Logger LOGGER = LoggerFactory.getLogger(MixingHandlerBase.class);
     protected final FFmpegExecutor executor;
-    protected final FFprobe ffprobe;
-    private final String ffmpegPath;
+    protected final AudioProbeService probeService;
 
-    public MixingHandlerBase(FFmpegProvider fFmpegProvider) throws IOException {
-        this.executor = new FFmpegExecutor(fFmpegProvider.getFFmpeg());
-        this.ffprobe = fFmpegProvider.getFFprobe();
-        this.ffmpegPath = fFmpegProvider.getFFmpeg().getPath();
+    public MixingHandlerBase(FFmpegProvider fFmpegProvider, AudioProbeService probeService) {
+        this.executor = fFmpegProvider.getExecutor();
+        this.probeService = probeService;
     }
 
-    protected double getAudioDuration(String filePath) throws IOException {
+    /**
+     * @param fileKey storage key of the file when it is a stored song, so the probe is cached by it
+     */
+    protected double getAudioDuration(String filePath, String fileKey) throws IOException {
         try {
-            FFmpegProbeResult probeResult = ffprobe.probe(filePath);
-            if (probeResult.getFormat() != null) {
-                return probeResult.getFormat().duration;
-            }
-
-            if (probeResult.getStreams() != null) {
-                for (FFmpegStream stream : probeResult.getStreams()) {
-                    if ("audio".equals(stream.codec_type.toString())) {
-                        return stream.duration;
-                    }
-                }
-            }
-
-            LOGGER.warn("Could not determine duration for file: {}", filePath);
-            return 0.0;
-
+            return probeService.probe(Path.of(filePath), fileKey).durationSeconds();
         } catch (Exception e) {
             LOGGER.error("Error getting audio duration for {}: {}", filePath, e.getMessage());
             throw new IOException("Failed to get audio duration", e);
         }
     }
 
-    protected Uni<WavFile> convertToWav(String inputPath) {
-        return Uni.createFrom().item(() -> {
-            if (inputPath == null) {
-                throw new IllegalArgumentException("Input path cannot be null");
-            }
-            File inputFile = new File(inputPath);
-
-            try {
-                if (inputPath.toLowerCase().endsWith(".wav")) {
-                    try (AudioInputStream ais = AudioSystem.getAudioInputStream(inputFile)) {
-                        AudioFormat format = ais.getFormat();
-                        long frames = ais.getFrameLength();
-                        double duration = (double) frames / format.getFrameRate();
-                        return new WavFile(inputFile, duration);
-                    }
-                }
-
-                String outputPath = inputPath + "_tmp.wav";
-                ProcessBuilder pb = new ProcessBuilder(
-                        ffmpegPath, "-y",
-                        "-i", inputPath,
-                        "-ar", "44100",
-                        "-ac", "2",
-                        "-sample_fmt", "s16",
-                        outputPath
-                );
-
-                int exitCode = pb.inheritIO().start().waitFor();
-                if (exitCode != 0) {
-                    throw new IOException("FFmpeg failed with exit code " + exitCode);
-                }
-
-                File outputFile = new File(outputPath);
-                try (AudioInputStream ais = AudioSystem.getAudioInputStream(outputFile)) {
-                    AudioFormat format = ais.getFormat();
-                    long frames = ais.getFrameLength();
-                    double duration = (double) frames / format.getFrameRate();
-                    return new WavFile(outputFile, duration);
-                }
-            } catch (IOException | UnsupportedAudioFileException | InterruptedException e) {
-                throw new RuntimeException("Failed to convert to wav: " + inputPath, e);
-            }
-        }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    /**
+     * The end of the message's scene is the latest its content may start on air.
+     */
+    static Instant sceneDeadline(SongQueueMessageDTO message) {
+        Long deadline = message.getSceneDeadlineTimestamp();
+        return deadline != null ? Instant.ofEpochMilli(deadline) : null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,26 @@
+package com.semantyca.aivox.service.manipulation.mixing.strategy;
+
+import com.semantyca.aivox.service.manipulation.mixing.handler.AudioMixingHandler;
+import com.semantyca.mixpla.dto.queue.livestream.SongQueueMessageDTO;
+import com.semantyca.mixpla.model.cnst.MergingType;
+import com.semantyca.mixpla.model.stream.IStream;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+@ApplicationScoped
+public class FillerJingleStrategy implements IMergingStrategy {
+
+    @Inject
+    AudioMixingHandler handler;
+
+    @Override
+    public MergingType type() {
+        return MergingType.FILLER_JINGLE;
+    }
+
+    @Override
+    public Uni<Boolean> handle(IStream stream, SongQueueMessageDTO message) {
+        return handler.handleFillerJingle(stream, message);
+    }
+}
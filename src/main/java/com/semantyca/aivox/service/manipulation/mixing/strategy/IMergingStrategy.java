@@ -0,0 +1,29 @@
+package com.semantyca.aivox.service.manipulation.mixing.strategy;
+
+import com.semantyca.mixpla.dto.queue.livestream.SongQueueMessageDTO;
+import com.semantyca.mixpla.model.cnst.MergingType;
+import com.semantyca.mixpla.model.stream.IStream;
+import io.smallrye.mutiny.Uni;
+
+import java.util.Set;
+
+/**
+ * Turns one queue message into playlist items for a stream. Implementations are application scoped
+ * beans and are picked up by {@link MergingStrategyRegistry}, so a new merging type only needs a new bean.
+ */
+public interface IMergingStrategy {
+
+    /**
+     * The type metrics are reported under.
+     */
+    MergingType type();
+
+    /**
+     * Older types handled the same way as {@link #type()}.
+     */
+    default Set<MergingType> aliases() {
+        return Set.of();
+    }
+
+    Uni<Boolean> handle(IStream stream, SongQueueMessageDTO message);
+}
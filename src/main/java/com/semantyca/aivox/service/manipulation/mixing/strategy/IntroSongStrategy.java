@@ -0,0 +1,34 @@
+package com.semantyca.aivox.service.manipulation.mixing.strategy;
+
+import com.semantyca.aivox.service.manipulation.mixing.handler.IntroSongHandler;
+import com.semantyca.mixpla.dto.queue.livestream.SongQueueMessageDTO;
+import com.semantyca.mixpla.model.cnst.MergingType;
+import com.semantyca.mixpla.model.stream.IStream;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.Set;
+
+//keeping JIC
+@ApplicationScoped
+public class IntroSongStrategy implements IMergingStrategy {
+
+    @Inject
+    IntroSongHandler handler;
+
+    @Override
+    public MergingType type() {
+        return MergingType.INTRO_SONG;
+    }
+
+    @Override
+    public Set<MergingType> aliases() {
+        return Set.of(MergingType.LISTENER_INTRO_SONG);
+    }
+
+    @Override
+    public Uni<Boolean> handle(IStream stream, SongQueueMessageDTO message) {
+        return handler.handle(stream, message);
+    }
+}
@@ -0,0 +1,99 @@
+package com.semantyca.aivox.service.manipulation.mixing.strategy;
+
+import com.semantyca.aivox.messaging.MetricPublisher;
+import com.semantyca.mixpla.dto.queue.livestream.SongQueueMessageDTO;
+import com.semantyca.mixpla.dto.queue.metric.MetricEventType;
+import com.semantyca.mixpla.model.cnst.MergingType;
+import com.semantyca.mixpla.model.stream.IStream;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Any;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * All {@link IMergingStrategy} beans keyed by merging type. The strategies and the handlers behind them
+ * are created once at startup and shared by every message; each strategy gets its own counters.
+ */
+@ApplicationScoped
+public class MergingStrategyRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MergingStrategyRegistry.class);
+
+    private final MetricPublisher metricPublisher;
+    private final Map<MergingType, IMergingStrategy> strategies = new EnumMap<>(MergingType.class);
+    private final Map<MergingType, StrategyStats> stats = new EnumMap<>(MergingType.class);
+
+    @Inject
+    public MergingStrategyRegistry(@Any Instance<IMergingStrategy> beans, MetricPublisher metricPublisher) {
+        this.metricPublisher = metricPublisher;
+        for (IMergingStrategy strategy : beans) {
+            register(strategy.type(), strategy);
+            strategy.aliases().forEach(alias -> register(alias, strategy));
+            stats.put(strategy.type(), new StrategyStats());
+        }
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        LOGGER.info("Merging strategies ready for {}", strategies.keySet());
+    }
+
+    private void register(MergingType type, IMergingStrategy strategy) {
+        IMergingStrategy previous = strategies.putIfAbsent(type, strategy);
+        if (previous != null) {
+            throw new IllegalStateException("Merging type " + type + " is handled by both "
+                    + previous.getClass().getSimpleName() + " and " + strategy.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * @return the strategy for {@code type}, or null if the type is not supported
+     */
+    public IMergingStrategy get(MergingType type) {
+        return type == null ? null : strategies.get(type);
+    }
+
+    /**
+     * Resolves the stream and runs the strategy on it. Duration is measured from subscription and
+     * includes the stream lookup.
+     */
+    public Uni<Boolean> execute(IMergingStrategy strategy, Uni<IStream> stream, SongQueueMessageDTO message) {
+        MergingType type = strategy.type();
+        StrategyStats counters = stats.get(type);
+        String metricName = type.name().toLowerCase(Locale.ROOT);
+        String messageId = String.valueOf(message.getMessageId());
+        String brandName = message.getBrandSlug();
+
+        return Uni.createFrom().deferred(() -> {
+            long startedAt = System.currentTimeMillis();
+            return stream.chain(s -> strategy.handle(s, message))
+                    .onItem().invoke(result -> {
+                        long durationMs = System.currentTimeMillis() - startedAt;
+                        counters.recordSuccess(durationMs);
+                        LOGGER.info("{} completed - messageId: {}, result: {}, {} ms", type, messageId, result, durationMs);
+                        metricPublisher.publishMetric(brandName, MetricEventType.INFORMATION, metricName + "_completed",
+                                Map.of("messageId", messageId, "mergingMethod", type.name(), "durationMs", durationMs), message.getTraceId());
+                    })
+                    .onFailure().invoke(err -> {
+                        counters.recordFailure(System.currentTimeMillis() - startedAt);
+                        LOGGER.error("{} failed - messageId: {}", type, messageId, err);
+                        metricPublisher.publishMetric(brandName, MetricEventType.ERROR, metricName + "_failed",
+                                Map.of("messageId", messageId, "error", String.valueOf(err.getMessage())), message.getTraceId());
+                    });
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        stats.forEach((type, counters) -> result.put(type.name(), counters.snapshot()));
+        return result;
+    }
+}
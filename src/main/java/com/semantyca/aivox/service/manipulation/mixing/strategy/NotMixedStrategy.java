@@ -0,0 +1,27 @@
+package com.semantyca.aivox.service.manipulation.mixing.strategy;
+
+import com.semantyca.aivox.service.manipulation.mixing.handler.AudioMixingHandler;
+import com.semantyca.mixpla.dto.queue.livestream.SongQueueMessageDTO;
+import com.semantyca.mixpla.model.cnst.ConcatenationType;
+import com.semantyca.mixpla.model.cnst.MergingType;
+import com.semantyca.mixpla.model.stream.IStream;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+@ApplicationScoped
+public class NotMixedStrategy implements IMergingStrategy {
+
+    @Inject
+    AudioMixingHandler handler;
+
+    @Override
+    public MergingType type() {
+        return MergingType.NOT_MIXED;
+    }
+
+    @Override
+    public Uni<Boolean> handle(IStream stream, SongQueueMessageDTO message) {
+        return handler.handleConcatenationAndFeed(stream, message, ConcatenationType.DIRECT_CONCAT);
+    }
+}
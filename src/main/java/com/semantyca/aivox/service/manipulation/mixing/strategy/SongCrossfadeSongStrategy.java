@@ -0,0 +1,35 @@
+package com.semantyca.aivox.service.manipulation.mixing.strategy;
+
+import com.semantyca.aivox.service.manipulation.mixing.handler.AudioMixingHandler;
+import com.semantyca.mixpla.dto.queue.livestream.SongQueueMessageDTO;
+import com.semantyca.mixpla.model.cnst.ConcatenationType;
+import com.semantyca.mixpla.model.cnst.MergingType;
+import com.semantyca.mixpla.model.stream.IStream;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+@ApplicationScoped
+public class SongCrossfadeSongStrategy implements IMergingStrategy {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SongCrossfadeSongStrategy.class);
+    private static final ConcatenationType[] CONCATENATION_TYPES = ConcatenationType.values();
+
+    @Inject
+    AudioMixingHandler handler;
+
+    @Override
+    public MergingType type() {
+        return MergingType.SONG_CROSSFADE_SONG;
+    }
+
+    @Override
+    public Uni<Boolean> handle(IStream stream, SongQueueMessageDTO message) {
+        ConcatenationType concatType = CONCATENATION_TYPES[ThreadLocalRandom.current().nextInt(CONCATENATION_TYPES.length)];
+        LOGGER.debug("Selected concatenation type: {}", concatType);
+        return handler.handleConcatenationAndFeed(stream, message, concatType);
+    }
+}
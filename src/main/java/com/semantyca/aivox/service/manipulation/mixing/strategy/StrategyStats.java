@@ -0,0 +1,61 @@
+package com.semantyca.aivox.service.manipulation.mixing.strategy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one merging strategy. Latency goes into fixed buckets, so recording is lock free and
+ * the memory does not grow with the number of messages.
+ */
+final class StrategyStats {
+    // upper bounds in ms, the last bucket takes everything slower
+    private static final long[] BOUNDS_MS = {250, 500, 1_000, 2_500, 5_000, 10_000, 30_000, 60_000};
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalMs = new LongAdder();
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MS.length + 1];
+
+    StrategyStats() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void recordSuccess(long durationMs) {
+        completed.increment();
+        record(durationMs);
+    }
+
+    void recordFailure(long durationMs) {
+        failed.increment();
+        record(durationMs);
+    }
+
+    private void record(long durationMs) {
+        totalMs.add(durationMs);
+        int i = 0;
+        while (i < BOUNDS_MS.length && durationMs > BOUNDS_MS[i]) {
+            i++;
+        }
+        buckets[i].increment();
+    }
+
+    Map<String, Object> snapshot() {
+        long count = completed.sum() + failed.sum();
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < BOUNDS_MS.length; i++) {
+            histogram.put("le_" + BOUNDS_MS[i], buckets[i].sum());
+        }
+        histogram.put("inf", buckets[BOUNDS_MS.length].sum());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", count);
+        result.put("completed", completed.sum());
+        result.put("failed", failed.sum());
+        result.put("avgMs", count == 0 ? 0 : totalMs.sum() / count);
+        result.put("latencyMs", histogram);
+        return result;
+    }
+}
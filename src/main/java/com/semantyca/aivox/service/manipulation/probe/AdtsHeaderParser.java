@@ -0,0 +1,43 @@
+package com.semantyca.aivox.service.manipulation.probe;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Raw AAC in ADTS framing; every raw data block carries 1024 samples.
+ */
+class AdtsHeaderParser implements IAudioHeaderParser {
+    private static final int[] SAMPLE_RATES = {
+            96000, 88200, 64000, 48000, 44100, 32000, 24000, 22050, 16000, 12000, 11025, 8000, 7350
+    };
+
+    @Override
+    public AudioInfo parse(ByteBuffer file) {
+        int limit = file.limit();
+        int pos = Mp3HeaderParser.skipId3v2(file);
+        if (!isAdts(file, pos)) {
+            return null;
+        }
+        int rateIndex = (file.get(pos + 2) >> 2) & 0xF;
+        if (rateIndex >= SAMPLE_RATES.length) {
+            return null;
+        }
+        int sampleRate = SAMPLE_RATES[rateIndex];
+        int channels = ((file.get(pos + 2) & 1) << 2) | ((file.get(pos + 3) >> 6) & 3);
+
+        long samples = 0;
+        while (pos + 7 <= limit && isAdts(file, pos)) {
+            int frameLength = ((file.get(pos + 3) & 3) << 11) | ((file.get(pos + 4) & 0xFF) << 3) | ((file.get(pos + 5) & 0xE0) >> 5);
+            if (frameLength < 7) {
+                break;
+            }
+            samples += 1024L * ((file.get(pos + 6) & 3) + 1);
+            pos += frameLength;
+        }
+        return new AudioInfo((double) samples / sampleRate, sampleRate, channels, "aac");
+    }
+
+    private static boolean isAdts(ByteBuffer file, int pos) {
+        // 12-bit sync, layer must be 00
+        return pos + 7 <= file.limit() && (file.get(pos) & 0xFF) == 0xFF && (file.get(pos + 1) & 0xF6) == 0xF0;
+    }
+}
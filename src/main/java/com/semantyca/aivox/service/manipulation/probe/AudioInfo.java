@@ -0,0 +1,16 @@
+package com.semantyca.aivox.service.manipulation.probe;
+
+/**
+ * Duration and stream format of an audio file, as read from its headers or from ffprobe.
+ */
+public record AudioInfo(double durationSeconds, int sampleRate, int channels, String format) {
+
+    String encode() {
+        return durationSeconds + "|" + sampleRate + "|" + channels + "|" + format;
+    }
+
+    static AudioInfo decode(String value) {
+        String[] parts = value.split("\\|", 4);
+        return new AudioInfo(Double.parseDouble(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), parts[3]);
+    }
+}
@@ -0,0 +1,258 @@
+package com.semantyca.aivox.service.manipulation.probe;
+
+import com.semantyca.aivox.config.AivoxConfig;
+import com.semantyca.aivox.service.manipulation.FFmpegProvider;
+import io.quarkus.runtime.ShutdownEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import net.bramp.ffmpeg.probe.FFmpegProbeResult;
+import net.bramp.ffmpeg.probe.FFmpegStream;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.HTreeMap;
+import org.mapdb.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Duration/format lookup for audio files. Headers are parsed in Java (WAV, MP3, ADTS, MP4); ffprobe is
+ * only spawned for formats none of the parsers recognise. Results are cached in memory and in a MapDB
+ * file under the temp directory, keyed by storage file key or by a fingerprint of the file content.
+ * Cue points are analyzed here but stored with the catalog, see {@link #analyzeCues(Path)}.
+ */
+@ApplicationScoped
+public class AudioProbeService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AudioProbeService.class);
+    private static final int MEMORY_CACHE_SIZE = 4096;
+    private static final int FINGERPRINT_CHUNK = 64 * 1024;
+
+    private final List<IAudioHeaderParser> parsers = List.of(
+            new WavHeaderParser(), new Mp4HeaderParser(), new AdtsHeaderParser(), new Mp3HeaderParser());
+    private final Map<String, AudioInfo> memoryCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, AudioInfo> eldest) {
+                    return size() > MEMORY_CACHE_SIZE;
+                }
+            });
+    private final AtomicLong nativeProbes = new AtomicLong();
+    private final AtomicLong ffprobeSpawns = new AtomicLong();
+    private final AtomicLong cueAnalyses = new AtomicLong();
+    private final FFmpegProvider ffmpegProvider;
+    private DB db;
+    private HTreeMap<String, String> persistentCache;
+
+    @Inject
+    public AudioProbeService(AivoxConfig config, FFmpegProvider ffmpegProvider) {
+        this.ffmpegProvider = ffmpegProvider;
+        Path dbFile = Paths.get(config.path().temp(), "probe-cache.db");
+        try {
+            Files.createDirectories(dbFile.getParent());
+            openPersistentCache(dbFile);
+        } catch (Exception e) {
+            LOGGER.warn("Probe cache at {} is unusable, recreating: {}", dbFile, e.getMessage());
+            try {
+                Files.deleteIfExists(dbFile);
+                openPersistentCache(dbFile);
+            } catch (Exception retry) {
+                LOGGER.error("Probe cache disabled, memory cache only", retry);
+            }
+        }
+    }
+
+    public double durationSeconds(Path path) throws IOException {
+        return probe(path, null).durationSeconds();
+    }
+
+    /**
+     * Like {@link #durationSeconds(Path)}, but a known catalogue length is returned as is, without reading
+     * the file at all.
+     *
+     * @param fileKey     storage key of the file if known; otherwise the content fingerprint is used
+     * @param knownLength the fragment's catalogue length, or null
+     */
+    public double durationSeconds(Path path, String fileKey, Duration knownLength) throws IOException {
+        if (knownLength != null && !knownLength.isZero()) {
+            return knownLength.toMillis() / 1000.0;
+        }
+        return probe(path, fileKey).durationSeconds();
+    }
+
+    /**
+     * @param fileKey storage key of the file if known; otherwise the content fingerprint is used
+     */
+    public AudioInfo probe(Path path, String fileKey) throws IOException {
+        String key = fileKey != null ? "key:" + fileKey : fingerprint(path);
+        AudioInfo cached = cached(key);
+        if (cached != null) {
+            return cached;
+        }
+        AudioInfo info = parseHeaders(path);
+        if (info == null) {
+            info = ffprobe(path);
+        }
+        store(key, info);
+        return info;
+    }
+
+    public long getNativeProbes() {
+        return nativeProbes.get();
+    }
+
+    public long getFfprobeSpawns() {
+        return ffprobeSpawns.get();
+    }
+
+    public long getCueAnalyses() {
+        return cueAnalyses.get();
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (db != null && !db.isClosed()) {
+            db.close();
+        }
+    }
+
+    private AudioInfo parseHeaders(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() == 0 || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            for (IAudioHeaderParser parser : parsers) {
+                try {
+                    AudioInfo info = parser.parse(buffer);
+                    if (info != null && info.durationSeconds() > 0) {
+                        nativeProbes.incrementAndGet();
+                        return info;
+                    }
+                } catch (IndexOutOfBoundsException e) {
+                    // truncated or mislabelled file, let the next parser or ffprobe decide
+                    LOGGER.debug("{} failed on {}: {}", parser.getClass().getSimpleName(), path, e.getMessage());
+                }
+            }
+        }
+        return null;
+    }
+
+    private AudioInfo ffprobe(Path path) throws IOException {
+        long spawns = ffprobeSpawns.incrementAndGet();
+        LOGGER.info("No native parser for {}, spawning ffprobe (total spawns: {})", path.getFileName(), spawns);
+        FFmpegProbeResult result = ffmpegProvider.getFFprobe().probe(path.toString());
+        double duration = result.getFormat() != null ? result.getFormat().duration : 0.0;
+        int sampleRate = 0;
+        int channels = 0;
+        if (result.getStreams() != null) {
+            for (FFmpegStream stream : result.getStreams()) {
+                if ("audio".equalsIgnoreCase(String.valueOf(stream.codec_type))) {
+                    sampleRate = stream.sample_rate;
+                    channels = stream.channels;
+                    if (duration <= 0) {
+                        duration = stream.duration;
+                    }
+                    break;
+                }
+            }
+        }
+        String format = result.getFormat() != null ? result.getFormat().format_name : "unknown";
+        return new AudioInfo(duration, sampleRate, channels, format);
+    }
+
+    /**
+     * Leading/trailing silence and fade-out start of the file, from one decode through ffmpeg. Nothing is
+     * cached; callers store the result with the catalog entry.
+     */
+    public CuePoints analyzeCues(Path path) throws IOException {
+        long analyses = cueAnalyses.incrementAndGet();
+        LOGGER.debug("Analyzing cue points of {} (total analyses: {})", path.getFileName(), analyses);
+        Process process = new ProcessBuilder(
+                ffmpegProvider.getFFmpeg().getPath(), "-v", "error",
+                "-i", path.toString(),
+                "-ac", "1",
+                "-ar", String.valueOf(CueAnalyzer.SAMPLE_RATE),
+                "-f", "s16le", "-")
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try (InputStream pcm = process.getInputStream()) {
+            CuePoints cues = CueAnalyzer.analyze(pcm);
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("FFmpeg failed with exit code " + exitCode + " decoding " + path);
+            }
+            return cues;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while analyzing " + path, e);
+        } finally {
+            process.destroy();
+        }
+    }
+
+    private AudioInfo cached(String key) {
+        AudioInfo info = memoryCache.get(key);
+        if (info == null && persistentCache != null) {
+            String stored = persistentCache.get(key);
+            if (stored != null) {
+                info = AudioInfo.decode(stored);
+                memoryCache.put(key, info);
+            }
+        }
+        return info;
+    }
+
+    private void store(String key, AudioInfo info) {
+        memoryCache.put(key, info);
+        if (persistentCache != null) {
+            persistentCache.put(key, info.encode());
+        }
+    }
+
+    /**
+     * Size plus SHA-1 of the first and last 64 KB; cheap enough to compute on every lookup.
+     */
+    public static String fingerprint(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            ByteBuffer chunk = ByteBuffer.allocate(FINGERPRINT_CHUNK);
+            channel.read(chunk, 0);
+            digest.update(chunk.flip());
+            if (size > FINGERPRINT_CHUNK) {
+                chunk.clear();
+                channel.read(chunk, Math.max(FINGERPRINT_CHUNK, size - FINGERPRINT_CHUNK));
+                digest.update(chunk.flip());
+            }
+            return "sha:" + size + ":" + HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void openPersistentCache(Path dbFile) {
+        db = DBMaker.fileDB(dbFile.toFile())
+                .fileMmapEnableIfSupported()
+                .closeOnJvmShutdown()
+                .make();
+        persistentCache = db.hashMap("probe", Serializer.STRING, Serializer.STRING).createOrOpen();
+    }
+}
@@ -0,0 +1,102 @@
+package com.semantyca.aivox.service.manipulation.probe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Finds cue points in a mono s16le PCM stream. The stream is read once in small windows, only one
+ * level value per window is kept, so memory does not depend on the track length.
+ */
+final class CueAnalyzer {
+    static final int SAMPLE_RATE = 11025;
+    // same threshold silenceremove used when trimming with areverse
+    private static final double SILENCE_DB = -40.0;
+    // how far below the body level a window has to be to count as fade-out or intro
+    private static final double FADE_DROP_DB = 6.0;
+    private static final int WINDOW_SAMPLES = SAMPLE_RATE / 20;
+    // level for fade/intro detection is averaged over one second to ignore beats and pauses
+    private static final int SMOOTHING_WINDOWS = 20;
+
+    private CueAnalyzer() {
+    }
+
+    static CuePoints analyze(InputStream pcm) throws IOException {
+        float[] energy = new float[1024];
+        int windows = 0;
+        long samples = 0;
+        byte[] buffer = new byte[WINDOW_SAMPLES * 2];
+        int read;
+        // readNBytes only returns a short window at the end of the stream
+        while ((read = pcm.readNBytes(buffer, 0, buffer.length)) > 1) {
+            int count = read / 2;
+            double sum = 0;
+            for (int i = 0; i < count * 2; i += 2) {
+                short sample = (short) ((buffer[i + 1] << 8) | (buffer[i] & 0xFF));
+                sum += (double) sample * sample;
+            }
+            if (windows == energy.length) {
+                energy = Arrays.copyOf(energy, windows * 2);
+            }
+            energy[windows++] = (float) (sum / count);
+            samples += count;
+        }
+        return fromEnergy(energy, windows, (double) WINDOW_SAMPLES / SAMPLE_RATE, (double) samples / SAMPLE_RATE);
+    }
+
+    private static CuePoints fromEnergy(float[] energy, int windows, double windowSeconds, double duration) {
+        double silence = fromDb(SILENCE_DB);
+        int first = 0;
+        while (first < windows && energy[first] < silence) {
+            first++;
+        }
+        if (first == windows) {
+            return new CuePoints(0, duration, duration, 0, duration);
+        }
+        int last = windows - 1;
+        while (last > first && energy[last] < silence) {
+            last--;
+        }
+
+        double body = 0;
+        for (int i = first; i <= last; i++) {
+            body += energy[i];
+        }
+        double threshold = body / (last - first + 1) * Math.pow(10, -FADE_DROP_DB / 10);
+
+        float[] smoothed = smooth(energy, first, last);
+        int introEnd = first;
+        while (introEnd < last && smoothed[introEnd - first] < threshold) {
+            introEnd++;
+        }
+        int fadeStart = last;
+        while (fadeStart > introEnd && smoothed[fadeStart - first] < threshold) {
+            fadeStart--;
+        }
+
+        return new CuePoints(first * windowSeconds, Math.min(duration, (last + 1) * windowSeconds),
+                Math.min(duration, (fadeStart + 1) * windowSeconds), introEnd * windowSeconds, duration);
+    }
+
+    private static float[] smooth(float[] energy, int first, int last) {
+        int n = last - first + 1;
+        double[] prefix = new double[n + 1];
+        for (int i = 0; i < n; i++) {
+            prefix[i + 1] = prefix[i] + energy[first + i];
+        }
+        // centred average so fades are not detected late
+        float[] smoothed = new float[n];
+        int half = SMOOTHING_WINDOWS / 2;
+        for (int i = 0; i < n; i++) {
+            int from = Math.max(0, i - half);
+            int to = Math.min(n, i + half + 1);
+            smoothed[i] = (float) ((prefix[to] - prefix[from]) / (to - from));
+        }
+        return smoothed;
+    }
+
+    private static double fromDb(double db) {
+        // energies are squared 16-bit samples, so full scale is 32768^2
+        return Math.pow(10, db / 10) * 32768.0 * 32768.0;
+    }
+}
@@ -0,0 +1,16 @@
+package com.semantyca.aivox.service.manipulation.probe;
+
+/**
+ * Cue points of a track, in seconds from the start of the file.
+ *
+ * @param cueIn        end of leading silence
+ * @param cueOut       start of trailing silence
+ * @param fadeOutStart where the track drops clearly below its body level before {@code cueOut}
+ * @param introEnd     where the track first reaches its body level after {@code cueIn}
+ */
+public record CuePoints(double cueIn, double cueOut, double fadeOutStart, double introEnd, double duration) {
+
+    public double fadeOutLength() {
+        return cueOut - fadeOutStart;
+    }
+}
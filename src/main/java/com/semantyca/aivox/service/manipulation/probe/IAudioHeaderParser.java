@@ -0,0 +1,12 @@
+package com.semantyca.aivox.service.manipulation.probe;
+
+import java.nio.ByteBuffer;
+
+interface IAudioHeaderParser {
+
+    /**
+     * @return parsed info, or null when the buffer is not in this parser's format
+     */
+    AudioInfo parse(ByteBuffer file);
+
+}
@@ -0,0 +1,125 @@
+package com.semantyca.aivox.service.manipulation.probe;
+
+import java.nio.ByteBuffer;
+
+/**
+ * MPEG audio: uses the Xing/Info or VBRI frame count when present, otherwise walks every frame header.
+ */
+class Mp3HeaderParser implements IAudioHeaderParser {
+    private static final int XING = 0x58696e67;
+    private static final int INFO = 0x496e666f;
+    private static final int VBRI = 0x56425249;
+    private static final int MAX_SYNC_SEARCH = 64 * 1024;
+
+    private static final int[][] BITRATES = {
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},   // V1 L1
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},      // V1 L2
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},       // V1 L3
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},      // V2 L1
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}            // V2 L2/L3
+    };
+    private static final int[][] SAMPLE_RATES = {
+            {44100, 48000, 32000},   // MPEG 1
+            {22050, 24000, 16000},   // MPEG 2
+            {11025, 12000, 8000}     // MPEG 2.5
+    };
+
+    @Override
+    public AudioInfo parse(ByteBuffer file) {
+        int limit = file.limit();
+        int start = skipId3v2(file);
+        int first = findFrame(file, start, Math.min(limit, start + MAX_SYNC_SEARCH));
+        if (first < 0) {
+            return null;
+        }
+        Frame frame = Frame.read(file.getInt(first));
+        int sideInfo = frame.version == 0 ? (frame.channels == 1 ? 17 : 32) : (frame.channels == 1 ? 9 : 17);
+
+        int xing = first + 4 + sideInfo;
+        if (xing + 12 <= limit && (file.getInt(xing) == XING || file.getInt(xing) == INFO) && (file.getInt(xing + 4) & 1) != 0) {
+            return info(file.getInt(xing + 8) & 0xFFFFFFFFL, frame);
+        }
+        int vbri = first + 36;
+        if (vbri + 18 <= limit && file.getInt(vbri) == VBRI) {
+            return info(file.getInt(vbri + 14) & 0xFFFFFFFFL, frame);
+        }
+
+        long frames = 0;
+        int pos = first;
+        while (pos + 4 <= limit) {
+            Frame next = Frame.read(file.getInt(pos));
+            if (next == null || next.length <= 0) {
+                break;
+            }
+            frames++;
+            pos += next.length;
+        }
+        return info(frames, frame);
+    }
+
+    private static AudioInfo info(long frames, Frame frame) {
+        return new AudioInfo((double) frames * frame.samplesPerFrame / frame.sampleRate, frame.sampleRate, frame.channels, "mp3");
+    }
+
+    static int skipId3v2(ByteBuffer file) {
+        if (file.limit() >= 10 && file.get(0) == 'I' && file.get(1) == 'D' && file.get(2) == '3') {
+            int size = (file.get(6) & 0x7F) << 21 | (file.get(7) & 0x7F) << 14 | (file.get(8) & 0x7F) << 7 | (file.get(9) & 0x7F);
+            boolean footer = (file.get(5) & 0x10) != 0;
+            return 10 + size + (footer ? 10 : 0);
+        }
+        return 0;
+    }
+
+    private static int findFrame(ByteBuffer file, int from, int to) {
+        for (int pos = from; pos + 4 <= to; pos++) {
+            if ((file.get(pos) & 0xFF) == 0xFF && (file.get(pos + 1) & 0xE0) == 0xE0) {
+                Frame frame = Frame.read(file.getInt(pos));
+                // a real frame is followed by another sync word (or the end of file)
+                if (frame != null && frame.length > 0) {
+                    int next = pos + frame.length;
+                    if (next + 2 > file.limit() || ((file.get(next) & 0xFF) == 0xFF && (file.get(next + 1) & 0xE0) == 0xE0)) {
+                        return pos;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private record Frame(int version, int sampleRate, int channels, int samplesPerFrame, int length) {
+
+        // version: 0 = MPEG 1, 1 = MPEG 2, 2 = MPEG 2.5
+        static Frame read(int header) {
+            if ((header >>> 21) != 0x7FF) {
+                return null;
+            }
+            int versionBits = (header >>> 19) & 3;
+            int layerBits = (header >>> 17) & 3;
+            int bitrateIndex = (header >>> 12) & 0xF;
+            int rateIndex = (header >>> 10) & 3;
+            if (versionBits == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || rateIndex == 3) {
+                return null;
+            }
+            int version = versionBits == 3 ? 0 : versionBits == 2 ? 1 : 2;
+            int layer = 4 - layerBits;
+            int padding = (header >>> 9) & 1;
+            int channels = ((header >>> 6) & 3) == 3 ? 1 : 2;
+            int sampleRate = SAMPLE_RATES[version][rateIndex];
+            int bitrate = BITRATES[version == 0 ? layer - 1 : (layer == 1 ? 3 : 4)][bitrateIndex] * 1000;
+
+            int samples;
+            int length;
+            if (layer == 1) {
+                samples = 384;
+                length = (12 * bitrate / sampleRate + padding) * 4;
+            } else if (layer == 3 && version != 0) {
+                samples = 576;
+                length = 72 * bitrate / sampleRate + padding;
+            } else {
+                samples = 1152;
+                length = 144 * bitrate / sampleRate + padding;
+            }
+            return new Frame(version, sampleRate, channels, samples, length);
+        }
+    }
+}
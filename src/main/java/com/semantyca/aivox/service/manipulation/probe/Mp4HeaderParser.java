@@ -0,0 +1,91 @@
+package com.semantyca.aivox.service.manipulation.probe;
+
+import java.nio.ByteBuffer;
+
+/**
+ * MP4/M4A: duration from the movie header, format from the first mp4a sample entry.
+ */
+class Mp4HeaderParser implements IAudioHeaderParser {
+    private static final int FTYP = box("ftyp");
+    private static final int MOOV = box("moov");
+    private static final int MVHD = box("mvhd");
+    private static final int STSD = box("stsd");
+    private static final int MP4A = box("mp4a");
+    private static final int[] CONTAINERS = {box("trak"), box("mdia"), box("minf"), box("stbl")};
+
+    @Override
+    public AudioInfo parse(ByteBuffer file) {
+        if (file.limit() < 8 || file.getInt(4) != FTYP) {
+            return null;
+        }
+        Mp4Info info = new Mp4Info();
+        walk(file, 0, file.limit(), info);
+        if (info.timescale == 0) {
+            return null;
+        }
+        return new AudioInfo((double) info.duration / info.timescale, info.sampleRate, info.channels, "m4a");
+    }
+
+    private void walk(ByteBuffer file, int from, int to, Mp4Info info) {
+        int pos = from;
+        while (pos + 8 <= to) {
+            long size = file.getInt(pos) & 0xFFFFFFFFL;
+            int type = file.getInt(pos + 4);
+            int header = 8;
+            if (size == 1 && pos + 16 <= to) {
+                size = file.getLong(pos + 8);
+                header = 16;
+            } else if (size == 0) {
+                size = to - pos;
+            }
+            if (size < header || pos + size > to) {
+                return;
+            }
+            int body = pos + header;
+            int end = (int) (pos + size);
+            if (type == MOOV || isContainer(type)) {
+                walk(file, body, end, info);
+            } else if (type == MVHD) {
+                readMovieHeader(file, body, info);
+            } else if (type == STSD && info.channels == 0) {
+                // version/flags + entry count, then the first sample entry box
+                int entry = body + 8;
+                if (entry + 36 <= end && file.getInt(entry + 4) == MP4A) {
+                    info.channels = file.getShort(entry + 24) & 0xFFFF;
+                    info.sampleRate = (file.getInt(entry + 32) >>> 16);
+                }
+            }
+            pos = end;
+        }
+    }
+
+    private static void readMovieHeader(ByteBuffer file, int body, Mp4Info info) {
+        if (file.get(body) == 1) {
+            info.timescale = file.getInt(body + 20) & 0xFFFFFFFFL;
+            info.duration = file.getLong(body + 24);
+        } else {
+            info.timescale = file.getInt(body + 12) & 0xFFFFFFFFL;
+            info.duration = file.getInt(body + 16) & 0xFFFFFFFFL;
+        }
+    }
+
+    private static boolean isContainer(int type) {
+        for (int container : CONTAINERS) {
+            if (container == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int box(String type) {
+        return (type.charAt(0) << 24) | (type.charAt(1) << 16) | (type.charAt(2) << 8) | type.charAt(3);
+    }
+
+    private static class Mp4Info {
+        long timescale;
+        long duration;
+        int sampleRate;
+        int channels;
+    }
+}
@@ -0,0 +1,44 @@
+package com.semantyca.aivox.service.manipulation.probe;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+class WavHeaderParser implements IAudioHeaderParser {
+    private static final int RIFF = 0x46464952;
+    private static final int WAVE = 0x45564157;
+    private static final int FMT = 0x20746d66;
+    private static final int DATA = 0x61746164;
+
+    @Override
+    public AudioInfo parse(ByteBuffer file) {
+        ByteBuffer buf = file.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int limit = buf.limit();
+        if (limit < 12 || buf.getInt(0) != RIFF || buf.getInt(8) != WAVE) {
+            return null;
+        }
+        int channels = 0;
+        int sampleRate = 0;
+        long byteRate = 0;
+        int pos = 12;
+        while (pos + 8 <= limit) {
+            int id = buf.getInt(pos);
+            long size = buf.getInt(pos + 4) & 0xFFFFFFFFL;
+            int body = pos + 8;
+            if (id == FMT && body + 16 <= limit) {
+                channels = buf.getShort(body + 2) & 0xFFFF;
+                sampleRate = buf.getInt(body + 4);
+                byteRate = buf.getInt(body + 8) & 0xFFFFFFFFL;
+            } else if (id == DATA) {
+                if (byteRate == 0) {
+                    return null;
+                }
+                // streamed writers leave the size at 0 or 0xFFFFFFFF, the data then runs to the end of file
+                long available = limit - body;
+                long dataSize = size == 0 || size > available ? available : size;
+                return new AudioInfo((double) dataSize / byteRate, sampleRate, channels, "wav");
+            }
+            pos = body + (int) Math.min(size + (size & 1), Integer.MAX_VALUE - body);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,12 @@
+package com.semantyca.aivox.service.playlist;
+
+/**
+ * Outcome of rendering a mix into the ready queue, so callers can tell a full queue, where retrying
+ * another way is pointless, from a render that produced nothing.
+ */
+public enum EnqueueStatus {
+    ADDED,
+    // rejected up front, or the queue filled up while the mix was rendering
+    QUEUE_FULL,
+    NOTHING_RENDERED
+}
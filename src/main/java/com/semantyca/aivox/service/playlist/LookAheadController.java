@@ -0,0 +1,133 @@
+package com.semantyca.aivox.service.playlist;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Decides how many fragments a station should start preparing so that the audio ready ahead of the
+ * live edge covers the target plus the time a new fragment takes to prepare (p95 over recent fills).
+ * Held audio is capped in bytes, so a slow station cannot pile up memory.
+ */
+final class LookAheadController {
+    private static final int LATENCY_WINDOW = 64;
+    // until the first fill is measured
+    private static final long DEFAULT_PREPARATION_MILLIS = 30_000;
+    private static final double DEFAULT_FRAGMENT_SECONDS = 180;
+
+    private final int targetSeconds;
+    private final long maxBytes;
+
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencyCount;
+    private int latencyNext;
+    private double averageFragmentSeconds = DEFAULT_FRAGMENT_SECONDS;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final DoubleAdder waitingSecondsAired = new DoubleAdder();
+    private volatile double secondsAhead;
+    private volatile long bytesAhead;
+
+    LookAheadController(int targetSeconds, long maxBytes) {
+        this.targetSeconds = targetSeconds;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param readySeconds audio queued in the playlist and the streamer's pending segments
+     * @param readyBytes   what the ready queue occupies in memory, all bitrates
+     * @param room         free slots in the ready queue
+     * @return how many fills to start now, already counted as in flight
+     */
+    int plan(double readySeconds, long readyBytes, int room) {
+        secondsAhead = readySeconds;
+        bytesAhead = readyBytes;
+        if (readyBytes >= maxBytes) {
+            return 0;
+        }
+        double fragmentSeconds;
+        synchronized (latencies) {
+            fragmentSeconds = averageFragmentSeconds;
+        }
+        double required = targetSeconds + preparationP95Millis() / 1000.0;
+        double deficit = required - readySeconds - inFlight.get() * fragmentSeconds;
+        if (deficit <= 0) {
+            return 0;
+        }
+        int fills = Math.min((int) Math.ceil(deficit / fragmentSeconds), room - inFlight.get());
+        if (fills <= 0) {
+            return 0;
+        }
+        inFlight.addAndGet(fills);
+        return fills;
+    }
+
+    /**
+     * @param preparationMillis download and segmenting time of the fill, only kept if it was added
+     */
+    void fillFinished(boolean added, long preparationMillis) {
+        inFlight.decrementAndGet();
+        if (!added) {
+            return;
+        }
+        synchronized (latencies) {
+            latencies[latencyNext] = preparationMillis;
+            latencyNext = (latencyNext + 1) % LATENCY_WINDOW;
+            latencyCount = Math.min(latencyCount + 1, LATENCY_WINDOW);
+        }
+    }
+
+    /**
+     * Fills started by {@link #plan} that were dropped before they began.
+     */
+    void fillsCancelled(int count) {
+        inFlight.addAndGet(-count);
+    }
+
+    void fragmentReady(double seconds) {
+        if (seconds <= 0) {
+            return;
+        }
+        synchronized (latencies) {
+            averageFragmentSeconds = averageFragmentSeconds * 0.8 + seconds * 0.2;
+        }
+    }
+
+    void recordWaitingAired(double seconds) {
+        waitingSecondsAired.add(seconds);
+    }
+
+    long preparationP95Millis() {
+        long[] window;
+        synchronized (latencies) {
+            if (latencyCount == 0) {
+                return DEFAULT_PREPARATION_MILLIS;
+            }
+            window = Arrays.copyOf(latencies, latencyCount);
+        }
+        Arrays.sort(window);
+        return window[(int) Math.ceil(window.length * 0.95) - 1];
+    }
+
+    double getSecondsAhead() {
+        return secondsAhead;
+    }
+
+    double getWaitingSecondsAired() {
+        return waitingSecondsAired.sum();
+    }
+
+    Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("secondsAhead", Math.round(secondsAhead));
+        result.put("bytesAhead", bytesAhead);
+        result.put("targetSeconds", targetSeconds);
+        result.put("maxBytes", maxBytes);
+        result.put("preparationP95Ms", preparationP95Millis());
+        result.put("fillsInFlight", inFlight.get());
+        result.put("waitingSecondsAired", Math.round(waitingSecondsAired.sum()));
+        return result;
+    }
+}
@@ -3,15 +3,19 @@ package com.semantyca.aivox.service.playlist;
 import com.semantyca.aivox.config.AivoxConfig;
 import com.semantyca.aivox.messaging.MetricPublisher;
 import com.semantyca.aivox.repository.soundfragment.SoundFragmentFileHandler;
-import com.semantyca.aivox.service.SoundFragmentBrandService;
+import com.semantyca.aivox.service.catalog.BrandCatalogService;
 import com.semantyca.aivox.service.manipulation.AudioSegmentationService;
+import com.semantyca.aivox.service.manipulation.mixing.MixGraph;
+import com.semantyca.aivox.service.scratch.ScratchFile;
+import com.semantyca.aivox.service.scratch.ScratchStorage;
+import com.semantyca.aivox.service.soundfragment.PlayRecorder;
+import com.semantyca.aivox.streaming.HlsSegment;
 import com.semantyca.aivox.streaming.LiveSoundFragment;
 import com.semantyca.aivox.streaming.SongMetadata;
 import com.semantyca.aivox.streaming.WaitingAudioProvider;
 import com.semantyca.core.model.FileMetadata;
 import com.semantyca.mixpla.dto.queue.metric.MetricEventDTO;
 import com.semantyca.mixpla.dto.queue.metric.MetricEventType;
-import com.semantyca.mixpla.model.cnst.PlaylistItemType;
 import com.semantyca.mixpla.model.soundfragment.SoundFragment;
 import com.semantyca.mixpla.model.stream.IPlaylistManager;
 import io.smallrye.mutiny.Multi;
@@ -19,49 +23,53 @@ import io.smallrye.mutiny.Uni;
 import io.vertx.mutiny.core.Vertx;
 import org.jboss.logging.Logger;
 
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.stream.Collectors;
 
 public class PlaylistManager implements IPlaylistManager {
 
     private static final Logger LOGGER = Logger.getLogger(PlaylistManager.class);
-    private static final int SELF_MANAGING_INTERVAL_SECONDS = 30;
-    private static final int REGULAR_BUFFER_MAX = 2;
-    private static final int TRIGGER_SELF_MANAGING = 2;
+    private static final int LOOK_AHEAD_INTERVAL_SECONDS = 5;
     private static final int PROCESSED_QUEUE_MAX_SIZE = 2;
-    private static final long STARVING_FEED_COOLDOWN_MILLIS = 20_000L;
 
     private final ReadWriteLock slicedFragmentsLock = new ReentrantReadWriteLock();
-    private final PlaylistState playlistState = new PlaylistState();
-    private ScheduledExecutorService scheduler;
-    private volatile long lastStarvingFeedTime = 0;
+    private final PlaylistState playlistState;
+    // stamped on prioritized content that came without a deadline, null leaves it to wait as long as it takes
+    private final Duration prioritizedShelfLife;
+    private final LookAheadController lookAhead;
+    private volatile ScheduledExecutorService scheduler;
+    private volatile double pendingSeconds;
     private volatile boolean initialized = false;
-    private volatile boolean initializing = false;
+    // claimed by the one feed tick that starts the lazy initialization, released only if it fails
+    private final AtomicBoolean initializing = new AtomicBoolean();
 
     private final String brand;
     private final Vertx vertx;
     private final WaitingAudioProvider waitingAudioProvider;
-    private final SoundFragmentBrandService soundFragmentBrandService;
+    private final BrandCatalogService catalogService;
+    private final PlayRecorder playRecorder;
     private final SoundFragmentFileHandler fileHandler;
     private final AudioSegmentationService segmentationService;
     private final MetricPublisher metricPublisher;
-    private final Path tempDir;
+    private final ScratchStorage scratchStorage;
     private final UUID brandId;
     private final String serviceId;
     private final List<Long> bitRates;
@@ -72,185 +80,243 @@ public class PlaylistManager implements IPlaylistManager {
                            AivoxConfig aivoxConfig,
                            Vertx vertx,
                            WaitingAudioProvider waitingAudioProvider,
-                           SoundFragmentBrandService soundFragmentBrandService,
+                           BrandCatalogService catalogService,
+                           PlayRecorder playRecorder,
                            SoundFragmentFileHandler fileHandler,
                            AudioSegmentationService segmentationService,
+                           ScratchStorage scratchStorage,
                            MetricPublisher metricPublisher) {
         this.brand = brand;
         this.brandId = brandId;
         this.bitRates = bitRates;
         this.vertx = vertx;
         this.waitingAudioProvider = waitingAudioProvider;
-        this.soundFragmentBrandService = soundFragmentBrandService;
+        this.catalogService = catalogService;
+        this.playRecorder = playRecorder;
         this.fileHandler = fileHandler;
         this.segmentationService = segmentationService;
         this.metricPublisher = metricPublisher;
         this.serviceId = "aivox";
-        this.tempDir = Paths.get(aivoxConfig.path().temp());
-        try {
-            Files.createDirectories(tempDir);
-            LOGGER.infof("%s Temp directory initialized: %s", logPrefix(), tempDir);
-        } catch (Exception e) {
-            LOGGER.errorf(e, "%s Failed to create temp directory: %s", logPrefix(), e.getMessage());
-            throw new RuntimeException("Cannot initialize temp directory", e);
-        }
+        this.scratchStorage = scratchStorage;
+        this.playlistState = new PlaylistState(aivoxConfig.readyQueue());
+        this.prioritizedShelfLife = aivoxConfig.readyQueue().prioritizedShelfLife().orElse(null);
+        this.lookAhead = new LookAheadController(aivoxConfig.lookAhead().targetSeconds(),
+                aivoxConfig.lookAhead().maxMb() * 1024 * 1024);
     }
 
-    private Uni<Void> ensureInitialized() {
-        if (initialized) {
-            return Uni.createFrom().voidItem();
+    private void ensureInitialized() {
+        if (initialized || !initializing.compareAndSet(false, true)) {
+            return;
         }
-        if (initializing) {
-            LOGGER.debugf("%s Already initializing, waiting...", logPrefix());
-            return Uni.createFrom().voidItem();
-        }
-        initializing = true;
-        return initialize();
+        initialize().subscribe().with(
+                v -> LOGGER.debugf("%s Initialized", logPrefix()),
+                e -> LOGGER.errorf(e, "%s Initialization failed", logPrefix()));
     }
 
+    /**
+     * Does not wait for the waiting audio: it is loaded once at startup and, if not ready yet, the
+     * streamer simply gets nothing until the first fragment is sliced.
+     */
     public Uni<Void> initialize() {
         LOGGER.infof("%s INITIALIZING, Using brand ID: %s", logPrefix(), brandId);
 
         startScheduler();
 
-        return Uni.createFrom().voidItem()
-                .onItem().transformToUni(v -> {
-                    waitingAudioProvider.initialize();
-
-                    List<Uni<LiveSoundFragment>> unis = new ArrayList<>();
-                    if (waitingAudioProvider.isWaitingAudioAvailable()) {
-                        unis.add(waitingAudioProvider.createWaitingFragment());
+        return Uni.createFrom().item(waitingAudioProvider::createWaitingFragment)
+                .onItem().invoke(fragment -> {
+                    if (fragment != null) {
+                        playlistState.readyQueue.offer(fragment);
                     } else {
                         LOGGER.warnf("%s Waiting audio NOT available", logPrefix());
                     }
-
-                    if (unis.isEmpty()) {
-                        initialized = true;
-                        initializing = false;
-                        return Uni.createFrom().voidItem();
-                    }
-
-                    return Uni.join().all(unis).andFailFast()
-                            .onItem().invoke(fragments -> {
-                                fragments.stream()
-                                        .filter(Objects::nonNull)
-                                        .forEach(playlistState.regularQueue::offer);
-                                initialized = true;
-                                initializing = false;
-                                publishQueueMetricsSafe(null);
-                            })
-                            .replaceWithVoid();
+                    initialized = true;
+                    publishQueueMetricsSafe(null);
                 })
                 .onFailure().invoke(e -> {
-                    initializing = false;
+                    initializing.set(false);
                     LOGGER.errorf(e, "%s ========== INITIALIZATION FAILED ==========", logPrefix());
-                });
+                })
+                .replaceWithVoid();
     }
 
-    private void startScheduler() {
+    /**
+     * One look-ahead scheduler per manager: a retried initialization keeps the running one, only a
+     * scheduler stopped by {@link #shutdown()} is replaced.
+     */
+    private synchronized void startScheduler() {
+        if (scheduler != null && !scheduler.isShutdown()) {
+            return;
+        }
         scheduler = Executors.newScheduledThreadPool(1);
         scheduler.scheduleAtFixedRate(() -> {
             try {
-                if (playlistState.regularQueue.size() <= TRIGGER_SELF_MANAGING && false) {
-                    int count = Math.random() < 0.5 ? 1 : 2;
-                    LOGGER.infof("%s Self-managing: feeding %d frag(s)", logPrefix(), count);
-                    vertx.runOnContext(() -> feedFragments(count, false)
-                            .subscribe().with(
-                                    v -> LOGGER.debugf("%s Scheduler feed complete", logPrefix()),
-                                    e -> LOGGER.errorf(e, "%s Scheduler feed failed", logPrefix())
-                            ));
-                }
+                controlLookAhead();
             } catch (Exception e) {
                 LOGGER.errorf(e, "%s Error during maintenance", logPrefix());
             }
-        }, 10, SELF_MANAGING_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }, 10, LOOK_AHEAD_INTERVAL_SECONDS, TimeUnit.SECONDS);
 
     }
 
+    /**
+     * Called by the streamer on every feed tick with the audio it has pulled but not yet published.
+     */
+    public void reportPendingSeconds(double seconds) {
+        pendingSeconds = seconds;
+    }
 
-    private Uni<Void> feedFragments(int maxQuantity, boolean useCooldown) {
-        if (useCooldown) {
-            long now = System.currentTimeMillis();
-            long elapsed = now - lastStarvingFeedTime;
-            if (elapsed < STARVING_FEED_COOLDOWN_MILLIS) {
-                LOGGER.debugf("%s Cooldown active, %d ms remaining",
-                        logPrefix(), STARVING_FEED_COOLDOWN_MILLIS - elapsed);
-                return Uni.createFrom().voidItem();
-            }
-            lastStarvingFeedTime = now;
+    /**
+     * Starts as many regular fills as needed to keep the target of ready audio plus the measured
+     * preparation time ahead of the live edge, within the memory cap.
+     */
+    private void controlLookAhead() {
+        dropMissedDeadlines();
+        ReadyFragmentQueue ready = playlistState.readyQueue;
+        double readySeconds = pendingSeconds;
+        long readyBytes = 0;
+        for (LiveSoundFragment fragment : ready.fragments()) {
+            readySeconds += fragmentSeconds(fragment);
+            readyBytes += fragmentBytes(fragment);
         }
+        int fills = lookAhead.plan(readySeconds, readyBytes, ready.regularCapacity() - ready.regularSize());
+        if (fills == 0) {
+            return;
+        }
+        LOGGER.infof("%s Look-ahead %.0fs, preparation p95 %d ms: feeding %d fragment(s)",
+                logPrefix(), readySeconds, lookAhead.preparationP95Millis(), fills);
+        vertx.runOnContext(() -> feedFragments(fills)
+                .subscribe().with(
+                        v -> LOGGER.debugf("%s Look-ahead feed complete", logPrefix()),
+                        e -> LOGGER.errorf(e, "%s Look-ahead feed failed", logPrefix())
+                ));
+    }
 
-        int remaining = Math.max(0, REGULAR_BUFFER_MAX - playlistState.regularQueue.size());
-        if (remaining == 0) {
-            LOGGER.debugf("%s Regular buffer at cap (%d), skipping feed", logPrefix(), REGULAR_BUFFER_MAX);
-            return Uni.createFrom().voidItem();
+    private void requestLookAhead() {
+        ScheduledExecutorService current = scheduler;
+        if (current == null || current.isShutdown()) {
+            return;
+        }
+        try {
+            current.execute(this::controlLookAhead);
+        } catch (RejectedExecutionException e) {
+            LOGGER.debugf("%s Scheduler stopped, look-ahead request dropped", logPrefix());
         }
+    }
 
-        int quantityToFetch = Math.min(remaining, maxQuantity);
-        LOGGER.infof("%s Feeding %d fragment(s)", logPrefix(), quantityToFetch);
+    /**
+     * @param quantity fills already reserved by the controller
+     */
+    private Uni<Void> feedFragments(int quantity) {
+        LOGGER.infof("%s Feeding %d fragment(s)", logPrefix(), quantity);
 
-        List<UUID> excludedIds = new ArrayList<>();
-        excludedIds.addAll(playlistState.regularQueue.stream()
-                .map(LiveSoundFragment::getSoundFragmentId).toList());
-        excludedIds.addAll(playlistState.prioritizedQueue.stream()
-                .map(LiveSoundFragment::getSoundFragmentId).toList());
+        ReadyFragmentQueue ready = playlistState.readyQueue;
+        Set<UUID> excludedIds = new HashSet<>();
+        ready.fragments().forEach(f -> excludedIds.add(f.getSoundFragmentId()));
         slicedFragmentsLock.readLock().lock();
         try {
-            excludedIds.addAll(playlistState.obtainedByHlsPlaylist.stream()
-                    .map(LiveSoundFragment::getSoundFragmentId).toList());
+            playlistState.obtainedByHlsPlaylist.forEach(f -> excludedIds.add(f.getSoundFragmentId()));
         } finally {
             slicedFragmentsLock.readLock().unlock();
         }
 
-        LOGGER.infof("%s Calling getBrandSongs for brandId: %s", logPrefix(), brandId);
+        AtomicInteger settled = new AtomicInteger();
 
-        return soundFragmentBrandService.getBrandSongs(brandId, PlaylistItemType.SONG)
+        return catalogService.pick(brandId, quantity, excludedIds)
                 .ifNoItem().after(Duration.ofSeconds(60)).fail()
                 .onFailure().invoke(e ->
-                        LOGGER.errorf(e, "%s getBrandSongs failed: %s", logPrefix(), e.getClass().getName()))
+                        LOGGER.errorf(e, "%s Catalog pick failed: %s", logPrefix(), e.getClass().getName()))
                 .onFailure().recoverWithItem(Collections.emptyList())
                 .onItem().invoke(songs ->
-                        LOGGER.infof("%s Retrieved %d songs from database", logPrefix(), songs == null ? 0 : songs.size()))
-                .onItem().transform(songs -> {
-                    List<SoundFragment> available = songs.stream()
-                            .filter(f -> !excludedIds.contains(f.getId()))
-                            .collect(Collectors.toList());
-                    //LOGGER.infof("%s After filtering: %d available songs", logPrefix(), available.size());
-                    Collections.shuffle(available);
-                    return available;
-                })
-                .onItem().transformToMulti(Multi.createFrom()::iterable)
-                .select().first(quantityToFetch)
-                .onItem().transformToUniAndMerge(fragment -> {
-                    try {
-                        return addFragmentToQueue(fragment, 10);
-                    } catch (Exception e) {
-                        LOGGER.warnf("%s Skipping fragment %s: %s", logPrefix(), fragment.getId(), e.getMessage());
-                        return Uni.createFrom().item(false);
-                    }
-                })
+                        LOGGER.infof("%s Picked %d songs from catalog", logPrefix(), songs.size()))
+                .onItem().transformToMulti(songs -> resolveFiles(songs)
+                        .onItem().transformToMulti(files -> Multi.createFrom().iterable(songs)
+                                .onItem().transformToUniAndMerge(fragment ->
+                                        fill(fragment, files.get(fragment.getId()), settled))))
                 .collect().asList()
                 .onItem().invoke(processed -> {
+                    lookAhead.fillsCancelled(quantity - settled.get());
                     long successCount = processed.stream().filter(b -> b != null && b).count();
                     //LOGGER.infof("%s Completed: %d/%d fragments added successfully", logPrefix(), successCount, processed.size());
                 })
+                .onFailure().invoke(() -> lookAhead.fillsCancelled(quantity - settled.get()))
                 .replaceWithVoid();
     }
 
+    /**
+     * Files of the whole pick in one batch; a fragment missing from the result is looked up on its own.
+     */
+    private Uni<Map<UUID, FileMetadata>> resolveFiles(List<SoundFragment> songs) {
+        return fileHandler.getFirstFiles(songs.stream().map(SoundFragment::getId).toList())
+                .ifNoItem().after(Duration.ofSeconds(30)).fail()
+                .onFailure().invoke(e -> LOGGER.warnf("%s Batch file lookup failed, resolving per fragment: %s",
+                        logPrefix(), e.getMessage()))
+                .onFailure().recoverWithItem(Map.of());
+    }
+
+    private Uni<Boolean> fill(SoundFragment fragment, FileMetadata file, AtomicInteger settled) {
+        long startedAt = System.currentTimeMillis();
+        return Uni.createFrom().deferred(() -> addFragmentToQueue(fragment, ReadyFragmentQueue.REGULAR_PRIORITY, null, null, file, false))
+                .onFailure().recoverWithItem(e -> {
+                    LOGGER.warnf("%s Skipping fragment %s: %s", logPrefix(), fragment.getId(), e.getMessage());
+                    return false;
+                })
+                .invoke(added -> {
+                    settled.incrementAndGet();
+                    lookAhead.fillFinished(added, System.currentTimeMillis() - startedAt);
+                });
+    }
+
     public Uni<Boolean> addFragmentToQueue(SoundFragment soundFragment, int priority) {
         return addFragmentToQueue(soundFragment, priority, null);
     }
 
+    /**
+     * Renders the graph straight into HLS segments in one ffmpeg run, without an intermediate mixed file.
+     *
+     * @param deadline latest start on air, e.g. the end of the scene the mix belongs to, or {@code null}
+     */
+    public Uni<EnqueueStatus> addMixToQueue(SoundFragment soundFragment, MixGraph graph, int priority, UUID traceId,
+                                            Instant deadline) {
+        if (rejectWhenFull(soundFragment, priority, traceId)) {
+            return Uni.createFrom().item(EnqueueStatus.QUEUE_FULL);
+        }
+        LiveSoundFragment liveSoundFragment = newLiveFragment(soundFragment, priority, traceId, deadline, false);
+        SongMetadata songMetadata = liveSoundFragment.getMetadata();
+        LOGGER.infof("%s Rendering %s: %s - %s", logPrefix(), graph.description(), soundFragment.getTitle(), soundFragment.getArtist());
+        return enqueueSlices(segmentationService.slice(songMetadata, graph, bitRates),
+                liveSoundFragment, songMetadata, priority, "single_pass_graph");
+    }
+
     public Uni<Boolean> addFragmentToQueue(SoundFragment soundFragment, int priority, UUID traceId) {
-        LiveSoundFragment liveSoundFragment = new LiveSoundFragment();
-        SongMetadata songMetadata = new SongMetadata(
-                soundFragment.getId(),
-                soundFragment.getTitle(),
-                soundFragment.getArtist()
-        );
-        songMetadata.setTraceId(traceId);
-        liveSoundFragment.setSoundFragmentId(soundFragment.getId());
-        liveSoundFragment.setMetadata(songMetadata);
+        return addFragmentToQueue(soundFragment, priority, traceId, null);
+    }
+
+    /**
+     * @param deadline latest start on air, e.g. the end of the scene the fragment belongs to, or {@code null}
+     */
+    public Uni<Boolean> addFragmentToQueue(SoundFragment soundFragment, int priority, UUID traceId, Instant deadline) {
+        return addFragmentToQueue(soundFragment, priority, traceId, deadline, null, false);
+    }
+
+    /**
+     * Queues the fragment ahead of everything else and has the streamer cut it into the song on air
+     * within one segment. The priority only decides which capacity the fragment counts against.
+     */
+    public Uni<Boolean> spliceFragment(SoundFragment soundFragment, int priority, UUID traceId) {
+        return addFragmentToQueue(soundFragment, priority, traceId, null, null, true);
+    }
+
+    /**
+     * @param file   the fragment's file when already resolved in a batch, otherwise {@code null}
+     * @param splice whether the streamer cuts it into the current song, see {@link #spliceFragment}
+     */
+    private Uni<Boolean> addFragmentToQueue(SoundFragment soundFragment, int priority, UUID traceId, Instant deadline,
+                                            FileMetadata file, boolean splice) {
+        if (rejectWhenFull(soundFragment, priority, traceId)) {
+            return Uni.createFrom().item(false);
+        }
+        LiveSoundFragment liveSoundFragment = newLiveFragment(soundFragment, priority, traceId, deadline, splice);
+        SongMetadata songMetadata = liveSoundFragment.getMetadata();
 
         LOGGER.infof("%s Processing fragment: %s - %s", logPrefix(), soundFragment.getTitle(), soundFragment.getArtist());
 
@@ -269,13 +335,16 @@ public class PlaylistManager implements IPlaylistManager {
             }
         }
 
-        return fileHandler.getFirstFile(soundFragment.getId())
-                .ifNoItem().after(Duration.ofSeconds(30)).fail()
-                .onFailure().recoverWithUni(ex -> {
-                    LOGGER.warnf("%s Failed to retrieve file metadata for %s: %s",
-                            logPrefix(), soundFragment.getId(), ex.getMessage());
-                    return Uni.createFrom().item((FileMetadata) null);
-                })
+        Uni<FileMetadata> lookup = file != null
+                ? Uni.createFrom().item(file)
+                : fileHandler.getFirstFile(soundFragment.getId())
+                        .ifNoItem().after(Duration.ofSeconds(30)).fail()
+                        .onFailure().recoverWithUni(ex -> {
+                            LOGGER.warnf("%s Failed to retrieve file metadata for %s: %s",
+                                    logPrefix(), soundFragment.getId(), ex.getMessage());
+                            return Uni.createFrom().item((FileMetadata) null);
+                        });
+        return lookup
                 .onItem().transformToUni(fileMetadata -> {
                     if (fileMetadata == null) {
                         LOGGER.warnf("%s No file found for fragment: %s", logPrefix(), soundFragment.getId());
@@ -293,7 +362,14 @@ public class PlaylistManager implements IPlaylistManager {
                                     "timestamp", downloadStartTime),
                             traceId);
                     
-                    return fileMetadata.materializeFileStream(tempDir.toString())
+                    String downloadDir;
+                    try {
+                        downloadDir = scratchStorage.downloadDirectory().toString();
+                    } catch (Exception e) {
+                        LOGGER.errorf(e, "%s Failed to prepare download directory", logPrefix());
+                        return Uni.createFrom().item(false);
+                    }
+                    return fileMetadata.materializeFileStream(downloadDir)
                             .ifNoItem().after(Duration.ofMinutes(5)).fail()
                             .onFailure().invoke(e -> {
                                 LOGGER.errorf(e, "%s Materialization FAILED for %s", logPrefix(), fileMetadata.getFileOriginalName());
@@ -344,6 +420,7 @@ public class PlaylistManager implements IPlaylistManager {
                                 }
                             })
                             .onItem().transformToUni(tempFile -> {
+                                ScratchFile download = scratchStorage.adopt(tempFile);
                                 //LOGGER.infof("%s Segmenting: %s", logPrefix(), songMetadata.getTitle());
                                 
                                 // TEMP METRIC - Track segmentation timing
@@ -403,48 +480,14 @@ public class PlaylistManager implements IPlaylistManager {
                                                         traceId);
                                             }
                                         })
-                                        .onItem().invoke(segments -> {
-                                            try {
-                                                Files.deleteIfExists(tempFile);
-                                            } catch (Exception e) {
-                                                LOGGER.warnf("%s Failed to delete temp file: %s", logPrefix(), tempFile);
-                                            }
-                                        })
+                                        .eventually(download::release)
                                         .onItem().transformToUni(segments -> {
                                             if (segments.isEmpty()) {
                                                 LOGGER.warnf("%s No segments for fragment: %s", logPrefix(), soundFragment.getId());
                                                 return Uni.createFrom().item(false);
                                             }
                                             liveSoundFragment.setSegments(segments);
-                                            if (priority > 9) {
-                                                playlistState.regularQueue.add(liveSoundFragment);
-                                                LOGGER.infof("%s ✓ Added to regular queue: %s - %s (%d segments)",
-                                                        logPrefix(), songMetadata.getTitle(), songMetadata.getArtist(),
-                                                        segments.values().stream().findFirst().map(ConcurrentLinkedQueue::size).orElse(0));
-                                                // TEMP METRIC - Remove after delay investigation
-                                                metricPublisher.publishMetric(brand, MetricEventType.DEBUG, "song_added_to_regular_queue",
-                                                        Map.of("songId", songMetadata.getSongId().toString(),
-                                                                "title", songMetadata.getTitle(),
-                                                                "artist", songMetadata.getArtist(),
-                                                                "queueSize", playlistState.regularQueue.size(),
-                                                                "timestamp", System.currentTimeMillis()),
-                                                        traceId);
-                                            } else {
-                                                playlistState.prioritizedQueue.add(liveSoundFragment);
-                                                LOGGER.infof("%s ✓ Added to prioritized queue: %s - %s (%d segments)",
-                                                        logPrefix(), songMetadata.getTitle(), songMetadata.getArtist(),
-                                                        segments.values().stream().findFirst().map(ConcurrentLinkedQueue::size).orElse(0));
-                                                // TEMP METRIC - Remove after delay investigation
-                                                metricPublisher.publishMetric(brand, MetricEventType.DEBUG, "song_added_to_prioritized_queue",
-                                                        Map.of("songId", songMetadata.getSongId().toString(),
-                                                                "title", songMetadata.getTitle(),
-                                                                "artist", songMetadata.getArtist(),
-                                                                "queueSize", playlistState.prioritizedQueue.size(),
-                                                                "timestamp", System.currentTimeMillis()),
-                                                        traceId);
-                                            }
-                                            publishQueueMetricsSafe(traceId);
-                                            return Uni.createFrom().item(true);
+                                            return Uni.createFrom().item(offerReady(liveSoundFragment, songMetadata, priority));
                                         });
                             })
                             .onFailure().recoverWithItem(e -> {
@@ -454,20 +497,46 @@ public class PlaylistManager implements IPlaylistManager {
                 });
     }
 
+    private LiveSoundFragment newLiveFragment(SoundFragment soundFragment, int priority, UUID traceId, Instant deadline,
+                                              boolean splice) {
+        LiveSoundFragment liveSoundFragment = new LiveSoundFragment();
+        SongMetadata songMetadata = new SongMetadata(
+                soundFragment.getId(),
+                soundFragment.getTitle(),
+                soundFragment.getArtist()
+        );
+        songMetadata.setTraceId(traceId);
+        liveSoundFragment.setSoundFragmentId(soundFragment.getId());
+        liveSoundFragment.setMetadata(songMetadata);
+        liveSoundFragment.setPriority(priority);
+        if (deadline == null && prioritizedShelfLife != null && ReadyFragmentQueue.isPrioritized(priority)) {
+            deadline = Instant.now().plus(prioritizedShelfLife);
+        }
+        liveSoundFragment.setDeadline(deadline);
+        liveSoundFragment.setSplice(splice);
+        return liveSoundFragment;
+    }
+
     private Uni<Boolean> processTempFile(Path tempPath, LiveSoundFragment liveSoundFragment, SongMetadata songMetadata, int priority) {
         LOGGER.infof("%s Segmenting temporary file: %s", logPrefix(), songMetadata.getTitle());
-        
+        return enqueueSlices(segmentationService.slice(songMetadata, tempPath, bitRates),
+                liveSoundFragment, songMetadata, priority, "pre_mixed_file")
+                .map(status -> status == EnqueueStatus.ADDED);
+    }
+
+    private Uni<EnqueueStatus> enqueueSlices(Uni<Map<Long, ConcurrentLinkedQueue<HlsSegment>>> slicing, LiveSoundFragment liveSoundFragment,
+                                       SongMetadata songMetadata, int priority, String source) {
         // TEMP METRIC - Track segmentation timing for pre-mixed files
         long segmentationStartTime = System.currentTimeMillis();
         metricPublisher.publishMetric(brand, MetricEventType.DEBUG, "segmentation_started",
                 Map.of("songId", songMetadata.getSongId().toString(),
                         "title", songMetadata.getTitle(),
                         "artist", songMetadata.getArtist(),
-                        "source", "pre_mixed_file",
+                        "source", source,
                         "timestamp", segmentationStartTime),
                 songMetadata.getTraceId());
         
-        return segmentationService.slice(songMetadata, tempPath, bitRates)
+        return slicing
                 .ifNoItem().after(Duration.ofMinutes(3)).fail()
                 .onFailure().invoke(e -> {
                     LOGGER.errorf(e, "%s Segmentation FAILED for %s", logPrefix(), songMetadata.getTitle());
@@ -482,7 +551,7 @@ public class PlaylistManager implements IPlaylistManager {
                             Map.of("songId", songMetadata.getSongId().toString(),
                                     "title", songMetadata.getTitle(),
                                     "artist", songMetadata.getArtist(),
-                                    "source", "pre_mixed_file",
+                                    "source", source,
                                     "segmentationDurationMs", segmentationDuration,
                                     "segmentationDurationSec", segmentationDuration / 1000,
                                     "isTimeout", isTimeout,
@@ -498,7 +567,7 @@ public class PlaylistManager implements IPlaylistManager {
                             Map.of("songId", songMetadata.getSongId().toString(),
                                     "title", songMetadata.getTitle(),
                                     "artist", songMetadata.getArtist(),
-                                    "source", "pre_mixed_file",
+                                    "source", source,
                                     "segmentationDurationMs", segmentationDuration,
                                     "segmentationDurationSec", segmentationDuration / 1000,
                                     "segmentCount", segments.isEmpty() ? 0 : segments.values().iterator().next().size(),
@@ -511,115 +580,210 @@ public class PlaylistManager implements IPlaylistManager {
                                 Map.of("songId", songMetadata.getSongId().toString(),
                                         "title", songMetadata.getTitle(),
                                         "artist", songMetadata.getArtist(),
-                                        "source", "pre_mixed_file",
+                                        "source", source,
                                         "segmentationDurationMs", segmentationDuration,
                                         "segmentationDurationSec", segmentationDuration / 1000,
                                         "threshold", "20 seconds"),
                                 songMetadata.getTraceId());
                     }
                 })
-                .onItem().transformToUni(segments -> {
+                .onItem().transform(segments -> {
                     if (segments.isEmpty()) {
                         LOGGER.warnf("%s No segments for fragment: %s", logPrefix(), songMetadata.getSongId());
-                        return Uni.createFrom().item(false);
+                        return EnqueueStatus.NOTHING_RENDERED;
                     }
                     liveSoundFragment.setSegments(segments);
-                    if (priority > 9) {
-                        playlistState.regularQueue.add(liveSoundFragment);
-                        LOGGER.infof("%s ✓ Added to regular queue: %s - %s (%d segments)",
-                                logPrefix(), songMetadata.getTitle(), songMetadata.getArtist(),
-                                segments.values().stream().findFirst().map(ConcurrentLinkedQueue::size).orElse(0));
-                        // TEMP METRIC - Remove after delay investigation
-                        metricPublisher.publishMetric(brand, MetricEventType.DEBUG, "song_added_to_regular_queue",
-                                Map.of("songId", songMetadata.getSongId().toString(),
-                                        "title", songMetadata.getTitle(),
-                                        "artist", songMetadata.getArtist(),
-                                        "queueSize", playlistState.regularQueue.size(),
-                                        "timestamp", System.currentTimeMillis()),
-                                songMetadata.getTraceId());
-                    } else {
-                        playlistState.prioritizedQueue.add(liveSoundFragment);
-                        LOGGER.infof("%s ✓ Added to prioritized queue: %s - %s (%d segments)",
-                                logPrefix(), songMetadata.getTitle(), songMetadata.getArtist(),
-                                segments.values().stream().findFirst().map(ConcurrentLinkedQueue::size).orElse(0));
-                        // TEMP METRIC - Remove after delay investigation
-                        metricPublisher.publishMetric(brand, MetricEventType.DEBUG, "song_added_to_prioritized_queue",
-                                Map.of("songId", songMetadata.getSongId().toString(),
-                                        "title", songMetadata.getTitle(),
-                                        "artist", songMetadata.getArtist(),
-                                        "queueSize", playlistState.prioritizedQueue.size(),
-                                        "timestamp", System.currentTimeMillis()),
-                                songMetadata.getTraceId());
-                    }
-                    publishQueueMetricsSafe(songMetadata.getTraceId());
-                    return Uni.createFrom().item(true);
+                    return offerReady(liveSoundFragment, songMetadata, priority) ? EnqueueStatus.ADDED : EnqueueStatus.QUEUE_FULL;
                 });
     }
 
+    private boolean offerReady(LiveSoundFragment liveSoundFragment, SongMetadata songMetadata, int priority) {
+        ReadyFragmentQueue ready = playlistState.readyQueue;
+        boolean prioritized = ReadyFragmentQueue.isPrioritized(priority);
+        String queueType = prioritized ? "prioritized" : "regular";
+        boolean accepted = ready.offer(liveSoundFragment);
+        if (!accepted) {
+            // filled up while this one was being sliced
+            LOGGER.warnf("%s %s queue full, dropping sliced fragment: %s - %s",
+                    logPrefix(), queueType, songMetadata.getTitle(), songMetadata.getArtist());
+            publishQueueFull(songMetadata.getSongId(), queueType, songMetadata.getTraceId());
+            return false;
+        }
+        lookAhead.fragmentReady(fragmentSeconds(liveSoundFragment));
+        LOGGER.infof("%s ✓ Added to %s queue: %s - %s (%d segments)",
+                logPrefix(), queueType, songMetadata.getTitle(), songMetadata.getArtist(),
+                liveSoundFragment.getSegments().values().stream().findFirst().map(ConcurrentLinkedQueue::size).orElse(0));
+        // TEMP METRIC - Remove after delay investigation
+        metricPublisher.publishMetric(brand, MetricEventType.DEBUG, "song_added_to_" + queueType + "_queue",
+                Map.of("songId", songMetadata.getSongId().toString(),
+                        "title", songMetadata.getTitle(),
+                        "artist", songMetadata.getArtist(),
+                        "queueSize", prioritized ? ready.prioritizedSize() : ready.regularSize(),
+                        "timestamp", System.currentTimeMillis()),
+                songMetadata.getTraceId());
+        publishQueueMetricsSafe(songMetadata.getTraceId());
+        return true;
+    }
+
+    /**
+     * Backpressure: no point downloading and slicing a fragment the ready queue cannot take.
+     */
+    private boolean rejectWhenFull(SoundFragment soundFragment, int priority, UUID traceId) {
+        if (playlistState.readyQueue.hasRoom(priority)) {
+            return false;
+        }
+        boolean prioritized = ReadyFragmentQueue.isPrioritized(priority);
+        String queueType = prioritized ? "prioritized" : "regular";
+        LOGGER.warnf("%s %s queue full, rejecting: %s - %s",
+                logPrefix(), queueType, soundFragment.getTitle(), soundFragment.getArtist());
+        publishQueueFull(soundFragment.getId(), queueType, traceId);
+        return true;
+    }
 
+    private void publishQueueFull(UUID songId, String queueType, UUID traceId) {
+        metricPublisher.publishMetric(brand, MetricEventType.WARNING, "ready_queue_full",
+                Map.of("songId", String.valueOf(songId),
+                        "queueType", queueType,
+                        "queueSize", playlistState.readyQueue.size()),
+                traceId);
+    }
+
+    /**
+     * Called from the streamer's feed tick and never blocks: returns the next ready fragment, the waiting
+     * fragment when nothing is ready, or null while the waiting audio is still loading.
+     */
     public LiveSoundFragment getNextLiveFragment() {
         if (!initialized) {
             LOGGER.infof("%s Not initialized, triggering lazy initialization", logPrefix());
-            ensureInitialized().await().indefinitely();
+            ensureInitialized();
         }
 
+        dropMissedDeadlines();
+        ReadyFragmentQueue ready = playlistState.readyQueue;
         LOGGER.debugf("%s Queues: prioritized=%d, regular=%d",
-                logPrefix(), playlistState.prioritizedQueue.size(), playlistState.regularQueue.size());
+                logPrefix(), ready.prioritizedSize(), ready.regularSize());
 
-        if (!playlistState.prioritizedQueue.isEmpty()) {
-            LiveSoundFragment next = playlistState.prioritizedQueue.poll();
-            // TEMP METRIC - Remove after delay investigation
-            if (next != null && next.getMetadata() != null) {
-                metricPublisher.publishMetric(brand, MetricEventType.DEBUG, "fragment_polled_from_queue",
-                        Map.of("songId", next.getMetadata().getSongId().toString(),
-                                "title", next.getMetadata().getTitle(),
-                                "artist", next.getMetadata().getArtist(),
-                                "queueType", "prioritized",
-                                "remainingInQueue", playlistState.prioritizedQueue.size(),
-                                "timestamp", System.currentTimeMillis()),
-                        next.getMetadata().getTraceId());
-            }
-            publishQueueMetricsSafe(next != null && next.getMetadata() != null ? next.getMetadata().getTraceId() : null);
-            moveFragmentToProcessedList(next);
-            return next;
+        LiveSoundFragment next = ready.poll();
+        if (ready.claimRefill()) {
+            signalRefill(ready);
         }
 
-        if (!playlistState.regularQueue.isEmpty()) {
-            LiveSoundFragment next = playlistState.regularQueue.poll();
+        if (next != null) {
             // TEMP METRIC - Remove after delay investigation
-            if (next != null && next.getMetadata() != null) {
+            if (next.getMetadata() != null) {
+                boolean prioritized = next.getPriority() != null && ReadyFragmentQueue.isPrioritized(next.getPriority());
                 metricPublisher.publishMetric(brand, MetricEventType.DEBUG, "fragment_polled_from_queue",
                         Map.of("songId", next.getMetadata().getSongId().toString(),
                                 "title", next.getMetadata().getTitle(),
                                 "artist", next.getMetadata().getArtist(),
-                                "queueType", "regular",
-                                "remainingInQueue", playlistState.regularQueue.size(),
+                                "queueType", prioritized ? "prioritized" : "regular",
+                                "remainingInQueue", ready.size(),
                                 "timestamp", System.currentTimeMillis()),
                         next.getMetadata().getTraceId());
             }
-            publishQueueMetricsSafe(next != null && next.getMetadata() != null ? next.getMetadata().getTraceId() : null);
+            if (isWaiting(next)) {
+                lookAhead.recordWaitingAired(fragmentSeconds(next));
+            }
+            publishQueueMetricsSafe(next.getMetadata() != null ? next.getMetadata().getTraceId() : null);
             moveFragmentToProcessedList(next);
             return next;
         }
 
-        LOGGER.warnf("%s Queues empty, triggering starving feed", logPrefix());
-        // TEMP METRIC - Remove after delay investigation
-        /*metricPublisher.publishMetric(brand, MetricEventType.DEBUG, "waiting_melody_returned",
-                Map.of("prioritizedQueueSize", playlistState.prioritizedQueue.size(),
-                        "regularQueueSize", playlistState.regularQueue.size(),
-                        "timestamp", System.currentTimeMillis()));*/
-        // Dispatch onto Vert.x event loop — never block or subscribe from caller thread
-     /*   vertx.runOnContext(() -> feedFragments(1, true)
-                .subscribe().with(
-                        v -> LOGGER.debugf("%s Starving feed complete", logPrefix()),
-                        e -> LOGGER.errorf(e, "%s Starving feed failed", logPrefix())
-                ));*/
+        LOGGER.warnf("%s Queues empty, falling back to waiting audio", logPrefix());
+        LiveSoundFragment waiting = waitingAudioProvider.createWaitingFragment();
+        if (waiting != null) {
+            lookAhead.recordWaitingAired(fragmentSeconds(waiting));
+        }
+        return waiting;
+    }
 
-        if (waitingAudioProvider.isWaitingAudioAvailable()) {
-            return waitingAudioProvider.createWaitingFragment()
-                    .await().atMost(Duration.ofSeconds(5));
+    /**
+     * Called by the streamer when a song's first segment goes live, so fragments dropped or cut before
+     * airing are not counted and spliced ones are.
+     */
+    public void recordAired(UUID songId) {
+        catalogService.recordPlay(brandId, songId);
+        playRecorder.record(brandId, songId);
+    }
+
+    /**
+     * Checked by the streamer on every feed tick, so a fragment queued with {@link #spliceFragment} is cut
+     * in within one segment.
+     *
+     * @return the splice at the head of the queue, or null
+     */
+    public LiveSoundFragment pollSpliceFragment() {
+        LiveSoundFragment splice = playlistState.readyQueue.pollSplice();
+        if (splice == null) {
+            return null;
+        }
+        LOGGER.infof("%s Fragment ready for splicing: %s", logPrefix(), splice);
+        publishQueueMetricsSafe(splice.getMetadata() != null ? splice.getMetadata().getTraceId() : null);
+        moveFragmentToProcessedList(splice);
+        return splice;
+    }
+
+    /**
+     * Drops fragments that would start on air after their deadline, given what airs before them. Runs
+     * on every poll and look-ahead tick so late content never reaches the streamer.
+     */
+    private void dropMissedDeadlines() {
+        List<LiveSoundFragment> missed = playlistState.readyQueue.removeMissed(
+                Instant.now(), pendingSeconds, PlaylistManager::fragmentSeconds);
+        for (LiveSoundFragment fragment : missed) {
+            SongMetadata metadata = fragment.getMetadata();
+            LOGGER.warnf("%s Deadline %s missed, dropping: %s", logPrefix(), fragment.getDeadline(), fragment);
+            metricPublisher.publishMetric(brand, MetricEventType.WARNING, "fragment_deadline_missed",
+                    Map.of("songId", String.valueOf(fragment.getSoundFragmentId()),
+                            "title", String.valueOf(metadata != null ? metadata.getTitle() : null),
+                            "priority", String.valueOf(fragment.getPriority()),
+                            "deadline", String.valueOf(fragment.getDeadline())),
+                    metadata != null && metadata.getTraceId() != null ? metadata.getTraceId() : UUID.randomUUID());
+        }
+        if (!missed.isEmpty()) {
+            publishQueueMetricsSafe(null);
         }
-        return null;
+    }
+
+    private static boolean isWaiting(LiveSoundFragment fragment) {
+        return fragment.getPriority() != null && fragment.getPriority() == WaitingAudioProvider.WAITING_PRIORITY;
+    }
+
+    private static double fragmentSeconds(LiveSoundFragment fragment) {
+        return fragment.getSegments().values().stream().findFirst()
+                .map(segments -> segments.stream().mapToInt(HlsSegment::getDuration).sum())
+                .orElse(0);
+    }
+
+    private static long fragmentBytes(LiveSoundFragment fragment) {
+        long bytes = 0;
+        for (ConcurrentLinkedQueue<HlsSegment> segments : fragment.getSegments().values()) {
+            for (HlsSegment segment : segments) {
+                bytes += segment.getData() != null ? segment.getData().length : 0;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Per-station gauges: seconds of audio ready ahead of the live edge and waiting audio aired so far.
+     */
+    public Map<String, Object> getLookAheadStats() {
+        return lookAhead.snapshot();
+    }
+
+    /**
+     * Raised once per drop below the low-water mark: the agent is told through the metric and the
+     * look-ahead controller runs right away instead of on its next tick. The streamer never waits for either.
+     */
+    private void signalRefill(ReadyFragmentQueue ready) {
+        LOGGER.infof("%s Ready queue low (prioritized=%d, regular=%d), requesting refill",
+                logPrefix(), ready.prioritizedSize(), ready.regularSize());
+        metricPublisher.publishMetric(brand, MetricEventType.INFORMATION, "ready_queue_low",
+                Map.of("prioritizedQueueSize", ready.prioritizedSize(),
+                        "regularQueueSize", ready.regularSize(),
+                        "timestamp", System.currentTimeMillis()));
+        requestLookAhead();
     }
 
     private void moveFragmentToProcessedList(LiveSoundFragment fragment) {
@@ -661,8 +825,7 @@ public class PlaylistManager implements IPlaylistManager {
         } finally {
             slicedFragmentsLock.writeLock().unlock();
         }
-        playlistState.regularQueue.clear();
-        playlistState.prioritizedQueue.clear();
+        playlistState.readyQueue.clear();
         publishQueueMetricsSafe(null);
         LOGGER.infof("%s Shutdown complete.", logPrefix());
     }
@@ -678,8 +841,10 @@ public class PlaylistManager implements IPlaylistManager {
     private void publishQueueMetrics(UUID traceId) {
         Map<String, Object> payload = new HashMap<>();
         payload.put("brandId", brandId.toString());
-        payload.put("regularQueueSongs", getUniqueSongMetadata(playlistState.regularQueue));
-        payload.put("prioritizedQueueSongs", getUniqueSongMetadata(playlistState.prioritizedQueue));
+        payload.put("regularQueueSongs", getUniqueSongMetadata(playlistState.readyQueue.regular()));
+        payload.put("prioritizedQueueSongs", getUniqueSongMetadata(playlistState.readyQueue.prioritized()));
+        payload.put("secondsAhead", Math.round(lookAhead.getSecondsAhead()));
+        payload.put("waitingSecondsAired", Math.round(lookAhead.getWaitingSecondsAired()));
         
         MetricEventDTO event = MetricEventDTO.of(
                 serviceId,
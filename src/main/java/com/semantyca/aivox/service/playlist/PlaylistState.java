@@ -1,13 +1,22 @@
 package com.semantyca.aivox.service.playlist;
 
+import com.semantyca.aivox.config.AivoxConfig;
 import com.semantyca.aivox.streaming.LiveSoundFragment;
 
 import java.util.LinkedList;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 // Inner class to maintain brand-specific state
 class PlaylistState {
+    // hard ceiling, the look-ahead controller normally keeps it lower
+    private static final int REGULAR_CAPACITY = 6;
+    private static final int REFILL_LOW_WATER = 1;
+
     final LinkedList<LiveSoundFragment> obtainedByHlsPlaylist = new LinkedList<>();
-    final ConcurrentLinkedQueue<LiveSoundFragment> regularQueue = new ConcurrentLinkedQueue<>();
-    final ConcurrentLinkedQueue<LiveSoundFragment> prioritizedQueue = new ConcurrentLinkedQueue<>();
+    final ReadyFragmentQueue readyQueue;
+
+    PlaylistState(AivoxConfig.ReadyQueue config) {
+        // the agent's content is never turned away unless a capacity is configured
+        this.readyQueue = new ReadyFragmentQueue(config.prioritizedCapacity().orElse(Integer.MAX_VALUE),
+                REGULAR_CAPACITY, REFILL_LOW_WATER);
+    }
 }
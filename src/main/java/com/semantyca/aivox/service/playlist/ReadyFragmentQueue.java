@@ -0,0 +1,204 @@
+package com.semantyca.aivox.service.playlist;
+
+import com.semantyca.aivox.streaming.LiveSoundFragment;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Sliced fragments waiting to be streamed: splices first, then by priority, deadline and arrival. Neither
+ * side ever waits: producers get {@code false} when their class is full, the streamer polls and gets
+ * null when nothing is ready. When the queue runs low exactly one caller of {@link #claimRefill()} is
+ * told to ask for more, until the next fragment arrives.
+ * <p>
+ * Prioritized (priority up to 9) and regular fragments share the ordering but have separate capacities,
+ * so background fills can never crowd out the agent's content.
+ */
+final class ReadyFragmentQueue {
+    static final int REGULAR_PRIORITY = 10;
+
+    private final ConcurrentSkipListMap<Key, LiveSoundFragment> queue = new ConcurrentSkipListMap<>();
+    private final AtomicLong arrivals = new AtomicLong();
+    private final Budget prioritized;
+    private final Budget regular;
+    private final int lowWater;
+    private final AtomicBoolean refillClaimed = new AtomicBoolean();
+
+    ReadyFragmentQueue(int prioritizedCapacity, int regularCapacity, int lowWater) {
+        this.prioritized = new Budget(prioritizedCapacity);
+        this.regular = new Budget(regularCapacity);
+        this.lowWater = lowWater;
+    }
+
+    static boolean isPrioritized(int priority) {
+        return priority < REGULAR_PRIORITY;
+    }
+
+    boolean offer(LiveSoundFragment fragment) {
+        int priority = priorityOf(fragment);
+        if (!budgetOf(priority).reserve()) {
+            return false;
+        }
+        Instant deadline = fragment.getDeadline();
+        queue.put(new Key(fragment.isSplice(), priority, deadline != null ? deadline.toEpochMilli() : Long.MAX_VALUE,
+                arrivals.getAndIncrement()), fragment);
+        refillClaimed.set(false);
+        return true;
+    }
+
+    LiveSoundFragment poll() {
+        Map.Entry<Key, LiveSoundFragment> head = queue.pollFirstEntry();
+        if (head == null) {
+            return null;
+        }
+        budgetOf(head.getKey().priority).free();
+        return head.getValue();
+    }
+
+    /**
+     * @return the head if it is marked as a splice, otherwise null and the queue is left as is
+     */
+    LiveSoundFragment pollSplice() {
+        Map.Entry<Key, LiveSoundFragment> head = queue.firstEntry();
+        if (head == null || !head.getKey().splice || !queue.remove(head.getKey(), head.getValue())) {
+            return null;
+        }
+        budgetOf(head.getKey().priority).free();
+        return head.getValue();
+    }
+
+    /**
+     * Walks the queue in air order and removes what would start after its deadline.
+     *
+     * @param now           current time
+     * @param secondsBefore audio that airs before the head of this queue
+     * @param seconds       duration of a fragment
+     * @return the removed fragments
+     */
+    List<LiveSoundFragment> removeMissed(Instant now, double secondsBefore, ToDoubleFunction<LiveSoundFragment> seconds) {
+        List<LiveSoundFragment> missed = new ArrayList<>();
+        long startsAtMillis = now.toEpochMilli() + (long) (secondsBefore * 1000);
+        for (Map.Entry<Key, LiveSoundFragment> entry : queue.entrySet()) {
+            Key key = entry.getKey();
+            if (startsAtMillis > key.deadlineMillis) {
+                if (queue.remove(key, entry.getValue())) {
+                    budgetOf(key.priority).free();
+                    missed.add(entry.getValue());
+                }
+                continue;
+            }
+            startsAtMillis += (long) (seconds.applyAsDouble(entry.getValue()) * 1000);
+        }
+        return missed;
+    }
+
+    boolean hasRoom(int priority) {
+        return budgetOf(priority).hasRoom();
+    }
+
+    /**
+     * @return true for the first caller after the queue dropped below the low-water mark
+     */
+    boolean claimRefill() {
+        return size() < lowWater && refillClaimed.compareAndSet(false, true);
+    }
+
+    int prioritizedSize() {
+        return prioritized.size.get();
+    }
+
+    int regularSize() {
+        return regular.size.get();
+    }
+
+    int regularCapacity() {
+        return regular.capacity;
+    }
+
+    int size() {
+        return prioritizedSize() + regularSize();
+    }
+
+    boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    /**
+     * @return the queued fragments in air order, a weakly consistent view
+     */
+    Collection<LiveSoundFragment> fragments() {
+        return queue.values();
+    }
+
+    List<LiveSoundFragment> prioritized() {
+        return queue.values().stream().filter(f -> isPrioritized(priorityOf(f))).toList();
+    }
+
+    List<LiveSoundFragment> regular() {
+        return queue.values().stream().filter(f -> !isPrioritized(priorityOf(f))).toList();
+    }
+
+    void clear() {
+        while (poll() != null) {
+            // drain so the budgets stay in step
+        }
+    }
+
+    private Budget budgetOf(int priority) {
+        return isPrioritized(priority) ? prioritized : regular;
+    }
+
+    private static int priorityOf(LiveSoundFragment fragment) {
+        return fragment.getPriority() != null ? fragment.getPriority() : REGULAR_PRIORITY;
+    }
+
+    private record Key(boolean splice, int priority, long deadlineMillis, long arrival) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key other) {
+            int result = Boolean.compare(other.splice, splice);
+            if (result == 0) {
+                result = Integer.compare(priority, other.priority);
+            }
+            if (result == 0) {
+                result = Long.compare(deadlineMillis, other.deadlineMillis);
+            }
+            return result != 0 ? result : Long.compare(arrival, other.arrival);
+        }
+    }
+
+    private static final class Budget {
+        private final AtomicInteger size = new AtomicInteger();
+        private final int capacity;
+
+        Budget(int capacity) {
+            this.capacity = capacity;
+        }
+
+        boolean reserve() {
+            int current;
+            do {
+                current = size.get();
+                if (current >= capacity) {
+                    return false;
+                }
+            } while (!size.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void free() {
+            size.decrementAndGet();
+        }
+
+        boolean hasRoom() {
+            return size.get() < capacity;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.semantyca.aivox.service.readmodel;
+
+import com.semantyca.aivox.repository.AiAgentRepository;
+import com.semantyca.aivox.repository.brand.BrandRepository;
+import com.semantyca.core.model.user.SuperUser;
+import com.semantyca.mixpla.model.aiagent.AiAgent;
+import com.semantyca.mixpla.model.brand.Brand;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.pgclient.pubsub.PgSubscriber;
+import io.vertx.pgclient.PgConnectOptions;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Every active brand and AI agent, already mapped, so hot-path lookups are hash map reads instead of a query
+ * and a round of JSON deserialization. Loaded in full at startup; row triggers, created by the schema owner,
+ * {@code NOTIFY} on every change and the affected row alone is reloaded. Notifications are lost while the listening connection is down, so
+ * a cheap fingerprint of the tables is compared every minute and any difference reloads everything.
+ * Lookups that miss fall through to the database, so a cache that failed to load only costs the old queries.
+ */
+@ApplicationScoped
+public class ReadModelCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadModelCache.class);
+    static final String BRAND_CHANNEL = "aivox_brand_changed";
+    static final String AGENT_CHANNEL = "aivox_ai_agent_changed";
+    // bounds staleness for a change that neither notified nor moved the fingerprint
+    private static final Duration MAX_AGE = Duration.ofMinutes(30);
+    private static final Duration STARTUP_LOAD_TIMEOUT = Duration.ofSeconds(30);
+
+    private final BrandRepository brandRepository;
+    private final AiAgentRepository agentRepository;
+    private final Vertx vertx;
+    private final Optional<String> url;
+    private final Optional<String> username;
+    private final Optional<String> password;
+
+    private volatile Map<String, Brand> brandsBySlug = new ConcurrentHashMap<>();
+    private volatile Map<UUID, AiAgent> agents = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private volatile String fingerprint;
+    private volatile long loadedAt;
+    private volatile boolean listening;
+    private PgSubscriber subscriber;
+    // bumped per notification, so a reload that overlapped one knows its snapshot may be older than the change
+    private final AtomicLong changes = new AtomicLong();
+    // bumped whenever the cached rows change, for views derived from them
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder notifications = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+
+    @Inject
+    public ReadModelCache(BrandRepository brandRepository, AiAgentRepository agentRepository, Vertx vertx,
+                          @ConfigProperty(name = "quarkus.datasource.reactive.url") Optional<String> url,
+                          @ConfigProperty(name = "quarkus.datasource.username") Optional<String> username,
+                          @ConfigProperty(name = "quarkus.datasource.password") Optional<String> password) {
+        this.brandRepository = brandRepository;
+        this.agentRepository = agentRepository;
+        this.vertx = vertx;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        try {
+            // listen before loading, so nothing committed in between goes unnoticed
+            listen().chain(this::reload).await().atMost(STARTUP_LOAD_TIMEOUT);
+            LOGGER.info("Read model loaded: {} brands, {} agents, listening: {}", brandsBySlug.size(), agents.size(), listening);
+        } catch (Exception e) {
+            LOGGER.warn("Read model not loaded at startup, lookups go to the database until the next check", e);
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (subscriber != null) {
+            subscriber.close().subscribe().with(r -> { }, e -> { });
+        }
+    }
+
+    public Uni<Brand> getBrand(String slugName) {
+        Brand brand = brandsBySlug.get(slugName);
+        if (brand != null) {
+            hits.increment();
+            return Uni.createFrom().item(brand);
+        }
+        misses.increment();
+        return brandRepository.getBySlugName(slugName)
+                .invoke(found -> {
+                    brandsBySlug.put(found.getSlugName(), found);
+                    version.incrementAndGet();
+                });
+    }
+
+    public Uni<AiAgent> getAgent(UUID id) {
+        AiAgent agent = agents.get(id);
+        if (agent != null) {
+            hits.increment();
+            return Uni.createFrom().item(agent);
+        }
+        misses.increment();
+        return agentRepository.findById(id, SuperUser.build(), false)
+                .invoke(found -> {
+                    agents.put(found.getId(), found);
+                    version.incrementAndGet();
+                });
+    }
+
+    /**
+     * Public brands, most recently modified first, the way {@link BrandRepository#getAll} pages them.
+     */
+    public Uni<List<Brand>> getPublicBrands(int limit, int offset) {
+        if (!loaded) {
+            misses.increment();
+            return brandRepository.getAll(limit, offset);
+        }
+        hits.increment();
+        return Uni.createFrom().item(brandsBySlug.values().stream()
+                .filter(brand -> Integer.valueOf(1).equals(brand.getPublicBrand()))
+                .sorted(Comparator.comparing(Brand::getLastModifiedDate, Comparator.nullsLast(Comparator.reverseOrder())))
+                .skip(Math.max(offset, 0))
+                .limit(limit > 0 ? limit : Long.MAX_VALUE)
+                .toList());
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Scheduled(every = "1m", delayed = "1m", identity = "read-model-revalidate")
+    public Uni<Void> revalidate() {
+        if (loaded && System.currentTimeMillis() - loadedAt < MAX_AGE.toMillis()) {
+            return fingerprint()
+                    .chain(current -> current.equals(fingerprint) ? Uni.createFrom().voidItem() : reload())
+                    .onFailure().invoke(e -> LOGGER.warn("Read model revalidation failed", e));
+        }
+        return reload().onFailure().invoke(e -> LOGGER.warn("Read model reload failed", e));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("brands", brandsBySlug.size());
+        result.put("agents", agents.size());
+        result.put("listening", listening);
+        result.put("hits", hits.sum());
+        result.put("misses", misses.sum());
+        result.put("notifications", notifications.sum());
+        result.put("reloads", reloads.sum());
+        result.put("loadedAt", loadedAt);
+        return result;
+    }
+
+    private Uni<Void> reload() {
+        long seen = changes.get();
+        // fingerprint first: a change after it makes the next check differ instead of hiding behind it
+        return fingerprint().chain(current -> Uni.combine().all()
+                .unis(brandRepository.getAllActive(), agentRepository.getAllActive()).asTuple()
+                .invoke(rows -> {
+                    Map<String, Brand> brands = new ConcurrentHashMap<>();
+                    rows.getItem1().forEach(brand -> brands.put(brand.getSlugName(), brand));
+                    Map<UUID, AiAgent> byId = new ConcurrentHashMap<>();
+                    rows.getItem2().forEach(agent -> byId.put(agent.getId(), agent));
+                    brandsBySlug = brands;
+                    agents = byId;
+                    fingerprint = changes.get() == seen ? current : null;
+                    loadedAt = System.currentTimeMillis();
+                    loaded = true;
+                    reloads.increment();
+                    version.incrementAndGet();
+                })
+                .replaceWithVoid());
+    }
+
+    private Uni<String> fingerprint() {
+        return Uni.combine().all().unis(brandRepository.fingerprint(), agentRepository.fingerprint())
+                .asTuple().map(parts -> parts.getItem1() + "|" + parts.getItem2());
+    }
+
+    private Uni<Void> listen() {
+        if (url.isEmpty()) {
+            LOGGER.info("No reactive datasource URL configured, read model relies on revalidation only");
+            return Uni.createFrom().voidItem();
+        }
+        return Uni.combine().all().unis(brandRepository.missingChangeNotifications(BRAND_CHANNEL),
+                        agentRepository.missingChangeNotifications(AGENT_CHANNEL)).asTuple()
+                .invoke(missing -> {
+                    List<String> tables = new ArrayList<>(missing.getItem1());
+                    tables.addAll(missing.getItem2());
+                    if (!tables.isEmpty()) {
+                        LOGGER.warn("No change triggers on {}, apply db/schema/01_change_notifications.sql; " +
+                                "changes there are picked up by revalidation only", tables);
+                    }
+                })
+                .onFailure().invoke(e -> LOGGER.warn("Change triggers not checked: {}", e.getMessage()))
+                .onFailure().recoverWithNull()
+                .chain(() -> {
+                    PgConnectOptions options = PgConnectOptions.fromUri(url.get().replaceFirst("^vertx-reactive:", ""));
+                    username.ifPresent(options::setUser);
+                    password.ifPresent(options::setPassword);
+                    subscriber = PgSubscriber.subscriber(vertx, options)
+                            .reconnectPolicy(retries -> Math.min(1_000L * (retries + 1), 30_000L));
+                    subscriber.channel(BRAND_CHANNEL)
+                            .handler(this::onBrandChanged)
+                            .subscribeHandler(this::onSubscribed);
+                    subscriber.channel(AGENT_CHANNEL)
+                            .handler(this::onAgentChanged);
+                    subscriber.closeHandler(() -> {
+                        listening = false;
+                        LOGGER.warn("Read model stopped listening for changes");
+                    });
+                    return subscriber.connect();
+                })
+                .onFailure().invoke(e -> LOGGER.warn("Read model cannot listen for changes: {}", e.getMessage()))
+                .onFailure().recoverWithNull()
+                .replaceWithVoid();
+    }
+
+    private void onSubscribed() {
+        if (listening) {
+            return;
+        }
+        listening = true;
+        if (loaded) {
+            // resubscribed after a dropped connection; whatever notified meanwhile is lost
+            fingerprint = null;
+        }
+    }
+
+    private void onBrandChanged(String payload) {
+        UUID id = parse(payload);
+        if (id == null) {
+            return;
+        }
+        brandRepository.findActive(id).subscribe().with(brand -> {
+            Map<String, Brand> current = brandsBySlug;
+            current.values().removeIf(cached -> id.equals(cached.getId()));
+            if (brand != null) {
+                current.put(brand.getSlugName(), brand);
+            }
+            version.incrementAndGet();
+        }, e -> {
+            LOGGER.warn("Brand {} not reloaded after change", id, e);
+            fingerprint = null;
+        });
+    }
+
+    private void onAgentChanged(String payload) {
+        UUID id = parse(payload);
+        if (id == null) {
+            return;
+        }
+        agentRepository.findActive(id).subscribe().with(agent -> {
+            if (agent != null) {
+                agents.put(id, agent);
+            } else {
+                agents.remove(id);
+            }
+            version.incrementAndGet();
+        }, e -> {
+            LOGGER.warn("Agent {} not reloaded after change", id, e);
+            fingerprint = null;
+        });
+    }
+
+    private UUID parse(String payload) {
+        notifications.increment();
+        changes.incrementAndGet();
+        try {
+            return UUID.fromString(payload);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            LOGGER.warn("Unexpected change notification payload: {}", payload);
+            return null;
+        }
+    }
+}
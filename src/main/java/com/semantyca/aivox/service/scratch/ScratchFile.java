@@ -0,0 +1,54 @@
+package com.semantyca.aivox.service.scratch;
+
+import java.nio.file.Path;
+
+/**
+ * A temp file or directory owned by {@link ScratchStorage}. Every consumer that keeps using it past the
+ * current call takes a reference with {@link #retain()}; the file is deleted when the last one is released.
+ */
+public final class ScratchFile implements AutoCloseable {
+    private final ScratchStorage storage;
+    private final Path path;
+    private final ScratchStorage.Tier tier;
+    private final long reservedBytes;
+    // guarded by the storage lock
+    int refs = 1;
+
+    ScratchFile(ScratchStorage storage, Path path, ScratchStorage.Tier tier, long reservedBytes) {
+        this.storage = storage;
+        this.path = path;
+        this.tier = tier;
+        this.reservedBytes = reservedBytes;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public ScratchStorage.Tier tier() {
+        return tier;
+    }
+
+    long reservedBytes() {
+        return reservedBytes;
+    }
+
+    public ScratchFile retain() {
+        storage.retain(this);
+        return this;
+    }
+
+    public void release() {
+        storage.release(this);
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+
+    @Override
+    public String toString() {
+        return path + " (" + tier + ")";
+    }
+}
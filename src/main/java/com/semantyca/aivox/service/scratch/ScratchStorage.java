@@ -0,0 +1,329 @@
+package com.semantyca.aivox.service.scratch;
+
+import com.semantyca.aivox.config.AivoxConfig;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Single owner of the temp artifacts produced while mixing and segmenting. Artifacts are handed out as
+ * ref-counted {@link ScratchFile}s and deleted as soon as the last consumer releases them; whatever a
+ * crashed run left behind is swept on startup, the segment output directory included. The spool and
+ * cache files at the root of the temp directory survive any sweep, and a directory holding the merged
+ * output or the uploads is never cleared.
+ * <p>
+ * Short-lived intermediates go to a RAM-backed directory when one is configured and fit into its
+ * budget, otherwise they spill to disk.
+ */
+@ApplicationScoped
+public class ScratchStorage {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScratchStorage.class);
+    // temp files the mixers wrote into the merged directory before they moved here
+    private static final List<String> LEGACY_PREFIXES = List.of(
+            "temp_mix_", "temp_intro_song_", "merged_intro_", "crossfade_", "filler_jingle_", "silence_", "temp_song_");
+    // kept at the root of temp across restarts: MapDB files with their write-ahead logs, the decoded song cache
+    private static final List<String> PERSISTENT_FILES = List.of("stats-spool.db", "play-spool.db", "probe-cache.db", "pcm-cache");
+
+    public enum Tier {RAM, DISK}
+
+    private final Path tempRoot;
+    private final Path diskRoot;
+    private final Path ramRoot;
+    private final long ramMaxBytes;
+    private final Path mergedDir;
+    private final List<Path> legacyDirs;
+    // never cleared wholesale, they hold real content
+    private final List<Path> protectedDirs;
+
+    private final Object lock = new Object();
+    private final Map<Path, ScratchFile> live = new HashMap<>();
+    private long ramReserved;
+    private long allocated;
+    private long spills;
+    private long deleted;
+    private long swept;
+
+    @Inject
+    public ScratchStorage(AivoxConfig config) {
+        this.tempRoot = Paths.get(config.path().temp());
+        this.diskRoot = tempRoot.resolve("scratch");
+        this.ramRoot = config.scratch().ramDir().map(dir -> Paths.get(dir, "aivox-scratch")).orElse(null);
+        this.ramMaxBytes = config.scratch().ramMaxMb() * 1024 * 1024;
+        this.mergedDir = Paths.get(config.getPathForMerged());
+        this.legacyDirs = List.of(
+                Paths.get(config.segmentation().output().dir()),
+                Paths.get(config.getPathUploads(), "audio-processing"));
+        this.protectedDirs = List.of(mergedDir, Paths.get(config.getPathUploads()));
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        sweep();
+    }
+
+    /**
+     * @param expectedBytes rough upper bound of the file size, decides whether it fits into RAM
+     */
+    public ScratchFile newFile(String prefix, String extension, long expectedBytes) throws IOException {
+        return allocate(prefix, extension, expectedBytes, false);
+    }
+
+    /**
+     * A directory for tools that write several files, e.g. segment outputs. Released recursively.
+     */
+    public ScratchFile newDirectory(String prefix, long expectedBytes) throws IOException {
+        return allocate(prefix, "", expectedBytes, true);
+    }
+
+    /**
+     * Takes ownership of a file written elsewhere, e.g. a download into {@link #downloadDirectory()}.
+     * Adopting a path that is already owned adds a reference instead, so two messages materializing the
+     * same song do not delete it from under each other.
+     */
+    public ScratchFile adopt(Path path) {
+        synchronized (lock) {
+            ScratchFile existing = live.get(path);
+            if (existing != null) {
+                existing.refs++;
+                return existing;
+            }
+            ScratchFile file = new ScratchFile(this, path, Tier.DISK, 0);
+            live.put(path, file);
+            allocated++;
+            return file;
+        }
+    }
+
+    /**
+     * Disk directory for files materialized from storage; they are too large for the RAM tier.
+     */
+    public Path downloadDirectory() throws IOException {
+        return Files.createDirectories(diskRoot.resolve("downloads"));
+    }
+
+    private ScratchFile allocate(String prefix, String extension, long expectedBytes, boolean directory) throws IOException {
+        Tier tier = reserve(expectedBytes);
+        Path root = tier == Tier.RAM ? ramRoot : diskRoot;
+        Path path = root.resolve(prefix + UUID.randomUUID() + extension);
+        try {
+            Files.createDirectories(root);
+            if (directory) {
+                Files.createDirectory(path);
+            }
+        } catch (IOException e) {
+            if (tier == Tier.RAM) {
+                unreserve(expectedBytes);
+            }
+            throw e;
+        }
+        ScratchFile file = new ScratchFile(this, path, tier, tier == Tier.RAM ? expectedBytes : 0);
+        synchronized (lock) {
+            live.put(path, file);
+            allocated++;
+        }
+        return file;
+    }
+
+    private Tier reserve(long expectedBytes) {
+        if (ramRoot == null) {
+            return Tier.DISK;
+        }
+        synchronized (lock) {
+            if (ramReserved + expectedBytes <= ramMaxBytes && usableSpace(ramRoot) > expectedBytes) {
+                ramReserved += expectedBytes;
+                return Tier.RAM;
+            }
+            spills++;
+        }
+        return Tier.DISK;
+    }
+
+    private void unreserve(long bytes) {
+        synchronized (lock) {
+            ramReserved -= bytes;
+        }
+    }
+
+    void retain(ScratchFile file) {
+        synchronized (lock) {
+            if (file.refs == 0) {
+                throw new IllegalStateException("Scratch file already released: " + file);
+            }
+            file.refs++;
+        }
+    }
+
+    /**
+     * The last release renames the file out of the way under the lock, so an adopt of the same path never
+     * sees it half deleted, and deletes it after letting go of the lock.
+     */
+    void release(ScratchFile file) {
+        Path doomed;
+        synchronized (lock) {
+            if (file.refs == 0) {
+                LOGGER.warn("Scratch file released more often than retained: {}", file);
+                return;
+            }
+            if (--file.refs > 0) {
+                return;
+            }
+            live.remove(file.path(), file);
+            ramReserved -= file.reservedBytes();
+            doomed = moveAside(file.path());
+            deleted++;
+        }
+        deleteRecursively(doomed);
+    }
+
+    private static Path moveAside(Path path) {
+        if (!Files.exists(path)) {
+            return path;
+        }
+        try {
+            return Files.move(path, path.resolveSibling(path.getFileName() + ".released-" + UUID.randomUUID()));
+        } catch (IOException e) {
+            return path;
+        }
+    }
+
+    public long getLiveFiles() {
+        synchronized (lock) {
+            return live.size();
+        }
+    }
+
+    public long getRamReservedBytes() {
+        synchronized (lock) {
+            return ramReserved;
+        }
+    }
+
+    public long getAllocated() {
+        synchronized (lock) {
+            return allocated;
+        }
+    }
+
+    public long getSpills() {
+        synchronized (lock) {
+            return spills;
+        }
+    }
+
+    public long getDeleted() {
+        synchronized (lock) {
+            return deleted;
+        }
+    }
+
+    public long getSwept() {
+        synchronized (lock) {
+            return swept;
+        }
+    }
+
+    /**
+     * Nothing can hold a reference before startup, so everything found in the scratch roots is an orphan.
+     */
+    private void sweep() {
+        long count = clearDirectory(diskRoot, path -> false) + (ramRoot != null ? clearDirectory(ramRoot, path -> false) : 0);
+        for (Path dir : legacyDirs) {
+            if (!isSweepable(dir)) {
+                LOGGER.warn("Not sweeping {}: it contains {} or one of {}", dir, tempRoot, protectedDirs);
+                continue;
+            }
+            count += clearDirectory(dir, this::isPersistent);
+        }
+        File[] leftovers = mergedDir.toFile().listFiles(
+                (dir, name) -> LEGACY_PREFIXES.stream().anyMatch(name::startsWith));
+        if (leftovers != null) {
+            for (File f : leftovers) {
+                deleteRecursively(f.toPath());
+                count++;
+            }
+        }
+        synchronized (lock) {
+            swept += count;
+        }
+        LOGGER.info("Scratch storage on {}{}: swept {} orphaned entries", diskRoot,
+                ramRoot != null ? " and " + ramRoot : "", count);
+    }
+
+    /**
+     * An output directory is cleared unless it is a parent of the temp directory, or a parent of or the same
+     * as a directory whose content must survive a restart. The temp directory itself may be cleared; its
+     * persistent files are skipped.
+     */
+    private boolean isSweepable(Path dir) {
+        Path candidate = normalize(dir);
+        Path temp = normalize(tempRoot);
+        if (temp.startsWith(candidate) && !temp.equals(candidate)) {
+            return false;
+        }
+        return protectedDirs.stream().noneMatch(p -> normalize(p).startsWith(candidate));
+    }
+
+    private boolean isPersistent(Path path) {
+        String name = path.getFileName().toString();
+        return normalize(path.getParent()).equals(normalize(tempRoot))
+                && PERSISTENT_FILES.stream().anyMatch(name::startsWith);
+    }
+
+    private static Path normalize(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    private static long clearDirectory(Path dir, Predicate<Path> keep) {
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        try (Stream<Path> entries = Files.list(dir)) {
+            List<Path> children = entries.filter(keep.negate()).toList();
+            children.forEach(ScratchStorage::deleteRecursively);
+            return children.size();
+        } catch (IOException e) {
+            LOGGER.warn("Could not sweep {}: {}", dir, e.getMessage());
+            return 0;
+        }
+    }
+
+    private static long usableSpace(Path dir) {
+        try {
+            return Files.getFileStore(Files.createDirectories(dir)).getUsableSpace();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteRecursively(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException e) {
+                    LOGGER.warn("Could not delete scratch file {}: {}", p, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete scratch file {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.semantyca.aivox.dto.SoundFragmentDTO;
 import com.semantyca.aivox.dto.UploadFileDTO;
 import com.semantyca.aivox.repository.soundfragment.SoundFragmentBrandRepository;
 import com.semantyca.aivox.service.BrandService;
+import com.semantyca.aivox.service.catalog.BrandCatalogService;
 import com.semantyca.core.model.cnst.LanguageCode;
 import com.semantyca.core.model.user.IUser;
 import com.semantyca.core.model.user.SuperUser;
@@ -18,6 +19,7 @@ import jakarta.inject.Inject;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -27,11 +29,14 @@ public class BrandSoundFragmentService extends AbstractService<SoundFragment, So
 
     private final SoundFragmentBrandRepository repository;
     private final BrandService brandService;
+    private final BrandCatalogService catalogService;
 
     @Inject
-    public BrandSoundFragmentService(SoundFragmentBrandRepository repository, BrandService brandService) {
+    public BrandSoundFragmentService(SoundFragmentBrandRepository repository, BrandService brandService,
+                                     BrandCatalogService catalogService) {
         this.repository = repository;
         this.brandService = brandService;
+        this.catalogService = catalogService;
     }
 
     public Uni<List<BrandSoundFragmentDTO>> getBrandSoundFragmentsBySimilarity(String brandName, String keyword, int limit, int offset) {
@@ -44,7 +49,15 @@ public class BrandSoundFragmentService extends AbstractService<SoundFragment, So
                         return Uni.createFrom().failure(new IllegalArgumentException("Brand not found: " + brandName));
                     }
                     UUID brandId = radioStation.getId();
-                    return repository.findForBrandBySimilarity(brandId, keyword, limit, offset, false, SuperUser.build())
+                    return catalogService.search(brandId, keyword, limit, offset)
+                            .chain(ids -> ids.isEmpty()
+                                    ? Uni.createFrom().item(Collections.<BrandSoundFragment>emptyList())
+                                    : repository.findForBrandByIds(brandId, ids, SuperUser.build())
+                                            .map(fragments -> {
+                                                List<BrandSoundFragment> ranked = new ArrayList<>(fragments);
+                                                ranked.sort(Comparator.comparingInt(f -> ids.indexOf(f.getId())));
+                                                return ranked;
+                                            }))
                             .chain(fragments -> {
                                 if (fragments.isEmpty()) {
                                     return Uni.createFrom().item(Collections.<BrandSoundFragmentDTO>emptyList());
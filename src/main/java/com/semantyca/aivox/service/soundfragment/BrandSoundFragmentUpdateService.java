@@ -2,28 +2,115 @@ package com.semantyca.aivox.service.soundfragment;
 
 import io.smallrye.mutiny.Uni;
 import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.SqlResult;
 import io.vertx.mutiny.sqlclient.Tuple;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @ApplicationScoped
 public class BrandSoundFragmentUpdateService {
+    static final String HISTORY_TABLE = "kneobroadcaster__brand_play_history";
 
     @Inject
     PgPool client;
 
-    public Uni<Void> updatePlayedCountAsync(UUID brandId, UUID soundFragmentId) {
-        String sql = "INSERT INTO kneobroadcaster__brand_sound_fragments " +
-                "(brand_id, sound_fragment_id, played_by_brand_count, last_time_played_by_brand) " +
-                "VALUES ($1, $2, 1, NOW()) " +
-                "ON CONFLICT (brand_id, sound_fragment_id) DO UPDATE SET " +
-                "played_by_brand_count = kneobroadcaster__brand_sound_fragments.played_by_brand_count + 1, " +
-                "last_time_played_by_brand = NOW()";
+    /**
+     * Applies a batch of airings in one transaction: each (brand, song) pair's count goes up by its number of
+     * airings in one {@code UPDATE ... FROM unnest(...)}, and when {@code withHistory} every airing is
+     * appended to the play history.
+     */
+    public Uni<Void> recordPlays(List<Play> plays, boolean withHistory) {
+        if (plays.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        Map<List<UUID>, Play> coalesced = new LinkedHashMap<>();
+        Map<List<UUID>, Integer> counts = new LinkedHashMap<>();
+        for (Play play : plays) {
+            List<UUID> key = List.of(play.brandId(), play.songId());
+            coalesced.merge(key, play, (a, b) -> a.playedAt().isAfter(b.playedAt()) ? a : b);
+            counts.merge(key, 1, Integer::sum);
+        }
+        List<UUID> brandIds = new ArrayList<>();
+        List<UUID> songIds = new ArrayList<>();
+        List<Integer> playCounts = new ArrayList<>();
+        List<LocalDateTime> lastPlayed = new ArrayList<>();
+        coalesced.forEach((key, latest) -> {
+            brandIds.add(latest.brandId());
+            songIds.add(latest.songId());
+            playCounts.add(counts.get(key));
+            lastPlayed.add(latest.playedAt());
+        });
 
+        String update = "UPDATE kneobroadcaster__brand_sound_fragments bsf SET " +
+                "played_by_brand_count = bsf.played_by_brand_count + p.plays, " +
+                "last_time_played_by_brand = GREATEST(bsf.last_time_played_by_brand, p.played_at) " +
+                "FROM unnest($1::uuid[], $2::uuid[], $3::int[], $4::timestamp[]) AS p(brand_id, sound_fragment_id, plays, played_at) " +
+                "WHERE bsf.brand_id = p.brand_id AND bsf.sound_fragment_id = p.sound_fragment_id";
+        Tuple updateParams = Tuple.tuple()
+                .addArrayOfUUID(brandIds.toArray(new UUID[0]))
+                .addArrayOfUUID(songIds.toArray(new UUID[0]))
+                .addArrayOfInteger(playCounts.toArray(new Integer[0]))
+                .addArrayOfLocalDateTime(lastPlayed.toArray(new LocalDateTime[0]));
+
+        String insert = "INSERT INTO " + HISTORY_TABLE + " (brand_id, sound_fragment_id, played_at) " +
+                "SELECT * FROM unnest($1::uuid[], $2::uuid[], $3::timestamp[])";
+        Tuple insertParams = Tuple.tuple()
+                .addArrayOfUUID(plays.stream().map(Play::brandId).toArray(UUID[]::new))
+                .addArrayOfUUID(plays.stream().map(Play::songId).toArray(UUID[]::new))
+                .addArrayOfLocalDateTime(plays.stream().map(Play::playedAt).toArray(LocalDateTime[]::new));
+
+        return client.withTransaction(connection -> connection.preparedQuery(update).execute(updateParams)
+                .chain(() -> withHistory
+                        ? connection.preparedQuery(insert).execute(insertParams).replaceWithVoid()
+                        : Uni.createFrom().voidItem()));
+    }
+
+    /**
+     * @return songs the brand aired most recently, oldest first
+     */
+    public Uni<List<UUID>> getRecentPlays(UUID brandId, int limit) {
+        String sql = "SELECT sound_fragment_id FROM (SELECT sound_fragment_id, played_at FROM " + HISTORY_TABLE + " " +
+                "WHERE brand_id = $1 ORDER BY played_at DESC LIMIT $2) recent ORDER BY played_at";
         return client.preparedQuery(sql)
-                .execute(Tuple.of(brandId, soundFragmentId))
-                .replaceWithVoid();
+                .execute(Tuple.of(brandId, limit))
+                .onItem().transform(rows -> {
+                    List<UUID> result = new ArrayList<>();
+                    for (Row row : rows) {
+                        result.add(row.getUUID("sound_fragment_id"));
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * @return how many airings older than {@code before} were deleted
+     */
+    public Uni<Integer> pruneHistory(LocalDateTime before) {
+        return client.preparedQuery("DELETE FROM " + HISTORY_TABLE + " WHERE played_at < $1")
+                .execute(Tuple.of(before))
+                .onItem().transform(SqlResult::rowCount);
+    }
+
+    /**
+     * @return whether the history table, created by {@code db/schema/02_brand_play_history.sql}, exists
+     */
+    public Uni<Boolean> hasHistoryTable() {
+        return client.preparedQuery("SELECT to_regclass($1) IS NOT NULL")
+                .execute(Tuple.of(HISTORY_TABLE))
+                .onItem().transform(rows -> rows.iterator().next().getBoolean(0));
+    }
+
+    /**
+     * @param playedAt UTC, like the other brand timestamps
+     */
+    public record Play(UUID brandId, UUID songId, LocalDateTime playedAt) {
     }
 }
@@ -0,0 +1,245 @@
+package com.semantyca.aivox.service.soundfragment;
+
+import com.semantyca.aivox.config.AivoxConfig;
+import com.semantyca.aivox.service.soundfragment.BrandSoundFragmentUpdateService.Play;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.mapdb.BTreeMap;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind for airings. Each one is queued in memory and handed to a spool writer thread, which appends
+ * it to a MapDB spool under the temp directory; a flush every 30 seconds, or as soon as {@link #FLUSH_THRESHOLD}
+ * airings wait, writes a batch with {@link BrandSoundFragmentUpdateService#recordPlays} and only then drops it
+ * from the spool. Airings left in the spool by a crash are queued again at startup, so counts are written at
+ * least once for everything that reached the spool. History older than the configured retention is deleted
+ * every six hours.
+ */
+@ApplicationScoped
+public class PlayRecorder {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PlayRecorder.class);
+    static final int FLUSH_THRESHOLD = 200;
+    private static final int MAX_BATCH = 2_000;
+
+    private final BrandSoundFragmentUpdateService updateService;
+    private final int retentionDays;
+    private final ExecutorService spoolWriter = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "play-spool-writer"));
+    // airings recorded but not yet in the spool, taken by the writer in arrival order
+    private final Queue<Long> unspooled = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean spoolScheduled = new AtomicBoolean();
+    // spool sequence -> airing; the in-memory view of what is not in the database yet
+    private final ConcurrentSkipListMap<Long, Play> pending = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private volatile boolean historyEnabled;
+    private DB db;
+    private BTreeMap<Long, String> spool;
+
+    @Inject
+    public PlayRecorder(AivoxConfig config, BrandSoundFragmentUpdateService updateService) {
+        this.updateService = updateService;
+        this.retentionDays = config.playHistory().retentionDays();
+        Path dbFile = Paths.get(config.path().temp(), "play-spool.db");
+        try {
+            Files.createDirectories(dbFile.getParent());
+            openSpool(dbFile);
+        } catch (Exception e) {
+            LOGGER.warn("Play spool at {} is unusable, recreating, its airings are lost: {}", dbFile, e.getMessage());
+            try {
+                pending.clear();
+                Files.deleteIfExists(dbFile);
+                openSpool(dbFile);
+            } catch (Exception retry) {
+                LOGGER.error("Play spool disabled, airings are kept in memory only until flushed", retry);
+            }
+        }
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (!pending.isEmpty()) {
+            LOGGER.info("Replaying {} spooled airing(s) from the previous run", pending.size());
+        }
+        updateService.hasHistoryTable()
+                .subscribe().with(
+                        present -> {
+                            historyEnabled = present;
+                            if (!present) {
+                                LOGGER.warn("Play history table missing, apply db/schema/02_brand_play_history.sql; recording counts only");
+                            }
+                        },
+                        e -> LOGGER.warn("Play history table not checked, recording counts only: {}", e.getMessage()));
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        try {
+            flush().await().atMost(Duration.ofSeconds(10));
+        } catch (Exception e) {
+            LOGGER.warn("Final play flush failed, {} airing(s) stay spooled", pending.size(), e);
+        }
+        spoolWriter.shutdown();
+        try {
+            if (!spoolWriter.awaitTermination(5, TimeUnit.SECONDS)) {
+                LOGGER.warn("Play spool writer did not finish, {} airing(s) may not be spooled", unspooled.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (db != null) {
+            db.close();
+        }
+    }
+
+    /**
+     * Called from the segment feeder when a song's first segment goes live; never blocks on the spool or
+     * the database.
+     */
+    public void record(UUID brandId, UUID songId) {
+        if (brandId == null || songId == null) {
+            return;
+        }
+        Play play = new Play(brandId, songId, LocalDateTime.now(ZoneOffset.UTC));
+        long seq = sequence.incrementAndGet();
+        pending.put(seq, play);
+        unspooled.add(seq);
+        if (spoolScheduled.compareAndSet(false, true)) {
+            try {
+                spoolWriter.execute(this::spoolPending);
+            } catch (RejectedExecutionException e) {
+                spoolScheduled.set(false);
+            }
+        }
+        recorded.increment();
+        if (pending.size() >= FLUSH_THRESHOLD) {
+            flush().subscribe().with(r -> { }, e -> { });
+        }
+    }
+
+    @Scheduled(every = "30s", delayed = "30s", identity = "play-flush")
+    public Uni<Void> flush() {
+        if (pending.isEmpty() || !flushing.compareAndSet(false, true)) {
+            return Uni.createFrom().voidItem();
+        }
+        Map<Long, Play> batch = new LinkedHashMap<>();
+        for (Map.Entry<Long, Play> entry : pending.entrySet()) {
+            if (batch.size() == MAX_BATCH) {
+                break;
+            }
+            batch.put(entry.getKey(), entry.getValue());
+        }
+        return updateService.recordPlays(new ArrayList<>(batch.values()), historyEnabled)
+                .invoke(() -> {
+                    batch.keySet().forEach(pending::remove);
+                    unspool(batch.keySet());
+                    flushed.add(batch.size());
+                    LOGGER.debug("Flushed {} airing(s)", batch.size());
+                })
+                .onFailure().invoke(e -> {
+                    failedFlushes.increment();
+                    LOGGER.warn("Play flush failed, {} airing(s) kept for the next one", pending.size(), e);
+                })
+                .onFailure().recoverWithNull()
+                .eventually(() -> flushing.set(false))
+                .replaceWithVoid();
+    }
+
+    @Scheduled(every = "6h", delayed = "10m", identity = "play-history-prune")
+    public Uni<Void> pruneHistory() {
+        if (!historyEnabled) {
+            return Uni.createFrom().voidItem();
+        }
+        return updateService.pruneHistory(LocalDateTime.now(ZoneOffset.UTC).minusDays(retentionDays))
+                .invoke(deleted -> LOGGER.debug("Pruned {} airing(s) older than {} days from play history", deleted, retentionDays))
+                .onFailure().invoke(e -> LOGGER.warn("Play history prune failed: {}", e.getMessage()))
+                .onFailure().recoverWithNull()
+                .replaceWithVoid();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("pending", pending.size());
+        result.put("recorded", recorded.sum());
+        result.put("flushed", flushed.sum());
+        result.put("failedFlushes", failedFlushes.sum());
+        result.put("history", historyEnabled);
+        return result;
+    }
+
+    /**
+     * Writes what was recorded since the last run in one commit. Airings a flush already wrote are skipped,
+     * so nothing is spooled after it was unspooled.
+     */
+    private void spoolPending() {
+        spoolScheduled.set(false);
+        synchronized (this) {
+            boolean written = false;
+            for (Long seq = unspooled.poll(); seq != null; seq = unspooled.poll()) {
+                Play play = pending.get(seq);
+                if (spool != null && play != null) {
+                    spool.put(seq, play.brandId() + "|" + play.songId() + "|" + play.playedAt().toEpochSecond(ZoneOffset.UTC));
+                    written = true;
+                }
+            }
+            if (written) {
+                db.commit();
+            }
+        }
+    }
+
+    private synchronized void unspool(Iterable<Long> seqs) {
+        if (spool == null) {
+            return;
+        }
+        seqs.forEach(spool::remove);
+        db.commit();
+    }
+
+    private void openSpool(Path dbFile) {
+        db = DBMaker.fileDB(dbFile.toFile())
+                .transactionEnable()
+                .closeOnJvmShutdown()
+                .make();
+        spool = db.treeMap("plays", Serializer.LONG, Serializer.STRING).createOrOpen();
+        for (Map.Entry<Long, String> entry : spool.entrySet()) {
+            String[] parts = entry.getValue().split("\\|");
+            pending.put(entry.getKey(), new Play(UUID.fromString(parts[0]), UUID.fromString(parts[1]),
+                    LocalDateTime.ofEpochSecond(Long.parseLong(parts[2]), 0, ZoneOffset.UTC)));
+        }
+        if (!spool.isEmpty()) {
+            sequence.set(spool.lastKey());
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.semantyca.aivox.service.soundfragment;
 
 import com.semantyca.aivox.dto.SoundFragmentDTO;
 import com.semantyca.aivox.repository.soundfragment.SoundFragmentRepository;
+import com.semantyca.core.model.FileMetadata;
 import com.semantyca.core.model.user.SuperUser;
 import com.semantyca.core.service.AbstractService;
 import com.semantyca.core.service.UserService;
@@ -13,6 +14,8 @@ import jakarta.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 
 @ApplicationScoped
@@ -42,4 +45,14 @@ public class SoundFragmentService extends AbstractService<SoundFragment, SoundFr
         return repository.findById(uuid, SuperUser.ID, false, false, true);
     }
 
+    public Uni<FileMetadata> getFirstFile(UUID id) {
+        assert repository != null;
+        return repository.getFirstFile(id);
+    }
+
+    public Uni<Map<UUID, FileMetadata>> getFirstFiles(Collection<UUID> ids) {
+        assert repository != null;
+        return repository.getFirstFiles(ids);
+    }
+
 }
@@ -0,0 +1,27 @@
+package com.semantyca.aivox.service.stats;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Recognises directory monitors, stream probes and crawlers by user agent: the prefixes the stats always skipped,
+ * a few command-line clients, and self-declared bots. HTTP client libraries that real players are built on, such
+ * as okhttp on Android, are not matched, since listener activity is only tracked past this check. The pattern is
+ * compiled once and every thread reuses its own matcher, so a check on the request path allocates nothing.
+ */
+final class BotUserAgents {
+    private static final Pattern BOTS = Pattern.compile(
+            "^(?:TuneIn-DirMon|Lavf/|GStreamer|Go-http-client/|curl/|Wget/|python-requests/)" +
+                    "|(?i:bot\\b|crawler|spider|uptime|headless)");
+    private static final ThreadLocal<Matcher> MATCHER = ThreadLocal.withInitial(() -> BOTS.matcher(""));
+
+    private BotUserAgents() {
+    }
+
+    static boolean isBot(String userAgent) {
+        if (userAgent == null || userAgent.isEmpty()) {
+            return false;
+        }
+        return MATCHER.get().reset(userAgent).find();
+    }
+}
@@ -0,0 +1,138 @@
+package com.semantyca.aivox.service.stats;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * When each station last had a listener, kept in memory and fed from the stream path, plus a hashed timer wheel
+ * of one-second slots that tells when a station has gone {@link #IDLE_AFTER} without one. A listener request
+ * is a volatile write and never touches the wheel: an entry whose deadline comes up is checked against its
+ * latest access and put back at the new deadline if it moved, so only stations that really went quiet expire.
+ * A request to a station that had expired is reported as a resumption.
+ */
+@ApplicationScoped
+public class ListenerActivity {
+    public static final Duration IDLE_AFTER = Duration.ofMinutes(5);
+    // one revolution is longer than IDLE_AFTER, so an entry is normally looked at once per deadline
+    private static final int SLOTS = 512;
+
+    private final ConcurrentHashMap<String, Station> stations = new ConcurrentHashMap<>();
+    @SuppressWarnings("unchecked")
+    private final ConcurrentLinkedQueue<Station>[] wheel = new ConcurrentLinkedQueue[SLOTS];
+    private final ConcurrentLinkedQueue<String> resumed = new ConcurrentLinkedQueue<>();
+    private volatile long wheelSecond = -1;
+
+    public ListenerActivity() {
+        for (int i = 0; i < SLOTS; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    public void touch(String stationName) {
+        touch(stationName, System.currentTimeMillis());
+    }
+
+    void touch(String stationName, long nowMillis) {
+        Station station = stations.get(stationName);
+        if (station == null) {
+            station = stations.computeIfAbsent(stationName, name -> new Station(name, nowMillis));
+        }
+        station.lastAccessMillis = nowMillis;
+        if (!station.scheduled.get() && station.scheduled.compareAndSet(false, true)) {
+            if (station.expired) {
+                station.expired = false;
+                resumed.add(stationName);
+            }
+            schedule(station, nowMillis + IDLE_AFTER.toMillis());
+        }
+    }
+
+    /**
+     * @return the latest listener request since startup, {@code null} when there was none
+     */
+    public Instant lastAccess(String stationName) {
+        Station station = stations.get(stationName);
+        return station != null ? Instant.ofEpochMilli(station.lastAccessMillis) : null;
+    }
+
+    public void forget(String stationName) {
+        Station station = stations.remove(stationName);
+        if (station != null) {
+            station.forgotten = true;
+        }
+    }
+
+    /**
+     * Turns the wheel up to now. Called from a single thread, typically every second.
+     *
+     * @param onIdle  receives each station whose last listener left {@link #IDLE_AFTER} ago
+     * @param onResumed receives each station that got a listener again after being reported idle
+     */
+    public synchronized void advance(long nowMillis, Consumer<String> onIdle, Consumer<String> onResumed) {
+        long now = nowMillis / 1000;
+        long from = wheelSecond < 0 || now - wheelSecond > SLOTS ? now - SLOTS + 1 : wheelSecond + 1;
+        for (long second = from; second <= now; second++) {
+            wheelSecond = second;
+            ConcurrentLinkedQueue<Station> slot = wheel[(int) Math.floorMod(second, (long) SLOTS)];
+            List<Station> due = new ArrayList<>();
+            for (Station station = slot.poll(); station != null; station = slot.poll()) {
+                due.add(station);
+            }
+            for (Station station : due) {
+                if (station.forgotten) {
+                    continue;
+                }
+                long deadline = station.lastAccessMillis + IDLE_AFTER.toMillis();
+                if (deadline > nowMillis) {
+                    schedule(station, deadline);
+                } else {
+                    station.expired = true;
+                    station.scheduled.set(false);
+                    // a request that raced with the expiry would otherwise go unscheduled
+                    if (station.lastAccessMillis + IDLE_AFTER.toMillis() > nowMillis
+                            && station.scheduled.compareAndSet(false, true)) {
+                        station.expired = false;
+                        schedule(station, station.lastAccessMillis + IDLE_AFTER.toMillis());
+                    } else {
+                        onIdle.accept(station.name);
+                    }
+                }
+            }
+        }
+        for (String name = resumed.poll(); name != null; name = resumed.poll()) {
+            onResumed.accept(name);
+        }
+    }
+
+    public int getTrackedStations() {
+        return stations.size();
+    }
+
+    private void schedule(Station station, long deadlineMillis) {
+        // rounded up, and never into a slot the wheel has already passed
+        long second = Math.max((deadlineMillis + 999) / 1000, wheelSecond + 1);
+        wheel[(int) Math.floorMod(second, (long) SLOTS)].add(station);
+    }
+
+    private static final class Station {
+        private final String name;
+        private volatile long lastAccessMillis;
+        // in the wheel; cleared only by the wheel thread when the station expires
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean expired;
+        private volatile boolean forgotten;
+
+        Station(String name, long lastAccessMillis) {
+            this.name = name;
+            this.lastAccessMillis = lastAccessMillis;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.semantyca.aivox.service.stats;
+
+import com.semantyca.aivox.model.stats.StationAccessDelta;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One station's listener traffic in a fixed amount of memory: a striped hit counter, the latest access, and
+ * HyperLogLog sketches of listener addresses per minute, for the day and per country for the day. The audience
+ * size changes the estimates, not the footprint; countries are bounded by the ISO list.
+ */
+final class StationTraffic {
+    // 2^11 one-byte registers, about 2.3% standard error
+    static final int PRECISION = 11;
+    static final int ACTIVE_MINUTES = 5;
+
+    private final LongAdder hits = new LongAdder();
+    // hits already handed to a flush; only the flushing thread touches it
+    private long flushedHits;
+    private volatile String lastUserAgent;
+    private volatile String lastIpAddress;
+    private volatile String lastCountryCode;
+    private volatile long lastAccessMillis;
+    private final AtomicReferenceArray<MinuteSketch> minutes = new AtomicReferenceArray<>(ACTIVE_MINUTES);
+    private volatile HyperLogLog daily = new HyperLogLog(PRECISION);
+    private final ConcurrentHashMap<String, HyperLogLog> countries = new ConcurrentHashMap<>();
+
+    void record(String userAgent, String ipAddress, String countryCode, long nowMillis) {
+        hits.increment();
+        lastUserAgent = userAgent;
+        lastIpAddress = ipAddress;
+        lastCountryCode = countryCode;
+        lastAccessMillis = nowMillis;
+        if (ipAddress == null) {
+            return;
+        }
+        minute(nowMillis / 60_000).sketch().add(ipAddress);
+        daily.add(ipAddress);
+        if (countryCode != null && !"UNKNOWN".equals(countryCode)) {
+            countries.computeIfAbsent(countryCode, k -> new HyperLogLog(PRECISION)).add(ipAddress);
+        }
+    }
+
+    /**
+     * @return hits since the previous call with the latest access, or {@code null} when there were none
+     */
+    StationAccessDelta drain(String stationName) {
+        long total = hits.sum();
+        long delta = total - flushedHits;
+        if (delta <= 0) {
+            return null;
+        }
+        flushedHits = total;
+        String countryCode = lastCountryCode;
+        return new StationAccessDelta(stationName, delta,
+                OffsetDateTime.ofInstant(Instant.ofEpochMilli(lastAccessMillis), ZoneId.systemDefault()),
+                lastUserAgent, lastIpAddress, "UNKNOWN".equals(countryCode) ? null : countryCode);
+    }
+
+    long pendingHits() {
+        return hits.sum() - flushedHits;
+    }
+
+    /**
+     * @return distinct listener addresses seen in the last {@link #ACTIVE_MINUTES} minutes
+     */
+    long activeListeners(long nowMillis) {
+        long now = nowMillis / 60_000;
+        HyperLogLog union = new HyperLogLog(PRECISION);
+        for (int i = 0; i < ACTIVE_MINUTES; i++) {
+            MinuteSketch bucket = minutes.get(i);
+            if (bucket != null && now - bucket.minute() < ACTIVE_MINUTES) {
+                union.merge(bucket.sketch());
+            }
+        }
+        return union.estimate();
+    }
+
+    HyperLogLog dailyListeners() {
+        return daily;
+    }
+
+    Map<String, Long> countryListeners() {
+        Map<String, Long> result = new HashMap<>();
+        countries.forEach((country, sketch) -> result.put(country, sketch.estimate()));
+        return result;
+    }
+
+    void resetDaily() {
+        daily = new HyperLogLog(PRECISION);
+        countries.clear();
+    }
+
+    private MinuteSketch minute(long minute) {
+        int slot = (int) (minute % ACTIVE_MINUTES);
+        MinuteSketch bucket = minutes.get(slot);
+        while (bucket == null || bucket.minute() != minute) {
+            if (bucket != null && bucket.minute() > minute) {
+                // a late caller from the previous minute; counting it in the newer one is close enough
+                return bucket;
+            }
+            MinuteSketch fresh = new MinuteSketch(minute, new HyperLogLog(PRECISION));
+            if (minutes.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+            bucket = minutes.get(slot);
+        }
+        return bucket;
+    }
+
+    private record MinuteSketch(long minute, HyperLogLog sketch) {
+    }
+}
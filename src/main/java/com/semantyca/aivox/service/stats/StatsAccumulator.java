@@ -1,172 +1,177 @@
 package com.semantyca.aivox.service.stats;
 
+import com.semantyca.aivox.model.stats.StationAccessDelta;
 import com.semantyca.aivox.repository.brand.BrandRepository;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.OffsetDateTime;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @ApplicationScoped
 public class StatsAccumulator implements IStatsService {
     private static final Logger LOGGER = LoggerFactory.getLogger(StatsAccumulator.class);
 
-    private final ConcurrentHashMap<String, AtomicLong> accessCounts = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, String> lastUserAgents = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, String> lastIpAddresses = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, String> lastCountryCodes = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, OffsetDateTime> lastAccessTimes = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, ConcurrentHashMap<String, OffsetDateTime>> activeListeners = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<String, Boolean>>> countryListeners = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, StationTraffic> stations = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private volatile boolean idempotent;
 
     @Inject
     BrandRepository brandRepository;
 
-    public void recordAccess(String stationName, String userAgent, String ipAddress, String countryCode) {
-        OffsetDateTime now = OffsetDateTime.now();
-
-        if (!userAgent.startsWith("TuneIn-DirMon")
-                && !userAgent.startsWith("Lavf/")
-                && !userAgent.startsWith("GStreamer")
-                && !userAgent.startsWith("Go-http-client/")) {            //TODO can be optimized
-            accessCounts.computeIfAbsent(stationName, k -> new AtomicLong(0)).incrementAndGet();
-            lastUserAgents.put(stationName, userAgent);
-            lastIpAddresses.put(stationName, ipAddress);
-            lastCountryCodes.put(stationName, countryCode);
-            lastAccessTimes.put(stationName, now);
-
-            activeListeners.computeIfAbsent(stationName, k -> new ConcurrentHashMap<>())
-                    .put(ipAddress, now);
-
-            if (!"UNKNOWN".equals(countryCode)) {
-                countryListeners.computeIfAbsent(stationName, k -> new ConcurrentHashMap<>())
-                        .computeIfAbsent(countryCode, k -> new ConcurrentHashMap<>())
-                        .put(ipAddress, Boolean.TRUE);
-            }
+    @Inject
+    StatsSpool statsSpool;
 
-            LOGGER.debug("Recorded access for station: {} from IP: {} ({}) (total pending: {})",
-                    stationName, ipAddress, countryCode, accessCounts.get(stationName).get());
+    @Inject
+    ListenerActivity listenerActivity;
+
+    /**
+     * Called on the playlist and segment path for every request of a live station. Lock-free; beyond a sketch
+     * per station minute, a listener the station has seen before allocates nothing.
+     */
+    public void recordAccess(String stationName, String userAgent, String ipAddress, String countryCode) {
+        if (BotUserAgents.isBot(userAgent)) {
+            return;
+        }
+        listenerActivity.touch(stationName);
+        StationTraffic traffic = stations.get(stationName);
+        if (traffic == null) {
+            traffic = stations.computeIfAbsent(stationName, k -> new StationTraffic());
         }
+        traffic.record(userAgent, ipAddress, countryCode, System.currentTimeMillis());
     }
 
+    /**
+     * Seals everything recorded since the last flush into a spooled batch, then sends every spooled batch, oldest
+     * first, each as one statement. A batch that fails stays spooled, along with the ones after it, for the next
+     * flush.
+     */
     public Uni<Void> flushAllStats() {
-        if (accessCounts.isEmpty()) {
+        seal();
+        List<StatsSpool.Batch> batches = statsSpool.pending();
+        if (batches.isEmpty()) {
             LOGGER.debug("No stats to flush");
             return Uni.createFrom().voidItem();
         }
+        if (!flushing.compareAndSet(false, true)) {
+            return Uni.createFrom().voidItem();
+        }
 
-        Map<String, Long> countsSnapshot = new HashMap<>();
-        Map<String, String> agentsSnapshot = new HashMap<>();
-        Map<String, String> ipSnapshot = new HashMap<>();
-        Map<String, String> countrySnapshot = new HashMap<>();
-        Map<String, OffsetDateTime> timesSnapshot = new HashMap<>();
-
-        accessCounts.forEach((station, count) -> {
-            long currentCount = count.getAndSet(0);
-            if (currentCount > 0) {
-                countsSnapshot.put(station, currentCount);
-                agentsSnapshot.put(station, lastUserAgents.get(station));
-                ipSnapshot.put(station, lastIpAddresses.get(station));
-                countrySnapshot.put(station, lastCountryCodes.get(station));
-                timesSnapshot.put(station, lastAccessTimes.get(station));
-            }
-        });
+        long startedAt = System.currentTimeMillis();
+        return Multi.createFrom().iterable(batches)
+                .onItem().transformToUniAndConcatenate(this::flushBatch)
+                .collect().last()
+                .invoke(() -> LOGGER.info("Flushed {} stats batch(es) in {} ms", batches.size(),
+                        System.currentTimeMillis() - startedAt))
+                .onFailure().invoke(failure -> LOGGER.error("Failed to flush stats, {} batch(es) stay spooled for the next flush",
+                        statsSpool.getPendingBatches(), failure))
+                .eventually(() -> flushing.set(false))
+                .replaceWithVoid();
+    }
 
-        accessCounts.entrySet().removeIf(entry -> entry.getValue().get() == 0);
-        countsSnapshot.keySet().forEach(station -> {
-            lastUserAgents.remove(station);
-            lastIpAddresses.remove(station);
-            lastCountryCodes.remove(station);
-            lastAccessTimes.remove(station);
-        });
-        // Note: countryStats is NOT cleared - it accumulates over time for dashboard display
+    /**
+     * Turns on idempotent flushing when the batch table is there; without it a replayed batch may be counted twice.
+     */
+    public Uni<Void> prepareFlush() {
+        return brandRepository.pruneStatsBatches()
+                .invoke(() -> idempotent = true)
+                .onFailure().invoke(e -> LOGGER.warn("Stats batch table not available, apply db/schema/03_brand_stats_batches.sql; " +
+                        "replayed batches may count twice: {}", e.getMessage()))
+                .onFailure().recoverWithNull();
+    }
 
-        if (countsSnapshot.isEmpty()) {
-            return Uni.createFrom().voidItem();
-        }
+    public void closeSpool() {
+        statsSpool.close();
+    }
 
-        LOGGER.info("Flushing stats for {} stations to database", countsSnapshot.size());
-
-        return Uni.join().all(
-                        countsSnapshot.entrySet().stream()
-                                .map(entry -> {
-                                    String station = entry.getKey();
-                                    Long count = entry.getValue();
-                                    String userAgent = agentsSnapshot.get(station);
-                                    String ipAddress = ipSnapshot.get(station);
-                                    String countryCode = countrySnapshot.get(station);
-                                    OffsetDateTime lastAccess = timesSnapshot.get(station);
-
-                                    return flushStationStats(station, count, userAgent, ipAddress, countryCode, lastAccess);
-                                })
-                                .toList()
-                ).andFailFast()
-                .replaceWithVoid()
-                .onFailure().invoke(failure -> {
-                    LOGGER.error("Failed to flush stats batch, some data may be lost", failure);
-                });
+    private synchronized void seal() {
+        List<StationAccessDelta> deltas = new ArrayList<>();
+        stations.forEach((station, traffic) -> {
+            StationAccessDelta delta = traffic.drain(station);
+            if (delta != null) {
+                deltas.add(delta);
+            }
+        });
+        if (!deltas.isEmpty()) {
+            statsSpool.seal(deltas);
+            LOGGER.debug("Sealed stats for {} stations", deltas.size());
+        }
     }
 
-    private Uni<Void> flushStationStats(String stationName, Long count, String userAgent, String ipAddress, String countryCode, OffsetDateTime lastAccess) {
-        String dbCountryCode = "UNKNOWN".equals(countryCode) ? null : countryCode;
-
-        return brandRepository.upsertStationAccessWithCountAndGeo(
-                stationName,
-                count,
-                lastAccess,
-                userAgent,
-                ipAddress,
-                dbCountryCode
-        ).onFailure().invoke(failure ->
-                LOGGER.error("Failed to flush stats for station: {}, lost {} access records",
-                        stationName, count, failure)
-        );
+    private Uni<Void> flushBatch(StatsSpool.Batch batch) {
+        return brandRepository.applyStationAccessBatch(batch.id(), batch.deltas(), idempotent)
+                .invoke(applied -> {
+                    statsSpool.acknowledge(batch);
+                    if (!applied) {
+                        LOGGER.info("Stats batch {} was already applied, dropped from the spool", batch.id());
+                    }
+                })
+                .replaceWithVoid();
     }
 
     public int getPendingStatsCount() {
-        return accessCounts.size();
+        return (int) stations.values().stream()
+                .filter(traffic -> traffic.pendingHits() > 0)
+                .count();
     }
 
     public long getTotalPendingAccesses() {
-        return accessCounts.values().stream()
-                .mapToLong(AtomicLong::get)
-                .sum();
+        return stations.values().stream()
+                .mapToLong(StationTraffic::pendingHits)
+                .sum() + statsSpool.getPendingAccesses();
     }
 
+    /**
+     * @return estimated distinct listeners in the last five minutes
+     */
     public long getCurrentListeners(String stationName) {
-        ConcurrentHashMap<String, OffsetDateTime> listeners = activeListeners.get(stationName);
-        if (listeners == null || listeners.isEmpty()) {
-            return 0;
-        }
-        
-        // Consider a listener active if they accessed within the last 5 minutes
-        OffsetDateTime threshold = OffsetDateTime.now().minusMinutes(5);
-        
-        // Clean up stale listeners and count active ones
-        listeners.entrySet().removeIf(entry -> entry.getValue().isBefore(threshold));
-        
-        return listeners.size();
+        StationTraffic traffic = stations.get(stationName);
+        return traffic != null ? traffic.activeListeners(System.currentTimeMillis()) : 0;
     }
 
+    /**
+     * @return estimated distinct listeners per country since midnight
+     */
     public Map<String, Long> getCountryStats(String stationName) {
-        ConcurrentHashMap<String, ConcurrentHashMap<String, Boolean>> stationCountries = countryListeners.get(stationName);
-        if (stationCountries == null || stationCountries.isEmpty()) {
-            return Map.of();
+        StationTraffic traffic = stations.get(stationName);
+        return traffic != null ? traffic.countryListeners() : Map.of();
+    }
+
+    /**
+     * @return a copy of the station's sketch of listeners since midnight, to merge with other nodes' sketches
+     */
+    public HyperLogLog getDailyListeners(String stationName) {
+        StationTraffic traffic = stations.get(stationName);
+        HyperLogLog copy = new HyperLogLog(StationTraffic.PRECISION);
+        if (traffic != null) {
+            copy.merge(traffic.dailyListeners());
         }
-        
-        Map<String, Long> result = new HashMap<>();
-        stationCountries.forEach((country, ips) -> result.put(country, (long) ips.size()));
-        return result;
+        return copy;
     }
 
     public void clearAllCountryStats() {
-        countryListeners.clear();
+        stations.values().forEach(StationTraffic::resetDaily);
         LOGGER.info("Cleared all country stats");
     }
-}
\ No newline at end of file
+
+    public Map<String, Object> getStats() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> result = new LinkedHashMap<>();
+        stations.forEach((station, traffic) -> {
+            Map<String, Object> stationStats = new LinkedHashMap<>();
+            stationStats.put("pendingHits", traffic.pendingHits());
+            stationStats.put("activeListeners", traffic.activeListeners(now));
+            stationStats.put("listenersToday", traffic.dailyListeners().estimate());
+            result.put(station, stationStats);
+        });
+        return result;
+    }
+}
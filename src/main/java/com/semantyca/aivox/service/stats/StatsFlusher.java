@@ -18,7 +18,9 @@ public class StatsFlusher {
     StatsAccumulator statsAccumulator;
 
     void onStart(@Observes StartupEvent ev) {
-        LOGGER.info("Stats flusher scheduler started");
+        statsAccumulator.prepareFlush().subscribe().with(
+                ignored -> LOGGER.info("Stats flusher scheduler started"),
+                e -> LOGGER.error("Stats flusher preparation failed", e));
     }
 
     void onStop(@Observes ShutdownEvent ev) {
@@ -28,8 +30,9 @@ public class StatsFlusher {
                     .await().atMost(java.time.Duration.ofSeconds(30));
             LOGGER.info("Final stats flush completed");
         } catch (Exception e) {
-            LOGGER.error("Failed to flush stats on shutdown", e);
+            LOGGER.error("Failed to flush stats on shutdown, unflushed batches stay spooled", e);
         }
+        statsAccumulator.closeSpool();
     }
 
     @Scheduled(every = "3m", identity = "stats-flush")
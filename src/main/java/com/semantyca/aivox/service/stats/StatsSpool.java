@@ -0,0 +1,148 @@
+package com.semantyca.aivox.service.stats;
+
+import com.semantyca.aivox.config.AivoxConfig;
+import com.semantyca.aivox.model.stats.StationAccessDelta;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.mapdb.BTreeMap;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flush batches of station access deltas that the database has not acknowledged yet, kept in a MapDB file under
+ * the temp directory. A batch is sealed before it is sent and removed only after it is applied, so neither a
+ * restart nor a database outage loses deltas; a batch keeps its id across retries, which lets the database
+ * recognise one it already applied.
+ */
+@ApplicationScoped
+public class StatsSpool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatsSpool.class);
+
+    private final ConcurrentSkipListMap<Long, Batch> pending = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private DB db;
+    private BTreeMap<Long, String> spool;
+
+    @Inject
+    public StatsSpool(AivoxConfig config) {
+        Path dbFile = Paths.get(config.path().temp(), "stats-spool.db");
+        try {
+            Files.createDirectories(dbFile.getParent());
+            open(dbFile);
+        } catch (Exception e) {
+            LOGGER.warn("Stats spool at {} is unusable, recreating, its deltas are lost: {}", dbFile, e.getMessage());
+            try {
+                pending.clear();
+                Files.deleteIfExists(dbFile);
+                open(dbFile);
+            } catch (Exception retry) {
+                LOGGER.error("Stats spool disabled, unflushed deltas do not survive a restart", retry);
+            }
+        }
+    }
+
+    public synchronized Batch seal(List<StationAccessDelta> deltas) {
+        Batch batch = new Batch(sequence.incrementAndGet(), UUID.randomUUID(), List.copyOf(deltas));
+        if (spool != null) {
+            spool.put(batch.seq(), encode(batch));
+            db.commit();
+        }
+        pending.put(batch.seq(), batch);
+        return batch;
+    }
+
+    /**
+     * @return unacknowledged batches, oldest first
+     */
+    public List<Batch> pending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    public synchronized void acknowledge(Batch batch) {
+        pending.remove(batch.seq());
+        if (spool != null) {
+            spool.remove(batch.seq());
+            db.commit();
+        }
+    }
+
+    public int getPendingBatches() {
+        return pending.size();
+    }
+
+    public long getPendingAccesses() {
+        return pending.values().stream()
+                .flatMap(batch -> batch.deltas().stream())
+                .mapToLong(StationAccessDelta::accessCount)
+                .sum();
+    }
+
+    public synchronized void close() {
+        if (db != null) {
+            db.close();
+            db = null;
+            spool = null;
+        }
+    }
+
+    private void open(Path dbFile) {
+        db = DBMaker.fileDB(dbFile.toFile())
+                .transactionEnable()
+                .closeOnJvmShutdown()
+                .make();
+        spool = db.treeMap("batches", Serializer.LONG, Serializer.STRING).createOrOpen();
+        for (Map.Entry<Long, String> entry : spool.entrySet()) {
+            pending.put(entry.getKey(), decode(entry.getKey(), entry.getValue()));
+        }
+        if (!spool.isEmpty()) {
+            sequence.set(spool.lastKey());
+            LOGGER.info("Stats spool holds {} unflushed batch(es) from the previous run", spool.size());
+        }
+    }
+
+    private static String encode(Batch batch) {
+        JsonArray rows = new JsonArray();
+        for (StationAccessDelta delta : batch.deltas()) {
+            rows.add(new JsonArray()
+                    .add(delta.stationName())
+                    .add(delta.accessCount())
+                    .add(delta.lastAccessTime() != null ? delta.lastAccessTime().toString() : null)
+                    .add(delta.userAgent())
+                    .add(delta.ipAddress())
+                    .add(delta.countryCode()));
+        }
+        return new JsonObject().put("id", batch.id().toString()).put("rows", rows).encode();
+    }
+
+    private static Batch decode(long seq, String json) {
+        JsonObject object = new JsonObject(json);
+        List<StationAccessDelta> deltas = new ArrayList<>();
+        for (Object item : object.getJsonArray("rows")) {
+            JsonArray row = (JsonArray) item;
+            String lastAccess = row.getString(2);
+            deltas.add(new StationAccessDelta(row.getString(0), row.getLong(1),
+                    lastAccess != null ? OffsetDateTime.parse(lastAccess) : null,
+                    row.getString(3), row.getString(4), row.getString(5)));
+        }
+        return new Batch(seq, UUID.fromString(object.getString("id")), deltas);
+    }
+
+    public record Batch(long seq, UUID id, List<StationAccessDelta> deltas) {
+    }
+}
@@ -11,6 +11,7 @@ public class HlsSegment {
     private SongMetadata songMetadata;
     private boolean firstSegmentOfFragment;
     private boolean lastSegmentOfFragment;
+    private boolean discontinuity;    // starts after a cut, needs EXT-X-DISCONTINUITY
     
     public HlsSegment() {}
     
@@ -1,6 +1,8 @@
 package com.semantyca.aivox.streaming;
 
 import lombok.Data;
+
+import java.time.Instant;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -13,6 +15,8 @@ public class LiveSoundFragment {
     private int queueNum;
     private Integer priority;         // Lower = higher priority
     private SongMetadata metadata;
+    private Instant deadline;         // latest start on air, null = whenever
+    private boolean splice;           // cut into the current song instead of waiting for its end
     
     public LiveSoundFragment() {
         this.segments = new ConcurrentHashMap<>();
@@ -8,9 +8,11 @@ import com.semantyca.aivox.model.stats.BroadcastingStats;
 import com.semantyca.aivox.model.stream.RadioStream;
 import com.semantyca.aivox.repository.soundfragment.SoundFragmentFileHandler;
 import com.semantyca.aivox.service.BrandService;
-import com.semantyca.aivox.service.SoundFragmentBrandService;
+import com.semantyca.aivox.service.catalog.BrandCatalogService;
 import com.semantyca.aivox.service.manipulation.AudioSegmentationService;
 import com.semantyca.aivox.service.playlist.PlaylistManager;
+import com.semantyca.aivox.service.scratch.ScratchStorage;
+import com.semantyca.aivox.service.soundfragment.PlayRecorder;
 import com.semantyca.mixpla.dto.queue.metric.MetricEventDTO;
 import com.semantyca.mixpla.dto.queue.metric.MetricEventType;
 import com.semantyca.mixpla.model.cnst.StreamStatus;
@@ -42,28 +44,32 @@ public class RadioStationPool {
     private final WaitingAudioProvider waitingAudioProvider;
     private final SegmentFeederTimer segmentFeederTimer;
     private final SliderTimer sliderTimer;
-    private final SoundFragmentBrandService soundFragmentBrandService;
+    private final BrandCatalogService catalogService;
+    private final PlayRecorder playRecorder;
     private final BrandService brandService;
     private final SoundFragmentFileHandler fileHandler;
     private final AudioSegmentationService segmentationService;
+    private final ScratchStorage scratchStorage;
     private final MetricPublisher metricPublisher;
     private final Vertx vertx;
 
     @Inject
     public RadioStationPool(AivoxConfig aivoxConfig, HlsConfig hlsConfig, WaitingAudioProvider waitingAudioProvider,
                             SegmentFeederTimer segmentFeederTimer, SliderTimer sliderTimer,
-                            SoundFragmentBrandService soundFragmentBrandService, BrandService brandService,
+                            BrandCatalogService catalogService, PlayRecorder playRecorder, BrandService brandService,
                             SoundFragmentFileHandler fileHandler, AudioSegmentationService segmentationService,
-                            MetricPublisher metricPublisher, Vertx vertx) {
+                            ScratchStorage scratchStorage, MetricPublisher metricPublisher, Vertx vertx) {
         this.aivoxConfig = aivoxConfig;
         this.hlsConfig = hlsConfig;
         this.waitingAudioProvider = waitingAudioProvider;
         this.segmentFeederTimer = segmentFeederTimer;
         this.sliderTimer = sliderTimer;
-        this.soundFragmentBrandService = soundFragmentBrandService;
+        this.catalogService = catalogService;
+        this.playRecorder = playRecorder;
         this.brandService = brandService;
         this.fileHandler = fileHandler;
         this.segmentationService = segmentationService;
+        this.scratchStorage = scratchStorage;
         this.metricPublisher = metricPublisher;
         this.vertx = vertx;
     }
@@ -88,7 +94,7 @@ public class RadioStationPool {
                         LOGGER.infof("%s Creating new stream for brand", logPrefix(key));
                         PlaylistManager playlistManager = new PlaylistManager(key, brand.getId(), List.of(brand.getBitRate()),
                                 aivoxConfig, vertx, waitingAudioProvider,
-                                soundFragmentBrandService, fileHandler, segmentationService, metricPublisher);
+                                catalogService, playRecorder, fileHandler, segmentationService, scratchStorage, metricPublisher);
                         Streamer streamer = new Streamer(key, playlistManager, hlsConfig, segmentFeederTimer, sliderTimer, metricPublisher);
                         streamer.initialize();
                         return new RadioStream(brand, streamer, playlistManager);
@@ -126,6 +132,9 @@ public class RadioStationPool {
         if (stream != null) {
             LOGGER.infof("%s Station found in pool and removed, shutting down", logPrefix(brandName));
             stream.shutdown();
+            if (stream.getId() != null) {
+                catalogService.evict(stream.getId());
+            }
             return Uni.createFrom().item(stream);
         } else {
             LOGGER.warnf("%s Station not found in pool during stopAndRemove", logPrefix(brandName));
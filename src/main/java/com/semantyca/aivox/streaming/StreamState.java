@@ -4,8 +4,11 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 class StreamState {
     final ConcurrentSkipListMap<Long, Map<Long, HlsSegment>> liveSegments = new ConcurrentSkipListMap<>();
     final Queue<Map<Long, HlsSegment>> pendingQueue = new ConcurrentLinkedQueue<>();
+    // discontinuities that slid out of the window, for EXT-X-DISCONTINUITY-SEQUENCE
+    final AtomicLong discontinuitySequence = new AtomicLong();
 }
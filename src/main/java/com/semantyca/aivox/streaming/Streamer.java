@@ -12,7 +12,9 @@ import org.jboss.logging.Logger;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -86,6 +88,7 @@ public class Streamer implements IStreamer {
 
         long firstSequenceInWindow = streamState.liveSegments.firstKey();
         playlist.append("#EXT-X-MEDIA-SEQUENCE:").append(firstSequenceInWindow).append("\n");
+        playlist.append("#EXT-X-DISCONTINUITY-SEQUENCE:").append(streamState.discontinuitySequence.get()).append("\n");
         playlist.append("#EXT-X-PROGRAM-DATE-TIME:")
                 .append(ZonedDateTime.now(ZONE_ID).format(DateTimeFormatter.ISO_INSTANT))
                 .append("\n");
@@ -102,6 +105,9 @@ public class Streamer implements IStreamer {
                         String meta = segment.getSongMetadata() != null
                                 ? segment.getSongMetadata().getTitle() + " - " + segment.getSongMetadata().getArtist()
                                 : "";
+                        if (segment.isDiscontinuity()) {
+                            playlist.append("#EXT-X-DISCONTINUITY\n");
+                        }
                         playlist.append("#EXTINF:")
                                 .append(segment.getDuration())
                                 .append(",")
@@ -162,13 +168,19 @@ public class Streamer implements IStreamer {
         }
     }
 
-    private void feedSegments() {
+    void feedSegments() {
         int pendingSize = streamState.pendingQueue.size();
         int liveSize = streamState.liveSegments.size();
         int maxVisible = hlsConfig.getMaxVisibleSegments() * 2;
         
         LOGGER.debugf("%s feedSegments: pending=%d, live=%d, max=%d", 
                 logPrefix(), pendingSize, liveSize, maxVisible);
+        playlistManager.reportPendingSeconds((double) pendingSize * hlsConfig.getSegmentDuration());
+
+        LiveSoundFragment splice = playlistManager.pollSpliceFragment();
+        if (splice != null) {
+            spliceNow(splice);
+        }
         
         if (!streamState.pendingQueue.isEmpty() && streamState.liveSegments.size() < maxVisible) {
             Map<Long, HlsSegment> bitrateSlot = streamState.pendingQueue.poll();
@@ -177,19 +189,16 @@ public class Streamer implements IStreamer {
                 streamState.liveSegments.put(seq, bitrateSlot);
                 
                 HlsSegment firstSegment = bitrateSlot.values().iterator().next();
-                if (firstSegment.isFirstSegmentOfFragment() && firstSegment.getSongMetadata() != null) {
-                    publishNowPlayingMetric(firstSegment.getSongMetadata());
+                SongMetadata metadata = firstSegment.getSongMetadata();
+                if (firstSegment.isFirstSegmentOfFragment() && metadata != null) {
+                    publishNowPlayingMetric(metadata);
+                    if (metadata.getSongId() != null && !isWaitingMelody(metadata)) {
+                        playlistManager.recordAired(metadata.getSongId());
+                    }
                 }
                 
-                // TEMP METRIC - Track when song finishes
-                if (firstSegment.isLastSegmentOfFragment() && firstSegment.getSongMetadata() != null) {
-                    metricPublisher.publishMetric(brand, MetricEventType.DEBUG, "song_finished",
-                            Map.of("songId", firstSegment.getSongMetadata().getSongId().toString(),
-                                    "title", firstSegment.getSongMetadata().getTitle(),
-                                    "artist", firstSegment.getSongMetadata().getArtist(),
-                                    "sequence", seq,
-                                    "timestamp", System.currentTimeMillis()),
-                            firstSegment.getSongMetadata().getTraceId());
+                if (firstSegment.isLastSegmentOfFragment()) {
+                    publishSongFinished(firstSegment, seq);
                 }
             }
         }
@@ -210,7 +219,7 @@ public class Streamer implements IStreamer {
                                         "timestamp", System.currentTimeMillis()),
                                 fragment.getMetadata().getTraceId());
                     }
-                    addFragmentToPendingQueue(fragment);
+                    addFragmentToPendingQueue(fragment, false);
                 } else {
                     LOGGER.warnf("%s PlaylistManager returned null fragment", logPrefix());
                 }
@@ -220,7 +229,85 @@ public class Streamer implements IStreamer {
         }
     }
 
-    private void addFragmentToPendingQueue(LiveSoundFragment fragment) {
+    /**
+     * Puts {@code fragment} on air at the next segment boundary instead of after the current song. Safe to
+     * call from any thread; the cut happens on the feeder thread.
+     */
+    public void splice(LiveSoundFragment fragment) {
+        executorService.submit(() -> spliceNow(fragment));
+    }
+
+    /**
+     * Segments already in the playlist stay, players may have fetched them. The unpublished rest of the
+     * current fragment is dropped and the spliced fragment takes over its sequence numbers, so the media
+     * sequence stays gapless; its first segment is marked as a discontinuity. Fragments queued after the
+     * current one are kept and follow the spliced fragment.
+     */
+    void spliceNow(LiveSoundFragment fragment) {
+        int dropped = 0;
+        Long firstFreeSequence = null;
+        for (Map<Long, HlsSegment> head = streamState.pendingQueue.peek();
+             head != null && !firstOf(head).isFirstSegmentOfFragment();
+             head = streamState.pendingQueue.peek()) {
+            if (firstFreeSequence == null) {
+                firstFreeSequence = firstOf(head).getSequence();
+            }
+            streamState.pendingQueue.poll();
+            dropped++;
+        }
+        List<Map<Long, HlsSegment>> following = new ArrayList<>();
+        for (Map<Long, HlsSegment> slot = streamState.pendingQueue.poll(); slot != null; slot = streamState.pendingQueue.poll()) {
+            if (firstFreeSequence == null) {
+                firstFreeSequence = firstOf(slot).getSequence();
+            }
+            following.add(slot);
+        }
+        if (firstFreeSequence != null) {
+            currentSequence.set(firstFreeSequence);
+        }
+        if (dropped > 0) {
+            endCutFragment();
+        }
+
+        LOGGER.infof("%s Splicing %s, dropped %d pending segment(s), %d kept after it",
+                logPrefix(), fragment, dropped, following.size());
+        if (fragment.getMetadata() != null) {
+            metricPublisher.publishMetric(brand, MetricEventType.INFORMATION, "fragment_spliced",
+                    Map.of("fragmentId", String.valueOf(fragment.getSoundFragmentId()),
+                            "title", String.valueOf(fragment.getMetadata().getTitle()),
+                            "droppedSegments", dropped,
+                            "timestamp", System.currentTimeMillis()),
+                    fragment.getMetadata().getTraceId() != null ? fragment.getMetadata().getTraceId() : UUID.randomUUID());
+        }
+        addFragmentToPendingQueue(fragment, dropped > 0);
+        for (Map<Long, HlsSegment> slot : following) {
+            long sequence = currentSequence.getAndIncrement();
+            slot.values().forEach(segment -> segment.setSequence(sequence));
+            streamState.pendingQueue.offer(slot);
+        }
+    }
+
+    /**
+     * The last published segment of a cut fragment becomes its last one, so it ends like any other.
+     */
+    private void endCutFragment() {
+        Map.Entry<Long, Map<Long, HlsSegment>> last = streamState.liveSegments.lastEntry();
+        if (last == null) {
+            return;
+        }
+        HlsSegment segment = firstOf(last.getValue());
+        if (segment.isLastSegmentOfFragment()) {
+            return;
+        }
+        last.getValue().values().forEach(s -> s.setLastSegmentOfFragment(true));
+        publishSongFinished(segment, last.getKey());
+    }
+
+    private static HlsSegment firstOf(Map<Long, HlsSegment> bitrateSlot) {
+        return bitrateSlot.values().iterator().next();
+    }
+
+    private void addFragmentToPendingQueue(LiveSoundFragment fragment, boolean cut) {
         Map<Long, ConcurrentLinkedQueue<HlsSegment>> segments = fragment.getSegments();
         if (segments == null || segments.isEmpty()) {
             LOGGER.warnf("%s Fragment has no segments: %s",
@@ -257,6 +344,7 @@ public class Streamer implements IStreamer {
                 HlsSegment segment = queue.poll();
                 if (segment != null) {
                     segment.setSequence(globalSeq);
+                    segment.setDiscontinuity(cut && i == 0);
                     if (isLastSegment) {
                         segment.setLastSegmentOfFragment(true);
                     }
@@ -270,13 +358,30 @@ public class Streamer implements IStreamer {
         }
     }
 
-    private void slideWindow() {
+    // TEMP METRIC - Track when song finishes
+    private void publishSongFinished(HlsSegment segment, long seq) {
+        if (segment.getSongMetadata() == null) {
+            return;
+        }
+        metricPublisher.publishMetric(brand, MetricEventType.DEBUG, "song_finished",
+                Map.of("songId", segment.getSongMetadata().getSongId().toString(),
+                        "title", segment.getSongMetadata().getTitle(),
+                        "artist", segment.getSongMetadata().getArtist(),
+                        "sequence", seq,
+                        "timestamp", System.currentTimeMillis()),
+                segment.getSongMetadata().getTraceId());
+    }
+
+    void slideWindow() {
         if (streamState.liveSegments.isEmpty()) {
             return;
         }
 
         while (streamState.liveSegments.size() > hlsConfig.getMaxVisibleSegments()) {
-            streamState.liveSegments.pollFirstEntry();
+            Map.Entry<Long, Map<Long, HlsSegment>> removed = streamState.liveSegments.pollFirstEntry();
+            if (removed != null && removed.getValue().values().stream().anyMatch(HlsSegment::isDiscontinuity)) {
+                streamState.discontinuitySequence.incrementAndGet();
+            }
         }
     }
 
@@ -358,7 +463,7 @@ public class Streamer implements IStreamer {
             UUID traceId = metadata.getTraceId();
             
             // Detect waiting melody vs regular song
-            boolean isWaitingMelody = "Waiting...".equals(metadata.getTitle()) && "Station".equals(metadata.getArtist());
+            boolean isWaitingMelody = isWaitingMelody(metadata);
             String eventCode = isWaitingMelody ? "waiting_melody_started" : "now_playing";
             MetricEventType eventType = isWaitingMelody ? MetricEventType.DEBUG : MetricEventType.INFORMATION;
             
@@ -370,6 +475,10 @@ public class Streamer implements IStreamer {
         }
     }
 
+    private static boolean isWaitingMelody(SongMetadata metadata) {
+        return "Waiting...".equals(metadata.getTitle()) && "Station".equals(metadata.getArtist());
+    }
+
     private String logPrefix() {
         return "[" + brand + "]";
     }
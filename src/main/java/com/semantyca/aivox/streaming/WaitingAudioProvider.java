@@ -1,23 +1,24 @@
 package com.semantyca.aivox.streaming;
 
 import com.semantyca.aivox.service.manipulation.AudioSegmentationService;
+import com.semantyca.aivox.service.manipulation.mixing.PcmAsset;
+import com.semantyca.aivox.service.manipulation.mixing.StaticAssetRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 import org.jboss.logging.Logger;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.stream.Stream;
 
 @ApplicationScoped
 public class WaitingAudioProvider {
+    public static final int WAITING_PRIORITY = 999;
 
     private static final Logger LOGGER = Logger.getLogger(WaitingAudioProvider.class);
     private static final String WAITING_AUDIO_FOLDER = "audio/waiting";
@@ -26,146 +27,117 @@ public class WaitingAudioProvider {
     @Inject
     AudioSegmentationService segmentationService;
 
-    private final List<WaitingAudioEntry> waitingAudioEntries = new ArrayList<>();
-    private volatile boolean initialized = false;
-
-    public void initialize() {
-        if (initialized) {
-            return;
-        }
-
-        try {
-            List<String> audioFiles = loadWaitingAudioFiles();
-            if (audioFiles.isEmpty()) {
-                LOGGER.warn("No waiting audio files found in: " + WAITING_AUDIO_FOLDER);
-                return;
-            }
-
-            LOGGER.info("Found " + audioFiles.size() + " waiting audio file(s)");
-            int processedCount = 0;
-
-            for (String audioFile : audioFiles) {
-                try {
-                    String resourcePath = WAITING_AUDIO_FOLDER + "/" + audioFile;
-                    InputStream resourceStream = getClass().getClassLoader().getResourceAsStream(resourcePath);
-                    if (resourceStream == null) {
-                        LOGGER.warn("Could not load: " + resourcePath);
-                        continue;
+    @Inject
+    StaticAssetRegistry assetRegistry;
+
+    // replaced as a whole once loading is done, readers never see a partial list
+    private volatile List<WaitingAudioEntry> waitingAudioEntries = List.of();
+
+    void onStart(@Observes StartupEvent event) {
+        load().subscribe().with(
+                count -> {
+                    if (count > 0) {
+                        LOGGER.info("Waiting audio initialized with " + count + " file(s)");
+                    } else {
+                        LOGGER.warn("No waiting audio files were successfully processed");
                     }
+                },
+                e -> LOGGER.error("Waiting audio initialization failed", e));
+    }
 
-                    Path tempWaitingFile = Files.createTempFile("waiting_", ".wav");
-                    Files.copy(resourceStream, tempWaitingFile, StandardCopyOption.REPLACE_EXISTING);
-                    resourceStream.close();
-
-                    UUID songId = UUID.randomUUID();
-                    SongMetadata waitingMetadata = new SongMetadata(songId, "Waiting...", "Station");
-
-                    Map<Long, ConcurrentLinkedQueue<HlsSegment>> segments = segmentationService
-                            .slice(waitingMetadata, tempWaitingFile, List.of(128000L, 64000L))
-                            .await().indefinitely();
+    /**
+     * Slices the waiting sounds into HLS once at startup. Nothing waits for it: until it completes
+     * {@link #createWaitingFragment()} returns null.
+     */
+    private Uni<Integer> load() {
+        return Uni.createFrom().item(() -> assetRegistry.list(WAITING_AUDIO_FOLDER))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .onItem().transformToMulti(assets -> {
+                    if (assets.isEmpty()) {
+                        LOGGER.warn("No waiting audio files found in: " + WAITING_AUDIO_FOLDER);
+                    } else {
+                        LOGGER.info("Found " + assets.size() + " waiting audio file(s)");
+                    }
+                    return Multi.createFrom().iterable(assets);
+                })
+                .onItem().transformToUniAndConcatenate(this::sliceAsset)
+                .select().where(Objects::nonNull)
+                .collect().asList()
+                .onItem().transform(entries -> {
+                    waitingAudioEntries = List.copyOf(entries);
+                    return entries.size();
+                });
+    }
 
+    private Uni<WaitingAudioEntry> sliceAsset(PcmAsset asset) {
+        UUID songId = UUID.randomUUID();
+        SongMetadata waitingMetadata = new SongMetadata(songId, "Waiting...", "Station");
+        return segmentationService.slice(waitingMetadata, asset.samples(), List.of(128000L, 64000L))
+                .onItem().transform(segments -> {
                     if (segments.isEmpty()) {
-                        LOGGER.warn("Failed to slice: " + audioFile);
-                        Files.deleteIfExists(tempWaitingFile);
-                        continue;
+                        LOGGER.warn("Failed to slice: " + asset.fileName());
+                        return null;
                     }
-
                     Map<Long, List<HlsSegment>> segmentMap = new ConcurrentHashMap<>();
                     for (Map.Entry<Long, ConcurrentLinkedQueue<HlsSegment>> entry : segments.entrySet()) {
-                        segmentMap.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+                        segmentMap.put(entry.getKey(), List.copyOf(entry.getValue()));
                     }
-
-                    WaitingAudioEntry entry = new WaitingAudioEntry(songId, audioFile, segmentMap);
-                    waitingAudioEntries.add(entry);
-                    processedCount++;
-
-                    LOGGER.info("Loaded waiting audio: " + audioFile + " (" + segments.get(128000L).size() + " segments)");
-
-                    Files.deleteIfExists(tempWaitingFile);
-                } catch (Exception e) {
-                    LOGGER.error("Error processing waiting audio file: " + audioFile, e);
-                }
-            }
-
-            if (processedCount > 0) {
-                initialized = true;
-                LOGGER.info("Waiting audio initialized with " + processedCount + " file(s)");
-            } else {
-                LOGGER.warn("No waiting audio files were successfully processed");
-            }
-        } catch (Exception e) {
-            LOGGER.error("Failed to initialize waiting audio: " + e.getMessage(), e);
-        }
-    }
-
-    private List<String> loadWaitingAudioFiles() {
-        List<String> audioFiles = new ArrayList<>();
-        try {
-            URI uri = getClass().getClassLoader().getResource(WAITING_AUDIO_FOLDER).toURI();
-            Path folderPath;
-
-            if (uri.getScheme().equals("jar")) {
-                FileSystem fileSystem = FileSystems.newFileSystem(uri, Collections.emptyMap());
-                folderPath = fileSystem.getPath(WAITING_AUDIO_FOLDER);
-            } else {
-                folderPath = Paths.get(uri);
-            }
-
-            try (Stream<Path> paths = Files.walk(folderPath, 1)) {
-                paths.filter(Files::isRegularFile)
-                        .filter(p -> p.toString().toLowerCase().endsWith(".wav"))
-                        .forEach(p -> audioFiles.add(p.getFileName().toString()));
-            }
-        } catch (IOException | URISyntaxException e) {
-            LOGGER.error("Error loading waiting audio files from folder: " + WAITING_AUDIO_FOLDER, e);
-        } catch (NullPointerException e) {
-            LOGGER.warn("Waiting audio folder not found: " + WAITING_AUDIO_FOLDER);
-        }
-        return audioFiles;
+                    LOGGER.info("Loaded waiting audio: " + asset.fileName() + " (" + segments.get(128000L).size() + " segments)");
+                    return new WaitingAudioEntry(songId, asset.fileName(), segmentMap);
+                })
+                .onFailure().recoverWithItem(e -> {
+                    LOGGER.error("Error processing waiting audio file: " + asset.fileName(), e);
+                    return null;
+                });
     }
 
-    public Uni<LiveSoundFragment> createWaitingFragment() {
-        if (!initialized || waitingAudioEntries.isEmpty()) {
-            LOGGER.warn("Waiting audio not initialized, returning null");
-            return Uni.createFrom().nullItem();
+    /**
+     * Cheap enough to call on the streamer's feed tick: clones the segment descriptors of one random
+     * waiting sound, the audio bytes are shared.
+     *
+     * @return the fragment, or null while the waiting audio is not loaded
+     */
+    public LiveSoundFragment createWaitingFragment() {
+        List<WaitingAudioEntry> entries = waitingAudioEntries;
+        if (entries.isEmpty()) {
+            LOGGER.debug("Waiting audio not initialized, returning null");
+            return null;
         }
 
-        return Uni.createFrom().item(() -> {
-            WaitingAudioEntry selectedEntry = waitingAudioEntries.get(RANDOM.nextInt(waitingAudioEntries.size()));
-            
-            LiveSoundFragment fragment = new LiveSoundFragment();
-            fragment.setSoundFragmentId(selectedEntry.songId);
-            fragment.setMetadata(new SongMetadata(selectedEntry.songId, "Waiting...", "Station"));
-            fragment.setPriority(999);
+        WaitingAudioEntry selectedEntry = entries.get(RANDOM.nextInt(entries.size()));
 
-            Map<Long, ConcurrentLinkedQueue<HlsSegment>> clonedSegments = new ConcurrentHashMap<>();
+        LiveSoundFragment fragment = new LiveSoundFragment();
+        fragment.setSoundFragmentId(selectedEntry.songId);
+        fragment.setMetadata(new SongMetadata(selectedEntry.songId, "Waiting...", "Station"));
+        fragment.setPriority(WAITING_PRIORITY);
 
-            for (Map.Entry<Long, List<HlsSegment>> entry : selectedEntry.segments.entrySet()) {
-                ConcurrentLinkedQueue<HlsSegment> queue = new ConcurrentLinkedQueue<>();
+        Map<Long, ConcurrentLinkedQueue<HlsSegment>> clonedSegments = new ConcurrentHashMap<>();
 
-                for (HlsSegment originalSegment : entry.getValue()) {
-                    HlsSegment clonedSegment = new HlsSegment();
-                    clonedSegment.setSequence(originalSegment.getSequence());
-                    clonedSegment.setDuration(originalSegment.getDuration());
-                    clonedSegment.setData(originalSegment.getData());
-                    clonedSegment.setBitrate(originalSegment.getBitrate());
-                    clonedSegment.setSongMetadata(fragment.getMetadata());
-                    clonedSegment.setFirstSegmentOfFragment(originalSegment.isFirstSegmentOfFragment());
+        for (Map.Entry<Long, List<HlsSegment>> entry : selectedEntry.segments.entrySet()) {
+            ConcurrentLinkedQueue<HlsSegment> queue = new ConcurrentLinkedQueue<>();
 
-                    queue.offer(clonedSegment);
-                }
+            for (HlsSegment originalSegment : entry.getValue()) {
+                HlsSegment clonedSegment = new HlsSegment();
+                clonedSegment.setSequence(originalSegment.getSequence());
+                clonedSegment.setDuration(originalSegment.getDuration());
+                clonedSegment.setData(originalSegment.getData());
+                clonedSegment.setBitrate(originalSegment.getBitrate());
+                clonedSegment.setSongMetadata(fragment.getMetadata());
+                clonedSegment.setFirstSegmentOfFragment(originalSegment.isFirstSegmentOfFragment());
 
-                clonedSegments.put(entry.getKey(), queue);
+                queue.offer(clonedSegment);
             }
 
-            fragment.setSegments(clonedSegments);
-            LOGGER.debug("Selected waiting audio: " + selectedEntry.fileName);
-            return fragment;
-        });
+            clonedSegments.put(entry.getKey(), queue);
+        }
+
+        fragment.setSegments(clonedSegments);
+        LOGGER.debug("Selected waiting audio: " + selectedEntry.fileName);
+        return fragment;
     }
 
     public boolean isWaitingAudioAvailable() {
-        return initialized && !waitingAudioEntries.isEmpty();
+        return !waitingAudioEntries.isEmpty();
     }
 
     private record WaitingAudioEntry(UUID songId, String fileName, Map<Long, List<HlsSegment>> segments) {}
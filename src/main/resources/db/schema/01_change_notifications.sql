@@ -0,0 +1,25 @@
+-- Row triggers that send NOTIFY <channel>, '<id>' after every insert, update or delete, so the read model
+-- reloads just the row that changed. Applied by the schema owner; the application only listens and falls
+-- back to its periodic revalidation on tables that have no trigger.
+--
+-- The brand and AI agent table names come from the entity name resolver, pass them in:
+--   psql -v brand_table=<brand table> -v ai_agent_table=<ai agent table> -f 01_change_notifications.sql
+
+CREATE OR REPLACE FUNCTION aivox_notify_change() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify(TG_ARGV[0], (CASE WHEN TG_OP = 'DELETE' THEN to_jsonb(OLD) ELSE to_jsonb(NEW) END) ->> TG_ARGV[1]);
+    RETURN NULL;
+END $$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION aivox_notify_changes_on(channel text, target regclass, id_column text) RETURNS void AS $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_trigger WHERE tgname = 'aivox_notify_' || channel AND tgrelid = target) THEN
+        EXECUTE format('CREATE TRIGGER %I AFTER INSERT OR UPDATE OR DELETE ON %s FOR EACH ROW '
+                           'EXECUTE FUNCTION aivox_notify_change(%L, %L)',
+                       'aivox_notify_' || channel, target, channel, id_column);
+    END IF;
+END $$ LANGUAGE plpgsql;
+
+SELECT aivox_notify_changes_on('aivox_brand_changed', :'brand_table', 'id');
+SELECT aivox_notify_changes_on('aivox_ai_agent_changed', :'ai_agent_table', 'id');
+SELECT aivox_notify_changes_on('aivox_ai_agent_changed', 'kneobroadcaster__ai_agent_labels', 'ai_agent_id');
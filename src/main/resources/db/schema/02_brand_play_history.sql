@@ -0,0 +1,15 @@
+-- One row per airing, written in batches by the play recorder and read back to seed the rotation windows
+-- after a restart. Airings past aivox.play-history.retention-days are deleted by the application.
+-- Without the table the application records play counts only.
+
+CREATE TABLE IF NOT EXISTS kneobroadcaster__brand_play_history (
+    brand_id          uuid      NOT NULL,
+    sound_fragment_id uuid      NOT NULL,
+    played_at         timestamp NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS kneobroadcaster__brand_play_history_brand_idx
+    ON kneobroadcaster__brand_play_history (brand_id, played_at DESC);
+
+CREATE INDEX IF NOT EXISTS kneobroadcaster__brand_play_history_played_idx
+    ON kneobroadcaster__brand_play_history (played_at);
@@ -0,0 +1,7 @@
+-- Stats flush batches already applied, so a batch replayed from the spool after a lost acknowledgement is
+-- skipped instead of counted twice. Without it the application flushes without that guard.
+
+CREATE TABLE IF NOT EXISTS kneobroadcaster__brand_stats_batches (
+    batch_id   uuid        PRIMARY KEY,
+    applied_at timestamptz NOT NULL
+);
@@ -0,0 +1,15 @@
+-- Cue points of each song's first file, analyzed by the application once per file when a brand's catalog
+-- loads and read back with the catalog, so crossfades never decode a song just to find its cues. A row
+-- whose file_key is no longer the fragment's first file is ignored and analyzed again.
+-- Without the table crossfades use the whole files.
+
+CREATE TABLE IF NOT EXISTS kneobroadcaster__sound_fragment_cues (
+    sound_fragment_id uuid             PRIMARY KEY,
+    file_key          text             NOT NULL,
+    cue_in            double precision NOT NULL,
+    cue_out           double precision NOT NULL,
+    fade_out_start    double precision NOT NULL,
+    intro_end         double precision NOT NULL,
+    duration          double precision NOT NULL,
+    analyzed_at       timestamp        NOT NULL
+);
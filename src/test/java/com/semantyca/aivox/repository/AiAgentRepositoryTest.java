@@ -0,0 +1,76 @@
+package com.semantyca.aivox.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.semantyca.core.model.user.SuperUser;
+import com.semantyca.core.repository.rls.RLSRepository;
+import com.semantyca.mixpla.model.aiagent.AiAgent;
+import com.semantyca.mixpla.model.cnst.LlmType;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.Row;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AiAgentRepositoryTest {
+
+    private final PgPool client = mock(PgPool.class);
+    private final List<String> statements = new ArrayList<>();
+    private final List<UUID> ids = IntStream.range(0, 5).mapToObj(i -> UUID.randomUUID()).toList();
+    private final UUID firstLabel = UUID.randomUUID();
+    private final UUID secondLabel = UUID.randomUUID();
+    private AiAgentRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new AiAgentRepository(client, new ObjectMapper(), mock(RLSRepository.class));
+        PgPoolMocks.answerQueries(client, statements, sql -> ids.stream().map(AiAgentRepositoryTest::agentRow).toList());
+        // two labels on the first agent, one on the third, none on the rest
+        PgPoolMocks.answerPreparedQueries(client, statements, sql -> List.of(labelRow(ids.get(0), firstLabel),
+                labelRow(ids.get(2), secondLabel), labelRow(ids.get(0), secondLabel)));
+    }
+
+    @Test
+    void getAll_shouldLoadLabelsOncePerPage() {
+        // When
+        List<AiAgent> agents = repository.getAll(5, 0, false, SuperUser.build()).await().indefinitely();
+
+        // Then: the page and its labels, agents in row order
+        assertEquals(2, statements.size());
+        assertEquals(ids, agents.stream().map(AiAgent::getId).toList());
+        assertEquals("agent-" + ids.get(3), agents.get(3).getName());
+        assertEquals(LlmType.values()[0], agents.get(3).getLlmType());
+        assertEquals(List.of(firstLabel, secondLabel), agents.get(0).getLabels());
+        assertEquals(List.of(secondLabel), agents.get(2).getLabels());
+        assertEquals(List.of(), agents.get(1).getLabels());
+    }
+
+    private static Row agentRow(UUID id) {
+        Row row = mock(Row.class);
+        when(row.getString(anyString())).thenReturn("x");
+        when(row.getString("name")).thenReturn("agent-" + id);
+        when(row.getString("llm_type")).thenReturn(LlmType.values()[0].name());
+        when(row.getUUID(anyString())).thenReturn(id);
+        when(row.getInteger(anyString())).thenReturn(0);
+        when(row.getLong(anyString())).thenReturn(0L);
+        when(row.getLocalDateTime(anyString())).thenReturn(LocalDateTime.now());
+        return row;
+    }
+
+    private static Row labelRow(UUID agentId, UUID labelId) {
+        Row row = mock(Row.class);
+        when(row.getUUID("ai_agent_id")).thenReturn(agentId);
+        when(row.getUUID("label_id")).thenReturn(labelId);
+        return row;
+    }
+
+}
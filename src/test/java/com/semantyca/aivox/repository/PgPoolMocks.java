@@ -0,0 +1,69 @@
+package com.semantyca.aivox.repository;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.PreparedQuery;
+import io.vertx.mutiny.sqlclient.Query;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowIterator;
+import io.vertx.mutiny.sqlclient.RowSet;
+import io.vertx.mutiny.sqlclient.Tuple;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Mocked {@link PgPool} answers for the repository tests: every statement is recorded and answered with
+ * the rows chosen for its SQL.
+ */
+public final class PgPoolMocks {
+
+    private PgPoolMocks() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void answerPreparedQueries(PgPool client, List<String> statements, Function<String, List<Row>> rows) {
+        when(client.preparedQuery(anyString())).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            statements.add(sql);
+            RowSet<Row> result = rowSet(rows.apply(sql));
+            PreparedQuery<RowSet<Row>> query = mock(PreparedQuery.class);
+            when(query.execute(any(Tuple.class))).thenReturn(Uni.createFrom().item(result));
+            return query;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void answerQueries(PgPool client, List<String> statements, Function<String, List<Row>> rows) {
+        when(client.query(anyString())).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            statements.add(sql);
+            RowSet<Row> result = rowSet(rows.apply(sql));
+            Query<RowSet<Row>> query = mock(Query.class);
+            when(query.execute()).thenReturn(Uni.createFrom().item(result));
+            return query;
+        });
+    }
+
+    /**
+     * @return a row set that can be iterated any number of times
+     */
+    @SuppressWarnings("unchecked")
+    public static RowSet<Row> rowSet(List<Row> rows) {
+        RowSet<Row> rowSet = mock(RowSet.class);
+        when(rowSet.iterator()).thenAnswer(invocation -> {
+            Iterator<Row> it = rows.iterator();
+            RowIterator<Row> rowIterator = mock(RowIterator.class);
+            when(rowIterator.hasNext()).thenAnswer(i -> it.hasNext());
+            when(rowIterator.next()).thenAnswer(i -> it.next());
+            return rowIterator;
+        });
+        return rowSet;
+    }
+}
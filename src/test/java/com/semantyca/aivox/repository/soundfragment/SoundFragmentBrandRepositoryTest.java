@@ -0,0 +1,92 @@
+package com.semantyca.aivox.repository.soundfragment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.semantyca.aivox.repository.PgPoolMocks;
+import com.semantyca.core.model.user.SuperUser;
+import com.semantyca.core.repository.rls.RLSRepository;
+import com.semantyca.mixpla.model.cnst.PlaylistItemType;
+import com.semantyca.mixpla.model.cnst.SourceType;
+import com.semantyca.mixpla.model.soundfragment.BrandSoundFragment;
+import com.semantyca.mixpla.model.soundfragment.SoundFragment;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.Row;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SoundFragmentBrandRepositoryTest {
+
+    private final PgPool client = mock(PgPool.class);
+    private final List<String> statements = new ArrayList<>();
+    private final List<UUID> ids = IntStream.range(0, 50).mapToObj(i -> UUID.randomUUID()).toList();
+    private final UUID label = UUID.randomUUID();
+    private SoundFragmentBrandRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new SoundFragmentBrandRepository(client, new ObjectMapper(), mock(RLSRepository.class));
+        PgPoolMocks.answerPreparedQueries(client, statements, sql -> {
+            if (sql.contains("sound_fragment_labels")) {
+                return ids.stream().map(id -> labelRow(id, label)).toList();
+            } else if (sql.contains("__genres")) {
+                return List.of();
+            }
+            return ids.stream().map(SoundFragmentBrandRepositoryTest::fragmentRow).toList();
+        });
+    }
+
+    @Test
+    void getBrandSongs_shouldLoadRelationsOncePerPage() {
+        // When
+        List<SoundFragment> songs = repository.getBrandSongs(UUID.randomUUID(), PlaylistItemType.SONG, 50, 0)
+                .await().indefinitely();
+
+        // Then: the page, its genres and its labels
+        assertEquals(3, statements.size());
+        assertEquals(50, songs.size());
+        assertEquals(ids.get(49), songs.get(49).getId());
+        assertEquals(List.of(label), songs.get(49).getLabels());
+        assertEquals(List.of(), songs.get(49).getGenres());
+    }
+
+    @Test
+    void findForBrandByIds_shouldKeepRowOrder() {
+        // When
+        List<BrandSoundFragment> fragments = repository.findForBrandByIds(UUID.randomUUID(), ids, SuperUser.build())
+                .await().indefinitely();
+
+        // Then
+        assertEquals(3, statements.size());
+        assertEquals(ids, fragments.stream().map(f -> f.getSoundFragment().getId()).toList());
+    }
+
+    private static Row fragmentRow(UUID id) {
+        Row row = mock(Row.class);
+        when(row.getString(anyString())).thenReturn("x");
+        when(row.getString("source")).thenReturn(SourceType.values()[0].name());
+        when(row.getString("type")).thenReturn(PlaylistItemType.SONG.name());
+        when(row.getUUID(anyString())).thenReturn(id);
+        when(row.getInteger(anyString())).thenReturn(0);
+        when(row.getLong(anyString())).thenReturn(0L);
+        when(row.getLocalDateTime(anyString())).thenReturn(LocalDateTime.now());
+        return row;
+    }
+
+    private static Row labelRow(UUID fragmentId, UUID labelId) {
+        Row row = mock(Row.class);
+        when(row.getUUID("id")).thenReturn(fragmentId);
+        when(row.getUUID("label_id")).thenReturn(labelId);
+        return row;
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.semantyca.aivox.repository.soundfragment;
+
+import com.semantyca.aivox.repository.Keyset;
+import com.semantyca.aivox.repository.SqlStatement;
+import com.semantyca.core.model.user.SuperUser;
+import com.semantyca.mixpla.model.filter.SoundFragmentFilter;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SoundFragmentQueryBuilderTest {
+
+    private final SoundFragmentQueryBuilder builder = new SoundFragmentQueryBuilder();
+
+    @Test
+    void buildGetAllQuery_shouldKeepTextStableAcrossValues() {
+        // Given
+        SoundFragmentFilter one = filter(List.of(UUID.randomUUID()));
+        SoundFragmentFilter three = filter(List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()));
+
+        // When
+        SqlStatement first = builder.buildGetAllQuery("t_table", "t_rls", SuperUser.build(), false, one, 20, 0);
+        SqlStatement deep = builder.buildGetAllQuery("t_table", "t_rls", SuperUser.build(), false, three, 50, 5000);
+
+        // Then
+        assertEquals(first.sql(), deep.sql());
+        assertTrue(deep.sql().contains("sfg2.genre_id = ANY($2::uuid[])"));
+        assertFalse(deep.sql().contains("'"));
+        assertEquals(5000, deep.params().getValue(deep.params().size() - 1));
+    }
+
+    @Test
+    void buildGetAllQuery_shouldSeekAfterKeyset() {
+        // Given
+        Keyset after = new Keyset(LocalDateTime.of(2024, 5, 1, 12, 0), UUID.randomUUID());
+        Keyset later = new Keyset(LocalDateTime.of(2021, 1, 1, 0, 0), UUID.randomUUID());
+
+        // When
+        SqlStatement page = builder.buildGetAllQuery("t_table", "t_rls", SuperUser.build(), false, null, 50, after);
+        SqlStatement deeper = builder.buildGetAllQuery("t_table", "t_rls", SuperUser.build(), false, null, 50, later);
+
+        // Then
+        assertEquals(page.sql(), deeper.sql());
+        assertTrue(page.sql().contains("(t.reg_date, t.id) < ($2, $3) ORDER BY t.reg_date DESC, t.id DESC LIMIT $4"));
+        assertFalse(page.sql().contains("OFFSET"));
+        assertEquals(after.id(), page.params().getValue(2));
+    }
+
+    private static SoundFragmentFilter filter(List<UUID> genres) {
+        SoundFragmentFilter filter = mock(SoundFragmentFilter.class);
+        when(filter.isActivated()).thenReturn(true);
+        when(filter.getGenre()).thenReturn(genres);
+        return filter;
+    }
+}
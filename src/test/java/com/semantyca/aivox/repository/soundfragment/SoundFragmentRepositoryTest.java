@@ -0,0 +1,91 @@
+package com.semantyca.aivox.repository.soundfragment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.semantyca.aivox.repository.KeysetPage;
+import com.semantyca.aivox.repository.PgPoolMocks;
+import com.semantyca.core.model.user.SuperUser;
+import com.semantyca.core.repository.rls.RLSRepository;
+import com.semantyca.mixpla.model.cnst.PlaylistItemType;
+import com.semantyca.mixpla.model.cnst.SourceType;
+import com.semantyca.mixpla.model.soundfragment.SoundFragment;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.Row;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SoundFragmentRepositoryTest {
+    private static final LocalDateTime REG_DATE = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final PgPool client = mock(PgPool.class);
+    private final List<String> statements = new ArrayList<>();
+    private final List<UUID> ids = IntStream.range(0, 50).mapToObj(i -> UUID.randomUUID()).toList();
+    private SoundFragmentRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new SoundFragmentRepository(client, new ObjectMapper(), mock(RLSRepository.class),
+                new SoundFragmentQueryBuilder(), mock(SoundFragmentFileHandler.class));
+        PgPoolMocks.answerPreparedQueries(client, statements,
+                sql -> ids.stream().map(SoundFragmentRepositoryTest::fragmentRow).toList());
+    }
+
+    @Test
+    void getAll_shouldMapPageInRowOrderWithoutRelationQueries() {
+        // When
+        List<SoundFragment> fragments = repository.getAll(50, 0, SuperUser.build(), null)
+                .await().indefinitely();
+
+        // Then: the page alone, every relation left empty
+        assertEquals(1, statements.size());
+        assertEquals(ids, fragments.stream().map(SoundFragment::getId).toList());
+        SoundFragment last = fragments.get(49);
+        assertEquals("title-" + ids.get(49), last.getTitle());
+        assertEquals(PlaylistItemType.SONG, last.getType());
+        assertEquals(List.of(), last.getGenres());
+        assertEquals(List.of(), last.getLabels());
+        assertEquals(List.of(), last.getFileMetadataList());
+    }
+
+    @Test
+    void getAll_shouldSeekFromLastRowOfFullPage() {
+        // When
+        KeysetPage<SoundFragment> full = repository.getAll(50, null, SuperUser.build(), null)
+                .await().indefinitely();
+        KeysetPage<SoundFragment> shortPage = repository.getAll(51, full.next(), SuperUser.build(), null)
+                .await().indefinitely();
+
+        // Then
+        assertEquals(ids, full.items().stream().map(SoundFragment::getId).toList());
+        assertEquals(REG_DATE, full.next().value());
+        assertEquals(ids.get(49), full.next().id());
+        assertEquals(50, shortPage.items().size());
+        assertNull(shortPage.next());
+        assertEquals(2, statements.size());
+    }
+
+    private static Row fragmentRow(UUID id) {
+        Row row = mock(Row.class);
+        when(row.getString(anyString())).thenReturn("x");
+        when(row.getString("title")).thenReturn("title-" + id);
+        when(row.getString("source")).thenReturn(SourceType.values()[0].name());
+        when(row.getString("type")).thenReturn(PlaylistItemType.SONG.name());
+        when(row.getUUID(anyString())).thenReturn(id);
+        when(row.getInteger(anyString())).thenReturn(0);
+        when(row.getLong(anyString())).thenReturn(0L);
+        when(row.getLocalDateTime(anyString())).thenReturn(REG_DATE);
+        return row;
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.semantyca.aivox.service.catalog;
+
+import com.semantyca.aivox.model.CatalogEntry;
+import com.semantyca.mixpla.model.cnst.PlaylistItemType;
+import com.semantyca.mixpla.model.cnst.SourceType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microseconds to resolve a scene's genre/label/type/source filter over a brand catalog: bitmap
+ * algebra against a per-row scan that evaluates the predicate the way the SQL path does, IN lists
+ * and an EXISTS probe per row. The scan is a lower bound for the SQL path, which adds planning, the
+ * round-trip and row decoding on top. Not picked up by surefire; run after test-compile with
+ * {@code java -cp target/test-classes:<test classpath> org.openjdk.jmh.Main CatalogFilterBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogFilterBenchmark {
+    private static final int GENRES = 40;
+    private static final int LABELS = 20;
+
+    @Param({"10000", "100000", "1000000"})
+    public int fragments;
+
+    private List<CatalogEntry> entries;
+    private BrandCatalog catalog;
+    private SceneFilter filter;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        UUID[] genres = uuids(GENRES, random);
+        UUID[] labels = uuids(LABELS, random);
+        entries = randomEntries(fragments, genres, labels, random);
+        catalog = BrandCatalog.of(entries);
+        filter = new SceneFilter(List.of(genres[0], genres[3], genres[7]), List.of(labels[1]),
+                List.of(PlaylistItemType.SONG), List.of(), null, null, false);
+    }
+
+    @Benchmark
+    public int bitmap() {
+        return catalog.candidates(filter).getCardinality();
+    }
+
+    @Benchmark
+    public int rowScan() {
+        int count = 0;
+        for (CatalogEntry entry : entries) {
+            if (!entry.archived() && filter.types().contains(entry.type())
+                    && anyOf(entry.genres(), filter.genres()) && anyOf(entry.labels(), filter.labels())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static List<CatalogEntry> randomEntries(int count, UUID[] genres, UUID[] labels, Random random) {
+        PlaylistItemType[] types = PlaylistItemType.values();
+        SourceType[] sources = SourceType.values();
+        List<CatalogEntry> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UUID[] fragmentGenres = {genres[random.nextInt(genres.length)], genres[random.nextInt(genres.length)]};
+            UUID[] fragmentLabels = random.nextInt(3) == 0 ? new UUID[]{labels[random.nextInt(labels.length)]} : null;
+            result.add(new CatalogEntry(UUID.randomUUID(),
+                    random.nextInt(10) < 8 ? PlaylistItemType.SONG : types[random.nextInt(types.length)],
+                    sources[random.nextInt(sources.length)], "Title " + i, "Artist " + random.nextInt(count / 10 + 1),
+                    null, 180_000, fragmentGenres, fragmentLabels, random.nextInt(100), random.nextInt(20) == 0));
+        }
+        return result;
+    }
+
+    static UUID[] uuids(int count, Random random) {
+        UUID[] result = new UUID[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+        return result;
+    }
+
+    private static boolean anyOf(UUID[] values, List<UUID> wanted) {
+        if (values == null) {
+            return false;
+        }
+        for (UUID value : values) {
+            if (wanted.contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,75 @@
+package com.semantyca.aivox.service.catalog;
+
+import com.semantyca.aivox.model.CatalogEntry;
+import com.semantyca.mixpla.model.cnst.PlaylistItemType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CatalogFilterIndexTest {
+
+    private final Random random = new Random(7);
+    private final UUID[] genres = CatalogFilterBenchmark.uuids(10, random);
+    private final UUID[] labels = CatalogFilterBenchmark.uuids(5, random);
+
+    @Test
+    void candidates_shouldMatchRowScan() {
+        List<CatalogEntry> entries = CatalogFilterBenchmark.randomEntries(5_000, genres, labels, random);
+        BrandCatalog catalog = BrandCatalog.of(entries);
+        SceneFilter filter = new SceneFilter(List.of(genres[1], genres[2]), List.of(labels[0]),
+                List.of(PlaylistItemType.SONG), List.of(), null, null, false);
+
+        assertEquals(scan(entries, filter), ids(catalog, filter));
+    }
+
+    @Test
+    void apply_shouldPatchIndexInPlace() {
+        // Given
+        List<CatalogEntry> entries = new ArrayList<>(CatalogFilterBenchmark.randomEntries(2_000, genres, labels, random));
+        BrandCatalog catalog = BrandCatalog.of(entries);
+        SceneFilter filter = new SceneFilter(List.of(genres[4]), List.of(), List.of(), List.of(), null, null, false);
+
+        // When: one fragment moves into the genre, one is archived, one is new
+        CatalogEntry moved = retag(entries.get(10), new UUID[]{genres[4]}, false);
+        CatalogEntry archived = retag(entries.get(20), entries.get(20).genres(), true);
+        CatalogEntry added = retag(CatalogFilterBenchmark.randomEntries(1, genres, labels, random).get(0),
+                new UUID[]{genres[4]}, false);
+        entries.set(10, moved);
+        entries.set(20, archived);
+        entries.add(added);
+        BrandCatalog patched = catalog.apply(List.of(moved, archived, added));
+
+        // Then
+        assertEquals(scan(entries, filter), ids(patched, filter));
+    }
+
+    private static CatalogEntry retag(CatalogEntry entry, UUID[] genres, boolean archived) {
+        return new CatalogEntry(entry.id(), entry.type(), entry.source(), entry.title(), entry.artist(), entry.album(),
+                entry.lengthMillis(), genres, entry.labels(), entry.playCount(), archived);
+    }
+
+    private static List<UUID> ids(BrandCatalog catalog, SceneFilter filter) {
+        List<UUID> result = new ArrayList<>();
+        catalog.candidates(filter).forEach((int slot) -> result.add(catalog.idAt(slot)));
+        return result;
+    }
+
+    private static List<UUID> scan(List<CatalogEntry> entries, SceneFilter filter) {
+        return entries.stream()
+                .filter(e -> !e.archived())
+                .filter(e -> filter.types().isEmpty() || filter.types().contains(e.type()))
+                .filter(e -> filter.genres().isEmpty() || anyOf(e.genres(), filter.genres()))
+                .filter(e -> filter.labels().isEmpty() || anyOf(e.labels(), filter.labels()))
+                .map(CatalogEntry::id)
+                .toList();
+    }
+
+    private static boolean anyOf(UUID[] values, List<UUID> wanted) {
+        return values != null && List.of(values).stream().anyMatch(wanted::contains);
+    }
+}
@@ -0,0 +1,76 @@
+package com.semantyca.aivox.service.catalog;
+
+import com.semantyca.aivox.model.CatalogEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TrigramIndexTest {
+
+    @Test
+    void similarity_shouldMatchPgTrgm() {
+        // the example from the pg_trgm documentation
+        assertEquals(0.363636, TrigramIndex.similarity("word", "two words"), 1e-6);
+        assertEquals(1.0, TrigramIndex.similarity("Hello, World", "world hello"), 1e-9);
+    }
+
+    @Test
+    void search_shouldMatchSimilarityScan() {
+        List<CatalogEntry> entries = TrigramSearchBenchmark.namedEntries(3_000, new Random(11));
+        BrandCatalog catalog = BrandCatalog.of(entries);
+
+        for (String query : List.of("midnight", "silver rain", "electrik", "on", "ght 1")) {
+            List<UUID> matches = scan(entries, query);
+            List<UUID> expected = matches.subList(0, Math.min(25, matches.size()));
+            List<UUID> actual = new ArrayList<>();
+            catalog.search(query, catalog.candidates(SceneFilter.any()), 25)
+                    .forEach(hit -> actual.add(catalog.idAt(hit.slot())));
+            assertEquals(expected, actual, query);
+        }
+    }
+
+    @Test
+    void apply_shouldReindexRenamedFragment() {
+        // Given
+        List<CatalogEntry> entries = TrigramSearchBenchmark.namedEntries(500, new Random(3));
+        BrandCatalog catalog = BrandCatalog.of(entries);
+        CatalogEntry entry = entries.get(42);
+
+        // When
+        CatalogEntry renamed = new CatalogEntry(entry.id(), entry.type(), entry.source(), "Quixotic Zephyr",
+                entry.artist(), entry.album(), entry.lengthMillis(), entry.genres(), entry.labels(),
+                entry.playCount(), false);
+        BrandCatalog patched = catalog.apply(List.of(renamed));
+
+        // Then
+        List<TrigramIndex.Hit> hits = patched.search("quixotic zephyr", null, 1);
+        assertEquals(entry.id(), patched.idAt(hits.get(0).slot()));
+        // the old title's trigrams are gone: slot 42 scores only on what the new text shares with it
+        String text = "Quixotic Zephyr " + entry.artist() + " " + entry.album();
+        double expected = TrigramIndex.similarity(text, entry.title());
+        double actual = patched.search(entry.title(), null, 0).stream()
+                .filter(hit -> hit.slot() == 42).mapToDouble(TrigramIndex.Hit::score).findFirst().orElse(0);
+        assertEquals(expected > 0.05 ? expected : 0, actual, 1e-9);
+    }
+
+    private static List<UUID> scan(List<CatalogEntry> entries, String query) {
+        List<double[]> hits = new ArrayList<>();
+        for (int slot = 0; slot < entries.size(); slot++) {
+            CatalogEntry entry = entries.get(slot);
+            String text = entry.title() + " " + entry.artist() + " " + entry.album();
+            double score = TrigramIndex.similarity(text, query);
+            if (!entry.archived() && (score > 0.05 || text.toLowerCase(Locale.ROOT).contains(query))) {
+                hits.add(new double[]{score, slot});
+            }
+        }
+        hits.sort(Comparator.<double[]>comparingDouble(hit -> -hit[0]).thenComparingDouble(hit -> hit[1]));
+        return hits.stream().map(hit -> entries.get((int) hit[1]).id()).toList();
+    }
+}
@@ -0,0 +1,134 @@
+package com.semantyca.aivox.service.catalog;
+
+import com.semantyca.aivox.model.CatalogEntry;
+import com.semantyca.mixpla.model.cnst.PlaylistItemType;
+import com.semantyca.mixpla.model.cnst.SourceType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microseconds for an agent's top-20 search over a brand catalog: the trigram index against a scan
+ * that does per row what the SQL path does without a GIN index, trigrams of the row, similarity to
+ * the query, the ILIKE test and a bounded sort. The scan is a lower bound for the SQL path. Setup fails
+ * unless both return the same top-20 scores, so a run only times answers that agree. The index walks
+ * RoaringBitmap postings, so its timings hold only for the RoaringBitmap on the test classpath. Not
+ * picked up by surefire; run after test-compile with
+ * {@code java -cp target/test-classes:<test classpath> org.openjdk.jmh.Main TrigramSearchBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrigramSearchBenchmark {
+    private static final int LIMIT = 20;
+    // a few words every catalog repeats, the rest made up, so postings are skewed the way real titles are
+    private static final String[] COMMON = {"love", "night", "summer", "blue", "heart", "fire", "dream", "river",
+            "city", "light", "dance", "shadow", "golden", "road", "rain", "wild", "echo", "silver", "moon", "storm",
+            "velvet", "midnight", "ocean", "paper", "electric", "ghost", "garden", "neon", "winter", "honey"};
+    private static final String[] SYLLABLES = {"ka", "lo", "mi", "ra", "ne", "tu", "sa", "vo", "ri", "en", "da", "po",
+            "li", "mar", "ton", "bel", "gra", "shi", "zu", "fen", "qua", "dor", "wen", "hal"};
+
+    @Param({"10000", "100000"})
+    public int fragments;
+
+    @Param({"midnight", "silver rain", "electrik"})
+    public String query;
+
+    private List<CatalogEntry> entries;
+    private BrandCatalog catalog;
+    private RoaringBitmap allowed;
+
+    @Setup
+    public void setUp() {
+        entries = namedEntries(fragments, new Random(42));
+        catalog = BrandCatalog.of(entries);
+        allowed = catalog.candidates(SceneFilter.any());
+        List<Double> indexed = catalog.search(query, allowed, LIMIT).stream().map(TrigramIndex.Hit::score).toList();
+        List<Double> scanned = scan().stream().map(hit -> hit[0]).sorted(Comparator.reverseOrder()).toList();
+        if (!indexed.equals(scanned)) {
+            throw new IllegalStateException("Index and scan disagree for '" + query + "': " + indexed + " vs " + scanned);
+        }
+    }
+
+    @Benchmark
+    public int trigramIndex() {
+        return catalog.search(query, allowed, LIMIT).size();
+    }
+
+    @Benchmark
+    public int similarityScan() {
+        return scan().size();
+    }
+
+    private PriorityQueue<double[]> scan() {
+        String needle = query.toLowerCase(Locale.ROOT);
+        PriorityQueue<double[]> top = new PriorityQueue<>(LIMIT + 1, Comparator.comparingDouble(hit -> hit[0]));
+        for (int slot = 0; slot < entries.size(); slot++) {
+            CatalogEntry entry = entries.get(slot);
+            if (entry.archived()) {
+                continue;
+            }
+            String text = entry.title() + " " + entry.artist() + " " + entry.album();
+            double score = TrigramIndex.similarity(text, query);
+            if (score > 0.05 || text.toLowerCase(Locale.ROOT).contains(needle)) {
+                top.offer(new double[]{score, slot});
+                if (top.size() > LIMIT) {
+                    top.poll();
+                }
+            }
+        }
+        return top;
+    }
+
+    static List<CatalogEntry> namedEntries(int count, Random random) {
+        List<CatalogEntry> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String artist = words(random, 2) + " " + random.nextInt(count / 10 + 1);
+            result.add(new CatalogEntry(UUID.randomUUID(), PlaylistItemType.SONG, SourceType.values()[0],
+                    words(random, 1 + random.nextInt(3)), artist, words(random, 2), 180_000, null, null,
+                    random.nextInt(100), random.nextInt(20) == 0));
+        }
+        return result;
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            String word = random.nextInt(5) == 0 ? COMMON[random.nextInt(COMMON.length)] : madeUp(random);
+            text.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+        }
+        return text.toString();
+    }
+
+    private static String madeUp(Random random) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 2 + random.nextInt(2); i > 0; i--) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,129 @@
+package com.semantyca.aivox.service.manipulation;
+
+import com.semantyca.aivox.service.manipulation.mixing.MixGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Wall-clock milliseconds to turn a song plus an intro into HLS segments for two bitrates: the former two passes,
+ * mixing into a merged WAV that is then segmented per bitrate, against the single filter_complex pass of
+ * {@link AudioSegmentationService} with one asplit branch per bitrate. Both use the {@link MixGraph} duck and the
+ * segmenter's encoder settings, so the difference is the intermediate file and the second decode; the former Java
+ * mixer is stood in for by ffmpeg. Inputs are generated tones of a typical song and intro length. Needs an ffmpeg
+ * binary; not picked up by surefire, run after test-compile with
+ * {@code java -Dbenchmark.ffmpeg=/usr/bin/ffmpeg -cp target/test-classes:<test classpath> org.openjdk.jmh.Main MixRenderBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MixRenderBenchmark {
+    private static final double SONG_SECONDS = 210;
+    private static final double INTRO_SECONDS = 12;
+    private static final long[] BITRATES = {128_000, 256_000};
+
+    private String ffmpeg;
+    private Path workDir;
+    private Path song;
+    private Path intro;
+    private MixGraph graph;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        ffmpeg = System.getProperty("benchmark.ffmpeg", "ffmpeg");
+        workDir = Files.createTempDirectory("mix-bench");
+        song = workDir.resolve("song.mp3");
+        intro = workDir.resolve("intro.mp3");
+        run(List.of(ffmpeg, "-y", "-f", "lavfi", "-i", "sine=frequency=440:duration=" + SONG_SECONDS,
+                "-ac", "2", "-ar", "44100", song.toString()));
+        run(List.of(ffmpeg, "-y", "-f", "lavfi", "-i", "sine=frequency=660:duration=" + INTRO_SECONDS,
+                "-ac", "2", "-ar", "44100", intro.toString()));
+        graph = MixGraph.songWithIntro(song, SONG_SECONDS, intro, INTRO_SECONDS, 5, 0.2);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public void mergedWavThenSegments() throws IOException, InterruptedException {
+        Path out = Files.createTempDirectory(workDir, "two-pass");
+        Path merged = out.resolve("merged_tmp.wav");
+        List<String> mix = inputs();
+        mix.addAll(List.of("-filter_complex", graph.filter(), "-c:a", "pcm_s16le", merged.toString()));
+        run(mix);
+
+        List<String> segment = new ArrayList<>(List.of(ffmpeg, "-y", "-i", merged.toString()));
+        for (int i = 0; i < BITRATES.length; i++) {
+            segment.addAll(List.of("-map", "0:a", "-af", "dynaudnorm,acompressor"));
+            segment.addAll(segmentOutput(out, i));
+        }
+        run(segment);
+    }
+
+    @Benchmark
+    public void singlePass() throws IOException, InterruptedException {
+        Path out = Files.createTempDirectory(workDir, "one-pass");
+        StringBuilder filter = new StringBuilder(graph.filter())
+                .append(",dynaudnorm,acompressor,asplit=").append(BITRATES.length);
+        for (int i = 0; i < BITRATES.length; i++) {
+            filter.append("[out").append(i).append(']');
+        }
+        List<String> command = inputs();
+        command.addAll(List.of("-filter_complex", filter.toString()));
+        for (int i = 0; i < BITRATES.length; i++) {
+            command.addAll(List.of("-map", "[out" + i + "]"));
+            command.addAll(segmentOutput(out, i));
+        }
+        run(command);
+    }
+
+    private List<String> inputs() {
+        List<String> command = new ArrayList<>(List.of(ffmpeg, "-y"));
+        for (Path input : graph.inputs()) {
+            command.addAll(List.of("-i", input.toString()));
+        }
+        return command;
+    }
+
+    private List<String> segmentOutput(Path out, int rendition) {
+        return List.of("-c:a", "aac", "-b:a", String.valueOf(BITRATES[rendition]), "-f", "segment",
+                "-segment_time", "10", "-segment_format", "mpegts",
+                "-segment_list", out.resolve(rendition + "_segments.txt").toString(), "-segment_list_type", "flat",
+                "-ac", "2", "-ar", "44100", "-threads", "0", "-aac_coder", "twoloop", "-nostdin", "-vn",
+                out.resolve(rendition + "_%03d.ts").toString());
+    }
+
+    private static void run(List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("ffmpeg failed: " + String.join(" ", command));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.semantyca.aivox.service.manipulation.mixing.dsp;
+
+import com.semantyca.aivox.service.manipulation.mixing.handler.FadeCurve;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples per nanosecond for the duck-and-mix step of mixSongPlusIntro: the old byte-by-byte loop, easing the
+ * duck with a per-sample pow, against the scalar and vector kernels, which include building the STEEP envelope.
+ * The vector kernel is only compiled with {@code -Dvector}; without it both kernels run scalar. Not picked up by surefire; run after test-compile with
+ * {@code java -cp target/test-classes:<test classpath> org.openjdk.jmh.Main PcmKernelBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class PcmKernelBenchmark {
+    // 10 seconds of 44.1kHz stereo
+    private static final int SAMPLES = 44100 * 2 * 10;
+
+    private byte[] songBytes;
+    private byte[] introBytes;
+    private short[] song;
+    private short[] intro;
+    private IPcmKernel scalar;
+    private IPcmKernel vector;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        songBytes = new byte[SAMPLES * 2];
+        introBytes = new byte[SAMPLES * 2];
+        random.nextBytes(songBytes);
+        random.nextBytes(introBytes);
+        song = PcmKernels.toShorts(songBytes);
+        intro = PcmKernels.toShorts(introBytes);
+        scalar = PcmKernels.scalar();
+        vector = PcmKernels.get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public byte[] legacyLoop() {
+        byte[] mixed = songBytes.clone();
+        double minDuck = 0.2;
+        double maxDuck = 1.0;
+        for (int i = 0; i + 1 < introBytes.length; i += 2) {
+            // the old handler eased the duck over the intro, one pow per sample with a varying base
+            double progress = (double) i / introBytes.length;
+            double duckFactor = maxDuck - Math.pow(progress, 3.5) * (maxDuck - minDuck);
+            short s1 = (short) ((mixed[i + 1] << 8) | (mixed[i] & 0xff));
+            short s2 = (short) ((introBytes[i + 1] << 8) | (introBytes[i] & 0xff));
+            int sum = (int) Math.round(s1 * duckFactor) + s2;
+            if (sum > Short.MAX_VALUE) sum = Short.MAX_VALUE;
+            if (sum < Short.MIN_VALUE) sum = Short.MIN_VALUE;
+            mixed[i] = (byte) (sum & 0xff);
+            mixed[i + 1] = (byte) ((sum >> 8) & 0xff);
+        }
+        return mixed;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public short[] scalarKernel() {
+        short[] mixed = song.clone();
+        scalar.duck(mixed, 0, FadeCurve.STEEP.envelope(SAMPLES / 2, 2, 1.0f, 0.2f), 0, intro, 0, SAMPLES);
+        return mixed;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public short[] vectorKernel() {
+        short[] mixed = song.clone();
+        vector.duck(mixed, 0, FadeCurve.STEEP.envelope(SAMPLES / 2, 2, 1.0f, 0.2f), 0, intro, 0, SAMPLES);
+        return mixed;
+    }
+}
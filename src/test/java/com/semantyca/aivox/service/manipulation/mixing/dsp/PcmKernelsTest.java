@@ -0,0 +1,65 @@
+package com.semantyca.aivox.service.manipulation.mixing.dsp;
+
+import com.semantyca.aivox.service.manipulation.mixing.handler.FadeCurve;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PcmKernelsTest {
+
+    private static final int SAMPLES = 44100 * 2 + 13;
+
+    private final IPcmKernel scalar = PcmKernels.scalar();
+    private final IPcmKernel vector = PcmKernels.get();
+
+    @Test
+    void mix_shouldSaturateInsteadOfWrapping() {
+        short[] dst = {Short.MAX_VALUE, Short.MIN_VALUE, 1000};
+        short[] src = {Short.MAX_VALUE, Short.MIN_VALUE, -500};
+
+        scalar.mix(dst, 0, src, 0, dst.length, 1.0f, 1.0f);
+
+        assertArrayEquals(new short[]{Short.MAX_VALUE, Short.MIN_VALUE, 500}, dst);
+    }
+
+    @Test
+    void selectedKernel_shouldMatchScalar() {
+        // Given
+        short[] bed = randomSamples(1);
+        short[] over = randomSamples(2);
+        float[] env = FadeCurve.STEEP.envelope(SAMPLES / 2 + 1, 2, 1.0f, 0.2f);
+
+        // When
+        short[] expected = bed.clone();
+        short[] actual = bed.clone();
+        scalar.duck(expected, 0, env, 0, over, 0, SAMPLES);
+        vector.duck(actual, 0, env, 0, over, 0, SAMPLES);
+        scalar.mix(expected, 7, over, 3, SAMPLES - 7, 0.2f, 1.0f);
+        vector.mix(actual, 7, over, 3, SAMPLES - 7, 0.2f, 1.0f);
+
+        // Then
+        assertArrayEquals(expected, actual, "kernel " + vector.name() + " diverged from scalar");
+    }
+
+    @Test
+    void envelope_shouldRunFromStartToEndGain() {
+        float[] env = FadeCurve.SINUSOIDAL.envelope(100, 2, 1.0f, 0.25f);
+
+        assertEquals(1.0f, env[0], 1e-6);
+        assertEquals(1.0f, env[1], 1e-6);
+        assertEquals(0.25f, env[env.length - 1], 1e-6);
+        assertEquals((float) Math.pow(0.5, 3.5), FadeCurve.STEEP.gain(0.5f), 1e-3);
+    }
+
+    private static short[] randomSamples(long seed) {
+        Random random = new Random(seed);
+        short[] samples = new short[SAMPLES];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) random.nextInt(Short.MIN_VALUE, Short.MAX_VALUE + 1);
+        }
+        return samples;
+    }
+}
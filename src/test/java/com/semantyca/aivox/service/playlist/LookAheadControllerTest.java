@@ -0,0 +1,73 @@
+package com.semantyca.aivox.service.playlist;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LookAheadControllerTest {
+    private static final long MAX_BYTES = 100L * 1024 * 1024;
+
+    @Test
+    void plan_shouldCoverTargetPlusPreparationTime() {
+        // Given: no fill measured yet, so 30s preparation and 180s fragments are assumed
+        LookAheadController controller = new LookAheadController(300, MAX_BYTES);
+
+        // When: 100s ready, 230s missing
+        int fills = controller.plan(100, 0, 10);
+
+        // Then
+        assertEquals(2, fills);
+        assertEquals(30_000, controller.preparationP95Millis());
+    }
+
+    @Test
+    void plan_shouldCountFillsInFlightUntilSettled() {
+        // Given
+        LookAheadController controller = new LookAheadController(120, MAX_BYTES);
+        assertEquals(1, controller.plan(0, 0, 10));
+
+        // When / Then: the fill in flight covers the deficit
+        assertEquals(0, controller.plan(0, 0, 10));
+
+        // a fill dropped before it began is planned again
+        controller.fillsCancelled(1);
+        assertEquals(1, controller.plan(0, 0, 10));
+
+        // a failed fill frees its slot without being measured
+        controller.fillFinished(false, 90_000);
+        assertEquals(30_000, controller.preparationP95Millis());
+        assertEquals(1, controller.plan(0, 0, 10));
+    }
+
+    @Test
+    void fillFinished_shouldFeedPreparationP95() {
+        // Given: an hour to fill, 21 fragments planned
+        LookAheadController controller = new LookAheadController(3_600, MAX_BYTES);
+        assertEquals(21, controller.plan(0, 0, 100));
+
+        // When: twenty of them are added, one of those slowly, the last is cancelled
+        for (int i = 0; i < 20; i++) {
+            controller.fillFinished(true, i == 0 ? 60_000 : 1_000 + i);
+        }
+        controller.fillsCancelled(1);
+
+        // Then: the slowest of twenty is above the 95th percentile, which sets the extra look-ahead
+        assertEquals(1_019, controller.preparationP95Millis());
+        assertEquals(0, controller.plan(3_601.5, 0, 100));
+        assertEquals(1, controller.plan(3_600.5, 0, 100));
+    }
+
+    @Test
+    void plan_shouldRespectRoomAndMemoryCap() {
+        // Given: a deficit of several fragments
+        LookAheadController controller = new LookAheadController(1_000, MAX_BYTES);
+
+        // When / Then: never more than the free slots, counting fills in flight
+        assertEquals(2, controller.plan(0, 0, 2));
+        assertEquals(0, controller.plan(0, 0, 2));
+        controller.fillsCancelled(2);
+
+        // nothing while the ready audio holds the memory cap
+        assertEquals(0, controller.plan(0, MAX_BYTES, 10));
+    }
+}
@@ -0,0 +1,143 @@
+package com.semantyca.aivox.service.playlist;
+
+import com.semantyca.aivox.streaming.LiveSoundFragment;
+import com.semantyca.aivox.streaming.SongMetadata;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadyFragmentQueueTest {
+    private static final Instant NOW = Instant.parse("2026-01-01T12:00:00Z");
+
+    @Test
+    void poll_shouldOrderBySpliceThenPriorityThenDeadlineThenArrival() {
+        // Given
+        ReadyFragmentQueue queue = new ReadyFragmentQueue(5, 5, 1);
+        LiveSoundFragment regularFirst = fragment("regular-1", ReadyFragmentQueue.REGULAR_PRIORITY, null);
+        LiveSoundFragment regularSecond = fragment("regular-2", ReadyFragmentQueue.REGULAR_PRIORITY, null);
+        LiveSoundFragment noDeadline = fragment("no-deadline", 5, null);
+        LiveSoundFragment lateDeadline = fragment("late", 5, NOW.plusSeconds(600));
+        LiveSoundFragment earlyDeadline = fragment("early", 5, NOW.plusSeconds(60));
+        LiveSoundFragment splice = splice("splice", 5);
+
+        // When
+        for (LiveSoundFragment fragment : List.of(regularFirst, noDeadline, lateDeadline, regularSecond, earlyDeadline, splice)) {
+            assertTrue(queue.offer(fragment));
+        }
+
+        // Then
+        List<LiveSoundFragment> aired = new ArrayList<>();
+        for (LiveSoundFragment next = queue.poll(); next != null; next = queue.poll()) {
+            aired.add(next);
+        }
+        assertEquals(List.of(splice, earlyDeadline, lateDeadline, noDeadline, regularFirst, regularSecond), aired);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void offer_shouldKeepSeparateBudgets() {
+        // Given: regular fills use up their capacity
+        ReadyFragmentQueue queue = new ReadyFragmentQueue(1, 2, 1);
+        assertTrue(queue.offer(fragment("r1", ReadyFragmentQueue.REGULAR_PRIORITY, null)));
+        assertTrue(queue.offer(fragment("r2", ReadyFragmentQueue.REGULAR_PRIORITY, null)));
+
+        // When / Then: regular is full, prioritized still has its own slot
+        assertFalse(queue.hasRoom(ReadyFragmentQueue.REGULAR_PRIORITY));
+        assertFalse(queue.offer(fragment("r3", ReadyFragmentQueue.REGULAR_PRIORITY, null)));
+        assertTrue(queue.hasRoom(3));
+        assertTrue(queue.offer(fragment("p1", 3, null)));
+        assertFalse(queue.offer(fragment("p2", 3, null)));
+        assertEquals(1, queue.prioritizedSize());
+        assertEquals(2, queue.regularSize());
+
+        // and polling frees the budget of the class that was polled
+        queue.poll();
+        assertTrue(queue.hasRoom(3));
+        assertFalse(queue.hasRoom(ReadyFragmentQueue.REGULAR_PRIORITY));
+    }
+
+    @Test
+    void pollSplice_shouldOnlyTakeSpliceHead() {
+        // Given: priority 0 from a producer is just the front of the queue, not a splice
+        ReadyFragmentQueue queue = new ReadyFragmentQueue(5, 5, 1);
+        LiveSoundFragment first = fragment("first", 0, null);
+        LiveSoundFragment regular = fragment("regular", ReadyFragmentQueue.REGULAR_PRIORITY, null);
+        queue.offer(first);
+        queue.offer(regular);
+
+        // When / Then
+        assertNull(queue.pollSplice());
+        assertEquals(2, queue.size());
+
+        LiveSoundFragment splice = splice("splice", ReadyFragmentQueue.REGULAR_PRIORITY);
+        queue.offer(splice);
+        assertSame(splice, queue.pollSplice());
+        assertEquals(1, queue.prioritizedSize());
+        assertEquals(1, queue.regularSize());
+        assertSame(first, queue.poll());
+    }
+
+    @Test
+    void removeMissed_shouldDropWhatWouldStartAfterItsDeadline() {
+        // Given: 60s already pending in the streamer, every fragment is 100s long
+        ReadyFragmentQueue queue = new ReadyFragmentQueue(5, 5, 1);
+        LiveSoundFragment first = fragment("first", 3, NOW.plusSeconds(90));
+        LiveSoundFragment missed = fragment("missed", 3, NOW.plusSeconds(120));
+        LiveSoundFragment after = fragment("after", 3, NOW.plusSeconds(200));
+        LiveSoundFragment regular = fragment("regular", ReadyFragmentQueue.REGULAR_PRIORITY, null);
+        List.of(first, missed, after, regular).forEach(queue::offer);
+
+        // When: first starts at +60s, missed would start at +160s, after takes its place at +160s
+        List<LiveSoundFragment> dropped = queue.removeMissed(NOW, 60, f -> 100);
+
+        // Then
+        assertEquals(List.of(missed), dropped);
+        assertEquals(2, queue.prioritizedSize());
+        assertTrue(queue.hasRoom(3));
+        assertEquals(List.of(first, after, regular), new ArrayList<>(queue.fragments()));
+    }
+
+    @Test
+    void claimRefill_shouldBeGrantedOnceUntilNextOffer() {
+        // Given: low-water mark of two
+        ReadyFragmentQueue queue = new ReadyFragmentQueue(5, 5, 2);
+        queue.offer(fragment("a", ReadyFragmentQueue.REGULAR_PRIORITY, null));
+        queue.offer(fragment("b", ReadyFragmentQueue.REGULAR_PRIORITY, null));
+        assertFalse(queue.claimRefill());
+
+        // When: the queue drops below the mark
+        queue.poll();
+
+        // Then: exactly one caller is told to refill
+        assertTrue(queue.claimRefill());
+        assertFalse(queue.claimRefill());
+        queue.poll();
+        assertFalse(queue.claimRefill());
+
+        // and an arrival re-arms it
+        queue.offer(fragment("c", ReadyFragmentQueue.REGULAR_PRIORITY, null));
+        assertTrue(queue.claimRefill());
+    }
+
+    private static LiveSoundFragment splice(String title, int priority) {
+        LiveSoundFragment fragment = fragment(title, priority, null);
+        fragment.setSplice(true);
+        return fragment;
+    }
+
+    private static LiveSoundFragment fragment(String title, int priority, Instant deadline) {
+        UUID id = UUID.randomUUID();
+        LiveSoundFragment fragment = new LiveSoundFragment(id, 0, priority, new SongMetadata(id, title, "artist"));
+        fragment.setDeadline(deadline);
+        return fragment;
+    }
+}
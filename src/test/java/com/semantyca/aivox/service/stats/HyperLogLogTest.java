@@ -0,0 +1,64 @@
+package com.semantyca.aivox.service.stats;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimate_shouldStayWithinErrorBound() {
+        for (int distinct : new int[]{10, 1_000, 100_000}) {
+            // Given
+            HyperLogLog sketch = new HyperLogLog(StationTraffic.PRECISION);
+
+            // When: every listener is seen several times
+            for (int repeat = 0; repeat < 3; repeat++) {
+                for (int i = 0; i < distinct; i++) {
+                    sketch.add("10." + (i >> 16) + "." + ((i >> 8) & 0xff) + "." + (i & 0xff));
+                }
+            }
+
+            // Then: within four standard errors
+            double error = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+            assertTrue(error < 4 * 1.04 / Math.sqrt(sketch.sizeBytes()), distinct + " -> " + sketch.estimate());
+        }
+    }
+
+    @Test
+    void merge_shouldEqualSketchOfUnion() {
+        // Given: two nodes with overlapping audiences
+        HyperLogLog first = new HyperLogLog(12);
+        HyperLogLog second = new HyperLogLog(12);
+        HyperLogLog union = new HyperLogLog(12);
+        for (int i = 0; i < 20_000; i++) {
+            String ip = "ip-" + i;
+            (i < 12_000 ? first : second).add(ip);
+            if (i % 3 == 0) {
+                first.add(ip);
+            }
+            union.add(ip);
+        }
+
+        // When
+        first.merge(HyperLogLog.fromBytes(second.toBytes()));
+
+        // Then
+        assertEquals(union, first);
+        assertEquals(union.estimate(), first.estimate());
+    }
+
+    @Test
+    void toBytes_shouldRoundTrip() {
+        HyperLogLog sketch = new HyperLogLog(10);
+        sketch.add("192.168.0.1");
+        sketch.add("192.168.0.2");
+
+        byte[] bytes = sketch.toBytes();
+
+        assertEquals(1 + 1024, bytes.length);
+        assertArrayEquals(bytes, HyperLogLog.fromBytes(bytes).toBytes());
+    }
+}
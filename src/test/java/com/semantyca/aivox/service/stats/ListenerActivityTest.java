@@ -0,0 +1,57 @@
+package com.semantyca.aivox.service.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ListenerActivityTest {
+    private static final long IDLE_MILLIS = ListenerActivity.IDLE_AFTER.toMillis();
+
+    @Test
+    void advance_shouldReportOnlyStationsThatWentQuiet() {
+        // Given
+        ListenerActivity activity = new ListenerActivity();
+        long start = 1_000_000_000L;
+        activity.touch("busy", start);
+        activity.touch("quiet", start);
+        List<String> idle = new ArrayList<>();
+
+        // When: busy keeps getting requests every few seconds, quiet gets none
+        for (long now = start; now <= start + IDLE_MILLIS + 10_000; now += 1_000) {
+            if ((now - start) % 4_000 == 0) {
+                activity.touch("busy", now);
+            }
+            activity.advance(now, idle::add, name -> { });
+        }
+
+        // Then
+        assertEquals(List.of("quiet"), idle);
+    }
+
+    @Test
+    void touch_shouldReportResumptionAfterIdle() {
+        // Given: a station reported idle
+        ListenerActivity activity = new ListenerActivity();
+        long start = 2_000_000_000L;
+        activity.touch("station", start);
+        List<String> idle = new ArrayList<>();
+        List<String> resumed = new ArrayList<>();
+        long now = start;
+        for (; idle.isEmpty(); now += 1_000) {
+            activity.advance(now, idle::add, resumed::add);
+        }
+        assertTrue(now - start <= IDLE_MILLIS + 2_000, "expired within seconds of the deadline");
+
+        // When
+        activity.touch("station", now);
+        activity.advance(now, idle::add, resumed::add);
+
+        // Then
+        assertEquals(List.of("station"), resumed);
+        assertEquals(now, activity.lastAccess("station").toEpochMilli());
+    }
+}
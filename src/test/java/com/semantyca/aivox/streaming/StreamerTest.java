@@ -0,0 +1,183 @@
+package com.semantyca.aivox.streaming;
+
+import com.semantyca.aivox.config.HlsConfig;
+import com.semantyca.aivox.messaging.MetricPublisher;
+import com.semantyca.aivox.service.playlist.PlaylistManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StreamerTest {
+    private static final long HIGH = 128000L;
+    private static final long LOW = 64000L;
+
+    @Mock
+    PlaylistManager playlistManager;
+
+    @Mock
+    HlsConfig hlsConfig;
+
+    @Mock
+    SegmentFeederTimer segmentFeederTimer;
+
+    @Mock
+    SliderTimer sliderTimer;
+
+    @Mock
+    MetricPublisher metricPublisher;
+
+    private Streamer streamer;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(hlsConfig.getSegmentDuration()).thenReturn(10);
+        when(hlsConfig.getMaxVisibleSegments()).thenReturn(3);
+        streamer = new Streamer("test", playlistManager, hlsConfig, segmentFeederTimer, sliderTimer, metricPublisher);
+    }
+
+    @Test
+    void spliceNow_shouldCutCurrentSongAndKeepTheNextOne() {
+        // Given: song A (4 segments) on air with two published, song B (3 segments) queued behind it
+        LiveSoundFragment songA = fragment("A", 4);
+        LiveSoundFragment songB = fragment("B", 3);
+        LiveSoundFragment spliced = fragment("U", 2);
+        when(playlistManager.getNextLiveFragment()).thenReturn(songA, songB, null);
+        when(playlistManager.pollSpliceFragment()).thenReturn(null, null, null, spliced, null);
+        streamer.feedSegments();
+        streamer.feedSegments();
+        streamer.feedSegments();
+
+        // When: the splice arrives on the next tick
+        streamer.feedSegments();
+
+        // Then: A ended on its second segment, U took sequences 2 and 3, B follows from 4 on
+        for (int i = 0; i < 7; i++) {
+            streamer.feedSegments();
+            streamer.slideWindow();
+        }
+        for (long sequence = 4; sequence <= 6; sequence++) {
+            HlsSegment segment = streamer.getSegment("test", "test_" + HIGH + "_" + sequence + ".ts");
+            assertEquals("B", segment.getSongMetadata().getTitle());
+            assertEquals(sequence - 4, segment.getDuration());
+        }
+        verifySongFinished("A", 1);
+        verifySongFinished("U", 3);
+        verifySongFinished("B", 6);
+        verify(playlistManager).recordAired(songA.getSoundFragmentId());
+        verify(playlistManager).recordAired(spliced.getSoundFragmentId());
+        verify(playlistManager).recordAired(songB.getSoundFragmentId());
+    }
+
+    @Test
+    void spliceNow_shouldReuseSequencesAndMarkDiscontinuity() {
+        // Given: song A with two segments published, two pending
+        LiveSoundFragment songA = fragment("A", 4);
+        LiveSoundFragment spliced = fragment("U", 2);
+        when(playlistManager.getNextLiveFragment()).thenReturn(songA, (LiveSoundFragment) null);
+        when(playlistManager.pollSpliceFragment()).thenReturn(null);
+        streamer.feedSegments();
+        streamer.feedSegments();
+        streamer.feedSegments();
+
+        // When
+        streamer.spliceNow(spliced);
+        streamer.feedSegments();
+
+        // Then: the cut song ends on its last published segment in every bitrate
+        HlsSegment lastOfA = streamer.getSegment("test", "test_" + LOW + "_1.ts");
+        assertEquals("A", lastOfA.getSongMetadata().getTitle());
+        assertTrue(lastOfA.isLastSegmentOfFragment());
+        assertTrue(streamer.getSegment("test", "test_" + HIGH + "_1.ts").isLastSegmentOfFragment());
+
+        // the spliced fragment starts at the first unpublished sequence, after a discontinuity
+        HlsSegment firstOfU = streamer.getSegment("test", "test_" + HIGH + "_2.ts");
+        assertEquals("U", firstOfU.getSongMetadata().getTitle());
+        assertTrue(firstOfU.isDiscontinuity());
+        String playlist = streamer.generatePlaylist("test", HIGH);
+        assertTrue(playlist.contains("#EXT-X-DISCONTINUITY-SEQUENCE:0\n"));
+        assertTrue(playlist.contains("#EXT-X-DISCONTINUITY\n#EXTINF:0,U - artist\n/stream/test/segments/test_128000_2.ts\n"),
+                playlist);
+    }
+
+    @Test
+    void slideWindow_shouldCountDiscontinuitiesThatLeftTheWindow() {
+        // Given: a splice right after the first segment
+        LiveSoundFragment songA = fragment("A", 3);
+        LiveSoundFragment spliced = fragment("U", 5);
+        when(playlistManager.getNextLiveFragment()).thenReturn(songA, (LiveSoundFragment) null);
+        when(playlistManager.pollSpliceFragment()).thenReturn(null, null, spliced, null);
+
+        // When: the window of three moves past the spliced segment
+        for (int i = 0; i < 7; i++) {
+            streamer.feedSegments();
+            streamer.slideWindow();
+        }
+
+        // Then
+        String playlist = streamer.generatePlaylist("test", HIGH);
+        assertTrue(playlist.contains("#EXT-X-MEDIA-SEQUENCE:3\n"), playlist);
+        assertTrue(playlist.contains("#EXT-X-DISCONTINUITY-SEQUENCE:1\n"), playlist);
+        assertFalse(playlist.contains("#EXT-X-DISCONTINUITY\n"), playlist);
+    }
+
+    @Test
+    void feedSegments_shouldRecordOnlyWhatAired() {
+        // Given: song A with one segment live, song B already handed over by the playlist but still pending
+        LiveSoundFragment songA = fragment("A", 3);
+        LiveSoundFragment songB = fragment("B", 2);
+        LiveSoundFragment spliced = fragment("U", 1);
+        when(playlistManager.getNextLiveFragment()).thenReturn(songA, songB, null);
+        when(playlistManager.pollSpliceFragment()).thenReturn(null);
+        streamer.feedSegments();
+        streamer.feedSegments();
+
+        // When: a splice cuts A and U airs ahead of B
+        streamer.spliceNow(spliced);
+        streamer.feedSegments();
+
+        // Then
+        verify(playlistManager).recordAired(songA.getSoundFragmentId());
+        verify(playlistManager).recordAired(spliced.getSoundFragmentId());
+        verify(playlistManager, never()).recordAired(songB.getSoundFragmentId());
+    }
+
+    private void verifySongFinished(String title, long sequence) {
+        verify(metricPublisher).publishMetric(eq("test"), any(), eq("song_finished"),
+                argThat(payload -> title.equals(payload.get("title")) && Long.valueOf(sequence).equals(payload.get("sequence"))),
+                any());
+    }
+
+    private static LiveSoundFragment fragment(String title, int segmentCount) {
+        UUID id = UUID.randomUUID();
+        SongMetadata metadata = new SongMetadata(id, title, "artist");
+        Map<Long, ConcurrentLinkedQueue<HlsSegment>> segments = new ConcurrentHashMap<>();
+        for (long bitrate : new long[]{HIGH, LOW}) {
+            ConcurrentLinkedQueue<HlsSegment> queue = new ConcurrentLinkedQueue<>();
+            for (int i = 0; i < segmentCount; i++) {
+                // the duration doubles as the index within the fragment
+                queue.add(new HlsSegment(i, new byte[0], i, bitrate, metadata, i == 0));
+            }
+            segments.put(bitrate, queue);
+        }
+        LiveSoundFragment fragment = new LiveSoundFragment(id, 0, 0, metadata);
+        fragment.setSegments(segments);
+        return fragment;
+    }
+}